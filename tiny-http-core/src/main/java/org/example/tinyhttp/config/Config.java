@@ -4,7 +4,7 @@ import java.util.Locale;
 // import java.util.Properties;
 
 public final class Config {
-  public final int port;
+  public final int port; // TCP listener, -1 = none (UNIX socket only)
   public final int acceptBacklog;
   public final int workerThreads;
   public final int queueCapacity;
@@ -13,11 +13,35 @@ public final class Config {
   public final int socketReadTimeoutMs;
   public final int maxRequestsPerConn;
   public final int shutdownGraceSeconds; // drain window
+  public final int maxQueryParams; // guard against query-string bombs
+  public final int responseBufferSize; // streamed bodies up to this size still get a Content-Length
+  public final int compressionLevel; // 1..9, 0 turns gzip/deflate off
+  public final int compressionMinBytes; // smaller bodies are sent as-is
+  public final long compressionCacheBytes; // budget for cached compressed variants, 0 = no cache
+  public final long staticCacheBytes; // budget for cached static files (heap + mapped), 0 = no cache
+  public final int staticCacheInlineMax; // cached files up to this size live on the heap, larger ones are mapped
+  public final int http2MaxConcurrentStreams; // streams per h2c connection, 0 = HTTP/1.1 only
+  public final String tlsKeystore; // PKCS12/JKS file for HTTPS, empty = plain HTTP
+  public final String tlsKeystorePassword;
+  public final int tlsSessionCacheSize; // TLS 1.2 sessions kept for resumption
+  public final int tlsSessionTimeoutSeconds; // lifetime of cached sessions and TLS 1.3 tickets
+  public final String unixSocketPath; // UNIX domain socket listener, empty = none
+  public final boolean tcpNoDelay; // Nagle off: responses are already coalesced into one write
+  public final int socketSendBuffer; // SO_SNDBUF bytes, 0 = OS default
+  public final int socketReceiveBuffer; // SO_RCVBUF bytes, 0 = OS default
+  public final boolean socketKeepAlive; // SO_KEEPALIVE probes for dead peers
+  public final int socketLingerSeconds; // SO_LINGER, -1 = off (0 resets on close)
+  public final int writeBufferSize; // per-connection buffer that coalesces response writes
   public final String logFormat; // "plain" | "json"
 
   private Config(int port, int acceptBacklog, int workerThreads, int queueCapacity,
                  int headerReadTimeoutMs, int keepAliveIdleTimeoutMs, int socketReadTimeoutMs,
-                 int maxRequestsPerConn, int shutdownGraceSeconds, String logFormat) {
+                 int maxRequestsPerConn, int shutdownGraceSeconds, int maxQueryParams, int responseBufferSize,
+                 int compressionLevel, int compressionMinBytes, long compressionCacheBytes,
+                 long staticCacheBytes, int staticCacheInlineMax, int http2MaxConcurrentStreams,
+                 String tlsKeystore, String tlsKeystorePassword, int tlsSessionCacheSize, int tlsSessionTimeoutSeconds,
+                 String unixSocketPath, boolean tcpNoDelay, int socketSendBuffer, int socketReceiveBuffer,
+                 boolean socketKeepAlive, int socketLingerSeconds, int writeBufferSize, String logFormat) {
     this.port = port;
     this.acceptBacklog = acceptBacklog;
     this.workerThreads = workerThreads;
@@ -27,9 +51,52 @@ public final class Config {
     this.socketReadTimeoutMs = socketReadTimeoutMs;
     this.maxRequestsPerConn = maxRequestsPerConn;
     this.shutdownGraceSeconds = shutdownGraceSeconds;
+    this.maxQueryParams = maxQueryParams;
+    this.responseBufferSize = responseBufferSize;
+    this.compressionLevel = compressionLevel;
+    this.compressionMinBytes = compressionMinBytes;
+    this.compressionCacheBytes = compressionCacheBytes;
+    this.staticCacheBytes = staticCacheBytes;
+    this.staticCacheInlineMax = staticCacheInlineMax;
+    this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    this.tlsKeystore = tlsKeystore;
+    this.tlsKeystorePassword = tlsKeystorePassword;
+    this.tlsSessionCacheSize = tlsSessionCacheSize;
+    this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+    this.unixSocketPath = unixSocketPath;
+    this.tcpNoDelay = tcpNoDelay;
+    this.socketSendBuffer = socketSendBuffer;
+    this.socketReceiveBuffer = socketReceiveBuffer;
+    this.socketKeepAlive = socketKeepAlive;
+    this.socketLingerSeconds = socketLingerSeconds;
+    this.writeBufferSize = writeBufferSize;
     this.logFormat = logFormat;
   }
 
+  /** Same settings, serving HTTPS with the given keystore. */
+  public Config withTls(String keystore, String password) {
+    return new Config(port, acceptBacklog, workerThreads, queueCapacity,
+        headerReadTimeoutMs, keepAliveIdleTimeoutMs, socketReadTimeoutMs,
+        maxRequestsPerConn, shutdownGraceSeconds, maxQueryParams, responseBufferSize,
+        compressionLevel, compressionMinBytes, compressionCacheBytes,
+        staticCacheBytes, staticCacheInlineMax, http2MaxConcurrentStreams,
+        keystore, password, tlsSessionCacheSize, tlsSessionTimeoutSeconds, unixSocketPath,
+        tcpNoDelay, socketSendBuffer, socketReceiveBuffer, socketKeepAlive, socketLingerSeconds, writeBufferSize,
+        logFormat);
+  }
+
+  /** Same settings, also listening on a UNIX domain socket at {@code path}; {@code tcp} false drops the TCP port. */
+  public Config withUnixSocket(String path, boolean tcp) {
+    return new Config(tcp ? port : -1, acceptBacklog, workerThreads, queueCapacity,
+        headerReadTimeoutMs, keepAliveIdleTimeoutMs, socketReadTimeoutMs,
+        maxRequestsPerConn, shutdownGraceSeconds, maxQueryParams, responseBufferSize,
+        compressionLevel, compressionMinBytes, compressionCacheBytes,
+        staticCacheBytes, staticCacheInlineMax, http2MaxConcurrentStreams,
+        tlsKeystore, tlsKeystorePassword, tlsSessionCacheSize, tlsSessionTimeoutSeconds, path,
+        tcpNoDelay, socketSendBuffer, socketReceiveBuffer, socketKeepAlive, socketLingerSeconds, writeBufferSize,
+        logFormat);
+  }
+
   public static Config load(String[] args) {
     // defaults
     int cpu = Math.max(2, Runtime.getRuntime().availableProcessors());
@@ -44,6 +111,25 @@ public final class Config {
     int socketReadTimeoutMs     = intOf(envOrProp("SOCKET_READ_TIMEOUT_MS", "tiny.socketReadTimeoutMs", "10000"));
     int maxReqPerConn           = intOf(envOrProp("MAX_REQUESTS_PER_CONN", "tiny.maxRequestsPerConn", "100"));
     int shutdownGraceSeconds    = intOf(envOrProp("SHUTDOWN_GRACE_SECONDS", "tiny.shutdownGraceSeconds", "10"));
+    int maxQueryParams          = intOf(envOrProp("MAX_QUERY_PARAMS", "tiny.maxQueryParams", "1000"));
+    int responseBufferSize      = intOf(envOrProp("RESPONSE_BUFFER_SIZE", "tiny.responseBufferSize", "8192"));
+    int compressionLevel        = intOf(envOrProp("COMPRESSION_LEVEL", "tiny.compressionLevel", "6"));
+    int compressionMinBytes     = intOf(envOrProp("COMPRESSION_MIN_BYTES", "tiny.compressionMinBytes", "1024"));
+    long compressionCacheBytes  = longOf("COMPRESSION_CACHE_BYTES", "tiny.compressionCacheBytes", "16777216", 0);
+    long staticCacheBytes       = longOf("STATIC_CACHE_BYTES", "tiny.staticCacheBytes", "67108864", 0);
+    int staticCacheInlineMax    = intOf(envOrProp("STATIC_CACHE_INLINE_MAX", "tiny.staticCacheInlineMax", "65536"));
+    int http2MaxStreams         = intOf(envOrProp("HTTP2_MAX_CONCURRENT_STREAMS", "tiny.http2MaxConcurrentStreams", "100"));
+    String tlsKeystore          = envOrProp("TLS_KEYSTORE", "tiny.tlsKeystore", "");
+    String tlsKeystorePassword  = envOrProp("TLS_KEYSTORE_PASSWORD", "tiny.tlsKeystorePassword", "");
+    int tlsSessionCacheSize     = intOf(envOrProp("TLS_SESSION_CACHE_SIZE", "tiny.tlsSessionCacheSize", "10000"));
+    int tlsSessionTimeoutSec    = intOf(envOrProp("TLS_SESSION_TIMEOUT_SECONDS", "tiny.tlsSessionTimeoutSeconds", "86400"));
+    String unixSocketPath       = envOrProp("UNIX_SOCKET_PATH", "tiny.unixSocketPath", "");
+    boolean tcpNoDelay          = boolOf(envOrProp("TCP_NODELAY", "tiny.tcpNoDelay", "true"));
+    int socketSendBuffer        = intOf("SO_SNDBUF", "tiny.socketSendBuffer", "0", 0, Integer.MAX_VALUE);
+    int socketReceiveBuffer     = intOf("SO_RCVBUF", "tiny.socketReceiveBuffer", "0", 0, Integer.MAX_VALUE);
+    boolean socketKeepAlive     = boolOf(envOrProp("SO_KEEPALIVE", "tiny.socketKeepAlive", "false"));
+    int socketLingerSeconds     = intOf("SO_LINGER_SECONDS", "tiny.socketLingerSeconds", "-1", -1, 65_535);
+    int writeBufferSize         = intOf("WRITE_BUFFER_SIZE", "tiny.writeBufferSize", "8192", 512, 1 << 24);
     String logFormat            = envOrProp("LOG_FORMAT", "tiny.logFormat", "plain").toLowerCase(Locale.ROOT);
 
     for (String a : args) {
@@ -54,7 +140,12 @@ public final class Config {
 
     return new Config(port, backlog, workerThreads, queueCapacity,
         headerReadTimeoutMs, keepAliveIdleTimeoutMs, socketReadTimeoutMs,
-        maxReqPerConn, shutdownGraceSeconds, logFormat);
+        maxReqPerConn, shutdownGraceSeconds, maxQueryParams, responseBufferSize,
+        compressionLevel, compressionMinBytes, compressionCacheBytes,
+        staticCacheBytes, staticCacheInlineMax, http2MaxStreams,
+        tlsKeystore, tlsKeystorePassword, tlsSessionCacheSize, tlsSessionTimeoutSec,
+        unixSocketPath, tcpNoDelay, socketSendBuffer, socketReceiveBuffer, socketKeepAlive, socketLingerSeconds,
+        writeBufferSize, logFormat);
   }
 
   private static String envOrProp(String env, String prop, String def) {
@@ -64,10 +155,31 @@ public final class Config {
   }
   private static int intOf(String s) { return Integer.parseInt(s); }
 
+  // Byte budgets: a typo or a value below min fails startup naming the setting
+  private static long longOf(String env, String prop, String def, long min) {
+    String s = envOrProp(env, prop, def);
+    long v;
+    try {
+      v = Long.parseLong(s);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(env + " must be a whole number: " + s);
+    }
+    if (v < min) throw new IllegalArgumentException(env + " must be at least " + min + ": " + v);
+    return v;
+  }
+
+  // Socket options: rejected here rather than by the first accepted connection
+  private static int intOf(String env, String prop, String def, int min, int max) {
+    long v = longOf(env, prop, def, min);
+    if (v > max) throw new IllegalArgumentException(env + " must be at most " + max + ": " + v);
+    return (int) v;
+  }
+  private static boolean boolOf(String s) { return Boolean.parseBoolean(s); }
+
   private static void printHelpAndExit() {
     System.out.println("""
       tiny-http configuration (env or -Dprop):
-        PORT / -Dtiny.port                      (default 8080)
+        PORT / -Dtiny.port                      (-1 = no TCP listener) (default 8080)
         ACCEPT_BACKLOG / -Dtiny.acceptBacklog   (default 128)
         WORKER_THREADS / -Dtiny.workerThreads   (default = CPU cores or 2)
         QUEUE_CAPACITY / -Dtiny.queueCapacity   (default 256)
@@ -76,6 +188,25 @@ public final class Config {
         SOCKET_READ_TIMEOUT_MS / -Dtiny.socketReadTimeoutMs (default 10000)
         MAX_REQUESTS_PER_CONN / -Dtiny.maxRequestsPerConn (default 100)
         SHUTDOWN_GRACE_SECONDS / -Dtiny.shutdownGraceSeconds (default 10)
+        MAX_QUERY_PARAMS / -Dtiny.maxQueryParams (default 1000)
+        RESPONSE_BUFFER_SIZE / -Dtiny.responseBufferSize (default 8192)
+        COMPRESSION_LEVEL / -Dtiny.compressionLevel (1..9, 0 = off) (default 6)
+        COMPRESSION_MIN_BYTES / -Dtiny.compressionMinBytes (default 1024)
+        COMPRESSION_CACHE_BYTES / -Dtiny.compressionCacheBytes (default 16777216)
+        STATIC_CACHE_BYTES / -Dtiny.staticCacheBytes (0 = off) (default 67108864)
+        STATIC_CACHE_INLINE_MAX / -Dtiny.staticCacheInlineMax (default 65536)
+        HTTP2_MAX_CONCURRENT_STREAMS / -Dtiny.http2MaxConcurrentStreams (0 = no h2c) (default 100)
+        TLS_KEYSTORE / -Dtiny.tlsKeystore       (PKCS12 or JKS, empty = plain HTTP) (default empty)
+        TLS_KEYSTORE_PASSWORD / -Dtiny.tlsKeystorePassword (default empty)
+        TLS_SESSION_CACHE_SIZE / -Dtiny.tlsSessionCacheSize (default 10000)
+        TLS_SESSION_TIMEOUT_SECONDS / -Dtiny.tlsSessionTimeoutSeconds (default 86400)
+        UNIX_SOCKET_PATH / -Dtiny.unixSocketPath (also serve on this UNIX domain socket) (default empty)
+        TCP_NODELAY / -Dtiny.tcpNoDelay         (true | false) (default true)
+        SO_SNDBUF / -Dtiny.socketSendBuffer     (0 = OS default) (default 0)
+        SO_RCVBUF / -Dtiny.socketReceiveBuffer  (0 = OS default) (default 0)
+        SO_KEEPALIVE / -Dtiny.socketKeepAlive   (true | false) (default false)
+        SO_LINGER_SECONDS / -Dtiny.socketLingerSeconds (-1 = off, up to 65535) (default -1)
+        WRITE_BUFFER_SIZE / -Dtiny.writeBufferSize (512..16777216) (default 8192)
         LOG_FORMAT / -Dtiny.logFormat           (plain | json) (default plain)
       Usage: java -jar tiny-http.jar [--help]
     """);
@@ -84,6 +215,8 @@ public final class Config {
 
   public static Config forTesting(int port) {
     // int cpu = Math.max(2, Runtime.getRuntime().availableProcessors());
-    return new Config(port, 128, 2, 256, 3000, 5000, 10000, 100, 10, "plain");
+    return new Config(port, 128, 2, 256, 3000, 5000, 10000, 100, 10, 1000, 8192, 6, 1024, 16L << 20,
+        64L << 20, 65536, 100, "", "", 10000, 86400, "", true, 0, 0, false, -1,
+        8192, "plain");
 }
 }
\ No newline at end of file
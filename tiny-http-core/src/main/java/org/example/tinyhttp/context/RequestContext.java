@@ -1,19 +1,46 @@
 package org.example.tinyhttp.context;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SocketChannel;
 import java.util.Map;
+import java.util.UUID;
 
 import org.example.tinyhttp.config.Config;
+import org.example.tinyhttp.http.request.Accepts;
 import org.example.tinyhttp.http.request.HttpRequest;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.http.response.ResponseStream;
 import org.example.tinyhttp.parsing.Url;
+import org.example.tinyhttp.server.ConnectionOutput;
+import org.example.tinyhttp.sse.EventSink;
+import org.example.tinyhttp.sse.SseHub;
+import org.example.tinyhttp.websocket.WebSocket;
+import org.example.tinyhttp.websocket.WebSocketHandler;
+import org.example.tinyhttp.websocket.WebSocketOptions;
 
 public class RequestContext {
   private final HttpRequest req;
   private final Url url;
   private final Map<String, String> pathVars;
+  private final Map<String, Object> pathValues; // parsed once by the router
   private final Config config;
+  private int wantsJson = -1; // lazily computed from Accept
+  private OutputStream out;     // bound by the server before the handler runs
+  private boolean keepAlive;
+  private ResponseStream stream;
+  private SocketChannel channel; // the connection, for handlers that take it over
+  private InputStream in;        // its buffered input, positioned after this request
+  private boolean detached;
 
   public RequestContext(HttpRequest req, Url url, Map<String, String> pathVars, Config config) {
-    this.req = req; this.url = url; this.pathVars = pathVars; this.config = config;
+    this(req, url, pathVars, Map.copyOf(pathVars), config);
+  }
+
+  public RequestContext(HttpRequest req, Url url, Map<String, String> pathVars, Map<String, Object> pathValues,
+    Config config) {
+    this.req = req; this.url = url; this.pathVars = pathVars; this.pathValues = pathValues; this.config = config;
   }
 
   public HttpRequest request(){ return req; }
@@ -23,4 +50,98 @@ public class RequestContext {
 
   public String pathVars(String name) { return pathVars.get(name);}
   public String query(String key) { return url.q1(key);}
+
+  /** Binds the connection output this request's response goes to. */
+  public RequestContext withOutput(OutputStream out, boolean keepAlive){
+    this.out = out;
+    this.keepAlive = keepAlive;
+    return this;
+  }
+
+  public boolean keepAlive(){ return keepAlive; }
+
+  /** Binds the connection so a handler can take it over (event streams, WebSocket). */
+  public RequestContext withConnection(SocketChannel channel, InputStream in){
+    this.channel = channel;
+    this.in = in;
+    return this;
+  }
+
+  /** True once the handler took the connection away from the server; the server neither reads nor closes it again. */
+  public boolean detached(){ return detached; }
+
+  /**
+   * Answers with a Server-Sent Events stream and hands the connection to {@code hub}. The worker thread
+   * is free as soon as the handler returns; events go out through the returned sink or {@link SseHub#publish}.
+   * A HEAD request only gets the head and returns null: nothing is subscribed and the connection stays HTTP.
+   */
+  public EventSink events(SseHub hub, String[][] extraHeaders) throws IOException {
+    if(out == null) throw new IllegalStateException("No connection bound to this request");
+    if(stream != null || detached) throw new IllegalStateException("Response already started");
+    if("HEAD".equals(req.getMethod())){
+      HttpResponses.writeEventStreamHead(out, extraHeaders, keepAlive);
+      out.flush();
+      return null;
+    }
+    if(channel == null) throw new IllegalStateException("No connection bound to this request");
+    HttpResponses.writeEventStreamHead(out, extraHeaders);
+    if(out instanceof ConnectionOutput co) co.flushNow(); // the hub writes to the channel directly from now on
+    else out.flush();
+    detached = true;
+    return hub.subscribe(channel);
+  }
+
+  /**
+   * Upgrades to a WebSocket served by {@code handler} on its own virtual thread. Returns null when the
+   * request was not a valid upgrade; it has been answered (400/426) and the connection stays HTTP.
+   */
+  public WebSocket upgrade(WebSocketHandler handler, WebSocketOptions options) throws IOException {
+    if(out == null || channel == null || in == null) throw new IllegalStateException("No connection bound to this request");
+    if(stream != null || detached) throw new IllegalStateException("Response already started");
+    if(!"GET".equals(req.getMethod())){
+      HttpResponses.writeText(out, 426, "Upgrade Required", "WebSocket upgrade requires GET\n", keepAlive,
+        new String[][]{{"Upgrade", "websocket"}});
+      return null;
+    }
+    WebSocket ws = WebSocket.accept(req.getHeaders(), channel.socket(), in, out, keepAlive, handler, options);
+    if(ws != null) detached = true;
+    return ws;
+  }
+
+  public ResponseStream stream(int status, String reason, String contentType){
+    return stream(status, reason, contentType, null);
+  }
+
+  /** Streaming body: chunked once it outgrows the response buffer, Content-Length otherwise. Close it to finish. */
+  public ResponseStream stream(int status, String reason, String contentType, String[][] extraHeaders){
+    if(out == null) throw new IllegalStateException("No response output bound to this request");
+    if(stream != null) throw new IllegalStateException("Response stream already opened");
+    stream = new ResponseStream(out, status, reason, contentType, keepAlive, extraHeaders,
+      config == null ? 8192 : config.responseBufferSize);
+    return stream;
+  }
+
+  /** Called by the server after the handler returns: completes a stream the handler left open. */
+  public void finishResponse() throws IOException {
+    if(stream != null) stream.close();
+  }
+
+  public boolean wantsJson(){
+    if(wantsJson < 0) wantsJson = Accepts.wantsJson(req.getHeaders()) ? 1 : 0;
+    return wantsJson == 1;
+  }
+
+  // Typed path values, e.g. ":id{int}" -> pathInt("id"). No re-parsing: the router already converted them.
+  public Object pathValue(String name) { return pathValues.get(name); }
+  public int pathInt(String name) { return typed(name, Number.class).intValue(); }
+  public long pathLong(String name) { return typed(name, Number.class).longValue(); }
+  public UUID pathUuid(String name) { return typed(name, UUID.class); }
+
+  private <T> T typed(String name, Class<T> type){
+    Object v = pathValues.get(name);
+    if(!type.isInstance(v)){
+      throw new IllegalStateException("Path variable '" + name + "' is not a " + type.getSimpleName() + ": " + v);
+    }
+    return type.cast(v);
+  }
 }
@@ -0,0 +1,38 @@
+package org.example.tinyhttp.files;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/** Content-Type by file extension; unknown extensions are served as application/octet-stream. */
+public final class MimeTypes {
+  private MimeTypes(){}
+
+  public static final String DEFAULT = "application/octet-stream";
+  private static final Map<String, String> BY_EXT = new HashMap<>();
+  static {
+    text("html", "text/html"); text("htm", "text/html"); text("css", "text/css");
+    text("js", "text/javascript"); text("mjs", "text/javascript"); text("txt", "text/plain");
+    text("csv", "text/csv"); text("md", "text/markdown");
+    text("json", "application/json"); text("map", "application/json"); text("xml", "application/xml");
+    text("svg", "image/svg+xml");
+    BY_EXT.put("png", "image/png"); BY_EXT.put("jpg", "image/jpeg"); BY_EXT.put("jpeg", "image/jpeg");
+    BY_EXT.put("gif", "image/gif"); BY_EXT.put("webp", "image/webp"); BY_EXT.put("avif", "image/avif");
+    BY_EXT.put("ico", "image/x-icon");
+    BY_EXT.put("woff", "font/woff"); BY_EXT.put("woff2", "font/woff2"); BY_EXT.put("ttf", "font/ttf");
+    BY_EXT.put("otf", "font/otf");
+    BY_EXT.put("pdf", "application/pdf"); BY_EXT.put("wasm", "application/wasm"); BY_EXT.put("zip", "application/zip");
+    BY_EXT.put("gz", "application/gzip");
+    BY_EXT.put("mp4", "video/mp4"); BY_EXT.put("webm", "video/webm"); BY_EXT.put("mp3", "audio/mpeg");
+  }
+
+  private static void text(String ext, String type){
+    BY_EXT.put(ext, type + "; charset=utf-8");
+  }
+
+  public static String forFileName(String name){
+    int dot = name.lastIndexOf('.');
+    if(dot < 0 || dot == name.length() - 1) return DEFAULT;
+    return BY_EXT.getOrDefault(name.substring(dot + 1).toLowerCase(Locale.ROOT), DEFAULT);
+  }
+}
@@ -0,0 +1,228 @@
+package org.example.tinyhttp.files;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.example.tinyhttp.config.Config;
+import org.example.tinyhttp.http.response.PreparedResponse;
+
+/**
+ * Static files kept in memory so a hit costs no open/stat: small (and compressible) files as
+ * {@link PreparedResponse}s with their compressed variants precomputed, larger ones as shared
+ * read-only {@link MappedByteBuffer}s. Entries are evicted LRU once their bytes exceed the budget,
+ * and dropped when a {@link WatchService} on the served roots reports the file changed.
+ *
+ * <p>Mapped files should be replaced (write + rename), not rewritten in place: a request already
+ * sending a truncated mapping fails. Evicted mappings are released by the GC.
+ */
+public final class StaticFileCache implements AutoCloseable {
+
+  /** A cached file: either a prepared response or a mapping sent with its headers. */
+  static final class Entry {
+    final Path file;
+    final long bytes;
+    final PreparedResponse prepared;
+    final MappedByteBuffer mapped;
+    final String contentType;
+    final String[][] headers;
+
+    Entry(Path file, PreparedResponse prepared) {
+      this.file = file;
+      this.bytes = prepared.body().length;
+      this.prepared = prepared;
+      this.mapped = null;
+      this.contentType = prepared.contentType();
+      this.headers = null;
+    }
+
+    Entry(Path file, MappedByteBuffer mapped, String contentType, String[][] headers) {
+      this.file = file;
+      this.bytes = mapped.capacity();
+      this.prepared = null;
+      this.mapped = mapped;
+      this.contentType = contentType;
+      this.headers = headers;
+    }
+  }
+
+  private final long budgetBytes;
+  private final int inlineMaxBytes;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private long storedBytes;
+  private long generation; // bumped by every invalidation so loads that raced one are not stored
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+
+  private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+  private WatchService watcher;
+  private Thread watchThread;
+
+  public StaticFileCache(long budgetBytes, int inlineMaxBytes) {
+    if (budgetBytes <= 0) throw new IllegalArgumentException("Static cache budget must be positive: " + budgetBytes);
+    this.budgetBytes = budgetBytes;
+    this.inlineMaxBytes = inlineMaxBytes;
+  }
+
+  /** Cache sized from STATIC_CACHE_BYTES / STATIC_CACHE_INLINE_MAX, or null when the budget is 0. */
+  public static StaticFileCache of(Config c) {
+    return c.staticCacheBytes > 0 ? new StaticFileCache(c.staticCacheBytes, c.staticCacheInlineMax) : null;
+  }
+
+  public int inlineMaxBytes() { return inlineMaxBytes; }
+
+  /** Whether a file this big can be cached at all; bigger ones are always sent from disk. */
+  public boolean admits(long size) {
+    return size <= budgetBytes && size <= Integer.MAX_VALUE;
+  }
+
+  synchronized Entry get(String key) {
+    Entry e = entries.get(key);
+    if (e == null) misses++; else hits++;
+    return e;
+  }
+
+  synchronized long generation() { return generation; }
+
+  /** Stores an entry loaded since {@code loadedAt}; ignored if an invalidation happened meanwhile. */
+  synchronized void put(String key, Entry e, long loadedAt) {
+    if (loadedAt != generation || e.bytes > budgetBytes) return;
+    Entry old = entries.put(key, e);
+    if (old != null) storedBytes -= old.bytes;
+    storedBytes += e.bytes;
+    Iterator<Entry> it = entries.values().iterator();
+    while (storedBytes > budgetBytes && it.hasNext()) {
+      storedBytes -= it.next().bytes;
+      it.remove();
+      evictions++;
+    }
+  }
+
+  /** Drops entries for {@code path} and anything under it. */
+  public synchronized void invalidate(Path path) {
+    generation++;
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry e = it.next();
+      if (e.file.startsWith(path)) {
+        storedBytes -= e.bytes;
+        it.remove();
+        invalidations++;
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    generation++;
+    invalidations += entries.size();
+    entries.clear();
+    storedBytes = 0;
+  }
+
+  /**
+   * Watches {@code root} and every directory below it; changes invalidate the affected entries.
+   * The first call starts a daemon thread that runs until {@link #close()}.
+   */
+  public void watch(Path root) throws IOException {
+    synchronized (this) {
+      if (watcher == null) {
+        watcher = FileSystems.getDefault().newWatchService();
+        watchThread = new Thread(this::watchLoop, "static-file-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+      }
+    }
+    register(root);
+  }
+
+  private void register(Path root) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        watchedDirs.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void watchLoop() {
+    try {
+      while (true) {
+        WatchKey key = watcher.take();
+        Path dir = watchedDirs.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+            clear(); // events were lost: nothing cached can be trusted
+            continue;
+          }
+          Path changed = dir.resolve((Path) event.context());
+          invalidate(changed);
+          if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+            try {
+              register(changed);
+            } catch (IOException e) {
+              System.err.println("[tiny-http] static cache: cannot watch " + changed + ": " + e.getMessage());
+            }
+          }
+        }
+        if (!key.reset()) watchedDirs.remove(key);
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // closed
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    WatchService w;
+    synchronized (this) {
+      w = watcher;
+      watcher = null;
+    }
+    if (w != null) w.close();
+    clear();
+  }
+
+  public synchronized int size() { return entries.size(); }
+  public synchronized long storedBytes() { return storedBytes; }
+  public synchronized long hits() { return hits; }
+  public synchronized long misses() { return misses; }
+  public synchronized long evictions() { return evictions; }
+  public synchronized long invalidations() { return invalidations; }
+
+  public synchronized double hitRate() {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /** Counters for a debug/metrics endpoint. */
+  public synchronized Map<String, Object> stats() {
+    var m = new LinkedHashMap<String, Object>();
+    m.put("entries", entries.size());
+    m.put("storedBytes", storedBytes);
+    m.put("budgetBytes", budgetBytes);
+    m.put("hits", hits);
+    m.put("misses", misses);
+    m.put("hitRate", hitRate());
+    m.put("evictions", evictions);
+    m.put("invalidations", invalidations);
+    return m;
+  }
+}
@@ -0,0 +1,224 @@
+package org.example.tinyhttp.files;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.example.tinyhttp.context.RequestContext;
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.http.response.Compression;
+import org.example.tinyhttp.http.response.DateHeader;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.http.response.PreparedResponse;
+import org.example.tinyhttp.parsing.UrlParser;
+import org.example.tinyhttp.routing.RouteHandler;
+import org.example.tinyhttp.server.ConnectionOutput;
+
+/**
+ * Serves files under a root directory, mounted with {@code Router.staticFiles(prefix, root)}.
+ *
+ * <p>The request path is percent-decoded and re-normalized with {@link UrlParser#normalizePath}
+ * (so an encoded {@code %2e%2e} is rejected like a literal one), then must still resolve inside the
+ * root after symlinks are followed. Bodies go out with {@link FileChannel#transferTo} when the
+ * connection has a socket channel. When the client accepts gzip/deflate, a compressible file that
+ * is small enough is sent as its compressed variant from the shared cache instead: the file is
+ * hashed once per (path, mtime, size) and only read again when that variant has been evicted.
+ *
+ * <p>With a {@link StaticFileCache} a hit is served from memory without touching the filesystem;
+ * the cache watches the root for changes.
+ */
+public final class StaticFileHandler implements RouteHandler {
+  static final String PATH_VAR = "path";
+  public static final String DEFAULT_CACHE_CONTROL = "public, max-age=3600";
+  private static final long MAX_COMPRESSED_FILE = 1 << 20;
+  private static final int MAX_DIGESTS = 4096;
+
+  private final Path root;
+  private final String rootKey;
+  private final String cacheControl;
+  private final StaticFileCache cache; // null: every request opens the file
+  private final Map<Path, FileDigest> digests = new LinkedHashMap<>(64, 0.75f, true); // LRU, guarded by itself
+
+  // Content hash of a compressible file, valid while its mtime and size are unchanged
+  private record FileDigest(long modifiedMs, long size, byte[] digest) {}
+
+  public StaticFileHandler(Path root, String cacheControl, StaticFileCache cache) throws IOException {
+    this.root = root.toRealPath();
+    this.rootKey = this.root.toString() + '/';
+    this.cacheControl = cacheControl;
+    this.cache = cache;
+    if(cache != null) cache.watch(this.root);
+  }
+
+  public StaticFileHandler(Path root, String cacheControl) throws IOException {
+    this(root, cacheControl, null);
+  }
+
+  public StaticFileHandler(Path root) throws IOException {
+    this(root, DEFAULT_CACHE_CONTROL);
+  }
+
+  @Override
+  public void handle(RequestContext ctx, OutputStream out, boolean keepAlive) throws IOException {
+    String rel = relative(ctx.pathVars(PATH_VAR));
+    boolean head = "HEAD".equals(ctx.request().getMethod());
+    if(cache != null && rel != null){
+      String key = rootKey + rel;
+      StaticFileCache.Entry e = cache.get(key);
+      if(e == null){
+        long loadedAt = cache.generation();
+        Path file = resolveRelative(rel);
+        if(file == null){
+          notFound(out, keepAlive);
+          return;
+        }
+        e = load(file);
+        if(e == null){
+          serveFile(file, out, keepAlive, head); // too big to cache
+          return;
+        }
+        cache.put(key, e, loadedAt);
+      }
+      serveEntry(e, out, keepAlive, head);
+      return;
+    }
+
+    Path file = rel == null ? null : resolveRelative(rel);
+    if(file == null) notFound(out, keepAlive);
+    else serveFile(file, out, keepAlive, head);
+  }
+
+  private static void notFound(OutputStream out, boolean keepAlive) throws IOException {
+    HttpResponses.writeText(out, 404, "Not Found", "Not Found\n", keepAlive);
+  }
+
+  private void serveFile(Path file, OutputStream out, boolean keepAlive, boolean head) throws IOException {
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    long size = attrs.size();
+    String type = MimeTypes.forFileName(file.getFileName().toString());
+    String[][] headers = headers(attrs, type);
+
+    // sendfile can't compress: small text assets go out as their cached compressed variant instead
+    HttpResponses.CompressedVariant compressed = Compression.compressible(type) && size <= MAX_COMPRESSED_FILE
+      ? (compression, encoding) -> compressedVariant(file, attrs, compression, encoding) : null;
+    if(head){
+      HttpResponses.writeSized(out, type, size, keepAlive, headers, (o, start, count) -> {}, compressed);
+      return;
+    }
+    try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+      // whole file or just the requested ranges, positional transfers either way
+      HttpResponses.writeSized(out, type, size, keepAlive, headers, (o, start, count) -> send(ch, start, count, o),
+        compressed);
+    }
+  }
+
+  private byte[] compressedVariant(Path file, BasicFileAttributes attrs, Compression compression, String encoding)
+    throws IOException {
+
+    long modifiedMs = attrs.lastModifiedTime().toMillis();
+    FileDigest d;
+    synchronized(digests){
+      d = digests.get(file);
+    }
+    if(d == null || d.modifiedMs() != modifiedMs || d.size() != attrs.size()){
+      byte[] body = Files.readAllBytes(file);
+      d = new FileDigest(modifiedMs, attrs.size(), Compression.digest(body));
+      synchronized(digests){
+        digests.put(file, d);
+        if(digests.size() > MAX_DIGESTS) digests.remove(digests.keySet().iterator().next());
+      }
+      return compression.compressCached(encoding, d.digest(), body);
+    }
+    return compression.compressCached(encoding, d.digest(), () -> Files.readAllBytes(file));
+  }
+
+  private static void serveEntry(StaticFileCache.Entry e, OutputStream out, boolean keepAlive, boolean head)
+    throws IOException {
+
+    if(e.prepared != null){
+      HttpResponses.writePrepared(out, e.prepared, keepAlive);
+      return;
+    }
+    HttpResponses.writeSized(out, e.contentType, e.bytes, keepAlive, e.headers, (o, start, count) -> {
+      if(head) return;
+      // own position and limit; the mapping is shared
+      ByteBuffer body = e.mapped.duplicate().position((int) start).limit((int) (start + count));
+      if(o instanceof ConnectionOutput co) co.write(body);
+      else {
+        var target = Channels.newChannel(o);
+        while(body.hasRemaining()) target.write(body);
+      }
+    });
+  }
+
+  // Cache entry for a resolved file, or null when it is too big for the cache
+  private StaticFileCache.Entry load(Path file) throws IOException {
+    BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+    long size = attrs.size();
+    if(!cache.admits(size)) return null;
+    String type = MimeTypes.forFileName(file.getFileName().toString());
+    boolean compressible = Compression.compressible(type);
+
+    if(size <= cache.inlineMaxBytes() || compressible && size <= MAX_COMPRESSED_FILE){
+      byte[] body = Files.readAllBytes(file);
+      var m = RequestMetrics.get();
+      if(compressible && m != null && m.compression != null) m.compression.precompress(body);
+      return new StaticFileCache.Entry(file, PreparedResponse.of(200, "OK", type, body, headers(attrs, type)));
+    }
+    try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)){
+      return new StaticFileCache.Entry(file, ch.map(FileChannel.MapMode.READ_ONLY, 0, size), type,
+        headers(attrs, type));
+    }
+  }
+
+  // Strong ETag (usable with If-Range) unless the type may also be sent compressed
+  private String[][] headers(BasicFileAttributes attrs, String type){
+    long modifiedMs = attrs.lastModifiedTime().toMillis();
+    String tag = '"' + Long.toHexString(attrs.size()) + '-' + Long.toHexString(modifiedMs) + '"';
+    return new String[][]{
+      {"Last-Modified", DateHeader.format(attrs.lastModifiedTime().toInstant())},
+      {"Cache-Control", cacheControl},
+      {"ETag", Compression.compressible(type) ? "W/" + tag : tag},
+      {"Accept-Ranges", "bytes"}
+    };
+  }
+
+  static void send(FileChannel ch, long position, long count, OutputStream out) throws IOException {
+    ConnectionOutput.sendFile(ch, position, count, out); // h2 streams included: no spin on a truncated file
+  }
+
+  /** Regular file under root for the raw catch-all path, or null (missing, outside root, bad escape). */
+  Path resolve(String rawPath) throws IOException {
+    String rel = relative(rawPath);
+    return rel == null ? null : resolveRelative(rel);
+  }
+
+  // Decoded, normalized path below the root ("" for the root itself); null for bad escapes or traversal
+  static String relative(String rawPath){
+    if(rawPath == null) return null;
+    try {
+      String decoded = UrlParser.pctDecode(rawPath);
+      if(decoded.indexOf('\0') >= 0 || decoded.indexOf('\\') >= 0) return null;
+      return UrlParser.normalizePath("/" + decoded).substring(1);
+    } catch(IOException badPath){
+      return null; // answered like a missing file
+    }
+  }
+
+  private Path resolveRelative(String rel) throws IOException {
+    Path p = rel.isEmpty() ? root : root.resolve(rel).normalize();
+    if(!p.startsWith(root) || !Files.exists(p)) return null;
+    p = p.toRealPath();
+    if(!p.startsWith(root)) return null; // symlink pointing outside the root
+    if(Files.isDirectory(p)) p = p.resolve("index.html");
+    return Files.isRegularFile(p) ? p : null;
+  }
+}
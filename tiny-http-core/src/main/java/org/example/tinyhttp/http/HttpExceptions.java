@@ -1,6 +1,7 @@
 package org.example.tinyhttp.http;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public final class HttpExceptions {
   private HttpExceptions() {
@@ -12,6 +13,45 @@ public final class HttpExceptions {
     }
   }
 
+  /** A body over the size limit (413); still a bad request to callers that do not tell them apart. */
+  public static class PayloadTooLarge extends BadRequest {
+    public PayloadTooLarge(String msg) {
+      super(msg);
+    }
+  }
+
+  /**
+   * A {@link BadRequest} found lazily, by an accessor that cannot throw a checked exception (query
+   * parameters, the body). Only this is answered with 400: any other unchecked I/O failure from a
+   * handler is the server's own.
+   */
+  public static class MalformedRequest extends UncheckedIOException {
+    public MalformedRequest(BadRequest cause) {
+      super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public BadRequest getCause() {
+      return (BadRequest) super.getCause();
+    }
+  }
+
+  /**
+   * A response failed after part of it was sent, so it cannot be completed or replaced by an error
+   * response. The connection is closed without writing anything more.
+   */
+  public static class ResponseAborted extends IOException {
+    public ResponseAborted(String msg, Throwable cause) {
+      super(msg, cause);
+    }
+  }
+
+  public static class ExpectationFailed extends IOException {
+    public ExpectationFailed(String msg) {
+      super(msg);
+    }
+  }
+
   public static class HeaderTooLarge extends IOException {
     public HeaderTooLarge(String msg) {
       super(msg);
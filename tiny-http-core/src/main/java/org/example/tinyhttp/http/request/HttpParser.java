@@ -87,7 +87,7 @@ public final class HttpParser {
             
             // 3) Read excatly 'size' bytes then CRLF
             if(total + size > maxTotal){
-                throw new HttpExceptions.BadRequest("Body too Large");
+                throw new HttpExceptions.PayloadTooLarge("Body too Large");
             }
 
             byte[] buf = in.readNBytes(size);
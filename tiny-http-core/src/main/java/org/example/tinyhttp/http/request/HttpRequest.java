@@ -2,6 +2,9 @@ package org.example.tinyhttp.http.request;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.example.tinyhttp.http.HttpExceptions;
@@ -14,12 +17,18 @@ public final class HttpRequest {
   private static final int MAX_HEADER_LINE_BYTES = 8192; // 8KB per header line
   private static final int MAX_HEADERS_TOTAL_BYTES = 65536; // 64KB across all header lines
   private static final long MAX_BODY_BYTES = 1_000_000L; // 1 MB safety cap
+  private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] NO_BODY = new byte[0];
 
   private final String method;
   private final String target;
   private final String version;
   private final HttpHeaders headers;
-  private final byte[] body;
+  private byte[] body;              // null while the body is still on the wire
+  private BufferedInputStream in;   // the connection, until the body has been read
+  private long bodyLength;          // declared Content-Length, -1 = chunked
+  private boolean expectsContinue;  // Expect: 100-continue, the client waits before sending the body
+  private OutputStream interim;     // where "100 Continue" goes
 
   private HttpRequest(String method, String target, String version, HttpHeaders headers, byte[] body) {
     this.method = method;
@@ -34,9 +43,61 @@ public final class HttpRequest {
   public String getTarget() { return target; }
   public String getVersion() { return version; }
   public HttpHeaders getHeaders() { return headers; }
-  public byte[] getBody() { return body; }
 
-public static HttpRequest parse(BufferedInputStream in) throws IOException {
+  /**
+   * The body, read on first use. A malformed or oversized body surfaces as
+   * {@link HttpExceptions.MalformedRequest}, any other read failure as {@link UncheckedIOException}.
+   */
+  public byte[] getBody() {
+    try {
+      return readBody();
+    } catch (HttpExceptions.BadRequest e) {
+      throw new HttpExceptions.MalformedRequest(e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the body if it has not been read yet. A client that sent {@code Expect: 100-continue} is
+   * invited to send it first, so a request nobody reads the body of never costs the upload.
+   */
+  public byte[] readBody() throws IOException {
+    if (body != null) return body;
+    if (in == null) throw new IOException("Request body is no longer available");
+    BufferedInputStream from = in;
+    in = null;
+    if (expectsContinue && interim != null) {
+      interim.write(CONTINUE);
+      interim.flush();
+    }
+    body = bodyLength < 0 ? readChunkedBody(from, MAX_TARGET_LENGTH) : HttpParser.readFixedBytes(from, bodyLength);
+    return body;
+  }
+
+  /** True while a body was announced but nobody has read it. */
+  public boolean bodyPending() { return body == null && in != null; }
+
+  /** The announced Content-Length, or -1 for a chunked body. */
+  public long bodyLength() { return bodyLength; }
+
+  public boolean expectsContinue() { return expectsContinue; }
+
+  /** Where the interim "100 Continue" is written when the body is first read. */
+  public void continueTo(OutputStream interim) { this.interim = interim; }
+
+  /** Parses a complete request, body included. */
+  public static HttpRequest parse(BufferedInputStream in) throws IOException {
+    HttpRequest request = parseHead(in);
+    request.readBody();
+    return request;
+  }
+
+  /**
+   * Parses the request line and headers and checks the body framing; the body itself stays in
+   * {@code in} until {@link #readBody()} asks for it, so the server can route (and reject) first.
+   */
+  public static HttpRequest parseHead(BufferedInputStream in) throws IOException {
     // Read Request Line
     String requestLine = HttpParser.readLineCRLF(in, MAX_REQUEST_LINE_BYTES);
     
@@ -75,10 +136,10 @@ public static HttpRequest parse(BufferedInputStream in) throws IOException {
     if (!allSame)
         throw new HttpExceptions.BadRequest("Multiple differing Host headers");
 
-    // 4. Parse body semantics
+    // 4. Parse body semantics (the body is read later, on demand)
     String cl = headers.first("content-length");
     String te = headers.first("transfer-encoding");
-    byte[] body = new byte[0];
+    long bodyLength = 0;
 
     if (cl != null && te != null)
         throw new HttpExceptions.BadRequest("Content-Length and Transfer-Encoding both present");
@@ -90,29 +151,50 @@ public static HttpRequest parse(BufferedInputStream in) throws IOException {
         if(!te.equalsIgnoreCase("chunked")){
             throw new HttpExceptions.NotImplemented("Transfer-Encoding not supported: " + te);
         }
-        body = readChunkedBody(in, MAX_TARGET_LENGTH);
+        bodyLength = -1;
     }
     // if (te != null && !te.equalsIgnoreCase("identity"))
     //     throw new HttpExceptions.NotImplemented("Transfer-Encoding not implemented");
 
-    Long contentLength = null;
     if (cl != null) {
         try {
-            contentLength = Long.valueOf(cl);
-            if (contentLength < 0 || contentLength > MAX_BODY_BYTES)
-                throw new HttpExceptions.BadRequest("Invalid Content-Length");
+            bodyLength = Long.parseLong(cl);
         } catch (NumberFormatException e) {
             throw new HttpExceptions.BadRequest("Invalid Content-Length");
         }
-        body = HttpParser.readFixedBytes(in, contentLength);
+        if (bodyLength < 0)
+            throw new HttpExceptions.BadRequest("Invalid Content-Length");
+        if (bodyLength > MAX_BODY_BYTES)
+            throw new HttpExceptions.PayloadTooLarge("Invalid Content-Length: over " + MAX_BODY_BYTES + " bytes");
     }
 
-    // byte[] body = new byte[0];
-    // if (contentLength != null && contentLength > 0) {
-    //   body = HttpParser.readFixedBytes(in, contentLength);
-    // }
-    return new HttpRequest(method, target, version, headers, body);
+    // 5. The only expectation HTTP/1.1 defines is 100-continue
+    String expect = headers.first("expect");
+    if (expect != null && !expect.equalsIgnoreCase("100-continue"))
+        throw new HttpExceptions.ExpectationFailed("Unsupported expectation: " + expect);
 
+    HttpRequest request = new HttpRequest(method, target, version, headers, bodyLength == 0 ? NO_BODY : null);
+    if (bodyLength != 0) {
+        request.in = in;
+        request.bodyLength = bodyLength;
+        request.expectsContinue = expect != null;
+    }
+    return request;
+  }
+
+  /**
+   * A request that arrived as an HTTP/2 stream: pseudo-headers already split out, {@code :authority}
+   * folded into Host, body complete. Same target checks as {@link #parse}.
+   */
+  public static HttpRequest fromHttp2(String method, String target, HttpHeaders headers, byte[] body)
+    throws IOException {
+    if (target.isEmpty() || (!target.startsWith("/") && !target.equals("*")))
+      throw new HttpExceptions.BadRequest("Target must start with '/' or be '*'");
+    if (target.length() > MAX_TARGET_LENGTH)
+      throw new HttpExceptions.HeaderTooLarge("Target too long");
+    if (body.length > MAX_BODY_BYTES)
+      throw new HttpExceptions.BadRequest("Body too large");
+    return new HttpRequest(method, target, "HTTP/2", headers, body);
   }
 
   private static HttpHeaders readHeaders(BufferedInputStream in) throws IOException {
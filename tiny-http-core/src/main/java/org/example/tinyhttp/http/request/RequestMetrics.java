@@ -1,5 +1,8 @@
 package org.example.tinyhttp.http.request;
 
+import org.example.tinyhttp.http.response.Compression;
+import org.example.tinyhttp.http.response.KeepAliveHeader;
+
 public final class RequestMetrics {
   public String requestId;
   public String method;
@@ -9,6 +12,16 @@ public final class RequestMetrics {
   public int status = -1; //Set by HttpResponses when writing
   public long contentLength = -1; //Set by HttpResponses when writing
   public boolean prefersJson = false;
+  public String[][] responseHeaders; // added by middleware, written on every response for this request
+  public Compression compression;    // server-wide settings, null when compression is off
+  public String contentEncoding;     // negotiated from Accept-Encoding for this request, null for identity
+  public String ifNoneMatch;         // conditional request headers (GET/HEAD only)
+  public String ifModifiedSince;
+  public String range;               // Range / If-Range, honoured for GET 200s
+  public String ifRange;
+  public String etag;                // declared up front by a version function, used instead of hashing the body
+  public KeepAliveHeader keepAliveHeader; // server-wide, rendered once from Config
+  public int requestsLeft;           // requests this connection may still make, advertised as Keep-Alive max
 
   public RequestMetrics(String requstId, String method, String path, String remote, long startNs) {
     this.requestId = requstId;
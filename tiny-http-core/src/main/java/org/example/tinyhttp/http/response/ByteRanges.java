@@ -0,0 +1,113 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+
+/**
+ * {@code Range: bytes=...} support (RFC 9110 §14).
+ *
+ * <p>Ranges are resolved against the representation length, sorted and coalesced, so overlapping or
+ * adjacent requests cannot make us send the same bytes twice. A malformed header, or more than
+ * {@link #MAX_RANGES} ranges after coalescing, is ignored and the whole body is sent as a 200.
+ * {@code If-Range} only matches a strong ETag or the exact Last-Modified date.
+ */
+public final class ByteRanges {
+  private ByteRanges() {}
+
+  static final int MAX_RANGES = 16;
+  static final long[][] UNSATISFIABLE = new long[0][];
+
+  /** Writes {@code count} bytes of the body starting at {@code start}, e.g. a positional file transfer. */
+  @FunctionalInterface
+  public interface Source {
+    void writeTo(OutputStream out, long start, long count) throws IOException;
+  }
+
+  /**
+   * Inclusive {start, end} pairs for a body of {@code length} bytes. Null means ignore the header
+   * (absent or malformed); an empty array means nothing in it is satisfiable (416).
+   */
+  public static long[][] parse(String header, long length) {
+    if (header == null) return null;
+    String h = header.trim();
+    if (h.length() < 6 || !h.substring(0, 6).toLowerCase(Locale.ROOT).equals("bytes=")) return null;
+
+    String[] specs = h.substring(6).split(",");
+    long[][] out = new long[specs.length][];
+    int n = 0;
+    for (String raw : specs) {
+      String spec = raw.trim();
+      int dash = spec.indexOf('-');
+      if (dash < 0) return null;
+      if (dash == 0) { // suffix: last N bytes
+        long suffix = digits(spec, 1, spec.length());
+        if (suffix < 0) return null;
+        if (suffix > 0 && length > 0) out[n++] = new long[]{Math.max(0, length - suffix), length - 1};
+      } else {
+        long first = digits(spec, 0, dash);
+        long last = dash + 1 == spec.length() ? Long.MAX_VALUE : digits(spec, dash + 1, spec.length());
+        if (first < 0 || last < first) return null;
+        if (first < length) out[n++] = new long[]{first, Math.min(last, length - 1)};
+      }
+    }
+    if (n == 0) return UNSATISFIABLE;
+    long[][] ranges = coalesce(Arrays.copyOf(out, n));
+    return ranges.length > MAX_RANGES ? null : ranges;
+  }
+
+  // 1*DIGIT as RFC 9110 has it: no sign, no spaces, nothing past a long; -1 otherwise
+  private static long digits(String s, int from, int to) {
+    if (from >= to) return -1;
+    long v = 0;
+    for (int i = from; i < to; i++) {
+      int d = s.charAt(i) - '0';
+      if (d < 0 || d > 9 || v > (Long.MAX_VALUE - d) / 10) return -1;
+      v = v * 10 + d;
+    }
+    return v;
+  }
+
+  private static long[][] coalesce(long[][] ranges) {
+    if (ranges.length == 1) return ranges;
+    Arrays.sort(ranges, (a, b) -> Long.compare(a[0], b[0]));
+    int n = 0;
+    for (long[] r : ranges) {
+      if (n > 0 && r[0] <= ranges[n - 1][1] + 1) ranges[n - 1][1] = Math.max(ranges[n - 1][1], r[1]);
+      else ranges[n++] = r;
+    }
+    return Arrays.copyOf(ranges, n);
+  }
+
+  // Ranges to serve for this response, or null when the request gets the whole body
+  static long[][] requested(RequestMetrics m, int status, long length, String etag, String lastModified) {
+    if (m == null || m.range == null || status != 200 || !"GET".equals(m.method)) return null;
+    if (m.ifRange != null && !ifRangeMatches(m.ifRange, etag, lastModified)) return null;
+    return parse(m.range, length);
+  }
+
+  static boolean ifRangeMatches(String ifRange, String etag, String lastModified) {
+    String v = ifRange.trim();
+    if (v.startsWith("\"") || v.startsWith("W/")) {
+      return etag != null && !etag.startsWith("W/") && v.equals(etag); // strong comparison only
+    }
+    if (lastModified == null) return false;
+    try {
+      var since = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+      var modified = ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME);
+      return since.toInstant().equals(modified.toInstant());
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  static String contentRange(long start, long end, long length) {
+    return "bytes " + start + '-' + end + '/' + length;
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.tinyhttp.http.response;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compressed variants of stable bodies, keyed by encoding + content hash, evicted LRU once the
+ * stored bytes exceed the budget. Only fed content the server controls (prepared responses,
+ * static files); echoing handlers must not go through it.
+ */
+final class CompressedCache {
+  static final byte[] IDENTITY = new byte[0]; // remembered "compression does not pay off"
+
+  private final long budgetBytes;
+  private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private long storedBytes;
+  private long hits;
+  private long misses;
+
+  CompressedCache(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+  }
+
+  synchronized byte[] get(String key) {
+    byte[] v = entries.get(key);
+    if (v == null) misses++; else hits++;
+    return v;
+  }
+
+  synchronized void put(String key, byte[] value) {
+    if (value.length > budgetBytes) return; // would evict everything and still not fit
+    byte[] old = entries.put(key, value);
+    if (old != null) storedBytes -= old.length;
+    storedBytes += value.length;
+    Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+    while (storedBytes > budgetBytes && it.hasNext()) {
+      storedBytes -= it.next().getValue().length;
+      it.remove();
+    }
+  }
+
+  synchronized int size() { return entries.size(); }
+  synchronized long storedBytes() { return storedBytes; }
+  synchronized long hits() { return hits; }
+  synchronized long misses() { return misses; }
+}
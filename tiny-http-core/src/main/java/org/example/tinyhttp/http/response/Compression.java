@@ -0,0 +1,280 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+
+/**
+ * gzip / deflate response compression.
+ *
+ * <p>The server keeps one instance (from Config) and hands it to each request through
+ * {@link RequestMetrics#compression}, together with the encoding negotiated from Accept-Encoding.
+ * Deflaters hold native memory and are costly to create, so they are pooled and reset between
+ * responses. gzip framing (header, CRC32, size trailer) is written here around a raw deflate stream.
+ *
+ * <p>Stable bodies (prepared responses, static files) can go through {@link #compressCached}, which keeps
+ * their compressed variants in an LRU cache keyed by SHA-256 of the content.
+ */
+public final class Compression {
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+
+  private static final byte[] VARY = ascii("Vary: Accept-Encoding\r\n");
+  private static final byte[] GZIP_HEADERS = ascii("Content-Encoding: gzip\r\nVary: Accept-Encoding\r\n");
+  private static final byte[] DEFLATE_HEADERS = ascii("Content-Encoding: deflate\r\nVary: Accept-Encoding\r\n");
+  private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final int level;
+  private final int minBytes;
+  private final ArrayBlockingQueue<Deflater> gzipPool;    // raw deflate, framed by us
+  private final ArrayBlockingQueue<Deflater> deflatePool; // zlib-wrapped
+  private final CompressedCache cache; // null when the budget is 0
+
+  public Compression(int level, int minBytes, int poolSize) {
+    this(level, minBytes, poolSize, 0);
+  }
+
+  public Compression(int level, int minBytes, int poolSize, long cacheBytes) {
+    if (level < 1 || level > 9) throw new IllegalArgumentException("Compression level must be 1..9: " + level);
+    this.level = level;
+    this.minBytes = minBytes;
+    this.gzipPool = new ArrayBlockingQueue<>(poolSize);
+    this.deflatePool = new ArrayBlockingQueue<>(poolSize);
+    this.cache = cacheBytes > 0 ? new CompressedCache(cacheBytes) : null;
+  }
+
+  public int level() { return level; }
+  public int minBytes() { return minBytes; }
+
+  /** Picks gzip over deflate; honours q=0 and "*". Returns null for identity. */
+  public static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isBlank()) return null;
+    float gzip = -1, deflate = -1, any = -1;
+    for (String part : acceptEncoding.split(",")) {
+      String[] p = part.trim().split(";");
+      String coding = p[0].trim().toLowerCase(Locale.ROOT);
+      float q = 1f;
+      for (int i = 1; i < p.length; i++) {
+        String param = p[i].trim();
+        if (param.startsWith("q=") || param.startsWith("Q=")) {
+          try { q = Float.parseFloat(param.substring(2)); } catch (NumberFormatException e) { q = 0f; }
+        }
+      }
+      switch (coding) {
+        case "gzip", "x-gzip" -> gzip = q;
+        case "deflate" -> deflate = q;
+        case "*" -> any = q;
+        default -> {}
+      }
+    }
+    if (gzip < 0) gzip = any;
+    if (deflate < 0) deflate = any;
+    if (gzip > 0 && gzip >= deflate) return GZIP;
+    if (deflate > 0) return DEFLATE;
+    return null;
+  }
+
+  /** Text-like types worth compressing; images, archives and the like already are. */
+  public static boolean compressible(String contentType) {
+    if (contentType == null) return false;
+    String t = contentType.toLowerCase(Locale.ROOT);
+    int semi = t.indexOf(';');
+    if (semi >= 0) t = t.substring(0, semi).trim();
+    return t.startsWith("text/")
+        || t.equals("application/json") || t.endsWith("+json")
+        || t.equals("application/javascript") || t.equals("application/xml") || t.endsWith("+xml")
+        || t.equals("image/svg+xml");
+  }
+
+  // Encoding to apply to this response, or null: compression on, client accepts it, type qualifies
+  static String encodingFor(RequestMetrics m, String contentType) {
+    if (m == null || m.compression == null || m.contentEncoding == null) return null;
+    return compressible(contentType) ? m.contentEncoding : null;
+  }
+
+  // Header bytes for the chosen encoding; a compressible type still gets Vary when sent as identity
+  static byte[] headers(RequestMetrics m, String contentType, String encoding) {
+    if (GZIP.equals(encoding)) return GZIP_HEADERS;
+    if (DEFLATE.equals(encoding)) return DEFLATE_HEADERS;
+    return (m != null && m.compression != null && compressible(contentType)) ? VARY : null;
+  }
+
+  /** Compresses a whole body; callers should fall back to identity if this is not smaller. */
+  public byte[] compress(String encoding, byte[] body, int off, int len) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, len / 3));
+    try (Encoder e = encoder(encoding)) {
+      e.write(body, off, len, out);
+      e.finish(out);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Compressed variant of a stable body whose SHA-256 is {@code digest}, from the cache when present.
+   * Returns null when the body is below the threshold or does not shrink; that verdict is cached too.
+   */
+  public byte[] compressCached(String encoding, byte[] digest, byte[] body) throws IOException {
+    if (body.length < minBytes) return null;
+    return compressCached(encoding, digest, () -> body);
+  }
+
+  /** A stable body that is only read when its compressed variant is not cached. */
+  @FunctionalInterface
+  public interface Loader {
+    byte[] load() throws IOException;
+  }
+
+  /** As above for a body the caller has not read, e.g. a file known by its digest; loaded only on a miss. */
+  public byte[] compressCached(String encoding, byte[] digest, Loader body) throws IOException {
+    if (cache == null) return compressIfSmaller(encoding, body.load());
+
+    String key = encoding + ':' + Base64.getEncoder().encodeToString(digest);
+    byte[] v = cache.get(key);
+    if (v == null) {
+      // compress outside the cache lock; racing misses just do the work twice
+      v = compressIfSmaller(encoding, body.load());
+      if (v == null) v = CompressedCache.IDENTITY;
+      cache.put(key, v);
+    }
+    return v == CompressedCache.IDENTITY ? null : v;
+  }
+
+  private byte[] compressIfSmaller(String encoding, byte[] body) throws IOException {
+    if (body.length < minBytes) return null;
+    return smaller(compress(encoding, body, 0, body.length), body);
+  }
+
+  /** Fills the cache ahead of the first request, e.g. for static files at startup. */
+  public void precompress(byte[] body) throws IOException {
+    if (cache == null) return;
+    byte[] digest = digest(body);
+    compressCached(GZIP, digest, body);
+    compressCached(DEFLATE, digest, body);
+  }
+
+  CompressedCache cache() { return cache; }
+
+  /** Compressed-variant cache counters for a debug/metrics endpoint; empty when the cache is off. */
+  public Map<String, Object> cacheStats() {
+    var m = new LinkedHashMap<String, Object>();
+    if (cache == null) return m;
+    long hits = cache.hits();
+    long misses = cache.misses();
+    m.put("entries", cache.size());
+    m.put("storedBytes", cache.storedBytes());
+    m.put("hits", hits);
+    m.put("misses", misses);
+    m.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+    return m;
+  }
+
+  public static byte[] digest(byte[] body) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(body);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 unavailable", e); // mandated by the JDK spec
+    }
+  }
+
+  private static byte[] smaller(byte[] packed, byte[] body) {
+    return packed.length < body.length ? packed : null;
+  }
+
+  /** Streaming encoder with a pooled Deflater; close it to return the Deflater. */
+  public Encoder encoder(String encoding) {
+    boolean gzip = GZIP.equals(encoding);
+    ArrayBlockingQueue<Deflater> pool = gzip ? gzipPool : deflatePool;
+    Deflater d = pool.poll();
+    if (d == null) d = new Deflater(level, gzip);
+    return new Encoder(d, gzip, pool);
+  }
+
+  public final class Encoder implements AutoCloseable {
+    private final Deflater deflater;
+    private final boolean gzip;
+    private final ArrayBlockingQueue<Deflater> pool;
+    private final CRC32 crc;
+    private final byte[] buf = new byte[4096];
+    private boolean started;
+    private boolean released;
+
+    private Encoder(Deflater deflater, boolean gzip, ArrayBlockingQueue<Deflater> pool) {
+      this.deflater = deflater;
+      this.gzip = gzip;
+      this.pool = pool;
+      this.crc = gzip ? new CRC32() : null;
+    }
+
+    public void write(byte[] b, int off, int len, OutputStream sink) throws IOException {
+      start(sink);
+      if (len == 0) return;
+      if (gzip) crc.update(b, off, len);
+      deflater.setInput(b, off, len);
+      while (!deflater.needsInput()) drain(sink, Deflater.NO_FLUSH);
+    }
+
+    /** Pushes out everything written so far (sync flush) without ending the stream. */
+    public void flush(OutputStream sink) throws IOException {
+      start(sink);
+      int n;
+      do {
+        n = drain(sink, Deflater.SYNC_FLUSH);
+      } while (n == buf.length);
+    }
+
+    public void finish(OutputStream sink) throws IOException {
+      start(sink);
+      deflater.finish();
+      while (!deflater.finished()) drain(sink, Deflater.NO_FLUSH);
+      if (gzip) {
+        byte[] trailer = new byte[8];
+        intLE(trailer, 0, (int) crc.getValue());
+        intLE(trailer, 4, (int) deflater.getBytesRead());
+        sink.write(trailer);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (released) return;
+      released = true;
+      deflater.reset();
+      if (!pool.offer(deflater)) deflater.end(); // pool full: free the native memory now
+    }
+
+    private void start(OutputStream sink) throws IOException {
+      if (started) return;
+      started = true;
+      if (gzip) sink.write(GZIP_MAGIC);
+    }
+
+    private int drain(OutputStream sink, int flush) throws IOException {
+      int n = deflater.deflate(buf, 0, buf.length, flush);
+      if (n > 0) sink.write(buf, 0, n);
+      return n;
+    }
+  }
+
+  private static void intLE(byte[] b, int at, int v) {
+    b[at] = (byte) v;
+    b[at + 1] = (byte) (v >>> 8);
+    b[at + 2] = (byte) (v >>> 16);
+    b[at + 3] = (byte) (v >>> 24);
+  }
+
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -6,6 +6,8 @@ import java.util.Locale;
 import java.util.Set;
 
 import org.example.tinyhttp.http.request.HttpHeaders;
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.routing.Middleware;
 
 public final class Cors {
   private Cors(){}
@@ -74,6 +76,17 @@ public final class Cors {
     return list.toArray(String[][]::new);
   }
 
+  // Middleware form: CORS headers are attached to every response the wrapped routes write
+  public static Middleware middleware(){
+    return (ctx, out, keepAlive, next) -> {
+      var m = RequestMetrics.get();
+      if(m != null){
+        m.responseHeaders = combinewithExtraHeaders(m.responseHeaders, ctx.request().getHeaders());
+      }
+      next.handle(ctx, out, keepAlive);
+    };
+  }
+
   private static String resolveAllowOrigin(String origin){
     if(allowedOrigins.contains("*")) return "*";
 
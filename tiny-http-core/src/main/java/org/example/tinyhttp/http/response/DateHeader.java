@@ -0,0 +1,54 @@
+package org.example.tinyhttp.http.response;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shared {@code Date} header, formatted at most once per second.
+ *
+ * <p>Refresh is CAS-on-read: the first writer to notice a new second renders it and
+ * publishes the snapshot; everyone else reuses the cached string and bytes.
+ */
+public final class DateHeader {
+  private DateHeader(){}
+
+  // IMF-fixdate (RFC 9110): two-digit day, always GMT. RFC_1123_DATE_TIME would print "Tue, 3 Jun ..."
+  private static final DateTimeFormatter HTTP_DATE =
+    DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+  /** HTTP date for e.g. Last-Modified. */
+  public static String format(Instant instant){ return HTTP_DATE.format(instant); }
+
+  private static final class Snapshot {
+    final long epochSecond;
+    final String value;
+    final byte[] line; // "Date: <value>\r\n", US-ASCII
+
+    Snapshot(long epochSecond) {
+      this.epochSecond = epochSecond;
+      this.value = format(Instant.ofEpochSecond(epochSecond));
+      this.line = ("Date: " + value + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+  }
+
+  private static final AtomicReference<Snapshot> CURRENT =
+    new AtomicReference<>(new Snapshot(System.currentTimeMillis() / 1000));
+
+  public static String value(){ return current().value; }
+
+  /** Complete header line including CRLF. Shared array: do not modify. */
+  public static byte[] line(){ return current().line; }
+
+  private static Snapshot current(){
+    long now = System.currentTimeMillis() / 1000;
+    Snapshot s = CURRENT.get();
+    if(s.epochSecond == now) return s;
+    Snapshot fresh = new Snapshot(now);
+    CURRENT.compareAndSet(s, fresh); // losing the race is fine, the winner rendered the same second
+    return fresh;
+  }
+}
@@ -0,0 +1,73 @@
+package org.example.tinyhttp.http.response;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.zip.CRC32C;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+
+/**
+ * Validators for conditional GET.
+ *
+ * <p>Buffered 200 responses to GET/HEAD get a weak ETag from CRC32C over the (identity) body unless
+ * the handler supplied its own {@code ETag} header or a version function declared one up front.
+ * {@code If-None-Match} wins over {@code If-Modified-Since}, as RFC 9110 requires.
+ */
+public final class ETags {
+  private ETags() {}
+
+  /** Weak validator: W/"length-crc32c", both hex. */
+  public static String weak(byte[] b, int off, int len) {
+    CRC32C crc = new CRC32C();
+    crc.update(b, off, len);
+    return "W/\"" + Integer.toHexString(len) + '-' + Long.toHexString(crc.getValue()) + '"';
+  }
+
+  /** Strong validator from an opaque version string, e.g. a row version or content hash. */
+  public static String strong(String version) {
+    if (version.indexOf('"') >= 0) throw new IllegalArgumentException("ETag value must not contain quotes: " + version);
+    return '"' + version + '"';
+  }
+
+  /** Weak comparison against an If-None-Match list ("*" matches anything). */
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) return false;
+    String want = opaque(etag);
+    for (String candidate : ifNoneMatch.split(",")) {
+      String c = candidate.trim();
+      if (c.equals("*") || opaque(c).equals(want)) return true;
+    }
+    return false;
+  }
+
+  // Only GET/HEAD 200s are validated; anything else is sent as-is
+  static boolean applies(RequestMetrics m, int status) {
+    return m != null && status == 200 && ("GET".equals(m.method) || "HEAD".equals(m.method));
+  }
+
+  /** Whether the request's conditionals say the client's copy is current. */
+  static boolean notModified(RequestMetrics m, String etag, String lastModified) {
+    if (m.ifNoneMatch != null) return matches(m.ifNoneMatch, etag);
+    if (m.ifModifiedSince == null || lastModified == null) return false;
+    try {
+      var since = ZonedDateTime.parse(m.ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+      var modified = ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME);
+      return !modified.isAfter(since);
+    } catch (DateTimeParseException e) {
+      return false; // invalid dates are ignored
+    }
+  }
+
+  static String header(String[][] headers, String name) {
+    if (headers == null) return null;
+    for (String[] h : headers) {
+      if (h != null && h.length == 2 && name.equalsIgnoreCase(h[0])) return h[1];
+    }
+    return null;
+  }
+
+  private static String opaque(String tag) {
+    return tag.startsWith("W/") ? tag.substring(2) : tag;
+  }
+}
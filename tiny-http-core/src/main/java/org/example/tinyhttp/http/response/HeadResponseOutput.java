@@ -0,0 +1,56 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sink used to answer HEAD by running the GET handler: the status line and headers
+ * pass through to the client untouched (so Content-Length, Content-Type and any ETag
+ * are exactly what GET would send), everything after the blank line is counted and dropped.
+ */
+public final class HeadResponseOutput extends OutputStream {
+  private final OutputStream out;
+  private int crlfState = 0; // progress through "\r\n\r\n"
+  private long discarded = 0;
+
+  public HeadResponseOutput(OutputStream out) {
+    this.out = out;
+  }
+
+  public long discardedBytes() { return discarded; }
+
+  @Override
+  public void write(int b) throws IOException {
+    if(crlfState == 4){
+      discarded++;
+      return;
+    }
+    advance((byte) b);
+    out.write(b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if(crlfState == 4){
+      discarded += len;
+      return;
+    }
+    int i = off, end = off + len;
+    while(i < end && crlfState != 4){
+      advance(b[i++]);
+    }
+    out.write(b, off, i - off);
+    discarded += end - i;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  private void advance(byte c){
+    boolean cr = (crlfState & 1) == 0; // states 0 and 2 expect '\r', 1 and 3 expect '\n'
+    if(c == (cr ? '\r' : '\n')) crlfState++;
+    else crlfState = (c == '\r') ? 1 : 0;
+  }
+}
@@ -1,6 +1,7 @@
 package org.example.tinyhttp.http.response;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.Socket;
 
 import org.example.tinyhttp.http.request.RequestMetrics;
@@ -24,43 +25,68 @@ public final class HttpErrorHandler {
       // TODO: Handle Adding CORS 
       // String[][] cors = Cors.actualResponseHeaders(request.getHeaders());
 
-      var m = RequestMetrics.get();
-      if(m.prefersJson){
-        HttpResponses.writeJson(client.getOutputStream(), status, reason, new ErrorEnvelope(status, message, m.requestId), false, extraHeaders);
-      } else{
-        HttpResponses.writeText(client.getOutputStream(), status, reason, message, false, extraHeaders);
-      }
+      sendErrorResponse(client.getOutputStream(), status, reason, message, false, extraHeaders);
     } catch (IOException ignored) {
       System.err.println("[DEBUG] IOException in sendErrorResponse: " + ignored.getMessage());
       // ignored.printStackTrace();
     }
   }
 
-  public static void sendBadRequest(Socket client, String message){
-    sendErrorResponse(client, 400, "Bad Request", message);
+  /** Same error body on an already-open response output (an HTTP/2 stream), keeping the connection. */
+  public static void sendErrorResponse(OutputStream out, int status, String reason, String message,
+    boolean keepAlive, String[][] extraHeaders) throws IOException {
+    var m = RequestMetrics.get();
+    if(m != null && m.prefersJson){
+      HttpResponses.writeJson(out, status, reason, new ErrorEnvelope(status, message, m.requestId), keepAlive, extraHeaders);
+    } else{
+      HttpResponses.writeText(out, status, reason, message, keepAlive, extraHeaders);
+    }
+  }
+
+  // Connection-ending errors go through the connection's own output (plain or TLS), which the
+  // caller flushes before closing
+  private static void sendAndClose(OutputStream out, int status, String reason, String message,
+    String[][] extraHeaders){
+    try {
+      sendErrorResponse(out, status, reason, message, false, extraHeaders);
+    } catch (IOException ignored) {
+      // the peer is often gone already; the connection is being closed either way
+    }
+  }
+
+  public static void sendBadRequest(OutputStream out, String message){
+    sendAndClose(out, 400, "Bad Request", message, null);
+  }
+
+  public static void sendPayloadTooLarge(OutputStream out, String message){
+    sendAndClose(out, 413, "Content Too Large", message, null);
+  }
+
+  public static void sendExpectationFailed(OutputStream out, String message){
+    sendAndClose(out, 417, "Expectation Failed", message, null);
   }
 
-  public static void sendHeaderTooLarge(Socket client, String message){
-    sendErrorResponse(client, 431, "Request Header Fields Too Large", message);
+  public static void sendHeaderTooLarge(OutputStream out, String message){
+    sendAndClose(out, 431, "Request Header Fields Too Large", message, null);
   }
 
-  public static void sendNotImplemented(Socket client, String message){
-    sendErrorResponse(client, 501, "Not Implemented", message);
+  public static void sendNotImplemented(OutputStream out, String message){
+    sendAndClose(out, 501, "Not Implemented", message, null);
   }
 
-  public static void sendHttpVersionNotSupported(Socket client, String message){
-    sendErrorResponse(client, 505, "HTTP Version Not Supported", message);
+  public static void sendHttpVersionNotSupported(OutputStream out, String message){
+    sendAndClose(out, 505, "HTTP Version Not Supported", message, null);
   }
 
-  public static void sendLineTooLong(Socket client, String message){
-    sendErrorResponse(client, 430, "", message);
+  public static void sendLineTooLong(OutputStream out, String message){
+    sendAndClose(out, 430, "", message, null);
   }
 
-  public static void sendInternalServerError(Socket client, String message){
-    sendErrorResponse(client, 500, "Internal Server Error", message);
+  public static void sendInternalServerError(OutputStream out, String message){
+    sendAndClose(out, 500, "Internal Server Error", message, null);
   }
 
-  public static void sendMethodNotAllowed(Socket client, String allowCsv){
-    sendErrorResponse(client, 405, "Method Not Allowed", "Method Not Allowed\n", headers("Allow", allowCsv));
+  public static void sendMethodNotAllowed(OutputStream out, String allowCsv){
+    sendAndClose(out, 405, "Method Not Allowed", "Method Not Allowed\n", headers("Allow", allowCsv));
   }
 }
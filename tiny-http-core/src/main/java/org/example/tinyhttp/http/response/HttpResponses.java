@@ -3,163 +3,313 @@ package org.example.tinyhttp.http.response;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.example.tinyhttp.http.HttpExceptions;
 import org.example.tinyhttp.http.request.RequestMetrics;
 import org.example.tinyhttp.parsing.Json;
-import org.example.tinyhttp.server.HttpServerConstants;
 
 public final class HttpResponses {
   private HttpResponses() {}
 
-  private static final String SERVER_NAME = "tiny-http/0.1";
-
-  private static String rfc1123Now(){
-    ZonedDateTime z = ZonedDateTime.now(ZoneOffset.UTC);
-    return DateTimeFormatter.RFC_1123_DATE_TIME.format(z);
-  }
+  private static final String TEXT_PLAIN = "text/plain; charset=utf-8";
+  private static final String APPLICATION_JSON = "application/json; charset=utf-8";
 
   // original convenience
   public static void writeText(OutputStream out, int status, String reason, String text, boolean keepAlive) throws IOException {
     writeText(out, status, reason, text, keepAlive, null); // delegate
   }
 
-  public static void writeText(OutputStream out, int status, String reason, String text, 
+  public static void writeText(OutputStream out, int status, String reason, String text,
     boolean  keepAlive, String[][] extraHeaders) throws IOException {
 
-    byte[] body = text.getBytes(StandardCharsets.UTF_8);
-    StringBuilder sb = new StringBuilder(128);
-    sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
-      .append("Date: ").append(rfc1123Now()).append("\r\n")
-      .append("Server: ").append(SERVER_NAME).append("\r\n")
-      .append("Content-Type: text/plain; charset=utf-8\r\n")
-      .append("Content-Length: ").append(body.length).append("\r\n");
+    writeBody(out, status, reason, TEXT_PLAIN, text.getBytes(StandardCharsets.UTF_8), keepAlive, extraHeaders);
+  }
 
-    var m = RequestMetrics.get();
-    if(m != null && m.requestId != null){
-      sb.append("X-REQUEST-ID: ").append(m.requestId).append("\r\n");
-    }
+  public static void writeRaw(OutputStream out, int status, String reason, String contentType, byte[] body,
+    boolean  keepAlive, String[][] extraHeaders) throws IOException {
 
-    if(extraHeaders != null){
-      for(String[] h : extraHeaders){
-        if(h != null && h.length == 2 && h[0] != null){
-          sb.append(h[0]).append(": ").append(h[1] == null ? "" : h[1]).append("\r\n");
-        }
-      }
-    }
+    if(body == null) body = new byte[0];
+    writeBody(out, status, reason, contentType, body, keepAlive, extraHeaders);
+  }
 
-    if(keepAlive){
-      sb.append("Connection: keep-alive\r\n")
-      .append("Keep-Alive: timeout=").append(HttpServerConstants.KEEP_ALIVE_IDLE_TIMEOUT_MS / 1000)
-      .append(", max=").append(HttpServerConstants.MAX_REQUESTS_PER_CONN).append("\r\n");
-    } else{
-      sb.append("Connection: close\r\n");
+  public static void writeHEAD(OutputStream out, int status, String reason, String contentType, int length,
+  boolean  keepAlive) throws  IOException{
+    writeHead(out, status, reason, contentType, length, keepAlive, null, null, null);
+    out.flush();
+  }
+
+  public static void writeJson(OutputStream out, int status, String reason, Object bodyObj,
+    boolean keepAlive, String[][] extraHeaders) throws IOException {
+
+    // Serialized straight into the response buffer: Content-Length when it fits, chunked beyond that
+    ResponseStream body = new ResponseStream(out, status, reason, APPLICATION_JSON, keepAlive, extraHeaders,
+      ResponseStream.DEFAULT_BUFFER_SIZE);
+    try {
+      Json.writerFor(bodyObj).writeValue(body, bodyObj);
+    } catch (IOException | RuntimeException e) {
+      if(body.abandon()) throw new HttpExceptions.ResponseAborted("JSON body failed after it was committed", e);
+      throw e;
     }
-    sb.append("\r\n");
+    body.close();
+  }
 
-    out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+  // Fixed-length body, compressed when negotiated and worth it
+  private static void writeBody(OutputStream out, int status, String reason, String contentType, byte[] body,
+    boolean keepAlive, String[][] extraHeaders) throws IOException {
+
+    var m = RequestMetrics.get();
+    String etag = etagFor(m, status, body, 0, body.length, extraHeaders);
+    if(answeredNotModified(out, m, status, etag, extraHeaders, keepAlive)) return;
+    if(answeredRange(out, m, status, contentType, body, etag, extraHeaders, keepAlive)) return;
+
+    String encoding = Compression.encodingFor(m, contentType);
+    if(encoding != null && body.length >= m.compression.minBytes()){
+      byte[] packed = m.compression.compress(encoding, body, 0, body.length);
+      if(packed.length < body.length) body = packed;
+      else encoding = null;
+    } else {
+      encoding = null;
+    }
+    writeHead(out, status, reason, contentType, body.length, keepAlive, extraHeaders,
+      Compression.headers(m, contentType, encoding), etagToAdd(etag, extraHeaders));
     out.write(body);
     out.flush();
   }
 
-  public static void writeRaw(OutputStream out, int status, String reason, String contentType, byte[] body,
-    boolean  keepAlive, String[][] extraHeaders) throws IOException {
+  /**
+   * 200 whose {@code length}-byte body {@code body} writes itself (a file channel, a mapping), so a
+   * Range request can be answered with just the requested slices. Conditionals are checked first.
+   */
+  public static void writeSized(OutputStream out, String contentType, long length, boolean keepAlive,
+    String[][] extraHeaders, ByteRanges.Source body) throws IOException {
 
-    if(body == null) body = new byte[0];
+    writeSized(out, contentType, length, keepAlive, extraHeaders, body, null);
+  }
 
-    StringBuilder sb = new StringBuilder(128);
-    sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
-      .append("Date: ").append(rfc1123Now()).append("\r\n")
-      .append("Server: ").append(SERVER_NAME).append("\r\n")
-      .append("Content-Type: ").append(contentType).append("\r\n")
-      .append("Content-Length: ").append(body.length).append("\r\n");
+  /**
+   * As above; when the request negotiated compression for this type, the whole body is sent as the
+   * variant {@code compressed} returns for the encoding instead (null: not worth it, sent as-is).
+   * Ranges are still cut from the identity body.
+   */
+  public static void writeSized(OutputStream out, String contentType, long length, boolean keepAlive,
+    String[][] extraHeaders, ByteRanges.Source body, CompressedVariant compressed) throws IOException {
 
     var m = RequestMetrics.get();
-    if(m != null && m.requestId != null){
-      sb.append("X-REQUEST-ID: ").append(m.requestId).append("\r\n");
-    }
-    
-    if(extraHeaders != null){
-      for(String[] h : extraHeaders){
-        if(h != null && h.length == 2 && h[0] != null){
-          sb.append(h[0]).append(": ").append(h[1] == null ? "" : h[1]).append("\r\n");
-        }
-      }
-    }
+    String etag = etagFor(m, 200, null, 0, 0, extraHeaders);
+    if(answeredNotModified(out, m, 200, etag, extraHeaders, keepAlive)) return;
+    if(answeredRange(out, m, 200, contentType, length, body, etag, extraHeaders, keepAlive)) return;
 
-    if(keepAlive){
-      sb.append("Connection: keep-alive\r\n")
-        .append("Keep-Alive: timeout=").append(HttpServerConstants.KEEP_ALIVE_IDLE_TIMEOUT_MS / 1000)
-        .append(", max=").append(HttpServerConstants.MAX_REQUESTS_PER_CONN).append("\r\n");
-    } else{
-      sb.append("Connection: close\r\n");
+    String encoding = compressed == null ? null : Compression.encodingFor(m, contentType);
+    byte[] packed = encoding != null && length >= m.compression.minBytes()
+      ? compressed.variant(m.compression, encoding) : null;
+    if(packed != null){
+      writeHead(out, 200, "OK", contentType, packed.length, keepAlive, extraHeaders,
+        Compression.headers(m, contentType, encoding), etagToAdd(etag, extraHeaders));
+      out.write(packed);
+      length = packed.length;
+    } else {
+      writeHead(out, 200, "OK", contentType, length, keepAlive, extraHeaders,
+        compressed == null ? null : Compression.headers(m, contentType, null), etagToAdd(etag, extraHeaders));
+      body.writeTo(out, 0, length);
     }
-    sb.append("\r\n");
-    
-    out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
-    out.write(body);
     out.flush();
+    if (m != null) { m.status = 200; m.contentLength = length; }
   }
 
-  public static void writeHEAD(OutputStream out, int status, String reason, String contentType, int length, 
-  boolean  keepAlive) throws  IOException{
-    StringBuilder sb = new StringBuilder(128);
-    sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
-    .append("Date: ").append(rfc1123Now()).append("\r\n")
-    .append("Server: ").append(SERVER_NAME).append("\r\n")
-    .append("Content-Type: ").append(contentType).append("\r\n")
-    .append("Content-Length: ").append(length).append("\r\n");
+  /** Compressed form of a sized body, typically from {@link Compression#compressCached}; null to send it as-is. */
+  @FunctionalInterface
+  public interface CompressedVariant {
+    byte[] variant(Compression compression, String encoding) throws IOException;
+  }
+
+  /** Head of a Server-Sent Events stream: chunked, never cached or compressed, connection ends with the stream. */
+  public static void writeEventStreamHead(OutputStream out, String[][] extraHeaders) throws IOException {
+    writeEventStreamHead(out, extraHeaders, false);
+  }
 
+  /** Same head with the connection's keep-alive; for HEAD, where no stream follows. */
+  public static void writeEventStreamHead(OutputStream out, String[][] extraHeaders, boolean keepAlive)
+    throws IOException {
+
+    writeHead(out, 200, "OK", "text/event-stream", -1, keepAlive, withHeader(extraHeaders, "Cache-Control", "no-cache"),
+      null, null);
     var m = RequestMetrics.get();
-    if(m != null && m.requestId != null){
-      sb.append("X-REQUEST-ID: ").append(m.requestId).append("\r\n");
-    }
+    if (m != null) { m.status = 200; m.contentLength = -1; }
+  }
+
+  /** 304 with the validators; no body, no Content-Type/Length. */
+  public static void writeNotModified(OutputStream out, String etag, boolean keepAlive, String[][] extraHeaders)
+    throws IOException {
+
+    ResponseHeaderEncoder h = ResponseHeaderEncoder.get()
+      .statusLine(304, "Not Modified")
+      .bytes(DateHeader.line())
+      .bytes(ResponseHeaderEncoder.SERVER);
+    String add = etagToAdd(etag, extraHeaders);
+    if(add != null) h.header(ResponseHeaderEncoder.ETAG, add);
+    finishHead(out, h, keepAlive, extraHeaders);
+    out.flush();
+
+    var m = RequestMetrics.get();
+    if (m != null) { m.status = 304; m.contentLength = 0; }
+  }
+
+  // Validator for a buffered 200 to GET/HEAD: the handler's ETag header, one declared by a version
+  // function, or a weak hash of the body. Null when conditional GET does not apply.
+  static String etagFor(RequestMetrics m, int status, byte[] body, int off, int len, String[][] extraHeaders){
+    if(!ETags.applies(m, status)) return null;
+    String supplied = ETags.header(extraHeaders, "ETag");
+    if(supplied != null) return supplied;
+    if(m.etag != null) return m.etag;
+    return body == null ? null : ETags.weak(body, off, len);
+  }
+
+  // Writes the 304 and returns true when the client's copy is current
+  static boolean answeredNotModified(OutputStream out, RequestMetrics m, int status, String etag,
+    String[][] extraHeaders, boolean keepAlive) throws IOException {
+
+    if(!ETags.applies(m, status) || (etag == null && m.ifModifiedSince == null)) return false;
+    if(!ETags.notModified(m, etag, ETags.header(extraHeaders, "Last-Modified"))) return false;
+    writeNotModified(out, etag, keepAlive, extraHeaders);
+    return true;
+  }
+
+  private static boolean answeredRange(OutputStream out, RequestMetrics m, int status, String contentType, byte[] body,
+    String etag, String[][] extraHeaders, boolean keepAlive) throws IOException {
 
-    if (keepAlive) {
-      sb.append("Connection: keep-alive\r\n")
-        .append("Keep-Alive: timeout=").append(HttpServerConstants.KEEP_ALIVE_IDLE_TIMEOUT_MS / 1000)
-        .append(", max=").append(HttpServerConstants.MAX_REQUESTS_PER_CONN).append("\r\n");
+    return answeredRange(out, m, status, contentType, body.length,
+      (o, start, count) -> o.write(body, (int) start, (int) count), etag, extraHeaders, keepAlive);
+  }
+
+  // Writes a 206 (one part, or multipart/byteranges) or a 416 when the request asked for ranges.
+  // Ranges are always cut from the identity body, never from a compressed one.
+  static boolean answeredRange(OutputStream out, RequestMetrics m, int status, String contentType, long length,
+    ByteRanges.Source body, String etag, String[][] extraHeaders, boolean keepAlive) throws IOException {
+
+    long[][] ranges = ByteRanges.requested(m, status, length, etag, ETags.header(extraHeaders, "Last-Modified"));
+    if(ranges == null) return false;
+    String add = etagToAdd(etag, extraHeaders);
+
+    if(ranges.length == 0){
+      writeHead(out, 416, "Range Not Satisfiable", TEXT_PLAIN, 0, keepAlive,
+        withHeader(extraHeaders, "Content-Range", "bytes */" + length), null, add);
+      m.status = 416;
+      m.contentLength = 0;
+    } else if(ranges.length == 1){
+      long start = ranges[0][0], count = ranges[0][1] - start + 1;
+      writeHead(out, 206, "Partial Content", contentType, count, keepAlive,
+        withHeader(extraHeaders, "Content-Range", ByteRanges.contentRange(start, ranges[0][1], length)), null, add);
+      body.writeTo(out, start, count);
+      m.status = 206;
+      m.contentLength = count;
     } else {
-        sb.append("Connection: close\r\n");
+      String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+      byte[][] partHeads = new byte[ranges.length][];
+      long total = 0;
+      for(int i = 0; i < ranges.length; i++){
+        partHeads[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType + "\r\nContent-Range: "
+          + ByteRanges.contentRange(ranges[i][0], ranges[i][1], length) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        total += partHeads[i].length + ranges[i][1] - ranges[i][0] + 1;
+      }
+      byte[] close = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+      total += close.length;
+
+      writeHead(out, 206, "Partial Content", "multipart/byteranges; boundary=" + boundary, total, keepAlive,
+        extraHeaders, null, add);
+      for(int i = 0; i < ranges.length; i++){
+        out.write(partHeads[i]);
+        body.writeTo(out, ranges[i][0], ranges[i][1] - ranges[i][0] + 1);
+      }
+      out.write(close);
+      m.status = 206;
+      m.contentLength = total;
     }
-    sb.append("\r\n");
-    out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
     out.flush();
+    return true;
   }
 
-  public static void writeJson(OutputStream out, int status, String reason, Object bodyObj,
-    boolean keepAlive, String[][] extraHeaders) throws IOException {
+  private static String[][] withHeader(String[][] headers, String name, String value){
+    int n = headers == null ? 0 : headers.length;
+    String[][] all = new String[n + 1][];
+    if(n > 0) System.arraycopy(headers, 0, all, 0, n);
+    all[n] = new String[]{name, value};
+    return all;
+  }
 
-    byte[] body = Json.mapper.writeValueAsBytes(bodyObj);
+  // Our ETag line, unless the handler already sends one in its own headers
+  static String etagToAdd(String etag, String[][] extraHeaders){
+    return etag == null || ETags.header(extraHeaders, "ETag") != null ? null : etag;
+  }
 
-    StringBuilder sb = new StringBuilder(256);
-    sb.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
-    .append("Date: ").append(rfc1123Now()).append("\r\n")
-    .append("Server: ").append(SERVER_NAME).append("\r\n")
-    .append("Content-Type: application/json; charset=utf-8\r\n")
-    .append("Content-Length: ").append(body.length).append("\r\n");
+  // Shared response head: status, Date, Server, Content-Type/Length, request id, middleware + extra headers, Connection.
+  // A negative length means the body follows chunked; coding is the pre-encoded Content-Encoding/Vary lines.
+  static void writeHead(OutputStream out, int status, String reason, String contentType, long length,
+    boolean keepAlive, String[][] extraHeaders, byte[] coding, String etag) throws IOException {
 
+    ResponseHeaderEncoder h = ResponseHeaderEncoder.get()
+      .statusLine(status, reason)
+      .bytes(DateHeader.line())
+      .bytes(ResponseHeaderEncoder.SERVER)
+      .contentType(contentType);
+    if(length < 0) h.bytes(ResponseHeaderEncoder.TRANSFER_ENCODING_CHUNKED);
+    else h.header(ResponseHeaderEncoder.CONTENT_LENGTH, length);
+    if(coding != null) h.bytes(coding);
+    if(etag != null) h.header(ResponseHeaderEncoder.ETAG, etag);
+    finishHead(out, h, keepAlive, extraHeaders);
+  }
+
+  /** Writes a pre-rendered response: its Content-Type and headers are already bytes, compressed variants are cached. */
+  public static void writePrepared(OutputStream out, PreparedResponse r, boolean keepAlive) throws IOException {
     var m = RequestMetrics.get();
-    if(m != null && m.requestId != null){
-      sb.append("X-REQUEST-ID: ").append(m.requestId).append("\r\n");
-    }
+    String etag = ETags.applies(m, r.status()) ? (m.etag != null ? m.etag : r.etag()) : null;
+    if(answeredNotModified(out, m, r.status(), etag, r.headers(), keepAlive)) return;
+    if(answeredRange(out, m, r.status(), r.contentType(), r.body(), etag, r.headers(), keepAlive)) return;
 
-    if (extraHeaders != null) {
-     for (String[] h : extraHeaders) {
-        if (h != null && h.length == 2 && h[0] != null) {
-          sb.append(h[0]).append(": ").append(h[1] == null ? "" : h[1]).append("\r\n");
-        }
-      }
+    byte[] body = r.body();
+    String encoding = Compression.encodingFor(m, r.contentType());
+    if(encoding != null){
+      byte[] packed = m.compression.compressCached(encoding, r.digest(), body);
+      if(packed != null) body = packed;
+      else encoding = null;
     }
-    
-    sb.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n").append("\r\n");
 
-    out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+    ResponseHeaderEncoder h = ResponseHeaderEncoder.get()
+      .statusLine(r.status(), r.reason())
+      .bytes(DateHeader.line())
+      .bytes(ResponseHeaderEncoder.SERVER)
+      .bytes(r.headerBlock())
+      .header(ResponseHeaderEncoder.CONTENT_LENGTH, body.length);
+    byte[] coding = Compression.headers(m, r.contentType(), encoding);
+    if(coding != null) h.bytes(coding);
+    String add = etagToAdd(etag, r.headers()); // already in the header block when supplied
+    if(add != null) h.header(ResponseHeaderEncoder.ETAG, add);
+    finishHead(out, h, keepAlive, null);
     out.write(body);
     out.flush();
 
-    if (m != null) { m.status = status; m.contentLength = body.length; }
+    if (m != null) { m.status = r.status(); m.contentLength = body.length; }
+  }
+
+  // Per-request part of every head: request id, middleware + extra headers, Connection
+  private static void finishHead(OutputStream out, ResponseHeaderEncoder h, boolean keepAlive,
+    String[][] extraHeaders) throws IOException {
+
+    var m = RequestMetrics.get();
+    if(m != null && m.requestId != null){
+      h.header(ResponseHeaderEncoder.REQUEST_ID, m.requestId);
+    }
+
+    h.headers(m == null ? null : m.responseHeaders);
+    h.headers(extraHeaders);
+
+    if(keepAlive){
+      // Server's pre-rendered lines with this connection's remaining request budget
+      if(m != null && m.keepAliveHeader != null) m.keepAliveHeader.writeTo(h, m.requestsLeft);
+      else KeepAliveHeader.DEFAULT.writeTo(h, KeepAliveHeader.DEFAULT.maxRequests());
+    } else{
+      h.bytes(ResponseHeaderEncoder.CONNECTION_CLOSE);
+    }
+    h.end().writeTo(out);
   }
 }
@@ -0,0 +1,35 @@
+package org.example.tinyhttp.http.response;
+
+import java.nio.charset.StandardCharsets;
+
+import org.example.tinyhttp.config.Config;
+import org.example.tinyhttp.server.HttpServerConstants;
+
+/**
+ * The "Connection: keep-alive" + "Keep-Alive: timeout=T, max=" lines, rendered once per server from
+ * its Config. Only the remaining request count is written per response.
+ */
+public final class KeepAliveHeader {
+  /** Used by writers running outside a server connection (tests, tools). */
+  static final KeepAliveHeader DEFAULT =
+    new KeepAliveHeader(HttpServerConstants.KEEP_ALIVE_IDLE_TIMEOUT_MS, HttpServerConstants.MAX_REQUESTS_PER_CONN);
+
+  private final byte[] prefix;
+  private final int maxRequests;
+
+  public KeepAliveHeader(int idleTimeoutMs, int maxRequests) {
+    this.prefix = ("Connection: keep-alive\r\nKeep-Alive: timeout=" + Math.max(1, idleTimeoutMs / 1000) + ", max=")
+      .getBytes(StandardCharsets.US_ASCII);
+    this.maxRequests = maxRequests;
+  }
+
+  public static KeepAliveHeader of(Config config) {
+    return new KeepAliveHeader(config.keepAliveIdleTimeoutMs, config.maxRequestsPerConn);
+  }
+
+  public int maxRequests() { return maxRequests; }
+
+  void writeTo(ResponseHeaderEncoder h, int remaining) {
+    h.bytes(prefix).number(Math.max(0, remaining)).bytes(ResponseHeaderEncoder.CRLF);
+  }
+}
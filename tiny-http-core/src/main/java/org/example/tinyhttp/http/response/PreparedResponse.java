@@ -0,0 +1,76 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.example.tinyhttp.parsing.Json;
+
+/**
+ * A response rendered once and written many times: the body is already serialized and the
+ * Content-Type and any extra headers are already encoded as header bytes. Only the per-request
+ * lines (Date, Content-Length of the chosen encoding, request id, middleware headers, Connection)
+ * are added on write; compressed variants come from the {@link Compression} cache.
+ */
+public final class PreparedResponse {
+  private static final String TEXT_PLAIN = "text/plain; charset=utf-8";
+  private static final String APPLICATION_JSON = "application/json; charset=utf-8";
+
+  private final int status;
+  private final String reason;
+  private final String contentType;
+  private final byte[] headerBlock;
+  private final String[][] headers;
+  private final byte[] body;
+  private volatile byte[] digest; // SHA-256 of body, computed on first compressed write
+  private volatile String etag;   // weak validator, computed on first conditional-capable write
+
+  private PreparedResponse(int status, String reason, String contentType, byte[] body, String[][] headers) {
+    this.status = status;
+    this.reason = reason;
+    this.contentType = contentType;
+    this.body = body == null ? new byte[0] : body;
+    this.headers = headers;
+    this.etag = ETags.header(headers, "ETag"); // a supplied validator (e.g. a file's) wins over the body hash
+    ResponseHeaderEncoder h = new ResponseHeaderEncoder() // may be built while this thread's encoder is in use
+      .contentType(contentType)
+      .headers(headers);
+    this.headerBlock = Arrays.copyOf(h.array(), h.length());
+  }
+
+  public static PreparedResponse of(int status, String reason, String contentType, byte[] body, String[][] headers) {
+    return new PreparedResponse(status, reason, contentType, body, headers);
+  }
+
+  public static PreparedResponse text(int status, String reason, String text) {
+    return new PreparedResponse(status, reason, TEXT_PLAIN, text.getBytes(StandardCharsets.UTF_8), null);
+  }
+
+  public static PreparedResponse json(int status, String reason, Object bodyObj) throws IOException {
+    return new PreparedResponse(status, reason, APPLICATION_JSON, Json.mapper.writeValueAsBytes(bodyObj), null);
+  }
+
+  public int status() { return status; }
+  public String reason() { return reason; }
+  public String contentType() { return contentType; }
+  public byte[] body() { return body; }
+  byte[] headerBlock() { return headerBlock; }
+  String[][] headers() { return headers; }
+
+  String etag() {
+    String e = etag;
+    if (e == null) etag = e = ETags.weak(body, 0, body.length);
+    return e;
+  }
+
+  byte[] digest() {
+    byte[] d = digest;
+    if (d == null) digest = d = Compression.digest(body);
+    return d;
+  }
+
+  public void writeTo(OutputStream out, boolean keepAlive) throws IOException {
+    HttpResponses.writePrepared(out, this, keepAlive);
+  }
+}
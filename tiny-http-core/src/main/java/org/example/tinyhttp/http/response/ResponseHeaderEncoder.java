@@ -0,0 +1,166 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds a response head straight into a reusable byte buffer.
+ *
+ * <p>Status lines and the fixed header lines are pre-encoded {@code byte[]} constants,
+ * numbers go through an allocation-free digit writer, and everything else is copied
+ * char-by-char as ASCII. One encoder lives per worker thread, which with this server's
+ * thread-per-connection model means one per live connection.
+ */
+public final class ResponseHeaderEncoder {
+  static final byte[] CRLF = encode("\r\n");
+  static final byte[] SERVER = encode("Server: tiny-http/0.1\r\n");
+  static final byte[] CONTENT_TYPE = encode("Content-Type: ");
+  static final byte[] CONTENT_TYPE_TEXT = encode("Content-Type: text/plain; charset=utf-8\r\n");
+  static final byte[] CONTENT_TYPE_JSON = encode("Content-Type: application/json; charset=utf-8\r\n");
+  static final byte[] CONTENT_LENGTH = encode("Content-Length: ");
+  static final byte[] TRANSFER_ENCODING_CHUNKED = encode("Transfer-Encoding: chunked\r\n");
+  static final byte[] ETAG = encode("ETag: ");
+  static final byte[] REQUEST_ID = encode("X-REQUEST-ID: ");
+  static final byte[] CONNECTION_CLOSE = encode("Connection: close\r\n");
+  static final byte[] HEADER_SEPARATOR = encode(": ");
+  private static final byte[] STATUS_PREFIX = encode("HTTP/1.1 ");
+
+  private static final String[] REASONS = new String[600];
+  private static final byte[][] STATUS_LINES = new byte[600][];
+  static {
+    reason(100, "Continue"); reason(101, "Switching Protocols");
+    reason(200, "OK"); reason(201, "Created"); reason(202, "Accepted"); reason(204, "No Content");
+    reason(206, "Partial Content");
+    reason(301, "Moved Permanently"); reason(302, "Found"); reason(304, "Not Modified");
+    reason(400, "Bad Request"); reason(401, "Unauthorized"); reason(403, "Forbidden"); reason(404, "Not Found");
+    reason(405, "Method Not Allowed"); reason(408, "Request Timeout"); reason(413, "Content Too Large");
+    reason(416, "Range Not Satisfiable"); reason(417, "Expectation Failed");
+    reason(431, "Request Header Fields Too Large");
+    reason(500, "Internal Server Error"); reason(501, "Not Implemented"); reason(503, "Service Unavailable");
+    reason(505, "HTTP Version Not Supported");
+  }
+
+  private static void reason(int status, String reason){
+    REASONS[status] = reason;
+    STATUS_LINES[status] = encode("HTTP/1.1 " + status + " " + reason + "\r\n");
+  }
+
+  private static final ThreadLocal<ResponseHeaderEncoder> TL = ThreadLocal.withInitial(ResponseHeaderEncoder::new);
+
+  /**
+   * This thread's encoder, emptied and ready for a new response head. Only for a head that is built
+   * and written out in one go: anything that may run while another head is half built (a prepared
+   * response's header block, chunked trailers) takes a {@code new ResponseHeaderEncoder()} instead.
+   */
+  public static ResponseHeaderEncoder get(){
+    return TL.get().reset();
+  }
+
+  private byte[] buf = new byte[512];
+  private int len;
+
+  public ResponseHeaderEncoder reset(){ len = 0; return this; }
+  public byte[] array(){ return buf; }
+  public int length(){ return len; }
+
+  public ResponseHeaderEncoder statusLine(int status, String reason){
+    if(status >= 0 && status < STATUS_LINES.length && STATUS_LINES[status] != null && REASONS[status].equals(reason)){
+      return bytes(STATUS_LINES[status]);
+    }
+    bytes(STATUS_PREFIX).number(status).ascii(' ').ascii(reason == null ? "" : reason);
+    return bytes(CRLF);
+  }
+
+  /** Appends a pre-encoded line (or fragment) as-is. */
+  public ResponseHeaderEncoder bytes(byte[] b){
+    ensure(b.length);
+    System.arraycopy(b, 0, buf, len, b.length);
+    len += b.length;
+    return this;
+  }
+
+  public ResponseHeaderEncoder header(String name, String value){
+    return ascii(name).bytes(HEADER_SEPARATOR).ascii(value == null ? "" : value).bytes(CRLF);
+  }
+
+  /** {@code prefix} is a pre-encoded "Name: " fragment. */
+  public ResponseHeaderEncoder header(byte[] prefix, String value){
+    return bytes(prefix).ascii(value == null ? "" : value).bytes(CRLF);
+  }
+
+  public ResponseHeaderEncoder header(byte[] prefix, long value){
+    return bytes(prefix).number(value).bytes(CRLF);
+  }
+
+  public ResponseHeaderEncoder headers(String[][] headers){
+    if(headers == null) return this;
+    for(String[] h : headers){
+      if(h != null && h.length == 2 && h[0] != null){
+        header(h[0], h[1]);
+      }
+    }
+    return this;
+  }
+
+  public ResponseHeaderEncoder contentType(String contentType){
+    if("text/plain; charset=utf-8".equals(contentType)) return bytes(CONTENT_TYPE_TEXT);
+    if("application/json; charset=utf-8".equals(contentType)) return bytes(CONTENT_TYPE_JSON);
+    return header(CONTENT_TYPE, contentType);
+  }
+
+  /** Terminates the head with the blank line. */
+  public ResponseHeaderEncoder end(){
+    return bytes(CRLF);
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buf, 0, len);
+  }
+
+  // ASCII digits written right-to-left into place; no String.valueOf
+  public ResponseHeaderEncoder number(long v){
+    if(v == Long.MIN_VALUE) return ascii(Long.toString(v));
+    if(v < 0){
+      ascii('-');
+      v = -v;
+    }
+    int digits = 1;
+    for(long t = v; t >= 10; t /= 10) digits++;
+    ensure(digits);
+    for(int i = len + digits - 1; i >= len; i--){
+      buf[i] = (byte) ('0' + (v % 10));
+      v /= 10;
+    }
+    len += digits;
+    return this;
+  }
+
+  private ResponseHeaderEncoder ascii(char c){
+    ensure(1);
+    buf[len++] = (byte) c;
+    return this;
+  }
+
+  // Same mapping as String.getBytes(US_ASCII): anything outside 7-bit becomes '?'
+  private ResponseHeaderEncoder ascii(String s){
+    int n = s.length();
+    ensure(n);
+    for(int i = 0; i < n; i++){
+      char c = s.charAt(i);
+      buf[len++] = (byte) (c < 0x80 ? c : '?');
+    }
+    return this;
+  }
+
+  private void ensure(int extra){
+    if(len + extra > buf.length){
+      buf = Arrays.copyOf(buf, Math.max(buf.length << 1, len + extra));
+    }
+  }
+
+  private static byte[] encode(String s){
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,245 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+
+/**
+ * Response body writer for bodies that are not known up front.
+ *
+ * <p>Output is buffered; if the whole body fits in the buffer, {@link #close()} sends it with a
+ * {@code Content-Length} as usual. Once the buffer overflows (or the handler calls {@link #flush()})
+ * the head goes out with {@code Transfer-Encoding: chunked} and each buffer-full becomes one chunk.
+ * Closing writes the terminating zero-length chunk followed by any trailers. Get one from
+ * {@code RequestContext.stream(...)}.
+ *
+ * <p>When the request negotiated a {@link Compression} encoding, a buffered body is compressed as a
+ * whole and a chunked one is compressed on the fly, one deflate pass per chunk.
+ *
+ * <p>Conditional GET: a buffered body is validated against its weak ETag at close; a chunked one can
+ * only be validated with an ETag known up front (handler header or version function), and on a match
+ * the 304 goes out at commit and the rest of the body is dropped.
+ */
+public final class ResponseStream extends OutputStream {
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+  private static final byte[] CRLF = {'\r', '\n'};
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private final OutputStream out;
+  private final int status;
+  private final String reason;
+  private final String contentType;
+  private final boolean keepAlive;
+  private final String[][] extraHeaders;
+  private byte[] buf;
+  private final byte[] sizeLine = new byte[10]; // up to 8 hex digits + CRLF
+  private int len;
+  private long total;
+  private boolean committed; // head sent, body is chunked
+  private boolean closed;
+  private boolean notModified; // a 304 went out instead; body writes are dropped
+  private List<String[]> trailers;
+  private final RequestMetrics metrics = RequestMetrics.get();
+  private Compression.Encoder encoder; // set at commit when the chunked body is compressed
+  private final OutputStream chunkSink = new OutputStream() {
+    @Override public void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+    @Override public void write(byte[] b, int off, int n) throws IOException { chunk(b, off, n); }
+  };
+
+  public ResponseStream(OutputStream out, int status, String reason, String contentType, boolean keepAlive,
+    String[][] extraHeaders, int bufferSize) {
+    this.out = out;
+    this.status = status;
+    this.reason = reason;
+    this.contentType = contentType;
+    this.keepAlive = keepAlive;
+    this.extraHeaders = extraHeaders;
+    this.buf = borrow(Math.max(1, bufferSize));
+  }
+
+  // One spare buffer per worker thread: a response borrows it and hands it back on close
+  private static final ThreadLocal<byte[]> SPARE = new ThreadLocal<>();
+
+  private static byte[] borrow(int size) {
+    byte[] b = SPARE.get();
+    if (b != null && b.length == size) {
+      SPARE.remove();
+      return b;
+    }
+    return new byte[size];
+  }
+
+  private void release() {
+    SPARE.set(buf);
+    buf = null;
+  }
+
+  /** Adds a trailer field; sent after the last chunk, or as a plain header if the body never needed chunking. */
+  public ResponseStream trailer(String name, String value) {
+    ensureOpen();
+    if (trailers == null) trailers = new ArrayList<>(2);
+    trailers.add(new String[]{name, value});
+    return this;
+  }
+
+  /** True once the head has gone out chunked. */
+  public boolean isChunked() { return committed; }
+
+  @Override
+  public void write(int b) throws IOException {
+    ensureWritable();
+    if (len == buf.length) writeChunk();
+    buf[len++] = (byte) b;
+    total++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int n) throws IOException {
+    ensureWritable();
+    total += n;
+    if (n <= buf.length - len) {
+      System.arraycopy(b, off, buf, len, n);
+      len += n;
+      return;
+    }
+    writeChunk();
+    if (n >= buf.length) {
+      body(b, off, n); // big writes go out as their own chunk, no copy
+    } else {
+      System.arraycopy(b, off, buf, 0, n);
+      len = n;
+    }
+  }
+
+  /** Sends what is buffered now; commits the response to chunked encoding. */
+  @Override
+  public void flush() throws IOException {
+    if (closed) return;
+    writeChunk();
+    if (encoder != null) encoder.flush(chunkSink);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+
+    if (!committed) {
+      // Whole body fit: plain Content-Length response, trailers folded into the head
+      String[][] headers = withTrailers();
+      String etag = HttpResponses.etagFor(metrics, status, buf, 0, len, headers);
+      if (HttpResponses.answeredNotModified(out, metrics, status, etag, headers, keepAlive)) {
+        release();
+        return;
+      }
+      byte[] body = buf;
+      int bodyLen = len;
+      String encoding = Compression.encodingFor(metrics, contentType);
+      if (encoding != null && len >= metrics.compression.minBytes()) {
+        byte[] packed = metrics.compression.compress(encoding, buf, 0, len);
+        if (packed.length < len) { body = packed; bodyLen = packed.length; }
+        else encoding = null;
+      } else {
+        encoding = null;
+      }
+      HttpResponses.writeHead(out, status, reason, contentType, bodyLen, keepAlive, headers,
+        Compression.headers(metrics, contentType, encoding), HttpResponses.etagToAdd(etag, headers));
+      out.write(body, 0, bodyLen);
+    } else if (notModified) {
+      release();
+      return;
+    } else {
+      writeChunk();
+      if (encoder != null) {
+        encoder.finish(chunkSink);
+        encoder.close();
+      }
+      out.write('0');
+      out.write(CRLF);
+      if (trailers != null) {
+        new ResponseHeaderEncoder().headers(trailers.toArray(String[][]::new)).writeTo(out);
+      }
+      out.write(CRLF);
+    }
+    release();
+    out.flush();
+
+    var m = RequestMetrics.get();
+    if (m != null) { m.status = status; m.contentLength = total; }
+  }
+
+  private void writeChunk() throws IOException {
+    commit();
+    if (len == 0) return;
+    body(buf, 0, len);
+    len = 0;
+  }
+
+  private void body(byte[] b, int off, int n) throws IOException {
+    if (notModified) return;
+    if (encoder != null) encoder.write(b, off, n, chunkSink);
+    else chunk(b, off, n);
+  }
+
+  private void chunk(byte[] b, int off, int n) throws IOException {
+    if (n == 0) return; // a zero-size chunk would end the body
+    int i = sizeLine.length - 2;
+    sizeLine[i] = '\r';
+    sizeLine[i + 1] = '\n';
+    for (int v = n; ; v >>>= 4) {
+      sizeLine[--i] = HEX[v & 0xF];
+      if (v < 16) break;
+    }
+    out.write(sizeLine, i, sizeLine.length - i);
+    out.write(b, off, n);
+    out.write(CRLF);
+  }
+
+  private void commit() throws IOException {
+    if (committed) return;
+    committed = true;
+    String etag = HttpResponses.etagFor(metrics, status, null, 0, 0, extraHeaders); // no body hash when streaming
+    if (HttpResponses.answeredNotModified(out, metrics, status, etag, extraHeaders, keepAlive)) {
+      notModified = true;
+      return;
+    }
+    String encoding = Compression.encodingFor(metrics, contentType);
+    if (encoding != null) encoder = metrics.compression.encoder(encoding);
+    HttpResponses.writeHead(out, status, reason, contentType, -1, keepAlive, extraHeaders,
+      Compression.headers(metrics, contentType, encoding), HttpResponses.etagToAdd(etag, extraHeaders));
+  }
+
+  /**
+   * Drops the response after a failed write; nothing more is sent. True if part of it already went
+   * out, in which case only closing the connection tells the client it is incomplete.
+   */
+  boolean abandon() {
+    if (closed) return committed;
+    closed = true;
+    if (encoder != null) encoder.close();
+    release();
+    return committed;
+  }
+
+  private String[][] withTrailers() {
+    if (trailers == null) return extraHeaders;
+    int n = extraHeaders == null ? 0 : extraHeaders.length;
+    String[][] all = new String[n + trailers.size()][];
+    if (n > 0) System.arraycopy(extraHeaders, 0, all, 0, n);
+    for (int i = 0; i < trailers.size(); i++) all[n + i] = trailers.get(i);
+    return all;
+  }
+
+  private void ensureWritable() throws IOException {
+    if (closed) throw new IOException("Response stream already closed");
+  }
+
+  private void ensureOpen() {
+    if (closed) throw new IllegalStateException("Response stream already closed");
+  }
+}
@@ -0,0 +1,100 @@
+package org.example.tinyhttp.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * HPACK (RFC 7541) tables and prefix integers shared by {@link HpackDecoder} and {@link HpackEncoder}.
+ * Index 1..61 is the static table; 62 and up address the dynamic table, newest entry first.
+ */
+final class Hpack {
+  private Hpack() {}
+
+  static final int DEFAULT_TABLE_SIZE = 4096;
+  static final int ENTRY_OVERHEAD = 32;
+
+  static final String[][] STATIC = {
+    null,
+    {":authority", ""}, {":method", "GET"}, {":method", "POST"}, {":path", "/"}, {":path", "/index.html"},
+    {":scheme", "http"}, {":scheme", "https"}, {":status", "200"}, {":status", "204"}, {":status", "206"},
+    {":status", "304"}, {":status", "400"}, {":status", "404"}, {":status", "500"}, {"accept-charset", ""},
+    {"accept-encoding", "gzip, deflate"}, {"accept-language", ""}, {"accept-ranges", ""}, {"accept", ""},
+    {"access-control-allow-origin", ""}, {"age", ""}, {"allow", ""}, {"authorization", ""},
+    {"cache-control", ""}, {"content-disposition", ""}, {"content-encoding", ""}, {"content-language", ""},
+    {"content-length", ""}, {"content-location", ""}, {"content-range", ""}, {"content-type", ""},
+    {"cookie", ""}, {"date", ""}, {"etag", ""}, {"expect", ""}, {"expires", ""}, {"from", ""}, {"host", ""},
+    {"if-match", ""}, {"if-modified-since", ""}, {"if-none-match", ""}, {"if-range", ""},
+    {"if-unmodified-since", ""}, {"last-modified", ""}, {"link", ""}, {"location", ""}, {"max-forwards", ""},
+    {"proxy-authenticate", ""}, {"proxy-authorization", ""}, {"range", ""}, {"referer", ""}, {"refresh", ""},
+    {"retry-after", ""}, {"server", ""}, {"set-cookie", ""}, {"strict-transport-security", ""},
+    {"transfer-encoding", ""}, {"user-agent", ""}, {"vary", ""}, {"via", ""}, {"www-authenticate", ""}
+  };
+  static final int STATIC_LENGTH = STATIC.length - 1;
+
+  /** FIFO of header fields bounded by RFC 7541 size (name + value + 32 per entry). */
+  static final class DynamicTable {
+    private final ArrayDeque<String[]> entries = new ArrayDeque<>();
+    private int size;
+    private int maxSize;
+
+    DynamicTable(int maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    int size() { return size; }
+    int maxSize() { return maxSize; }
+    int length() { return entries.size(); }
+
+    /** Entry {@code i}, 0 being the newest. */
+    String[] get(int i) {
+      if (i < 0 || i >= entries.size()) return null;
+      Iterator<String[]> it = entries.iterator();
+      for (int k = 0; k < i; k++) it.next();
+      return it.next();
+    }
+
+    Iterator<String[]> newestFirst() { return entries.iterator(); }
+
+    void add(String name, String value) {
+      int entrySize = entrySize(name, value);
+      evictUntil(maxSize - entrySize);
+      if (entrySize <= maxSize) { // an entry bigger than the table just empties it
+        entries.addFirst(new String[]{name, value});
+        size += entrySize;
+      }
+    }
+
+    void resize(int newMax) {
+      maxSize = newMax;
+      evictUntil(newMax);
+    }
+
+    private void evictUntil(int limit) {
+      while (size > Math.max(limit, 0) && !entries.isEmpty()) {
+        String[] e = entries.removeLast();
+        size -= entrySize(e[0], e[1]);
+      }
+    }
+  }
+
+  static int entrySize(String name, String value) {
+    return name.length() + value.length() + ENTRY_OVERHEAD; // ISO-8859-1: one byte per char
+  }
+
+  /** Writes {@code value} as an N-bit prefix integer, OR-ing {@code firstByteBits} into the first byte. */
+  static void writeInt(ByteArrayOutputStream out, int prefixBits, int firstByteBits, int value) {
+    int max = (1 << prefixBits) - 1;
+    if (value < max) {
+      out.write(firstByteBits | value);
+      return;
+    }
+    out.write(firstByteBits | max);
+    value -= max;
+    while (value >= 0x80) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+}
@@ -0,0 +1,94 @@
+package org.example.tinyhttp.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+import static org.example.tinyhttp.http2.Http2Frames.COMPRESSION_ERROR;
+
+/**
+ * Decodes header blocks for one connection. Blocks must be fed in the order they arrived: the dynamic
+ * table is shared by every stream. Any malformed block is a connection error (COMPRESSION_ERROR).
+ */
+final class HpackDecoder {
+  private final Hpack.DynamicTable table;
+  private final int settingsMaxSize; // what we advertised; size updates may not exceed it
+
+  HpackDecoder(int maxTableSize) {
+    this.table = new Hpack.DynamicTable(maxTableSize);
+    this.settingsMaxSize = maxTableSize;
+  }
+
+  int tableSize() { return table.size(); }
+
+  void decode(byte[] block, BiConsumer<String, String> sink) throws Http2Frames.Http2Error {
+    int[] pos = {0};
+    boolean fieldSeen = false;
+    while (pos[0] < block.length) {
+      int b = block[pos[0]] & 0xFF;
+      if ((b & 0x80) != 0) {                         // indexed field
+        String[] f = lookup(readInt(block, pos, 7));
+        sink.accept(f[0], f[1]);
+        fieldSeen = true;
+      } else if ((b & 0x40) != 0) {                  // literal, incremental indexing
+        String[] f = literal(block, pos, 6);
+        table.add(f[0], f[1]);
+        sink.accept(f[0], f[1]);
+        fieldSeen = true;
+      } else if ((b & 0x20) != 0) {                  // dynamic table size update
+        if (fieldSeen) throw error("Table size update after a header field");
+        int size = readInt(block, pos, 5);
+        if (size > settingsMaxSize) throw error("Table size update over the advertised limit: " + size);
+        table.resize(size);
+      } else {                                       // literal without indexing / never indexed
+        String[] f = literal(block, pos, 4);
+        sink.accept(f[0], f[1]);
+        fieldSeen = true;
+      }
+    }
+  }
+
+  private String[] literal(byte[] block, int[] pos, int prefixBits) throws Http2Frames.Http2Error {
+    int index = readInt(block, pos, prefixBits);
+    String name = index == 0 ? readString(block, pos) : lookup(index)[0];
+    return new String[]{name, readString(block, pos)};
+  }
+
+  private String[] lookup(int index) throws Http2Frames.Http2Error {
+    if (index <= 0) throw error("Header index 0");
+    if (index <= Hpack.STATIC_LENGTH) return Hpack.STATIC[index];
+    String[] f = table.get(index - Hpack.STATIC_LENGTH - 1);
+    if (f == null) throw error("Header index out of range: " + index);
+    return f;
+  }
+
+  private static String readString(byte[] block, int[] pos) throws Http2Frames.Http2Error {
+    if (pos[0] >= block.length) throw error("Truncated string");
+    boolean huffman = (block[pos[0]] & 0x80) != 0;
+    int len = readInt(block, pos, 7);
+    if (len > block.length - pos[0]) throw error("String runs past the block");
+    int off = pos[0];
+    pos[0] += len;
+    if (huffman) {
+      byte[] raw = Huffman.decode(block, off, len);
+      return new String(raw, StandardCharsets.ISO_8859_1);
+    }
+    return new String(block, off, len, StandardCharsets.ISO_8859_1);
+  }
+
+  static int readInt(byte[] block, int[] pos, int prefixBits) throws Http2Frames.Http2Error {
+    int max = (1 << prefixBits) - 1;
+    int value = block[pos[0]++] & max;
+    if (value < max) return value;
+    for (int shift = 0; ; shift += 7) {
+      if (pos[0] >= block.length) throw error("Truncated integer");
+      if (shift > 21) throw error("Integer overflow");
+      int b = block[pos[0]++] & 0xFF;
+      value += (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+  }
+
+  private static Http2Frames.Http2Error error(String message) {
+    return new Http2Frames.Http2Error(COMPRESSION_ERROR, 0, message);
+  }
+}
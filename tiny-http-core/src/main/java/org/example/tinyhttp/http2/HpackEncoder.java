@@ -0,0 +1,83 @@
+package org.example.tinyhttp.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Encodes response header blocks for one connection. Exact matches become a one-byte index; other
+ * fields are added to the dynamic table so a repeated Content-Type or Cache-Control costs one byte on
+ * the next response. Values that change every response or must not be indexed are sent as literals.
+ * Strings are Huffman-coded whenever that is shorter. Callers serialize access (one block at a time).
+ */
+final class HpackEncoder {
+  private static final Set<String> NOT_INDEXED = Set.of("content-length", "etag", "last-modified", "content-range");
+  private static final Set<String> NEVER_INDEXED = Set.of("set-cookie", "authorization", "cookie");
+
+  private final Hpack.DynamicTable table = new Hpack.DynamicTable(Hpack.DEFAULT_TABLE_SIZE);
+  private int pendingResize = -1; // smallest size the peer allowed since the last block
+
+  /** The peer's SETTINGS_HEADER_TABLE_SIZE; announced at the start of the next block. */
+  void setMaxTableSize(int size) {
+    int capped = Math.min(size, Hpack.DEFAULT_TABLE_SIZE);
+    pendingResize = pendingResize < 0 ? capped : Math.min(pendingResize, capped);
+    table.resize(capped);
+  }
+
+  void beginBlock(ByteArrayOutputStream out) {
+    if (pendingResize >= 0) {
+      Hpack.writeInt(out, 5, 0x20, pendingResize);
+      if (pendingResize != table.maxSize()) Hpack.writeInt(out, 5, 0x20, table.maxSize());
+      pendingResize = -1;
+    }
+  }
+
+  /** {@code name} must already be lower case. */
+  void encode(String name, String value, ByteArrayOutputStream out) {
+    int nameIndex = 0;
+    for (int i = 1; i <= Hpack.STATIC_LENGTH; i++) {
+      String[] f = Hpack.STATIC[i];
+      if (!f[0].equals(name)) continue;
+      if (f[1].equals(value)) {
+        Hpack.writeInt(out, 7, 0x80, i);
+        return;
+      }
+      if (nameIndex == 0) nameIndex = i;
+    }
+    boolean index = !NOT_INDEXED.contains(name) && !NEVER_INDEXED.contains(name);
+    if (index) {
+      int i = Hpack.STATIC_LENGTH + 1;
+      for (Iterator<String[]> it = table.newestFirst(); it.hasNext(); i++) {
+        String[] f = it.next();
+        if (!f[0].equals(name)) continue;
+        if (f[1].equals(value)) {
+          Hpack.writeInt(out, 7, 0x80, i);
+          return;
+        }
+        if (nameIndex == 0) nameIndex = i;
+      }
+    }
+
+    if (index) {
+      Hpack.writeInt(out, 6, 0x40, nameIndex);
+      table.add(name, value);
+    } else {
+      Hpack.writeInt(out, 4, NEVER_INDEXED.contains(name) ? 0x10 : 0x00, nameIndex);
+    }
+    if (nameIndex == 0) writeString(out, name);
+    writeString(out, value);
+  }
+
+  private static void writeString(ByteArrayOutputStream out, String s) {
+    byte[] raw = s.getBytes(StandardCharsets.ISO_8859_1);
+    int huffLen = Huffman.encodedLength(raw);
+    if (huffLen < raw.length) {
+      Hpack.writeInt(out, 7, 0x80, huffLen);
+      Huffman.encode(raw, out);
+    } else {
+      Hpack.writeInt(out, 7, 0x00, raw.length);
+      out.write(raw, 0, raw.length);
+    }
+  }
+}
@@ -0,0 +1,565 @@
+package org.example.tinyhttp.http2;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.tinyhttp.http.request.HttpHeaders;
+import org.example.tinyhttp.http.request.HttpRequest;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.server.ConnectionOutput;
+
+import static org.example.tinyhttp.http2.Http2Frames.*;
+
+/**
+ * HTTP/2 over cleartext (h2c), entered with prior knowledge (the client opens with the connection
+ * preface) or through {@code Upgrade: h2c} on an HTTP/1.1 request.
+ *
+ * <p>The worker thread that accepted the connection becomes its reader: it decodes frames and HPACK
+ * blocks in arrival order and does all flow-control bookkeeping for received data. Each complete
+ * request runs on its own virtual thread through the {@link StreamDispatcher}, so many streams are in
+ * flight on one socket. Response frames from all streams share one output under a
+ * {@link ReentrantLock} (synchronized would pin the virtual threads while they block on the socket);
+ * a stream whose send window is exhausted waits on that lock's condition until WINDOW_UPDATE arrives.
+ */
+public final class Http2Connection {
+  static final int MAX_HEADER_LIST_BYTES = 65_536; // same budget as HTTP/1.1 heads
+  private static final int MAX_BODY_BYTES = 1_000_000;      // same cap as HttpRequest
+  private static final int STREAM_WINDOW = 1 << 20;         // advertised per stream
+  private static final int CONNECTION_WINDOW = 16 << 20;
+  private static final AtomicInteger STREAM_THREADS = new AtomicInteger();
+
+  private final Socket socket;
+  private final InputStream in;
+  private final ConnectionOutput out;
+  private final StreamDispatcher dispatcher;
+  private final int maxConcurrentStreams;
+  private final int idleTimeoutMs;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition windowOpened = lock.newCondition();
+  private final HpackEncoder encoder = new HpackEncoder();         // guarded by lock
+  private final HpackDecoder decoder = new HpackDecoder(Hpack.DEFAULT_TABLE_SIZE);
+  private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+  private final AtomicInteger active = new AtomicInteger();
+
+  private long connSendWindow = DEFAULT_WINDOW; // guarded by lock
+  private int peerInitialWindow = DEFAULT_WINDOW;
+  private int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+  private int connRecvUnacked;                  // reader thread only
+  private int lastStreamId;
+  private volatile boolean closed;
+
+  // header block being continued (HEADERS without END_HEADERS)
+  private ByteArrayOutputStream pendingBlock;
+  private int pendingStreamId;
+  private int pendingFlags;
+
+  public Http2Connection(Socket socket, InputStream in, StreamDispatcher dispatcher, int maxConcurrentStreams,
+    int idleTimeoutMs) throws IOException {
+
+    this(socket, in, new ConnectionOutput(socket.getOutputStream(), socket.getChannel(), 16 * 1024), dispatcher,
+      maxConcurrentStreams, idleTimeoutMs);
+  }
+
+  /** Frames go to {@code out} instead of the socket itself, e.g. through a TLS session. */
+  public Http2Connection(Socket socket, InputStream in, ConnectionOutput out, StreamDispatcher dispatcher,
+    int maxConcurrentStreams, int idleTimeoutMs) {
+
+    this.socket = socket;
+    this.in = in;
+    this.out = out;
+    this.dispatcher = dispatcher;
+    this.maxConcurrentStreams = maxConcurrentStreams;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  /**
+   * Consumes the client connection preface if that is what the connection starts with. Otherwise
+   * nothing is consumed and the bytes are left for the HTTP/1.1 parser.
+   */
+  public static boolean readPreface(BufferedInputStream in) throws IOException {
+    in.mark(PREFACE.length);
+    byte[] start = in.readNBytes(3); // "PRI" is not an HTTP/1.1 method we route, so this decides it
+    if (!Arrays.equals(start, 0, start.length, PREFACE, 0, 3)) {
+      in.reset();
+      return false;
+    }
+    byte[] rest = in.readNBytes(PREFACE.length - 3);
+    if (!Arrays.equals(rest, 0, rest.length, PREFACE, 3, PREFACE.length)) {
+      in.reset();
+      return false;
+    }
+    return true;
+  }
+
+  /** True for a request asking to switch to h2c with a well-formed HTTP2-Settings header. */
+  public static boolean isUpgrade(HttpHeaders headers) {
+    String upgrade = headers.first("upgrade");
+    if (upgrade == null || !upgrade.toLowerCase(Locale.ROOT).contains("h2c")) return false;
+    List<String> settings = headers.all("http2-settings");
+    return settings.size() == 1 && upgradeSettings(settings.get(0)) != null;
+  }
+
+  public static byte[] switchingProtocols() {
+    return "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n"
+      .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /** Serves a prior-knowledge connection whose preface was already read; returns when it is done. */
+  public void serve() throws IOException {
+    serve(null);
+  }
+
+  /**
+   * Serves the connection after the 101 for {@code upgraded} went out: that request becomes stream 1,
+   * already half-closed, and the client's preface is read before anything else.
+   */
+  public void serveUpgraded(HttpRequest upgraded) throws IOException {
+    serve(upgraded);
+  }
+
+  private void serve(HttpRequest upgraded) throws IOException {
+    socket.setSoTimeout(idleTimeoutMs);
+    try {
+      if (upgraded != null) applySettings(upgradeSettings(upgraded.getHeaders().first("http2-settings")));
+      writeFrame(SETTINGS, 0, 0, settings(
+        SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams,
+        SETTINGS_INITIAL_WINDOW_SIZE, STREAM_WINDOW,
+        SETTINGS_MAX_HEADER_LIST_SIZE, MAX_HEADER_LIST_BYTES,
+        SETTINGS_ENABLE_PUSH, 0));
+      writeFrame(WINDOW_UPDATE, 0, 0, int32(CONNECTION_WINDOW - DEFAULT_WINDOW));
+
+      if (upgraded != null) {
+        byte[] preface = in.readNBytes(PREFACE.length);
+        if (!Arrays.equals(preface, PREFACE)) throw new Http2Error(PROTOCOL_ERROR, 0, "Missing connection preface");
+        Http2Stream first = new Http2Stream(1, peerInitialWindow, STREAM_WINDOW);
+        first.remoteClosed = true;
+        lastStreamId = 1;
+        streams.put(1, first);
+        active.incrementAndGet();
+        dispatch(first, upgraded);
+      }
+      readLoop();
+    } catch (Http2Error e) {
+      goAway(e.code);
+    } finally {
+      close();
+    }
+  }
+
+  private void readLoop() throws IOException {
+    boolean goingAway = false;
+    while (!goingAway) {
+      Frame f;
+      try {
+        f = read(in, DEFAULT_MAX_FRAME_SIZE);
+      } catch (SocketTimeoutException idle) {
+        if (active.get() > 0) continue; // responses still running; the client may just be waiting
+        goAway(NO_ERROR);
+        return;
+      }
+      if (f == null) return;
+      try {
+        goingAway = onFrame(f);
+      } catch (Http2Error e) {
+        if (e.streamId == 0) throw e;
+        resetStream(e.streamId, e.code);
+      }
+    }
+    awaitStreams(); // peer sent GOAWAY: let the streams it already opened finish
+  }
+
+  // Returns true once the peer said GOAWAY
+  private boolean onFrame(Frame f) throws IOException {
+    if (pendingBlock != null && (f.type() != CONTINUATION || f.streamId() != pendingStreamId)) {
+      throw new Http2Error(PROTOCOL_ERROR, 0, "Expected CONTINUATION for stream " + pendingStreamId);
+    }
+    switch (f.type()) {
+      case HEADERS -> onHeaders(f);
+      case CONTINUATION -> onContinuation(f);
+      case DATA -> onData(f);
+      case SETTINGS -> onSettings(f);
+      case WINDOW_UPDATE -> onWindowUpdate(f);
+      case PING -> {
+        if (f.streamId() != 0) throw new Http2Error(PROTOCOL_ERROR, 0, "PING on a stream");
+        if (f.payload().length != 8) throw new Http2Error(FRAME_SIZE_ERROR, 0, "PING payload must be 8 bytes");
+        if (!f.has(FLAG_ACK)) writeFrame(PING, FLAG_ACK, 0, f.payload());
+      }
+      case RST_STREAM -> {
+        if (f.streamId() == 0) throw new Http2Error(PROTOCOL_ERROR, 0, "RST_STREAM on stream 0");
+        if (f.payload().length != 4) throw new Http2Error(FRAME_SIZE_ERROR, 0, "RST_STREAM payload must be 4 bytes");
+        Http2Stream s = streams.get(f.streamId());
+        if (s != null) abandon(s);
+      }
+      case GOAWAY -> {
+        return true;
+      }
+      case PUSH_PROMISE -> throw new Http2Error(PROTOCOL_ERROR, 0, "Clients cannot push");
+      default -> { } // PRIORITY is advisory; unknown types must be ignored
+    }
+    return false;
+  }
+
+  private void onHeaders(Frame f) throws IOException {
+    if (f.streamId() == 0) throw new Http2Error(PROTOCOL_ERROR, 0, "HEADERS on stream 0");
+    byte[] p = f.payload();
+    int off = 0;
+    int len = p.length;
+    if (f.has(FLAG_PADDED)) {
+      if (len < 1) throw new Http2Error(PROTOCOL_ERROR, 0, "Padding without a length");
+      int pad = p[0] & 0xFF;
+      off = 1;
+      len -= 1 + pad;
+    }
+    if (f.has(FLAG_PRIORITY)) {
+      off += 5;
+      len -= 5;
+    }
+    if (len < 0) throw new Http2Error(PROTOCOL_ERROR, 0, "Padding exceeds the frame");
+    pendingBlock = new ByteArrayOutputStream(Math.max(len, 64));
+    pendingBlock.write(p, off, len);
+    pendingStreamId = f.streamId();
+    pendingFlags = f.flags();
+    if (f.has(FLAG_END_HEADERS)) endOfBlock();
+  }
+
+  private void onContinuation(Frame f) throws IOException {
+    if (pendingBlock == null) throw new Http2Error(PROTOCOL_ERROR, 0, "CONTINUATION without HEADERS");
+    if (pendingBlock.size() + f.payload().length > 4 * MAX_HEADER_LIST_BYTES) {
+      throw new Http2Error(PROTOCOL_ERROR, 0, "Header block too large");
+    }
+    pendingBlock.write(f.payload(), 0, f.payload().length);
+    if (f.has(FLAG_END_HEADERS)) endOfBlock();
+  }
+
+  private void endOfBlock() throws IOException {
+    byte[] block = pendingBlock.toByteArray();
+    int id = pendingStreamId;
+    boolean endStream = (pendingFlags & FLAG_END_STREAM) != 0;
+    pendingBlock = null;
+
+    Http2Stream existing = streams.get(id);
+    if (existing != null || id <= lastStreamId) {
+      // trailers on an open stream, or a late frame for one we closed: decode to keep HPACK in step
+      decoder.decode(block, (n, v) -> {});
+      if (existing == null || existing.remoteClosed) throw new Http2Error(STREAM_CLOSED, id, "Stream " + id + " is closed");
+      if (!endStream) throw new Http2Error(PROTOCOL_ERROR, id, "Trailers without END_STREAM");
+      existing.remoteClosed = true;
+      dispatch(existing);
+      return;
+    }
+    if ((id & 1) == 0) throw new Http2Error(PROTOCOL_ERROR, 0, "Client stream ids must be odd");
+    lastStreamId = id;
+
+    Http2Stream s = new Http2Stream(id, peerInitialWindow, STREAM_WINDOW);
+    decoder.decode(block, s::field);
+    s.endOfFields();
+    if (active.get() >= maxConcurrentStreams) throw new Http2Error(REFUSED_STREAM, id, "Too many streams");
+    if (s.malformed != null) throw new Http2Error(PROTOCOL_ERROR, id, s.malformed);
+    streams.put(id, s);
+    active.incrementAndGet();
+    if (endStream) {
+      s.remoteClosed = true;
+      dispatch(s);
+    }
+  }
+
+  private void onData(Frame f) throws IOException {
+    if (f.streamId() == 0) throw new Http2Error(PROTOCOL_ERROR, 0, "DATA on stream 0");
+    byte[] p = f.payload();
+    // the whole frame counts against both windows, padding included
+    connRecvUnacked += p.length;
+    if (connRecvUnacked >= CONNECTION_WINDOW / 2) {
+      writeFrame(WINDOW_UPDATE, 0, 0, int32(connRecvUnacked));
+      connRecvUnacked = 0;
+    }
+    Http2Stream s = streams.get(f.streamId());
+    if (s == null || s.remoteClosed) throw new Http2Error(STREAM_CLOSED, f.streamId(), "DATA on a closed stream");
+
+    s.recvWindow -= p.length;
+    if (s.recvWindow < 0) throw new Http2Error(FLOW_CONTROL_ERROR, s.id, "Stream window exceeded");
+    int off = 0;
+    int len = p.length;
+    if (f.has(FLAG_PADDED)) {
+      if (len < 1 || (p[0] & 0xFF) >= len) throw new Http2Error(PROTOCOL_ERROR, 0, "Padding exceeds the frame");
+      off = 1;
+      len -= 1 + (p[0] & 0xFF);
+    }
+    if (s.body.size() + len > MAX_BODY_BYTES) s.bodyTooLarge = true;
+    if (!s.bodyTooLarge) s.body.write(p, off, len);
+
+    if (f.has(FLAG_END_STREAM)) {
+      s.remoteClosed = true;
+      dispatch(s);
+      return;
+    }
+    s.recvUnacked += p.length;
+    if (s.recvUnacked >= STREAM_WINDOW / 2) {
+      writeFrame(WINDOW_UPDATE, 0, s.id, int32(s.recvUnacked));
+      s.recvWindow += s.recvUnacked;
+      s.recvUnacked = 0;
+    }
+  }
+
+  private void onSettings(Frame f) throws IOException {
+    if (f.streamId() != 0) throw new Http2Error(PROTOCOL_ERROR, 0, "SETTINGS on a stream");
+    if (f.has(FLAG_ACK)) return;
+    if (f.payload().length % 6 != 0) throw new Http2Error(FRAME_SIZE_ERROR, 0, "SETTINGS length not a multiple of 6");
+    applySettings(f.payload());
+    writeFrame(SETTINGS, FLAG_ACK, 0, new byte[0]);
+  }
+
+  private void applySettings(byte[] p) throws Http2Error {
+    lock.lock();
+    try {
+      for (int i = 0; i + 6 <= p.length; i += 6) {
+        int id = ((p[i] & 0xFF) << 8) | (p[i + 1] & 0xFF);
+        int value = int32(p, i + 2);
+        switch (id) {
+          case SETTINGS_HEADER_TABLE_SIZE -> encoder.setMaxTableSize(value);
+          case SETTINGS_INITIAL_WINDOW_SIZE -> {
+            if (value < 0) throw new Http2Error(FLOW_CONTROL_ERROR, 0, "Initial window over 2^31-1");
+            int delta = value - peerInitialWindow;
+            for (Http2Stream s : streams.values()) {
+              s.sendWindow += delta;
+              if (s.sendWindow > MAX_WINDOW) throw new Http2Error(FLOW_CONTROL_ERROR, 0, "Stream window overflow");
+            }
+            peerInitialWindow = value;
+          }
+          case SETTINGS_MAX_FRAME_SIZE -> {
+            if (value < DEFAULT_MAX_FRAME_SIZE || value > 0xFFFFFF) {
+              throw new Http2Error(PROTOCOL_ERROR, 0, "Invalid SETTINGS_MAX_FRAME_SIZE: " + value);
+            }
+            peerMaxFrameSize = value;
+          }
+          case SETTINGS_ENABLE_PUSH -> {
+            if (value != 0 && value != 1) throw new Http2Error(PROTOCOL_ERROR, 0, "Invalid SETTINGS_ENABLE_PUSH");
+          }
+          default -> { } // unknown settings are ignored
+        }
+      }
+      windowOpened.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void onWindowUpdate(Frame f) throws IOException {
+    if (f.payload().length != 4) throw new Http2Error(FRAME_SIZE_ERROR, 0, "WINDOW_UPDATE payload must be 4 bytes");
+    int increment = int31(f.payload(), 0);
+    if (increment == 0) throw new Http2Error(PROTOCOL_ERROR, f.streamId(), "WINDOW_UPDATE of 0");
+    lock.lock();
+    try {
+      if (f.streamId() == 0) {
+        connSendWindow += increment;
+        if (connSendWindow > MAX_WINDOW) throw new Http2Error(FLOW_CONTROL_ERROR, 0, "Connection window overflow");
+      } else {
+        Http2Stream s = streams.get(f.streamId());
+        if (s == null) return; // already finished on our side
+        s.sendWindow += increment;
+        if (s.sendWindow > MAX_WINDOW) throw new Http2Error(FLOW_CONTROL_ERROR, s.id, "Stream window overflow");
+      }
+      windowOpened.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void dispatch(Http2Stream s) {
+    HttpRequest request;
+    try {
+      request = HttpRequest.fromHttp2(s.method, s.path, s.headers, s.body.toByteArray());
+    } catch (IOException e) {
+      request = null;
+    }
+    dispatch(s, request);
+  }
+
+  private void dispatch(Http2Stream s, HttpRequest request) {
+    s.dispatched = true;
+    Thread.ofVirtual().name("h2-stream-" + STREAM_THREADS.incrementAndGet()).start(() -> runStream(s, request));
+  }
+
+  private void runStream(Http2Stream s, HttpRequest request) {
+    Http2ResponseOutput response = new Http2ResponseOutput(this, s, "HEAD".equals(s.method));
+    try {
+      if (s.headerListBytes > MAX_HEADER_LIST_BYTES) {
+        HttpResponses.writeText(response, 431, "Request Header Fields Too Large", "Headers too large\n", true);
+      } else if (s.bodyTooLarge) {
+        HttpResponses.writeText(response, 413, "Content Too Large", "Body too large\n", true);
+      } else if (request == null) {
+        HttpResponses.writeText(response, 400, "Bad Request", "Malformed request\n", true);
+      } else {
+        dispatcher.serve(request, response);
+      }
+      response.finish();
+    } catch (IOException | RuntimeException e) {
+      if (!s.reset && !closed) {
+        try {
+          resetStream(s, INTERNAL_ERROR);
+        } catch (IOException ignored) {}
+      }
+    } finally {
+      streams.remove(s.id);
+      if (active.decrementAndGet() == 0) {
+        lock.lock();
+        try {
+          windowOpened.signalAll(); // awaitStreams
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  void writeHeaders(Http2Stream s, List<String[]> fields, boolean endStream) throws IOException {
+    lock.lock();
+    try {
+      if (s.reset || closed) throw new IOException("Stream " + s.id + " was reset");
+      ByteArrayOutputStream block = new ByteArrayOutputStream(128);
+      encoder.beginBlock(block);
+      for (String[] f : fields) encoder.encode(f[0], f[1], block);
+      byte[] b = block.toByteArray();
+      // one HEADERS, then CONTINUATIONs if the block is larger than a frame; nothing may come between
+      int n = Math.min(b.length, peerMaxFrameSize);
+      int flags = (endStream ? FLAG_END_STREAM : 0) | (n == b.length ? FLAG_END_HEADERS : 0);
+      write(out, HEADERS, flags, s.id, b, 0, n);
+      for (int off = n; off < b.length; off += n) {
+        n = Math.min(b.length - off, peerMaxFrameSize);
+        write(out, CONTINUATION, off + n == b.length ? FLAG_END_HEADERS : 0, s.id, b, off, n);
+      }
+      if (endStream) out.flushNow();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Sends {@code b}, waiting for send window as needed; END_STREAM goes on the last frame. */
+  void writeData(Http2Stream s, byte[] b, int off, int len, boolean endStream) throws IOException {
+    lock.lock();
+    try {
+      do {
+        while (len > 0 && (connSendWindow <= 0 || s.sendWindow <= 0) && !s.reset && !closed) {
+          out.flushNow(); // whatever fits is on the wire before we wait
+          windowOpened.await(idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        if (s.reset || closed) throw new IOException("Stream " + s.id + " was reset");
+        int n = (int) Math.min(Math.min(len, peerMaxFrameSize), Math.min(connSendWindow, s.sendWindow));
+        boolean last = n == len;
+        write(out, DATA, last && endStream ? FLAG_END_STREAM : 0, s.id, b, off, n);
+        connSendWindow -= n;
+        s.sendWindow -= n;
+        off += n;
+        len -= n;
+      } while (len > 0);
+      if (endStream) out.flushNow();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted waiting for flow-control window");
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void flush() throws IOException {
+    lock.lock();
+    try {
+      out.flushNow();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void resetStream(Http2Stream s, int code) throws IOException {
+    cancel(s);
+    writeFrame(RST_STREAM, 0, s.id, int32(code));
+  }
+
+  private void resetStream(int streamId, int code) throws IOException {
+    Http2Stream s = streams.get(streamId);
+    if (s != null) abandon(s);
+    writeFrame(RST_STREAM, 0, streamId, int32(code));
+  }
+
+  // A stream still collecting its request has no thread to clean up after it
+  private void abandon(Http2Stream s) {
+    cancel(s);
+    if (!s.dispatched && streams.remove(s.id) != null) active.decrementAndGet();
+  }
+
+  private void cancel(Http2Stream s) {
+    lock.lock();
+    try {
+      s.reset = true;
+      s.remoteClosed = true;
+      windowOpened.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+    lock.lock();
+    try {
+      write(out, type, flags, streamId, payload);
+      out.flushNow();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void goAway(int code) {
+    try {
+      writeFrame(GOAWAY, 0, 0, Http2Frames.goAway(lastStreamId, code));
+    } catch (IOException ignored) {}
+  }
+
+  private void awaitStreams() {
+    lock.lock();
+    try {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+      while (active.get() > 0 && System.nanoTime() < deadline) {
+        windowOpened.await(100, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void close() {
+    lock.lock();
+    try {
+      closed = true;
+      windowOpened.signalAll(); // writers blocked on flow control give up
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // HTTP2-Settings is a base64url SETTINGS payload (RFC 7540 §3.2.1)
+  private static byte[] upgradeSettings(String value) {
+    try {
+      byte[] p = Base64.getUrlDecoder().decode(value.trim());
+      return p.length % 6 == 0 ? p : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
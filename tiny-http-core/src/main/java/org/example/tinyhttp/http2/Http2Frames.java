@@ -0,0 +1,154 @@
+package org.example.tinyhttp.http2;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+/** RFC 9113 frame layout: 9-byte header (length, type, flags, stream id) followed by the payload. */
+final class Http2Frames {
+  private Http2Frames() {}
+
+  static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+  static final int HEADER_BYTES = 9;
+  static final int DEFAULT_MAX_FRAME_SIZE = 16_384;
+  static final int DEFAULT_WINDOW = 65_535;
+  static final int MAX_WINDOW = Integer.MAX_VALUE;
+
+  static final int DATA = 0x0;
+  static final int HEADERS = 0x1;
+  static final int PRIORITY = 0x2;
+  static final int RST_STREAM = 0x3;
+  static final int SETTINGS = 0x4;
+  static final int PUSH_PROMISE = 0x5;
+  static final int PING = 0x6;
+  static final int GOAWAY = 0x7;
+  static final int WINDOW_UPDATE = 0x8;
+  static final int CONTINUATION = 0x9;
+
+  static final int FLAG_END_STREAM = 0x1;
+  static final int FLAG_ACK = 0x1;
+  static final int FLAG_END_HEADERS = 0x4;
+  static final int FLAG_PADDED = 0x8;
+  static final int FLAG_PRIORITY = 0x20;
+
+  static final int SETTINGS_HEADER_TABLE_SIZE = 0x1;
+  static final int SETTINGS_ENABLE_PUSH = 0x2;
+  static final int SETTINGS_MAX_CONCURRENT_STREAMS = 0x3;
+  static final int SETTINGS_INITIAL_WINDOW_SIZE = 0x4;
+  static final int SETTINGS_MAX_FRAME_SIZE = 0x5;
+  static final int SETTINGS_MAX_HEADER_LIST_SIZE = 0x6;
+
+  static final int NO_ERROR = 0x0;
+  static final int PROTOCOL_ERROR = 0x1;
+  static final int INTERNAL_ERROR = 0x2;
+  static final int FLOW_CONTROL_ERROR = 0x3;
+  static final int STREAM_CLOSED = 0x5;
+  static final int FRAME_SIZE_ERROR = 0x6;
+  static final int REFUSED_STREAM = 0x7;
+  static final int CANCEL = 0x8;
+  static final int COMPRESSION_ERROR = 0x9;
+
+  /** A connection error (stream 0, answered with GOAWAY) or a stream error (answered with RST_STREAM). */
+  static final class Http2Error extends IOException {
+    final int code;
+    final int streamId;
+
+    Http2Error(int code, int streamId, String message) {
+      super(message);
+      this.code = code;
+      this.streamId = streamId;
+    }
+  }
+
+  record Frame(int type, int flags, int streamId, byte[] payload) {
+    boolean has(int flag) { return (flags & flag) != 0; }
+  }
+
+  /**
+   * Reads one frame; null on a clean EOF before its first byte. A read timeout is only reported as
+   * {@link SocketTimeoutException} while no byte of the frame was consumed, so the caller may retry.
+   */
+  static Frame read(InputStream in, int maxFrameSize) throws IOException {
+    int b0 = in.read();
+    if (b0 < 0) return null;
+    byte[] head = new byte[HEADER_BYTES];
+    head[0] = (byte) b0;
+    try {
+      if (in.readNBytes(head, 1, HEADER_BYTES - 1) < HEADER_BYTES - 1) throw new EOFException("Connection closed mid-frame");
+    } catch (SocketTimeoutException e) {
+      throw new IOException("Timed out mid-frame", e);
+    }
+    int len = ((head[0] & 0xFF) << 16) | ((head[1] & 0xFF) << 8) | (head[2] & 0xFF);
+    int type = head[3] & 0xFF;
+    int flags = head[4] & 0xFF;
+    int streamId = int31(head, 5);
+    if (len > maxFrameSize) throw new Http2Error(FRAME_SIZE_ERROR, 0, "Frame of " + len + " bytes over the limit");
+    byte[] payload;
+    try {
+      payload = in.readNBytes(len);
+    } catch (SocketTimeoutException e) {
+      throw new IOException("Timed out mid-frame", e);
+    }
+    if (payload.length < len) throw new EOFException("Connection closed mid-frame");
+    return new Frame(type, flags, streamId, payload);
+  }
+
+  static void write(OutputStream out, int type, int flags, int streamId, byte[] b, int off, int len)
+    throws IOException {
+
+    byte[] head = new byte[HEADER_BYTES];
+    head[0] = (byte) (len >>> 16);
+    head[1] = (byte) (len >>> 8);
+    head[2] = (byte) len;
+    head[3] = (byte) type;
+    head[4] = (byte) flags;
+    putInt(head, 5, streamId);
+    out.write(head);
+    out.write(b, off, len);
+  }
+
+  static void write(OutputStream out, int type, int flags, int streamId, byte[] payload) throws IOException {
+    write(out, type, flags, streamId, payload, 0, payload.length);
+  }
+
+  static byte[] settings(int... idValuePairs) {
+    byte[] p = new byte[idValuePairs.length / 2 * 6];
+    for (int i = 0, o = 0; i < idValuePairs.length; i += 2, o += 6) {
+      p[o] = (byte) (idValuePairs[i] >>> 8);
+      p[o + 1] = (byte) idValuePairs[i];
+      putInt(p, o + 2, idValuePairs[i + 1]);
+    }
+    return p;
+  }
+
+  static byte[] int32(int v) {
+    byte[] p = new byte[4];
+    putInt(p, 0, v);
+    return p;
+  }
+
+  static byte[] goAway(int lastStreamId, int code) {
+    byte[] p = new byte[8];
+    putInt(p, 0, lastStreamId);
+    putInt(p, 4, code);
+    return p;
+  }
+
+  static int int31(byte[] b, int off) {
+    return int32(b, off) & 0x7FFFFFFF;
+  }
+
+  static int int32(byte[] b, int off) {
+    return ((b[off] & 0xFF) << 24) | ((b[off + 1] & 0xFF) << 16) | ((b[off + 2] & 0xFF) << 8) | (b[off + 3] & 0xFF);
+  }
+
+  private static void putInt(byte[] b, int off, int v) {
+    b[off] = (byte) (v >>> 24);
+    b[off + 1] = (byte) (v >>> 16);
+    b[off + 2] = (byte) (v >>> 8);
+    b[off + 3] = (byte) v;
+  }
+}
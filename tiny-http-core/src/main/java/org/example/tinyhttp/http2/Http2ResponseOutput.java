@@ -0,0 +1,188 @@
+package org.example.tinyhttp.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Lets unmodified route handlers answer an HTTP/2 stream. Handlers write an HTTP/1.1 response; this
+ * sink parses the status line and headers into one HEADERS frame (dropping connection-specific
+ * fields) and re-frames the body, Content-Length or chunked, into DATA frames. END_STREAM rides on
+ * the last DATA frame, or on HEADERS when there is no body.
+ */
+final class Http2ResponseOutput extends OutputStream {
+  private static final Set<String> HOP_BY_HOP =
+    Set.of("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+  private static final int MAX_HEAD_BYTES = 64 * 1024;
+
+  private enum State { HEAD, FIXED, CHUNK_SIZE, CHUNK_DATA, CHUNK_CRLF, TRAILERS, UNTIL_CLOSE, DONE }
+
+  private final Http2Connection conn;
+  private final Http2Stream stream;
+  private final boolean headOnly;
+  private final ByteArrayOutputStream head = new ByteArrayOutputStream(256);
+  private final StringBuilder line = new StringBuilder(); // chunk-size and trailer lines
+  private final byte[] data = new byte[Http2Frames.DEFAULT_MAX_FRAME_SIZE];
+  private int dataLen;
+  private State state = State.HEAD;
+  private int crlfState; // progress through the "\r\n\r\n" ending the head
+  private long remaining; // FIXED: body bytes left; CHUNK_DATA: bytes left in this chunk; CHUNK_CRLF: 2..0
+
+  Http2ResponseOutput(Http2Connection conn, Http2Stream stream, boolean headOnly) {
+    this.conn = conn;
+    this.stream = stream;
+    this.headOnly = headOnly;
+  }
+
+  boolean done() { return state == State.DONE; }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    int end = off + len;
+    while (off < end) {
+      switch (state) {
+        case HEAD -> {
+          while (off < end && crlfState != 4) advance(b[off++]);
+          if (head.size() > MAX_HEAD_BYTES) throw new IOException("Response head too large");
+          if (crlfState == 4) sendHead();
+        }
+        case FIXED -> {
+          int n = (int) Math.min(end - off, remaining);
+          body(b, off, n);
+          off += n;
+          remaining -= n;
+          if (remaining == 0) end();
+        }
+        case UNTIL_CLOSE -> {
+          body(b, off, end - off);
+          off = end;
+        }
+        case CHUNK_SIZE, TRAILERS -> {
+          char c = (char) (b[off++] & 0xFF);
+          if (c != '\n') {
+            line.append(c);
+            continue;
+          }
+          String l = line.toString().trim();
+          line.setLength(0);
+          if (state == State.TRAILERS) {
+            if (l.isEmpty()) end();
+            continue;
+          }
+          int semi = l.indexOf(';');
+          remaining = Long.parseLong(semi < 0 ? l : l.substring(0, semi).trim(), 16);
+          state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+        }
+        case CHUNK_DATA -> {
+          int n = (int) Math.min(end - off, remaining);
+          body(b, off, n);
+          off += n;
+          remaining -= n;
+          if (remaining == 0) {
+            state = State.CHUNK_CRLF;
+            remaining = 2;
+          }
+        }
+        case CHUNK_CRLF -> {
+          off++;
+          if (--remaining == 0) state = State.CHUNK_SIZE;
+        }
+        case DONE -> off = end; // a HEAD body, or bytes past the declared length
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (dataLen > 0 && state != State.DONE) {
+      conn.writeData(stream, data, 0, dataLen, false);
+      dataLen = 0;
+    }
+    conn.flush();
+  }
+
+  /** Called after the handler returned: ends a body that runs to "connection close", or resets a short one. */
+  void finish() throws IOException {
+    if (state == State.UNTIL_CLOSE) {
+      end();
+    } else if (state != State.DONE) {
+      conn.resetStream(stream, Http2Frames.INTERNAL_ERROR);
+      return;
+    }
+    conn.flush();
+  }
+
+  private void advance(byte c) {
+    head.write(c);
+    boolean cr = (crlfState & 1) == 0; // same scan as HeadResponseOutput
+    if (c == (cr ? '\r' : '\n')) crlfState++;
+    else crlfState = (c == '\r') ? 1 : 0;
+  }
+
+  private void sendHead() throws IOException {
+    String[] lines = head.toString(StandardCharsets.ISO_8859_1).split("\r\n");
+    head.reset();
+    crlfState = 0;
+    String[] status = lines[0].split(" ", 3);
+    int code = Integer.parseInt(status[1]);
+    if (code >= 100 && code < 200) return; // interim responses (100 Continue) do not apply here
+
+    List<String[]> fields = new ArrayList<>(lines.length);
+    fields.add(new String[]{":status", status[1]});
+    boolean chunked = false;
+    long length = -1;
+    for (int i = 1; i < lines.length; i++) {
+      int colon = lines[i].indexOf(':');
+      if (colon <= 0) continue;
+      String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+      String value = lines[i].substring(colon + 1).trim();
+      if (name.equals("transfer-encoding")) chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+      if (HOP_BY_HOP.contains(name)) continue;
+      if (name.equals("content-length")) length = Long.parseLong(value);
+      fields.add(new String[]{name, value});
+    }
+
+    boolean bodyless = headOnly || code == 204 || code == 304 || (!chunked && length == 0);
+    conn.writeHeaders(stream, fields, bodyless);
+    if (bodyless) {
+      state = State.DONE;
+    } else if (chunked) {
+      state = State.CHUNK_SIZE;
+    } else if (length > 0) {
+      state = State.FIXED;
+      remaining = length;
+    } else {
+      state = State.UNTIL_CLOSE;
+    }
+  }
+
+  private void body(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      int n = Math.min(len, data.length - dataLen);
+      System.arraycopy(b, off, data, dataLen, n);
+      dataLen += n;
+      off += n;
+      len -= n;
+      if (dataLen == data.length) {
+        conn.writeData(stream, data, 0, dataLen, false);
+        dataLen = 0;
+      }
+    }
+  }
+
+  private void end() throws IOException {
+    conn.writeData(stream, data, 0, dataLen, true);
+    dataLen = 0;
+    state = State.DONE;
+  }
+}
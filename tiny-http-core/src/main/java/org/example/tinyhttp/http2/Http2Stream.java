@@ -0,0 +1,99 @@
+package org.example.tinyhttp.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Locale;
+import java.util.Set;
+
+import org.example.tinyhttp.http.request.HttpHeaders;
+
+/**
+ * One request/response exchange on a connection. Request fields are filled in by the connection's
+ * reader thread; the send window is guarded by the connection lock and shared with the stream's
+ * handler thread.
+ */
+final class Http2Stream {
+  private static final Set<String> CONNECTION_SPECIFIC =
+    Set.of("connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade");
+
+  final int id;
+  final HttpHeaders headers = new HttpHeaders();
+  String method;
+  String path;
+  String scheme;
+  String authority;
+  String malformed;          // first RFC 9113 §8.2 violation, answered with RST_STREAM(PROTOCOL_ERROR)
+  int headerListBytes;
+  private boolean regularSeen;
+  private StringBuilder cookie;
+
+  final ByteArrayOutputStream body = new ByteArrayOutputStream();
+  boolean bodyTooLarge;
+  boolean remoteClosed;      // END_STREAM received
+  boolean dispatched;        // a handler thread owns the response
+  int recvWindow;            // reader thread only
+  int recvUnacked;
+
+  long sendWindow;           // guarded by the connection lock
+  volatile boolean reset;
+
+  Http2Stream(int id, int sendWindow, int recvWindow) {
+    this.id = id;
+    this.sendWindow = sendWindow;
+    this.recvWindow = recvWindow;
+  }
+
+  /**
+   * Takes one decoded request field, checking what RFC 9113 §8.2-8.3 requires of it. Past the header
+   * list limit nothing more is kept (the stream is answered with 431): a small block of indexed
+   * references to one large table entry would otherwise expand without bound.
+   */
+  void field(String name, String value) {
+    if (headerListBytes > Http2Connection.MAX_HEADER_LIST_BYTES) return; // still decoded, for the HPACK table
+    headerListBytes += name.length() + value.length() + Hpack.ENTRY_OVERHEAD;
+    if (headerListBytes > Http2Connection.MAX_HEADER_LIST_BYTES) {
+      cookie = null;
+      return;
+    }
+    if (malformed != null) return;
+    if (!name.equals(name.toLowerCase(Locale.ROOT))) {
+      malformed = "Upper-case field name: " + name;
+    } else if (name.startsWith(":")) {
+      if (regularSeen) {
+        malformed = "Pseudo-header after a regular field: " + name;
+        return;
+      }
+      switch (name) {
+        case ":method" -> method = pseudo(name, method, value);
+        case ":path" -> path = pseudo(name, path, value);
+        case ":scheme" -> scheme = pseudo(name, scheme, value);
+        case ":authority" -> authority = pseudo(name, authority, value);
+        default -> malformed = "Unknown pseudo-header: " + name;
+      }
+    } else {
+      regularSeen = true;
+      if (CONNECTION_SPECIFIC.contains(name) || (name.equals("te") && !value.equals("trailers"))) {
+        malformed = "Connection-specific field: " + name;
+      } else if (name.equals("cookie")) {
+        // cookie crumbs are joined back into one field (§8.2.3)
+        if (cookie == null) cookie = new StringBuilder(value);
+        else cookie.append("; ").append(value);
+      } else {
+        headers.add(name, value);
+      }
+    }
+  }
+
+  /** Called once the header block is complete. */
+  void endOfFields() {
+    if (malformed == null && (method == null || scheme == null || path == null || path.isEmpty())) {
+      malformed = "Missing :method, :scheme or :path";
+    }
+    if (cookie != null) headers.add("cookie", cookie.toString());
+    if (authority != null && !headers.has("host")) headers.add("host", authority);
+  }
+
+  private String pseudo(String name, String current, String value) {
+    if (current != null) malformed = "Duplicate " + name;
+    return value;
+  }
+}
@@ -0,0 +1,15 @@
+package org.example.tinyhttp.http2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.example.tinyhttp.http.request.HttpRequest;
+
+/**
+ * Serves one HTTP/2 stream. The response is written to {@code out} exactly as a route handler writes
+ * an HTTP/1.1 response; the connection turns it into HEADERS and DATA frames.
+ */
+@FunctionalInterface
+public interface StreamDispatcher {
+  void serve(HttpRequest request, OutputStream out) throws IOException;
+}
@@ -3,7 +3,9 @@ package org.example.tinyhttp.parsing;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 public final class Json {
@@ -11,6 +13,24 @@ public final class Json {
   public static final ObjectMapper mapper = new ObjectMapper()
     .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+  // Writers for streaming straight into a response: the caller decides when the body is
+  // finished, so the generator must neither flush (that would force chunking) nor close it.
+  private static final ObjectWriter STREAM_WRITER = mapper.writer()
+    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+    .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+  private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<>() {
+    @Override protected ObjectWriter computeValue(Class<?> type) {
+      return STREAM_WRITER.forType(type);
+    }
+  };
+
+  /** Cached writer for the runtime type of {@code value}; serializers are resolved once per class. */
+  public static ObjectWriter writerFor(Object value) {
+    return value == null ? STREAM_WRITER : WRITERS.get(value.getClass());
+  }
+
   public static Map<String, String> createResponse(String key, String value) {
     Map<String, String> response = new HashMap<>();
     response.put(key, value);
@@ -0,0 +1,99 @@
+package org.example.tinyhttp.parsing;
+
+import java.util.Arrays;
+
+/**
+ * Segment boundaries of a request path, recorded as offsets into the original string
+ * so the router can match without splitting or copying.
+ *
+ * <p>Instances are reusable: the server keeps one per connection and refills it for
+ * every request. Filled either by {@link UrlParser#tokenizeTarget} (strict, normalizing)
+ * or {@link #split} (lenient, for already-normalized paths).
+ */
+public final class PathTokens {
+  private String src = "";
+  private int[] bounds = new int[32]; // start0, end0, start1, end1, ...
+  private int count;
+  private int pathEnd;      // end of the path part of src ('?' or length)
+  private int queryStart;   // -1 when there is no '?'
+  private boolean clean;    // src[0, pathEnd) is already in normalized form
+
+  public String source() { return src; }
+  public int count() { return count; }
+  public int start(int i) { return bounds[i << 1]; }
+  public int end(int i) { return bounds[(i << 1) + 1]; }
+
+  public boolean segmentEquals(int i, String literal){
+    int s = start(i);
+    return end(i) - s == literal.length() && src.regionMatches(s, literal, 0, literal.length());
+  }
+
+  public String segment(int i) { return src.substring(start(i), end(i)); }
+
+  /** Segments from..count-1 joined with '/' ("" when from == count). */
+  public String join(int from){
+    if(from >= count) return "";
+    if(clean) return src.substring(start(from), end(count - 1));
+    StringBuilder sb = new StringBuilder();
+    for(int i = from; i < count; i++){
+      if(i > from) sb.append('/');
+      sb.append(src, start(i), end(i));
+    }
+    return sb.toString();
+  }
+
+  /** Normalized path; no copy when the raw path was already normal and had no query. */
+  public String normalizedPath(){
+    if(clean) return pathEnd == src.length() ? src : src.substring(0, pathEnd);
+    StringBuilder sb = new StringBuilder(pathEnd);
+    sb.append('/');
+    for(int i = 0; i < count; i++){
+      if(i > 0) sb.append('/');
+      sb.append(src, start(i), end(i));
+    }
+    return sb.toString();
+  }
+
+  /** Raw (undecoded) query, "" when absent. */
+  public String rawQuery(){
+    return queryStart < 0 ? "" : src.substring(queryStart);
+  }
+
+  public boolean hasQuery() { return queryStart >= 0 && queryStart < src.length(); }
+
+  /** Lenient split on '/', skipping empty segments. Mirrors the router's historic behaviour. */
+  public static PathTokens split(String path){
+    PathTokens t = new PathTokens();
+    t.reset(path);
+    int n = path.length(), s = 0;
+    for(int i = 0; i <= n; i++){
+      if(i == n || path.charAt(i) == '/'){
+        if(i > s) t.add(s, i);
+        s = i + 1;
+      }
+    }
+    t.pathEnd = n;
+    t.clean = false;
+    return t;
+  }
+
+  void reset(String source){
+    src = source;
+    count = 0;
+    queryStart = -1;
+    clean = true;
+  }
+
+  void add(int start, int end){
+    if((count << 1) + 2 > bounds.length) bounds = Arrays.copyOf(bounds, bounds.length << 1);
+    bounds[count << 1] = start;
+    bounds[(count << 1) + 1] = end;
+    count++;
+  }
+
+  void finish(int pathEnd, int queryStart, boolean clean){
+    this.pathEnd = pathEnd;
+    this.queryStart = queryStart;
+    this.clean = clean;
+  }
+}
@@ -1,25 +1,77 @@
 package org.example.tinyhttp.parsing;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.example.tinyhttp.http.HttpExceptions;
+
 public final class Url {
     private final String rawTarget;     // e.g., /users/42?tab=activity
     private final String path;          // normalized, no query
-    private final Map<String,List<String>> query;  // decoded
+    private final String rawQuery;      // undecoded, "" when absent
+    private final int maxQueryParams;
+    private String[] kv;                // decoded [k0, v0, k1, v1, ...], parsed on first access
+    private Map<String,List<String>> query;  // only built if someone asks for the map view
 
     public Url(String rawTarget, String path, Map<String,List<String>> query) {
         this.rawTarget = rawTarget;
         this.path = path;
+        this.rawQuery = "";
+        this.maxQueryParams = UrlParser.DEFAULT_MAX_QUERY_PARAMS;
         this.query = query;
     }
 
+    /** Lazy form: the query string is only decoded when a handler reads it. */
+    public Url(String rawTarget, String path, String rawQuery, int maxQueryParams) {
+        this.rawTarget = rawTarget;
+        this.path = path;
+        this.rawQuery = rawQuery == null ? "" : rawQuery;
+        this.maxQueryParams = maxQueryParams;
+    }
+
     public String rawTarget() { return rawTarget; }
     public String path() { return path; }
-    public Map<String,List<String>> query() { return query; }
+    public String rawQuery() { return rawQuery; }
+
+    public Map<String,List<String>> query() {
+        if (query == null) query = Collections.unmodifiableMap(UrlParser.toMap(pairs()));
+        return query;
+    }
 
     public String q1(String key) {       // first query value or null
-        var v = query.get(key);
-        return (v == null || v.isEmpty()) ? null : v.get(0);
+        if (query != null) {
+            var v = query.get(key);
+            return (v == null || v.isEmpty()) ? null : v.get(0);
+        }
+        String[] p = pairs();
+        for (int i = 0; i < p.length; i += 2) {
+            if (p[i].equals(key)) return p[i + 1];
+        }
+        return null;
+    }
+
+    public List<String> qAll(String key) {
+        if (query != null) return query.getOrDefault(key, List.of());
+        String[] p = pairs();
+        List<String> out = new ArrayList<>(2);
+        for (int i = 0; i < p.length; i += 2) {
+            if (p[i].equals(key)) out.add(p[i + 1]);
+        }
+        return out;
+    }
+
+    // Malformed escapes / too many pairs surface here, not at request start; the server maps this to 400
+    private String[] pairs() {
+        if (kv == null) {
+            try {
+                kv = UrlParser.parseQueryFlat(rawQuery, maxQueryParams);
+            } catch (IOException e) {
+                throw new HttpExceptions.MalformedRequest(new HttpExceptions.BadRequest(e.getMessage()));
+            }
+        }
+        return kv;
     }
-}
\ No newline at end of file
+}
@@ -2,9 +2,8 @@ package org.example.tinyhttp.parsing;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,27 +24,57 @@ public class UrlParser {
     if("*".equals(path)){
       return "*";
     }
-    if(!path.startsWith("/")) throw new IOException("Path must start with '/'");
-    // collapse '/'
-    while(path.contains("//")) path = path.replace("//", "/");
-
-    // split and rebuild, reject ".."
-    String[] parts = path.split("/");
-    Deque<String> safe = new ArrayDeque<>();
-
-    for(String p: parts){
-      if(p.isEmpty() || p.equals(".")) continue;
-      if(p.equals("..")) throw new IOException("Path traversal not allowed");
-      safe.addLast(p);
+    PathTokens t = new PathTokens();
+    scanPath(path, false, t);
+    return t.normalizedPath();
+  }
+
+  // Split + normalize + segment in one pass over the raw request target. Offsets land in 't'
+  // so the router can match on them directly; nothing is copied unless the path needs rewriting.
+  public static void tokenizeTarget(String target, PathTokens t) throws IOException{
+    int n = target.length();
+    if(n > 0 && target.charAt(0) == '*' && (n == 1 || target.charAt(1) == '?')){
+      t.reset(target);
+      t.add(0, 1);
+      t.finish(1, n > 1 ? 2 : -1, true);
+      return;
+    }
+    scanPath(target, true, t);
+  }
+
+  private static void scanPath(String s, boolean stopAtQuery, PathTokens t) throws IOException{
+    if(s.isEmpty() || s.charAt(0) != '/') throw new IOException("Path must start with '/'");
+    t.reset(s);
+    int n = s.length(), end = n, queryStart = -1, segStart = 1;
+    boolean clean = true;
+
+    for(int i = 1; i < n; i++){
+      char c = s.charAt(i);
+      if(c == '?' && stopAtQuery){
+        end = i;
+        queryStart = i + 1;
+        break;
+      }
+      if(c == '/'){
+        clean &= segment(s, segStart, i, t);
+        segStart = i + 1;
+      }
     }
+    // A lone "/" is already normal; any other trailing '/' leaves an empty segment to drop
+    if(segStart < end || segStart > 1) clean &= segment(s, segStart, end, t);
+    t.finish(end, queryStart, clean);
+  }
 
-    StringBuilder sb = new StringBuilder("/");
-    var it = safe.iterator();
-    while(it.hasNext()) { 
-      sb.append(it.next()); 
-      if(it.hasNext()) sb.append("/");
+  // Records a segment; false when it was dropped ("" or ".") so the path needs rebuilding
+  private static boolean segment(String s, int from, int to, PathTokens t) throws IOException{
+    int len = to - from;
+    if(len == 0) return false;
+    if(s.charAt(from) == '.'){
+      if(len == 1) return false;
+      if(len == 2 && s.charAt(from + 1) == '.') throw new IOException("Path traversal not allowed");
     }
-    return sb.toString();
+    t.add(from, to);
+    return true;
   }
 
   // 3) Percent decoder (strict): %HH where H is hex; leaves '+' as plus (not a space)
@@ -80,19 +109,57 @@ public class UrlParser {
 
   // 4) Parse query into Map<String, List<String>> with decoding
   public static Map<String, List<String>> parseQuery(String raw) throws IOException{
+    return toMap(parseQueryFlat(raw, DEFAULT_MAX_QUERY_PARAMS));
+  }
+
+  public static final int DEFAULT_MAX_QUERY_PARAMS = 1000;
+
+  // 5) Flat form: [k0, v0, k1, v1, ...], decoded, in request order. Components without
+  // a '%' are returned as plain substrings of 'raw' (no decode buffer at all).
+  public static String[] parseQueryFlat(String raw, int maxPairs) throws IOException{
+    if(raw == null || raw.isEmpty()) return EMPTY;
+    String[] kv = new String[8];
+    int n = 0, from = 0, len = raw.length();
+    while(true){
+      int amp = raw.indexOf('&', from);
+      int to = amp < 0 ? len : amp;
+      if((n >> 1) + 1 > maxPairs) throw new IOException("too many request params");
+      if(n + 2 > kv.length) kv = Arrays.copyOf(kv, kv.length << 1);
+      int eq = indexOf(raw, '=', from, to);
+      if(eq < 0){
+        kv[n++] = decodeComponent(raw, from, to);
+        kv[n++] = "";
+      } else {
+        kv[n++] = decodeComponent(raw, from, eq);
+        kv[n++] = decodeComponent(raw, eq + 1, to);
+      }
+      if(amp < 0) break;
+      from = amp + 1;
+    }
+    return n == kv.length ? kv : Arrays.copyOf(kv, n);
+  }
+
+  public static Map<String, List<String>> toMap(String[] kv){
     Map<String, List<String>> map = new LinkedHashMap<>();
-    if(raw == null || raw.isEmpty()) return map;
-    int pairs = 0;
-    for(String part: raw.split("&", -1)){
-      if(++pairs > 1000) throw new IOException("too many request params");
-      String k,v;
-      int eq = part.indexOf("=");
-      if(eq < 0) { k = part; v = "";}
-      else { k = part.substring(0, eq); v = part.substring(eq + 1);}
-      k = pctDecode(k);
-      v = pctDecode(v);
-      map.computeIfAbsent(k, key -> new ArrayList<>()).add(v);
+    for(int i = 0; i < kv.length; i += 2){
+      map.computeIfAbsent(kv[i], key -> new ArrayList<>()).add(kv[i + 1]);
     }
     return map;
   }
+
+  private static final String[] EMPTY = new String[0];
+
+  private static String decodeComponent(String raw, int from, int to) throws IOException{
+    if(from == to) return "";
+    if(indexOf(raw, '%', from, to) < 0) return (from == 0 && to == raw.length()) ? raw : raw.substring(from, to);
+    return pctDecode(raw.substring(from, to));
+  }
+
+  // Bounded scan so one pair never looks past its own '&'
+  private static int indexOf(String s, char c, int from, int to){
+    for(int i = from; i < to; i++){
+      if(s.charAt(i) == c) return i;
+    }
+    return -1;
+  }
 }
@@ -0,0 +1,32 @@
+package org.example.tinyhttp.routing;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * When a cached route re-renders: after a TTL, when a version counter moves, or both
+ * (whichever comes first). {@link #forever()} renders once.
+ */
+public final class CachePolicy {
+  private static final LongSupplier NO_VERSION = () -> 0L;
+
+  final long ttlNanos;        // <= 0: no expiry
+  final LongSupplier version;
+
+  private CachePolicy(long ttlNanos, LongSupplier version) {
+    this.ttlNanos = ttlNanos;
+    this.version = version;
+  }
+
+  public static CachePolicy forever() { return new CachePolicy(0, NO_VERSION); }
+
+  public static CachePolicy ttl(Duration ttl) { return forever().withTtl(ttl); }
+
+  /** Re-render whenever {@code version} returns a different value, e.g. {@code counter::get}. */
+  public static CachePolicy versioned(LongSupplier version) { return new CachePolicy(0, version); }
+
+  public CachePolicy withTtl(Duration ttl) {
+    if (ttl.isNegative() || ttl.isZero()) throw new IllegalArgumentException("TTL must be positive: " + ttl);
+    return new CachePolicy(ttl.toNanos(), version);
+  }
+}
@@ -0,0 +1,45 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.example.tinyhttp.context.RequestContext;
+import org.example.tinyhttp.http.response.PreparedResponse;
+
+/**
+ * Serves a {@link PreparedResponse} rendered by the first request and reused until the
+ * {@link CachePolicy} says otherwise. Concurrent misses may render twice; the last one wins.
+ * The renderer must not depend on per-request input (query, headers): only the first caller's is seen.
+ */
+public final class CachedHandler implements RouteHandler {
+  private final CachePolicy policy;
+  private final ResponseRenderer renderer;
+  private volatile Entry entry;
+
+  private record Entry(PreparedResponse response, long version, long renderedAtNs) {}
+
+  public CachedHandler(CachePolicy policy, ResponseRenderer renderer) {
+    this.policy = policy;
+    this.renderer = renderer;
+  }
+
+  @Override
+  public void handle(RequestContext ctx, OutputStream out, boolean keepAlive) throws IOException {
+    current(ctx).writeTo(out, keepAlive);
+  }
+
+  /** Drops the cached response; the next request renders again. */
+  public void invalidate() { entry = null; }
+
+  PreparedResponse current(RequestContext ctx) throws IOException {
+    long version = policy.version.getAsLong();
+    long now = System.nanoTime();
+    Entry e = entry;
+    if (e == null || e.version != version || (policy.ttlNanos > 0 && now - e.renderedAtNs >= policy.ttlNanos)) {
+      PreparedResponse fresh = renderer.render(ctx);
+      e = new Entry(fresh, version, System.nanoTime()); // TTL counts from when the render finished
+      entry = e;
+    }
+    return e.response;
+  }
+}
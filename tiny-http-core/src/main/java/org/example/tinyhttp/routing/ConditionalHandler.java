@@ -0,0 +1,38 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.example.tinyhttp.context.RequestContext;
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.http.response.ETags;
+import org.example.tinyhttp.http.response.HttpResponses;
+
+/**
+ * Answers If-None-Match from a {@link VersionFunction} before the wrapped handler runs, so an
+ * unchanged resource costs neither rendering nor hashing. Otherwise the handler runs and its
+ * 200 response carries the declared ETag.
+ */
+public final class ConditionalHandler implements RouteHandler {
+  private final VersionFunction version;
+  private final RouteHandler next;
+
+  public ConditionalHandler(VersionFunction version, RouteHandler next) {
+    this.version = version;
+    this.next = next;
+  }
+
+  @Override
+  public void handle(RequestContext ctx, OutputStream out, boolean keepAlive) throws IOException {
+    var m = RequestMetrics.get();
+    String v = version.version(ctx);
+    if (m != null && v != null) {
+      m.etag = ETags.strong(v);
+      if (ETags.matches(m.ifNoneMatch, m.etag)) {
+        HttpResponses.writeNotModified(out, m.etag, keepAlive, null);
+        return;
+      }
+    }
+    next.handle(ctx, out, keepAlive);
+  }
+}
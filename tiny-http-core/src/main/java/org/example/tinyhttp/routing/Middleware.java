@@ -0,0 +1,35 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.example.tinyhttp.context.RequestContext;
+
+/**
+ * Cross-cutting step around a route handler. Call {@code next.handle(...)} to continue
+ * the chain, or write a response and return to short-circuit it.
+ *
+ * <p>Chains are composed once per route when it is registered, so a request pays one
+ * virtual call per middleware and nothing else.
+ */
+@FunctionalInterface
+public interface Middleware {
+  void handle(RequestContext ctx, OutputStream out, boolean keepAlive, RouteHandler next) throws IOException;
+
+  /** The wrapped handler keeps {@code next}'s metadata. */
+  @SuppressWarnings("deprecation")
+  default RouteHandler wrap(RouteHandler next){
+    Middleware self = this;
+    return new RouteHandler() {
+      @Override
+      public void handle(RequestContext ctx, OutputStream out, boolean keepAlive) throws IOException {
+        self.handle(ctx, out, keepAlive, next);
+      }
+
+      @Override
+      public ResponseMetaData getMetaData(RequestContext ctx) {
+        return next.getMetaData(ctx);
+      }
+    };
+  }
+}
@@ -0,0 +1,123 @@
+package org.example.tinyhttp.routing;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled matcher for a constrained path parameter such as {@code :id{int}} or
+ * {@code :slug{[a-z0-9-]+}}. Built once when the route is registered.
+ *
+ * <p>{@link #parse} matches and converts in one pass and returns {@code null} when
+ * the segment does not satisfy the constraint. Simple types are hand-written scans;
+ * only unknown specs fall back to {@link java.util.regex}.
+ */
+abstract class PathParam {
+  final String spec;
+
+  private PathParam(String spec) { this.spec = spec; }
+
+  /** Typed value of {@code s[from, to)}, or null if it does not match. */
+  abstract Object parse(String s, int from, int to);
+
+  static PathParam compile(String spec){
+    switch(spec.toLowerCase(Locale.ROOT)){
+      case "int":   return new IntParam(spec);
+      case "long":  return new LongParam(spec);
+      case "uuid":  return new UuidParam(spec);
+      case "alpha": return new CharClassParam(spec, false);
+      case "alnum": return new CharClassParam(spec, true);
+      default:      return new RegexParam(spec);
+    }
+  }
+
+  /** Untyped {@code :name} parameter: any non-empty segment, value is the raw string. */
+  static final PathParam ANY = new PathParam("") {
+    @Override Object parse(String s, int from, int to){
+      return from < to ? s.substring(from, to) : null;
+    }
+  };
+
+  private static final class IntParam extends PathParam {
+    IntParam(String spec) { super(spec); }
+
+    @Override Object parse(String s, int from, int to){
+      Long v = parseLong(s, from, to, 10);
+      if(v == null || v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) return null;
+      return v.intValue();
+    }
+  }
+
+  private static final class LongParam extends PathParam {
+    LongParam(String spec) { super(spec); }
+
+    @Override Object parse(String s, int from, int to){
+      return parseLong(s, from, to, 19);
+    }
+  }
+
+  // Optional leading '-', then 1..maxDigits ASCII digits; null if that does not fit in a long.
+  // Accumulates negatively so that Long.MIN_VALUE, which has no positive counterpart, still parses.
+  private static Long parseLong(String s, int from, int to, int maxDigits){
+    boolean neg = from < to && s.charAt(from) == '-';
+    int i = neg ? from + 1 : from;
+    int digits = to - i;
+    if(digits <= 0 || digits > maxDigits) return null;
+    long v = 0;
+    for(; i < to; i++){
+      int d = s.charAt(i) - '0';
+      if(d < 0 || d > 9) return null;
+      if(v < (Long.MIN_VALUE + d) / 10) return null; // would overflow
+      v = v * 10 - d;
+    }
+    if(neg) return v;
+    return v == Long.MIN_VALUE ? null : -v;
+  }
+
+  private static final class UuidParam extends PathParam {
+    UuidParam(String spec) { super(spec); }
+
+    @Override Object parse(String s, int from, int to){
+      if(to - from != 36) return null;
+      for(int i = 0; i < 36; i++){
+        char c = s.charAt(from + i);
+        if(i == 8 || i == 13 || i == 18 || i == 23){
+          if(c != '-') return null;
+        } else if(!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))){
+          return null;
+        }
+      }
+      return UUID.fromString(s.substring(from, to));
+    }
+  }
+
+  private static final class CharClassParam extends PathParam {
+    private final boolean digits;
+
+    CharClassParam(String spec, boolean digits) { super(spec); this.digits = digits; }
+
+    @Override Object parse(String s, int from, int to){
+      if(from >= to) return null;
+      for(int i = from; i < to; i++){
+        char c = s.charAt(i);
+        boolean ok = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (digits && c >= '0' && c <= '9');
+        if(!ok) return null;
+      }
+      return s.substring(from, to);
+    }
+  }
+
+  private static final class RegexParam extends PathParam {
+    private final Pattern pattern;
+
+    RegexParam(String spec) {
+      super(spec);
+      this.pattern = Pattern.compile(spec);
+    }
+
+    @Override Object parse(String s, int from, int to){
+      if(from >= to) return null;
+      return pattern.matcher(s).region(from, to).matches() ? s.substring(from, to) : null;
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+
+import org.example.tinyhttp.context.RequestContext;
+import org.example.tinyhttp.http.response.PreparedResponse;
+
+/** Produces a complete response up front, so it can be cached and replayed. */
+@FunctionalInterface
+public interface ResponseRenderer {
+  PreparedResponse render(RequestContext ctx) throws IOException;
+}
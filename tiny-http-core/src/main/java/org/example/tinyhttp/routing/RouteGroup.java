@@ -0,0 +1,70 @@
+package org.example.tinyhttp.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Routes mounted under a common prefix that share a middleware chain.
+ *
+ * <p>Middleware applies to routes registered after it (parent group first, then this one,
+ * in {@link #use} order). Each route gets its own pre-composed handler, so nothing is
+ * iterated per request.
+ */
+public final class RouteGroup {
+  private final Router router;
+  private final String prefix;
+  private final List<Middleware> chain;
+
+  RouteGroup(Router router, String prefix, List<Middleware> inherited) {
+    this.router = router;
+    String p = trimSlash(prefix);
+    this.prefix = p.isEmpty() ? "" : "/" + p;
+    this.chain = new ArrayList<>(inherited);
+  }
+
+  public RouteGroup use(Middleware mw){ chain.add(mw); return this; }
+
+  public RouteGroup get(String pattern, RouteHandler h){ return add("GET", pattern, h); }
+  public RouteGroup post(String pattern, RouteHandler h){ return add("POST", pattern, h); }
+  public RouteGroup head(String pattern, RouteHandler h){ return add("HEAD", pattern, h); }
+  public RouteGroup options(String pattern, RouteHandler h){ return add("OPTIONS", pattern, h); }
+  public RouteGroup put(String pattern, RouteHandler h){ return add("PUT", pattern, h); }
+
+  public RouteGroup getCached(String pattern, CachePolicy policy, ResponseRenderer renderer){
+    return get(pattern, new CachedHandler(policy, renderer));
+  }
+
+  public RouteGroup getVersioned(String pattern, VersionFunction version, RouteHandler h){
+    return get(pattern, new ConditionalHandler(version, h));
+  }
+
+  public RouteGroup group(String subPrefix){
+    return new RouteGroup(router, prefix + "/" + trimSlash(subPrefix), chain);
+  }
+
+  public RouteGroup group(String subPrefix, Consumer<RouteGroup> routes){
+    routes.accept(group(subPrefix));
+    return this;
+  }
+
+  private RouteGroup add(String method, String pattern, RouteHandler h){
+    router.add(method, prefix + "/" + trimSlash(pattern), compose(chain, h));
+    return this;
+  }
+
+  static RouteHandler compose(List<Middleware> chain, RouteHandler h){
+    RouteHandler composed = h;
+    for(int i = chain.size() - 1; i >= 0; i--){
+      composed = chain.get(i).wrap(composed);
+    }
+    return composed;
+  }
+
+  private static String trimSlash(String s){
+    int from = 0, to = s.length();
+    while(from < to && s.charAt(from) == '/') from++;
+    while(to > from && s.charAt(to - 1) == '/') to--;
+    return s.substring(from, to);
+  }
+}
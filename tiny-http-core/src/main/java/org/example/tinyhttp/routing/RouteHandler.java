@@ -9,6 +9,8 @@ import org.example.tinyhttp.context.RequestContext;
 @FunctionalInterface
 public interface RouteHandler{
   void handle(RequestContext ctx, OutputStream out, boolean keepAlive) throws IOException;
+  /** @deprecated no longer consulted: HEAD runs the GET handler through a body-discarding sink. */
+  @Deprecated
   default ResponseMetaData getMetaData(RequestContext ctx){
     return new ResponseMetaData("text/plain", 0);
   }
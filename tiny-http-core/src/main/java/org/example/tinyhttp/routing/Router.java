@@ -1,5 +1,7 @@
 package org.example.tinyhttp.routing;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
@@ -8,79 +10,221 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+
+import org.example.tinyhttp.files.StaticFileCache;
+import org.example.tinyhttp.files.StaticFileHandler;
+import org.example.tinyhttp.parsing.PathTokens;
+import org.example.tinyhttp.sse.EventSink;
+import org.example.tinyhttp.sse.SseHandler;
+import org.example.tinyhttp.sse.SseHub;
+import org.example.tinyhttp.websocket.WebSocketHandler;
+import org.example.tinyhttp.websocket.WebSocketOptions;
 
 public final class Router {
+  /*
+   * Pattern syntax, one entry per '/' separated segment:
+   *   users          literal
+   *   :id            any non-empty segment
+   *   :id{int}       constrained (int, long, uuid, alpha, alnum, or a regex like {[a-z0-9-]+})
+   *   *rest          catch-all, must be last; captures the remaining segments ("" if none)
+   */
+  private static final class Segment {
+    final String literal;   // null for params
+    final String name;      // param / catch-all name
+    final PathParam param;  // null for literals and catch-all
+    final boolean catchAll;
+
+    private Segment(String literal, String name, PathParam param, boolean catchAll) {
+      this.literal = literal;
+      this.name = name;
+      this.param = param;
+      this.catchAll = catchAll;
+    }
+
+    static Segment compile(String seg){
+      if(seg.startsWith(":")){
+        int brace = seg.indexOf('{');
+        if(brace < 0) return new Segment(null, seg.substring(1), PathParam.ANY, false);
+        if(!seg.endsWith("}") || brace == 1)
+          throw new IllegalArgumentException("Malformed path parameter: " + seg);
+        String spec = seg.substring(brace + 1, seg.length() - 1);
+        return new Segment(null, seg.substring(1, brace), PathParam.compile(spec), false);
+      }
+      // A bare "*" stays a literal so OPTIONS * keeps working
+      if(seg.length() > 1 && seg.charAt(0) == '*'){
+        return new Segment(null, seg.substring(1), null, true);
+      }
+      return new Segment(seg, null, null, false);
+    }
+  }
+
   private static final class Route{
     final String method;
-    final String[] segments;
+    final Segment[] segments;
+    final boolean hasCatchAll;
+    final boolean hasParams;
     final RouteHandler handler;
 
     Route(String method, String pathPattern, RouteHandler handler) {
       this.method = method;
       this.handler = handler;
 
-      this.segments = Arrays.stream(pathPattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
-
+      String[] raw = Arrays.stream(pathPattern.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+      this.segments = new Segment[raw.length];
+      boolean params = false;
+      for(int i = 0; i < raw.length; i++){
+        segments[i] = Segment.compile(raw[i]);
+        if(segments[i].catchAll && i != raw.length - 1)
+          throw new IllegalArgumentException("Catch-all must be the last segment: " + pathPattern);
+        params |= segments[i].literal == null;
+      }
+      this.hasCatchAll = raw.length > 0 && segments[raw.length - 1].catchAll;
+      this.hasParams = params;
     }
 
-    boolean matches(String method, String[] reqSegs, Map<String, String> pathVars){
-      if(!this.method.equals(method)) return false;
-      if(this.segments.length != reqSegs.length) return false;
-      for(int i = 0; i < segments.length; i++){
-        String pat = segments[i];
-        String got = reqSegs[i];
-
-        if(pat.startsWith(":")){
-          pathVars.put(pat.substring(1), got);
-        } else if(!pat.equals(got)){
-          pathVars.clear();
-          return false;
-        } 
+    /** Returns the match with its captured path values, or null. */
+    Match matches(String method, PathTokens path){
+      if(!this.method.equals(method)) return null;
+      int n = path.count();
+      int fixed = hasCatchAll ? segments.length - 1 : segments.length;
+      if(hasCatchAll ? n < fixed : n != fixed) return null;
+
+      // Literals first: cheap rejection before any parameter parsing
+      for(int i = 0; i < fixed; i++){
+        String lit = segments[i].literal;
+        if(lit != null && !path.segmentEquals(i, lit)) return null;
       }
-      return true;
+      if(!hasParams) return new Match(handler, new LinkedHashMap<>(), Map.of());
+
+      Map<String, String> vars = new LinkedHashMap<>();
+      Map<String, Object> values = new LinkedHashMap<>();
+      String src = path.source();
+      for(int i = 0; i < fixed; i++){
+        Segment s = segments[i];
+        if(s.param == null) continue;
+        Object v = s.param.parse(src, path.start(i), path.end(i));
+        if(v == null) return null;
+        vars.put(s.name, v instanceof String str ? str : path.segment(i));
+        values.put(s.name, v);
+      }
+      if(hasCatchAll){
+        String rest = path.join(fixed);
+        vars.put(segments[fixed].name, rest);
+        values.put(segments[fixed].name, rest);
+      }
+      return new Match(handler, vars, values);
     }
   }
 
   private final List<Route> routes = new ArrayList<>();
-  
-  public Router get(String pattern, RouteHandler h){ routes.add(new Route("GET", pattern, h)); return this;}
-  public Router post(String pattern, RouteHandler h){ routes.add(new Route("POST", pattern, h)); return this;}
-  public Router head(String pattern, RouteHandler h) { routes.add(new Route("HEAD", pattern, h)); return this;}
-  public Router options(String pattern, RouteHandler h) { routes.add(new Route("OPTIONS", pattern, h)); return this;}
-  public Router put(String pattern, RouteHandler h){ routes.add(new Route("PUT", pattern, h)); return this;}
+  private final List<Middleware> middleware = new ArrayList<>();
+
+  public Router get(String pattern, RouteHandler h){ return register("GET", pattern, h); }
+  public Router post(String pattern, RouteHandler h){ return register("POST", pattern, h); }
+  public Router head(String pattern, RouteHandler h) { return register("HEAD", pattern, h); }
+  public Router options(String pattern, RouteHandler h) { return register("OPTIONS", pattern, h); }
+  public Router put(String pattern, RouteHandler h){ return register("PUT", pattern, h); }
+
+  /** GET route answered from a pre-rendered response, re-rendered as {@code policy} dictates. */
+  public Router getCached(String pattern, CachePolicy policy, ResponseRenderer renderer){
+    return get(pattern, new CachedHandler(policy, renderer));
+  }
+
+  /** GET route answering with an event stream fed by {@code hub}; the connection leaves the worker pool. */
+  public Router sse(String pattern, SseHub hub){
+    return sse(pattern, hub, null);
+  }
+
+  public Router sse(String pattern, SseHub hub, SseHandler onSubscribe){
+    return get(pattern, (ctx, out, keepAlive) -> {
+      EventSink sink = ctx.events(hub, null);
+      if(sink != null && onSubscribe != null) onSubscribe.subscribed(ctx, sink); // null: HEAD, not subscribed
+    });
+  }
+
+  /** GET route upgraded to a WebSocket; each connection then runs on its own virtual thread. */
+  public Router websocket(String pattern, WebSocketHandler handler){
+    return websocket(pattern, WebSocketOptions.defaults(), handler);
+  }
+
+  public Router websocket(String pattern, WebSocketOptions options, WebSocketHandler handler){
+    return get(pattern, (ctx, out, keepAlive) -> ctx.upgrade(handler, options));
+  }
+
+  /** Serves files under {@code root} at {@code prefix}/..., e.g. staticFiles("/assets", Path.of("public")). */
+  public Router staticFiles(String prefix, Path root) throws IOException {
+    return staticFiles(prefix, new StaticFileHandler(root));
+  }
+
+  /** Same, served from memory through {@code cache}, which starts watching {@code root}. */
+  public Router staticFiles(String prefix, Path root, StaticFileCache cache) throws IOException {
+    return staticFiles(prefix, new StaticFileHandler(root, StaticFileHandler.DEFAULT_CACHE_CONTROL, cache));
+  }
+
+  public Router staticFiles(String prefix, StaticFileHandler files){
+    String base = prefix.endsWith("/") ? prefix : prefix + "/";
+    return get(base + "*path", files);
+  }
+
+  /** GET route that answers 304 from {@code version} before {@code h} runs when the client is current. */
+  public Router getVersioned(String pattern, VersionFunction version, RouteHandler h){
+    return get(pattern, new ConditionalHandler(version, h));
+  }
+
+  /** Router-wide middleware; applies to routes and groups registered after this call. */
+  public Router use(Middleware mw){ middleware.add(mw); return this; }
+
+  public RouteGroup group(String prefix){ return new RouteGroup(this, prefix, middleware); }
+
+  public Router group(String prefix, Consumer<RouteGroup> routes){
+    routes.accept(group(prefix));
+    return this;
+  }
+
+  private Router register(String method, String pattern, RouteHandler h){
+    add(method, pattern, RouteGroup.compose(middleware, h));
+    return this;
+  }
+
+  // Handler is already composed with its middleware chain
+  void add(String method, String pattern, RouteHandler h){ routes.add(new Route(method, pattern, h)); }
 
 
   public Optional<Match> find(String method, String path){
-    String[] segs = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    return find(method, PathTokens.split(path));
+  }
 
+  /** Matches against pre-tokenized segments (see UrlParser.tokenizeTarget); no path strings are built. */
+  public Optional<Match> find(String method, PathTokens path){
     for(Route r : routes){
-      Map<String, String> vars = new LinkedHashMap<>();
-      if(r.matches(method, segs, vars)){
-        return Optional.of(new Match(r.handler, vars));
-      }
-
-      if(isSpecialMatch(method, r, segs, vars)){
-        return Optional.of(new Match(r.handler, vars));
+      Match m = r.matches(method, path);
+      if(m == null) m = specialMatch(method, r, path);
+      if(m != null){
+        return Optional.of(m);
       }
     }
 
     return Optional.empty();
   }
 
-  private boolean isSpecialMatch(String method, Route route, String[] segs, Map<String, String> vars){
-    if("HEAD".equals(method) && route.matches("GET", segs, vars)){
-      return true;
+  private Match specialMatch(String method, Route route, PathTokens path){
+    if("HEAD".equals(method)){
+      return route.matches("GET", path);
     }
-    return "*".equals(route.method) && "OPTIONS".equals(method);
+    return "*".equals(route.method) && "OPTIONS".equals(method)
+      ? new Match(route.handler, new LinkedHashMap<>(), Map.of()) : null;
   }
 
   public Set<String> allowedForPath(String path){
-    String[] segs = Arrays.stream(path.split("/")).filter(s -> !s.isEmpty()).toArray(String[]::new);
+    return allowedForPath(PathTokens.split(path));
+  }
+
+  public Set<String> allowedForPath(PathTokens path){
     Set<String> allowed = new LinkedHashSet<>();
 
     for(Route r: routes){
-      Map<String, String> tmp = new LinkedHashMap<>();
-      if(r.matches(r.method, segs, tmp)){
+      if(r.matches(r.method, path) != null){
         allowed.add(r.method);
       }
     }
@@ -106,10 +250,13 @@ public final class Router {
   public static final class Match{
     public final RouteHandler handler;
     public final Map<String, String> pathVars;
+    /** Parsed values: Integer/Long/UUID for typed params, String otherwise. */
+    public final Map<String, Object> pathValues;
 
-    Match(RouteHandler h, Map<String, String> pathVars) {
+    Match(RouteHandler h, Map<String, String> pathVars, Map<String, Object> pathValues) {
         this.handler = h;
         this.pathVars = pathVars;
+        this.pathValues = pathValues;
     }
   }
 }
@@ -0,0 +1,14 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+
+import org.example.tinyhttp.context.RequestContext;
+
+/**
+ * Cheap current version of the resource a route serves (row version, file mtime + size, counter...).
+ * Becomes a strong ETag; null means "unknown", and the handler runs normally.
+ */
+@FunctionalInterface
+public interface VersionFunction {
+  String version(RequestContext ctx) throws IOException;
+}
@@ -0,0 +1,234 @@
+package org.example.tinyhttp.server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Per-connection response output that coalesces a response head and body into one transport write.
+ *
+ * <p>Writes accumulate in a buffer. A body too big for the buffer is sent together with whatever is
+ * already buffered in a single gathering write when the connection has a channel; plain streams fall
+ * back to buffer + body. {@link #flush()} is deferred while more pipelined requests are already waiting,
+ * so their responses go out together; {@link #flushBefore} makes sure nothing stays buffered once the
+ * server is about to block reading the socket.
+ */
+public final class ConnectionOutput extends OutputStream {
+  static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  private final OutputStream stream;          // used when there is no channel
+  private final GatheringByteChannel channel; // null for plain stream transports
+  private final byte[] buf;
+  private final ByteBuffer[] gather = new ByteBuffer[2];
+  private int len;
+  private BooleanSupplier pendingInput = () -> false;
+  private long writes; // transport write calls, i.e. write syscalls
+
+  public ConnectionOutput(OutputStream stream, GatheringByteChannel channel, int bufferSize) {
+    this.stream = stream;
+    this.channel = channel;
+    this.buf = new byte[bufferSize];
+  }
+
+  public ConnectionOutput(OutputStream stream) {
+    this(stream, null, DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Flushes are held back while this reports more request bytes ready to be read. */
+  public void deferFlushWhile(BooleanSupplier pendingInput) {
+    this.pendingInput = pendingInput;
+  }
+
+  /** Number of transport writes that sent something, i.e. write syscalls that made progress. */
+  public long writeCount() { return writes; }
+
+  public int buffered() { return len; }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (len == buf.length) drain();
+    buf[len++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int n) throws IOException {
+    if (n <= buf.length - len) {
+      System.arraycopy(b, off, buf, len, n);
+      len += n;
+      return;
+    }
+    if (channel != null) {
+      // head + large body in one vectored write
+      gather[0] = ByteBuffer.wrap(buf, 0, len);
+      gather[1] = ByteBuffer.wrap(b, off, n);
+      while (gather[1].hasRemaining()) {
+        if (channel.write(gather) > 0) writes++;
+      }
+      gather[0] = gather[1] = null;
+      len = 0;
+      return;
+    }
+    drain();
+    if (n < buf.length) {
+      System.arraycopy(b, off, buf, 0, n);
+      len = n;
+    } else {
+      stream.write(b, off, n);
+      writes++;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    if (pendingInput.getAsBoolean()) return; // the next response will carry this one out
+    flushNow();
+  }
+
+  /** Writes out anything buffered regardless of pending input. */
+  public void flushNow() throws IOException {
+    drain();
+    if (channel == null) stream.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushNow();
+  }
+
+  /** Writes a buffer such as a mapped file; with a channel it goes out with the pending head, uncopied. */
+  public void write(ByteBuffer src) throws IOException {
+    int n = src.remaining();
+    if (n <= buf.length - len) {
+      src.get(buf, len, n);
+      len += n;
+      return;
+    }
+    if (channel != null) {
+      gather[0] = ByteBuffer.wrap(buf, 0, len);
+      gather[1] = src;
+      while (src.hasRemaining()) {
+        if (channel.write(gather) > 0) writes++;
+      }
+      gather[0] = gather[1] = null;
+      len = 0;
+      return;
+    }
+    while (src.hasRemaining()) {
+      drain();
+      int k = Math.min(buf.length, src.remaining());
+      src.get(buf, 0, k);
+      len = k;
+    }
+  }
+
+  /**
+   * Sends {@code count} bytes of {@code file} from {@code position}. A file that fits in the
+   * remaining buffer joins the pending head in one write; anything bigger goes kernel-to-socket
+   * with {@link FileChannel#transferTo} (sendfile) right after the head is flushed.
+   */
+  public void transferFrom(FileChannel file, long position, long count) throws IOException {
+    if (count <= buf.length - len) {
+      ByteBuffer dst = ByteBuffer.wrap(buf, len, (int) count);
+      while (dst.hasRemaining()) {
+        int n = file.read(dst, position + dst.position() - len);
+        if (n < 0) throw new IOException("File shrank while sending");
+      }
+      len += (int) count;
+      return;
+    }
+    flushNow();
+    var target = channel != null ? channel : Channels.newChannel(stream);
+    long sent = transfer(file, position, count, target, () -> writes++);
+    // the target took nothing: rather than spin on transferTo, copy the rest through the buffer
+    if (sent < count) copy(file, position + sent, count - sent);
+  }
+
+  /**
+   * Sends a file range to any response output: {@link #transferFrom} for a connection, otherwise
+   * transferTo through a channel over the stream, with the same stall and shrink handling.
+   */
+  public static void sendFile(FileChannel file, long position, long count, OutputStream out) throws IOException {
+    if (out instanceof ConnectionOutput co) {
+      co.transferFrom(file, position, count);
+      return;
+    }
+    long sent = transfer(file, position, count, Channels.newChannel(out), () -> {});
+    if (sent == count) return;
+    byte[] b = new byte[(int) Math.min(DEFAULT_BUFFER_SIZE, count - sent)];
+    ByteBuffer dst = ByteBuffer.wrap(b);
+    for (long at = position + sent, end = position + count; at < end; ) {
+      dst.clear().limit((int) Math.min(b.length, end - at));
+      int n = file.read(dst, at);
+      if (n < 0) throw new IOException("File shrank while sending");
+      out.write(b, 0, n);
+      at += n;
+    }
+  }
+
+  // transferTo until the range is out or a call makes no progress; returns the bytes sent. A file that
+  // no longer reaches the next position fails instead of returning 0 forever.
+  private static long transfer(FileChannel file, long position, long count, WritableByteChannel target,
+    Runnable onWrite) throws IOException {
+
+    long sent = 0;
+    while (sent < count) {
+      long n = file.transferTo(position + sent, count - sent, target);
+      if (n <= 0) {
+        if (position + sent >= file.size()) throw new IOException("File shrank while sending");
+        break;
+      }
+      sent += n;
+      onWrite.run();
+    }
+    return sent;
+  }
+
+  private void copy(FileChannel file, long position, long count) throws IOException {
+    ByteBuffer dst = ByteBuffer.wrap(buf);
+    while (count > 0) {
+      dst.clear().limit((int) Math.min(buf.length, count));
+      int n = file.read(dst, position);
+      if (n < 0) throw new IOException("File shrank while sending");
+      len = n;
+      drain();
+      position += n;
+      count -= n;
+    }
+  }
+
+  /** Wraps the connection's input so buffered responses are sent before every blocking read. */
+  public InputStream flushBefore(InputStream in) {
+    return new FilterInputStream(in) {
+      @Override public int read() throws IOException {
+        flushNow();
+        return super.read();
+      }
+
+      @Override public int read(byte[] b, int off, int n) throws IOException {
+        flushNow();
+        return super.read(b, off, n);
+      }
+    };
+  }
+
+  private void drain() throws IOException {
+    if (len == 0) return;
+    if (channel != null) {
+      ByteBuffer bb = ByteBuffer.wrap(buf, 0, len);
+      while (bb.hasRemaining()) {
+        if (channel.write(bb) > 0) writes++;
+      }
+    } else {
+      stream.write(buf, 0, len);
+      writes++;
+    }
+    len = 0;
+  }
+}
@@ -4,10 +4,11 @@ import java.io.IOException;
 import java.util.Map;
 
 import org.example.tinyhttp.config.Config;
-import org.example.tinyhttp.http.request.Accepts;
 import org.example.tinyhttp.http.response.Cors;
 import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.http.response.PreparedResponse;
 import org.example.tinyhttp.parsing.Json;
+import org.example.tinyhttp.routing.CachePolicy;
 import org.example.tinyhttp.routing.Router;
 
 
@@ -29,7 +30,12 @@ public final class HttpServer {
     
     try {
       server.start();
-      System.out.println("[tiny-http] listening on http://localhost:" + cfg.port);
+      if (cfg.port >= 0) {
+        System.out.println("[tiny-http] listening on " + (server.getTls() != null ? "https" : "http") + "://localhost:" + cfg.port);
+      }
+      if (!cfg.unixSocketPath.isEmpty()) {
+        System.out.println("[tiny-http] listening on unix:" + cfg.unixSocketPath);
+      }
       
       // Add shutdown hook
       Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -53,41 +59,35 @@ public final class HttpServer {
 
   private static Router createDefaultRouter(){
     return new Router()
-      .get("/hello", (ctx, out, keepAlive) -> {
-        String name = ctx.query("name");
-        String msg = (name == null) ? "Hello World" : ("Hello " + name);
-        String[][] corsExtraHeaders = Cors.combinewithExtraHeaders(null, ctx.request().getHeaders());
-        if(Accepts.wantsJson(ctx.request().getHeaders())) {
-          var json = Json.createResponse("message", msg);
-          // System.out.println("in GET method JSON msg: " + msg);
-          HttpResponses.writeJson(out, 200, "OK", json, keepAlive, corsExtraHeaders);
-        }
-        else{
-          HttpResponses.writeText(out, 200, "OK", msg + "\n", keepAlive, corsExtraHeaders);
-        }
-      })
-      .get("/users/:id", (ctx, out, keepAlive) -> {
-        String id = ctx.pathVars("id"); // Already decoded
-        var json = Json.createResponse("id", id);
-        // String[][] cors = Cors.actualResponseHeaders(ctx.request().getHeaders());
-        String[][] corsExtraHeaders = Cors.combinewithExtraHeaders(null, ctx.request().getHeaders());
-
-        HttpResponses.writeJson(out, 200, "OK", json, keepAlive, corsExtraHeaders);
-      })
-      .post("/echo", (ctx, out, keepAlive) -> {
-        String ct = ctx.request().getHeaders().first("content-type", "application/octet-stream");
-        // String[][] cors = Cors.actualResponseHeaders(ctx.request().getHeaders());
-        String[][] corsExtraHeaders = Cors.combinewithExtraHeaders(null, ctx.request().getHeaders());
-
-
-        if(Accepts.wantsJson(ctx.request().getHeaders()) && ct.contains("application/json")){
-          var node = Json.mapper.readTree(ctx.request().getBody());
-          HttpResponses.writeJson(out, 200, "OK", node, keepAlive, corsExtraHeaders);
-        } 
-        else{
-          HttpResponses.writeRaw(out, 200, "OK", ct, ctx.request().getBody(), keepAlive, corsExtraHeaders); // TODO: Add Extra headers to Raw
-        }
-      })
+      .group("/", api -> api
+        .use(Cors.middleware())
+        .get("/hello", (ctx, out, keepAlive) -> {
+          String name = ctx.query("name");
+          String msg = (name == null) ? "Hello World" : ("Hello " + name);
+          if(ctx.wantsJson()) {
+            var json = Json.createResponse("message", msg);
+            HttpResponses.writeJson(out, 200, "OK", json, keepAlive, null);
+          }
+          else{
+            HttpResponses.writeText(out, 200, "OK", msg + "\n", keepAlive);
+          }
+        })
+        .get("/users/:id", (ctx, out, keepAlive) -> {
+          String id = ctx.pathVars("id"); // Already decoded
+          var json = Json.createResponse("id", id);
+          HttpResponses.writeJson(out, 200, "OK", json, keepAlive, null);
+        })
+        .post("/echo", (ctx, out, keepAlive) -> {
+          String ct = ctx.request().getHeaders().first("content-type", "application/octet-stream");
+
+          if(ctx.wantsJson() && ct.contains("application/json")){
+            var node = Json.mapper.readTree(ctx.request().getBody());
+            HttpResponses.writeJson(out, 200, "OK", node, keepAlive, null);
+          } 
+          else{
+            HttpResponses.writeRaw(out, 200, "OK", ct, ctx.request().getBody(), keepAlive, null);
+          }
+        }))
       .get("/health",(ctx, out, keepAlive) -> {
         var c = ctx.config();
         long uptimeMs = Math.max(0, (System.nanoTime() - START_NANO) - 1_000_000);
@@ -103,13 +103,15 @@ public final class HttpServer {
         HttpResponses.writeJson(out, 200, "OK", body, keepAlive, null);
 
       })
-      .get("/debug/config", (ctx, out, ka) -> {
+      // Config is immutable: serialize once
+      .getCached("/debug/config", CachePolicy.forever(), ctx -> {
         var c = ctx.config();
-        var body = java.util.Map.of(
+        var body = Map.of(
             "logFormat", c.logFormat,
-            "maxRequestsPerConn", c.maxRequestsPerConn
+            "maxRequestsPerConn", c.maxRequestsPerConn,
+            "socket", SocketTuning.of(c).effective()
         );
-        HttpResponses.writeJson(out, 200, "OK", body, ka, null);
+        return PreparedResponse.json(200, "OK", body);
       });
       // .options("*", (ctx, out, keepAlive) -> {
       //   // Advertise what you generally support
@@ -3,4 +3,7 @@ package org.example.tinyhttp.server;
 public final class HttpServerConstants {
   public static final int KEEP_ALIVE_IDLE_TIMEOUT_MS = 5000;
   public static final int MAX_REQUESTS_PER_CONN = 100;
+  public static final int MAX_SKIPPED_BODY_BYTES = 64 * 1024; // unread bodies up to this are drained to keep the connection
+  public static final int LINGER_MAX_BYTES = 4 * 1024 * 1024; // discarded after a close with the request body unread
+  public static final int LINGER_TIMEOUT_MS = 2000;           // ...for at most this long
 }
@@ -2,11 +2,23 @@ package org.example.tinyhttp.server;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.ServerSocket;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
@@ -22,50 +34,150 @@ import org.example.tinyhttp.http.request.Accepts;
 import org.example.tinyhttp.http.request.HttpHeaders;
 import org.example.tinyhttp.http.request.HttpRequest;
 import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.http.response.Compression;
 import org.example.tinyhttp.http.response.Cors;
+import org.example.tinyhttp.http.response.HeadResponseOutput;
 import org.example.tinyhttp.http.response.HttpErrorHandler;
 import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.http.response.KeepAliveHeader;
+import org.example.tinyhttp.http2.Http2Connection;
+import org.example.tinyhttp.http2.StreamDispatcher;
 import org.example.tinyhttp.logging.AccessLog;
+import org.example.tinyhttp.parsing.PathTokens;
 import org.example.tinyhttp.parsing.Url;
 import org.example.tinyhttp.parsing.UrlParser;
-import org.example.tinyhttp.routing.ResponseMetaData;
 import org.example.tinyhttp.routing.Router;
+import org.example.tinyhttp.tls.TlsConnection;
+import org.example.tinyhttp.tls.TlsContext;
 import org.example.tinyhttp.util.Ids;
 
 public class HttpServerInstance {
   private final Router router;
   private volatile boolean running = false;
-  private ServerSocket serverSocket;
+  private ServerSocketChannel serverChannel; // null without a TCP port
+  private ServerSocketChannel unixChannel;   // null without UNIX_SOCKET_PATH
+  private Object unixSocketFile;             // identity of the socket file we bound, removed on stop
   private ThreadPoolExecutor workerPool;
   private Thread serverThread;
+  private Thread unixThread;
   private final Config config;
+  private final Compression compression; // null when COMPRESSION_LEVEL is 0
+  private final KeepAliveHeader keepAliveHeader;
+  private final TlsContext tls; // null when serving plain HTTP
+  private final SocketTuning socketTuning;
 
   public HttpServerInstance(Config config, Router router) {
     this.config = config;
     this.router = router; 
+    this.keepAliveHeader = KeepAliveHeader.of(config);
+    this.tls = TlsContext.of(config);
+    this.socketTuning = SocketTuning.of(config);
+    this.compression = config.compressionLevel > 0
+      ? new Compression(config.compressionLevel, config.compressionMinBytes, config.workerThreads,
+          config.compressionCacheBytes)
+      : null;
   }
 
   public void start() throws IOException {
     if (running) {
       throw new IllegalStateException("Server is already running");
     }
+    if (config.port < 0 && config.unixSocketPath.isEmpty()) {
+      throw new IllegalStateException("No listener configured: set PORT or UNIX_SOCKET_PATH");
+    }
 
-    serverSocket = new ServerSocket(config.port, config.acceptBacklog);
-    serverSocket.setReuseAddress(true);
+    if (config.port >= 0) {
+      // Channel accept (blocking) so connections can use gathering writes
+      serverChannel = ServerSocketChannel.open();
+      serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+      socketTuning.applyToListener(serverChannel);
+      serverChannel.bind(new InetSocketAddress(config.port), config.acceptBacklog);
+    }
+    if (!config.unixSocketPath.isEmpty()) {
+      // Same-host peers (a local proxy) skip the loopback TCP stack
+      Path path = Path.of(config.unixSocketPath);
+      try {
+        removeStaleSocket(path);
+        unixChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        unixChannel.bind(UnixDomainSocketAddress.of(path), config.acceptBacklog);
+        unixSocketFile = fileIdentity(path);
+      } catch (IOException | RuntimeException e) {
+        if (serverChannel != null) serverChannel.close();
+        if (unixChannel != null) unixChannel.close();
+        throw e;
+      }
+    }
     workerPool = newWorkerPool();
     running = true;
 
-    serverThread = new Thread(() -> {
+    if (serverChannel != null) serverThread = acceptLoop(serverChannel, false, "tiny-http-server");
+    if (unixChannel != null) unixThread = acceptLoop(unixChannel, true, "tiny-http-unix");
+  }
+
+  // A socket file left by an earlier run would fail the bind. It is removed only when nothing accepts on
+  // it any more; anything else at the path, or a live socket, fails startup instead.
+  private static void removeStaleSocket(Path path) throws IOException {
+    BasicFileAttributes attrs;
+    try {
+      attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    } catch (NoSuchFileException none) {
+      return;
+    }
+    if (!isSocket(path, attrs)) {
+      throw new IllegalStateException("UNIX_SOCKET_PATH exists and is not a socket: " + path);
+    }
+    if (connects(path)) throw new IllegalStateException("UNIX_SOCKET_PATH is in use by another server: " + path);
+    Files.delete(path);
+  }
+
+  // False when nothing accepts on the socket file any more
+  private static boolean connects(Path path) throws IOException {
+    try {
+      SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+      return true;
+    } catch (ConnectException stale) {
+      return false;
+    }
+  }
+
+  private static boolean isSocket(Path path, BasicFileAttributes attrs) throws IOException {
+    try {
+      int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+      return (mode & 0170000) == 0140000; // S_IFSOCK
+    } catch (UnsupportedOperationException noUnixView) {
+      return attrs.isOther();
+    }
+  }
+
+  // Device and inode where the platform reports them; null when the file is gone
+  private static Object fileIdentity(Path path) throws IOException {
+    try {
+      BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+      return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+    } catch (NoSuchFileException gone) {
+      return null;
+    }
+  }
+
+  private Thread acceptLoop(ServerSocketChannel listener, boolean unix, String name) {
+    Thread t = new Thread(() -> {
       while (running) {
         try {
-          Socket client = serverSocket.accept();
+          Socket client = unix
+            ? new UnixDomainSocket(listener.accept(), config.unixSocketPath)
+            : tuned(listener.accept());
           client.setSoTimeout(config.socketReadTimeoutMs);
+          boolean secure = tls != null && !unix; // TLS guards the network listener only
           try {
-            workerPool.execute(() -> handle(client));
+            workerPool.execute(() -> handle(client, secure));
           } catch (RejectedExecutionException rex) {
-            HttpErrorHandler.sendErrorResponse(client, 503, "Service Unavailable", "Server overloaded, please try again");
+            if (!secure) {
+              HttpErrorHandler.sendErrorResponse(client, 503, "Service Unavailable", "Server overloaded, please try again");
+            } else {
+              client.close(); // no plaintext 503 on a TLS listener, and no worker to handshake for one
+            }
           }
-        } catch (SocketException se) {
+        } catch (SocketException | ClosedChannelException se) {
           if (running) {
             System.err.println("[tiny-http] accept error: " + se.getMessage());
           }
@@ -73,8 +185,9 @@ public class HttpServerInstance {
           System.err.println("[tiny-http] accept error: " + e.getMessage());
         }
       }
-    }, "tiny-http-server");
-    serverThread.start();
+    }, name);
+    t.start();
+    return t;
   }
 
   public void stop() {
@@ -84,8 +197,16 @@ public class HttpServerInstance {
 
     running = false;
     try {
-      if (serverSocket != null) {
-        serverSocket.close();
+      if (serverChannel != null) {
+        serverChannel.close();
+      }
+    } catch (IOException ignored) {}
+    try {
+      if (unixChannel != null) {
+        unixChannel.close();
+        // only our own socket file: the path may have been taken over since
+        Path path = Path.of(config.unixSocketPath);
+        if (unixSocketFile != null && unixSocketFile.equals(fileIdentity(path))) Files.delete(path);
       }
     } catch (IOException ignored) {}
 
@@ -102,9 +223,10 @@ public class HttpServerInstance {
       }
     }
 
-    if (serverThread != null) {
+    for (Thread t : new Thread[]{serverThread, unixThread}) {
+      if (t == null) continue;
       try {
-        serverThread.join(5000);
+        t.join(5000);
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
       }
@@ -128,61 +250,90 @@ public class HttpServerInstance {
   }
 
     
-    private void handle(Socket client) {
-      try(client) {
-        OutputStream out = client.getOutputStream();
-        BufferedInputStream bufferedIn = new BufferedInputStream(client.getInputStream());
+    private void handle(Socket client, boolean secure) {
+      boolean detached = false; // an event stream took the connection: leave it open
+      boolean linger = false;   // closing with request bytes unread: drain them first
+      TlsConnection session = null;
+      try {
+        InputStream rawIn = client.getInputStream();
+        OutputStream rawOut = client.getOutputStream();
+        SocketChannel channel = client.getChannel(); // null over TLS: bytes must go through the engine
+        if (secure) {
+          client.setSoTimeout(config.headerReadTimeoutMs); // a stalled handshake counts as a slow head
+          session = tls.accept(client);
+          rawIn = session.in();
+          rawOut = session.out();
+          channel = null;
+        }
+        // Head + body leave in one write; flushes wait while pipelined requests are already buffered
+        ConnectionOutput out = new ConnectionOutput(rawOut, channel, socketTuning.writeBufferSize());
+        BufferedInputStream bufferedIn = new BufferedInputStream(out.flushBefore(rawIn));
+        out.deferFlushWhile(() -> available(bufferedIn) > 0);
 
         int served = 0;
         boolean keepAlive = true;
+        PathTokens pathTokens = new PathTokens(); // reused for every request on this connection
 
         String requestId = Ids.requestId();
         // client.setSoTimeout(KEEP_ALIVE_IDLE_TIMEOUT_MS);
         client.setSoTimeout(config.headerReadTimeoutMs);
 
         long statNs = System.nanoTime();
-        RequestMetrics.set(new RequestMetrics(requestId, "?", "?", 
-        client.getInetAddress().getHostAddress() + ":" + client.getPort(), statNs));
+        RequestMetrics.set(new RequestMetrics(requestId, "?", "?", remoteAddress(client), statNs));
+        RequestMetrics.get().keepAliveHeader = keepAliveHeader;
+        RequestMetrics.get().requestsLeft = config.maxRequestsPerConn;
 
         while(keepAlive && served < config.maxRequestsPerConn){
           keepAlive = false; // Start pessimistic, set to true only on success
+          var current = RequestMetrics.get();
+          if(current != null){
+            current.responseHeaders = null; // middleware headers are per request
+            current.contentEncoding = null;
+            current.ifNoneMatch = null;
+            current.ifModifiedSince = null;
+            current.range = null;
+            current.ifRange = null;
+            current.etag = null;
+          }
 
           try {
-            HttpRequest request = HttpRequest.parse(bufferedIn);
+            if(served == 0 && config.http2MaxConcurrentStreams > 0 && Http2Connection.readPreface(bufferedIn)){
+              // h2c with prior knowledge: this worker reads frames until the connection ends
+              // (over TLS, ALPN negotiated "h2" and the client starts the same way)
+              newHttp2(client, bufferedIn, session == null ? null : session.out()).serve();
+              break;
+            }
+            // Head only: the body stays on the wire until a handler asks for it, so a request that is
+            // rejected or routed nowhere never costs its upload; 100 Continue goes out on that first read
+            HttpRequest request = HttpRequest.parseHead(bufferedIn);
+            request.continueTo(out);
+            if(session == null && config.http2MaxConcurrentStreams > 0 && Http2Connection.isUpgrade(request.getHeaders())){
+              // Upgrade: h2c: the response to this request goes out on stream 1
+              request.readBody(); // the whole body precedes the switch
+              out.write(Http2Connection.switchingProtocols());
+              out.flushNow();
+              newHttp2(client, bufferedIn, null).serveUpgraded(request);
+              break;
+            }
             
             // CORS preflight?
             if(Cors.isCorsPreflight(request.getMethod(), request.getHeaders())){
               System.out.println("In CORS Preflight check");
               String[][] h = Cors.preflightHeaders(request.getHeaders());
               // 204 No Content, Content-Lenght: 0
-              keepAlive = true;
+              keepAlive = settleBody(request);
               HttpResponses.writeText(out, 204, "No Content", "", keepAlive, h);
               // handleOptionsRequest(url, out, keepAlive, headers);
               continue;
             }
 
-            String incomingId = request.getHeaders().first("x-request-id");
             var m = RequestMetrics.get();
-
-            if(m != null){
-              if(incomingId != null && !incomingId.isBlank()){
-                m.requestId = incomingId.trim();
-              }
-              m.method = request.getMethod();
-              // Check Accept header
-              boolean accept = Accepts.wantsJson(request.getHeaders());
-              m.prefersJson = accept;
-            }
+            if(m != null) readRequestHeaders(m, request);
             
             client.setSoTimeout(config.keepAliveIdleTimeoutMs);
             served++;
+            if(m != null) m.requestsLeft = config.maxRequestsPerConn - served;
 
-            // Expect: 100-continue (ack before reading body if your parser defers body)
-            String expect = request.getHeaders().first("expect");
-            if(expect != null && expect.equalsIgnoreCase("100-continue")){
-                out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
-                out.flush();
-            }
             // Decide connection semantics for THIS response
             String connHeader = request.getHeaders().first("connection");
             boolean clientWantsClose = connHeader != null && connHeader.equalsIgnoreCase("close");
@@ -191,14 +342,11 @@ public class HttpServerInstance {
             boolean keepThisResponseAlive = !clientWantsClose && !serverWantsClose && (served < config.maxRequestsPerConn);
 
             try {
-              // --- build Url from target ---
-              String[] pq = UrlParser.splitPathAndQuery(request.getTarget());
-              String rawPath  = pq[0];
-              String rawQuery = pq[1];
-          
-              String normPath = UrlParser.normalizePath(rawPath);
-              var query = UrlParser.parseQuery(rawQuery);
-              Url url = new Url(request.getTarget(), normPath, query);
+              // --- build Url from target: one pass splits, normalizes and segments ---
+              UrlParser.tokenizeTarget(request.getTarget(), pathTokens);
+              // Query stays raw until a handler reads it
+              Url url = new Url(request.getTarget(), pathTokens.normalizedPath(), pathTokens.rawQuery(),
+                config.maxQueryParams);
 
               var mx = RequestMetrics.get();
               if(mx != null)
@@ -210,52 +358,244 @@ public class HttpServerInstance {
                 handleOptionsRequest(url, out, keepAlive, request.getHeaders());
                 continue;
               }
-              var match = router.find(request.getMethod(), url.path());
+              var match = router.find(request.getMethod(), pathTokens);
               if (match.isPresent()) {
-                RequestContext ctx = new RequestContext(request, url, match.get().pathVars, config);
+                RequestContext ctx = new RequestContext(request, url, match.get().pathVars, match.get().pathValues, config)
+                  .withConnection(channel, bufferedIn);
                 if ("HEAD".equals(request.getMethod())) {
-                  ResponseMetaData meta = match.get().handler.getMetaData(ctx);
-                  HttpResponses.writeHEAD(out, 200, "OK", meta.contentType, meta.contentLength, keepThisResponseAlive);
+                  // Run the GET handler for real: its headers go out unchanged, the body is counted and dropped
+                  OutputStream sink = new HeadResponseOutput(out);
+                  match.get().handler.handle(ctx.withOutput(sink, keepThisResponseAlive), sink, keepThisResponseAlive);
                 } else {
                     // Normal GET, POST, etc.
-                    match.get().handler.handle(ctx, out, keepThisResponseAlive);
+                    match.get().handler.handle(ctx.withOutput(out, keepThisResponseAlive), out, keepThisResponseAlive);
+                }
+                ctx.finishResponse();
+                if(ctx.detached()){
+                  detached = true;
+                  keepThisResponseAlive = false;
                 }
               } else {
-                handleNoMatchFound(client, url, out);
+                keepThisResponseAlive = handleNoMatchFound(url, pathTokens, out,
+                  keepThisResponseAlive && bodySkippable(request));
               }
+            } catch (HttpExceptions.ResponseAborted aborted) {
+              // part of the response is already out: closing is the only honest ending left
+              System.err.println("[tiny-http] response aborted: " + aborted.getMessage());
+              keepThisResponseAlive = false;
+            } catch (HttpExceptions.PayloadTooLarge tooLarge) {
+              // a chunked body outgrew the cap while a handler read it
+              HttpErrorHandler.sendPayloadTooLarge(out, tooLarge.getMessage());
+              keepThisResponseAlive = false;
             } catch (IOException badUrl) {
               // normalizePath / pctDecode / parseQuery errors → 400 and close
-              HttpErrorHandler.sendBadRequest(client, badUrl.getMessage());
+              HttpErrorHandler.sendBadRequest(out, badUrl.getMessage());
+              keepThisResponseAlive = false;
+            } catch (HttpExceptions.MalformedRequest lazyQuery) {
+              // malformed query or body discovered when the handler first read it
+              if(lazyQuery.getCause() instanceof HttpExceptions.PayloadTooLarge){
+                HttpErrorHandler.sendPayloadTooLarge(out, lazyQuery.getCause().getMessage());
+              } else {
+                HttpErrorHandler.sendBadRequest(out, lazyQuery.getCause().getMessage());
+              }
               keepThisResponseAlive = false;
             }
+            if(keepThisResponseAlive && !detached && !settleBody(request)) keepThisResponseAlive = false;
+            if(!keepThisResponseAlive && !detached && request.bodyPending()) linger = true;
             // Next iteration: keep the loop only if we kept this response alive
             keepAlive = keepThisResponseAlive;
             AccessLog.log(RequestMetrics.get());
+          } catch (HttpExceptions.PayloadTooLarge e) {
+            // refused on the declared Content-Length alone: the body is never read
+            HttpErrorHandler.sendPayloadTooLarge(out, e.getMessage());
+            linger = true;
+          } catch (HttpExceptions.ExpectationFailed e) {
+            HttpErrorHandler.sendExpectationFailed(out, e.getMessage());
+            linger = true;
           } catch (HttpExceptions.BadRequest e) {
-            HttpErrorHandler.sendBadRequest(client, e.getMessage());
+            HttpErrorHandler.sendBadRequest(out, e.getMessage());
           } catch (HttpExceptions.HeaderTooLarge e) {
-            HttpErrorHandler.sendHeaderTooLarge(client, e.getMessage());
+            HttpErrorHandler.sendHeaderTooLarge(out, e.getMessage());
           } catch (HttpExceptions.NotImplemented e) {
-            HttpErrorHandler.sendNotImplemented(client, e.getMessage());
+            HttpErrorHandler.sendNotImplemented(out, e.getMessage());
           } catch (HttpExceptions.HttpVersionNotSupported e) {
-            HttpErrorHandler.sendHttpVersionNotSupported(client, e.getMessage());
+            HttpErrorHandler.sendHttpVersionNotSupported(out, e.getMessage());
           } catch (HttpExceptions.LineTooLong e) {
-            HttpErrorHandler.sendLineTooLong(client, e.getMessage());
+            HttpErrorHandler.sendLineTooLong(out, e.getMessage());
           } catch (IOException ioe) {
             System.err.println("[tiny-http] io error: " + ioe.getMessage());
             // best-effort error response only if stream still usable (optional)
           } catch(Exception e){
-            HttpErrorHandler.sendInternalServerError(client, "oops");
+            HttpErrorHandler.sendInternalServerError(out, "oops");
           }
         }
+        if(!detached) out.flushNow(); // a deferred response may still be buffered when the loop ends
       } catch(IOException e){
         // Socket-level errors (connection issues, etc.)
         System.err.println("[tiny-http] socket error: " + e.getMessage());
       } finally{
+        if(!detached){
+          if(session != null) session.close();
+          if(linger) lingeringClose(client);
+          try { client.close(); } catch (IOException ignored) {}
+        }
         RequestMetrics.clear();
       }
   }
 
+  /**
+   * Deals with a body nobody read, which is still on the wire ahead of the next request. A small one
+   * is skipped to keep the connection. A chunked or large one, or one the client holds back until
+   * invited (100-continue), is not worth the transfer: false, and the connection closes instead.
+   */
+  private static boolean settleBody(HttpRequest request) throws IOException {
+    if(!request.bodyPending()) return true;
+    if(!bodySkippable(request)) return false;
+    request.readBody();
+    return true;
+  }
+
+  // Whether settleBody would keep the connection, decided before the response goes out
+  private static boolean bodySkippable(HttpRequest request){
+    if(!request.bodyPending()) return true;
+    long n = request.bodyLength();
+    return !request.expectsContinue() && n >= 0 && n <= HttpServerConstants.MAX_SKIPPED_BODY_BYTES;
+  }
+
+  /**
+   * Closing a socket with received bytes still unread makes the kernel answer with RST, which can
+   * discard the response before the client reads it. Half-close instead, so the client sees the end of
+   * the response, and discard what it still sends, up to a byte and time budget.
+   */
+  private static void lingeringClose(Socket client) {
+    try {
+      client.shutdownOutput();
+      InputStream in = client.getInputStream();
+      byte[] discard = new byte[8192];
+      long deadline = System.nanoTime() + HttpServerConstants.LINGER_TIMEOUT_MS * 1_000_000L;
+      long drained = 0;
+      while (drained < HttpServerConstants.LINGER_MAX_BYTES) {
+        long leftMs = (deadline - System.nanoTime()) / 1_000_000;
+        if (leftMs <= 0) break;
+        client.setSoTimeout((int) leftMs);
+        int n = in.read(discard);
+        if (n < 0) break;
+        drained += n;
+      }
+    } catch (IOException ignored) {
+      // timed out or reset: close regardless
+    }
+  }
+
+  // Per-request fields of the metrics that responses consult: request id, negotiation, conditionals
+  private void readRequestHeaders(RequestMetrics m, HttpRequest request){
+    String incomingId = request.getHeaders().first("x-request-id");
+    if(incomingId != null && !incomingId.isBlank()){
+      m.requestId = incomingId.trim();
+    }
+    m.method = request.getMethod();
+    // Check Accept header
+    m.prefersJson = Accepts.wantsJson(request.getHeaders());
+    m.compression = compression;
+    m.ifNoneMatch = request.getHeaders().first("if-none-match");
+    m.ifModifiedSince = request.getHeaders().first("if-modified-since");
+    m.range = request.getHeaders().first("range");
+    m.ifRange = request.getHeaders().first("if-range");
+    if(compression != null){
+      m.contentEncoding = Compression.negotiate(request.getHeaders().first("accept-encoding"));
+    }
+  }
+
+  // tlsOut is the TLS connection's output, or null to frame straight onto the socket. Either way the
+  // frames get their own buffer: the HTTP/1.1 one flushes from whichever thread reads next
+  private Http2Connection newHttp2(Socket client, BufferedInputStream in, OutputStream tlsOut) throws IOException {
+    String remote = remoteAddress(client);
+    StreamDispatcher dispatcher = (request, out) -> serveStream(request, out, remote);
+    ConnectionOutput frames = tlsOut != null
+      ? new ConnectionOutput(tlsOut, null, 16 * 1024)
+      : new ConnectionOutput(client.getOutputStream(), client.getChannel(), 16 * 1024);
+    return new Http2Connection(client, in, frames, dispatcher, config.http2MaxConcurrentStreams,
+      config.keepAliveIdleTimeoutMs);
+  }
+
+  /**
+   * One HTTP/2 stream, on its own virtual thread: the same routing as the HTTP/1.1 loop, minus
+   * everything about the connection. Handlers write to {@code out} as usual.
+   */
+  private void serveStream(HttpRequest request, OutputStream out, String remote) throws IOException {
+    RequestMetrics m = new RequestMetrics(Ids.requestId(), request.getMethod(), "?", remote, System.nanoTime());
+    RequestMetrics.set(m);
+    try {
+      HttpHeaders headers = request.getHeaders();
+      if(Cors.isCorsPreflight(request.getMethod(), headers)){
+        HttpResponses.writeText(out, 204, "No Content", "", true, Cors.preflightHeaders(headers));
+        return;
+      }
+      readRequestHeaders(m, request);
+
+      PathTokens pathTokens = new PathTokens();
+      Url url;
+      try {
+        UrlParser.tokenizeTarget(request.getTarget(), pathTokens);
+        url = new Url(request.getTarget(), pathTokens.normalizedPath(), pathTokens.rawQuery(), config.maxQueryParams);
+      } catch (IOException badUrl) {
+        HttpErrorHandler.sendErrorResponse(out, 400, "Bad Request", badUrl.getMessage(), true, null);
+        return;
+      }
+      m.path = url.path();
+
+      if("OPTIONS".equals(request.getMethod())){
+        handleOptionsRequest(url, out, true, headers);
+        return;
+      }
+      var match = router.find(request.getMethod(), pathTokens);
+      if(match.isEmpty()){
+        var allowed = router.allowedForPath(pathTokens);
+        if(allowed.size() > 1){
+          HttpErrorHandler.sendErrorResponse(out, 405, "Method Not Allowed", "Method Not Allowed\n", true,
+            new String[][]{{"Allow", String.join(",", allowed)}});
+        } else {
+          HttpResponses.writeText(out, 404, "Not Found", "No route: " + url.path() + "\n", true);
+        }
+        return;
+      }
+      RequestContext ctx = new RequestContext(request, url, match.get().pathVars, match.get().pathValues, config);
+      OutputStream target = "HEAD".equals(request.getMethod()) ? new HeadResponseOutput(out) : out;
+      try {
+        match.get().handler.handle(ctx.withOutput(target, true), target, true);
+        ctx.finishResponse();
+      } catch (HttpExceptions.MalformedRequest lazyQuery) {
+        HttpErrorHandler.sendErrorResponse(out, 400, "Bad Request", lazyQuery.getCause().getMessage(), true, null);
+      }
+    } finally {
+      AccessLog.log(m);
+      RequestMetrics.clear();
+    }
+  }
+
+  private Socket tuned(SocketChannel ch) throws IOException {
+    try {
+      socketTuning.apply(ch);
+    } catch (IOException e) {
+      ch.close();
+      throw e;
+    }
+    return ch.socket();
+  }
+
+  private static String remoteAddress(Socket client){
+    if(client instanceof UnixDomainSocket) return client.toString(); // peers on a UNIX socket are unnamed
+    return client.getInetAddress().getHostAddress() + ":" + client.getPort();
+  }
+
+  private static int available(BufferedInputStream in){
+    try {
+      return in.available();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
   private void handleOptionsRequest(Url url, OutputStream out, boolean keepAlive, HttpHeaders headers) throws IOException {
     Set<String> allowed;
     if("*".equals(url.path()) || "/".equals(url.path()) || url.path().isEmpty()){
@@ -279,19 +619,33 @@ public class HttpServerInstance {
     }
   }
 
-    private void handleNoMatchFound(Socket client, Url url, OutputStream out) throws IOException {
-      var allowed = router.allowedForPath(url.path());
+    // Returns whether the connection stays open after the answer
+    private boolean handleNoMatchFound(Url url, PathTokens path, ConnectionOutput out, boolean keepAlive)
+      throws IOException {
+
+      var allowed = router.allowedForPath(path);
       // Only return 405 if there are actual route matches for this path
       // (excluding the default OPTIONS that might be returned)
       if (!allowed.isEmpty() && allowed.size() > 1) {
         String allowHeader = String.join(",", allowed);
-        HttpErrorHandler.sendMethodNotAllowed(client, allowHeader);
-      } else {
-        HttpResponses.writeText(out, 404, "Not Found", "No route: " + url.path() + "\n", false);
+        HttpErrorHandler.sendMethodNotAllowed(out, allowHeader);
+        return false;
       }
+      HttpResponses.writeText(out, 404, "Not Found", "No route: " + url.path() + "\n", keepAlive);
+      return keepAlive;
     }
 
     public Thread getServerThread() {
-      return serverThread;
+      return serverThread != null ? serverThread : unixThread;
+  }
+
+  /** Response compression with its cache counters, or null when compression is off. */
+  public Compression getCompression() {
+    return compression;
+  }
+
+  /** Handshake counters and latency, or null when serving plain HTTP. */
+  public TlsContext getTls() {
+    return tls;
   }
 }
\ No newline at end of file
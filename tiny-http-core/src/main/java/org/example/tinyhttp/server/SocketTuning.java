@@ -0,0 +1,81 @@
+package org.example.tinyhttp.server;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.example.tinyhttp.config.Config;
+
+/**
+ * TCP options applied to every accepted connection. TCP_NODELAY is on by default: a response leaves
+ * {@link ConnectionOutput} as one write (head and body together, pipelined responses batched), so
+ * turning Nagle off adds no small segments and removes the Nagle/delayed-ACK stall that a second
+ * write of the same response would otherwise hit.
+ */
+public final class SocketTuning {
+  private final boolean noDelay;
+  private final int sendBuffer;    // 0 = OS default
+  private final int receiveBuffer; // 0 = OS default
+  private final boolean keepAlive;
+  private final int lingerSeconds; // -1 = off
+  private final int writeBufferSize;
+
+  public SocketTuning(boolean noDelay, int sendBuffer, int receiveBuffer, boolean keepAlive, int lingerSeconds,
+    int writeBufferSize) {
+
+    this.noDelay = noDelay;
+    this.sendBuffer = sendBuffer;
+    this.receiveBuffer = receiveBuffer;
+    this.keepAlive = keepAlive;
+    this.lingerSeconds = lingerSeconds;
+    this.writeBufferSize = writeBufferSize;
+  }
+
+  public static SocketTuning of(Config c) {
+    return new SocketTuning(c.tcpNoDelay, c.socketSendBuffer, c.socketReceiveBuffer, c.socketKeepAlive,
+      c.socketLingerSeconds, c.writeBufferSize);
+  }
+
+  /** Size of the per-connection buffer that coalesces response writes. */
+  public int writeBufferSize() { return writeBufferSize; }
+
+  /**
+   * Set on the listener before bind: accepted sockets inherit its receive buffer, and a window above
+   * 64 KiB is only scaled if it is in place before the handshake.
+   */
+  void applyToListener(ServerSocketChannel listener) throws IOException {
+    if (receiveBuffer > 0) listener.setOption(StandardSocketOptions.SO_RCVBUF, receiveBuffer);
+  }
+
+  void apply(NetworkChannel ch) throws IOException {
+    ch.setOption(StandardSocketOptions.TCP_NODELAY, noDelay);
+    ch.setOption(StandardSocketOptions.SO_KEEPALIVE, keepAlive);
+    if (sendBuffer > 0) ch.setOption(StandardSocketOptions.SO_SNDBUF, sendBuffer);
+    if (receiveBuffer > 0) ch.setOption(StandardSocketOptions.SO_RCVBUF, receiveBuffer);
+    ch.setOption(StandardSocketOptions.SO_LINGER, lingerSeconds);
+  }
+
+  /**
+   * The options as the OS actually grants them (Linux doubles buffer sizes, and caps them at its
+   * sysctl limits), read back from a socket tuned the same way as accepted connections.
+   */
+  public Map<String, Object> effective() {
+    var m = new LinkedHashMap<String, Object>();
+    try (SocketChannel probe = SocketChannel.open()) {
+      apply(probe);
+      m.put("tcpNoDelay", probe.getOption(StandardSocketOptions.TCP_NODELAY));
+      m.put("soSndBuf", probe.getOption(StandardSocketOptions.SO_SNDBUF));
+      m.put("soRcvBuf", probe.getOption(StandardSocketOptions.SO_RCVBUF));
+      m.put("soKeepAlive", probe.getOption(StandardSocketOptions.SO_KEEPALIVE));
+      m.put("soLinger", probe.getOption(StandardSocketOptions.SO_LINGER));
+    } catch (IOException e) {
+      m.put("error", e.getMessage());
+    }
+    m.put("writeBufferSize", writeBufferSize);
+    return m;
+  }
+}
@@ -0,0 +1,133 @@
+package org.example.tinyhttp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An accepted UNIX domain connection behind the {@link Socket} API the connection pipeline is written
+ * against. UNIX channels have no socket adaptor, and a blocking channel read cannot time out, so the
+ * channel runs non-blocking and each direction waits on its own selector: reads honour
+ * {@link #setSoTimeout} like a TCP socket, writes block until everything is sent.
+ *
+ * <p>{@link #getChannel()} is null, as over TLS: responses go through the streams (still coalesced
+ * by {@link ConnectionOutput}) and connection takeovers (SSE, WebSocket) are not offered.
+ */
+final class UnixDomainSocket extends Socket {
+  private final SocketChannel channel;
+  private final String listenPath;
+  private final Selector readSelector;
+  private volatile Selector writeSelector; // created on the first write that would block
+  private final ReentrantLock readLock = new ReentrantLock();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile int timeoutMs;
+  private final InputStream in = new In();
+  private final OutputStream out = new Out();
+
+  UnixDomainSocket(SocketChannel channel, String listenPath) throws IOException {
+    this.channel = channel;
+    this.listenPath = listenPath;
+    channel.configureBlocking(false);
+    this.readSelector = Selector.open();
+    channel.register(readSelector, SelectionKey.OP_READ);
+  }
+
+  @Override public InputStream getInputStream() { return in; }
+  @Override public OutputStream getOutputStream() { return out; }
+  @Override public SocketChannel getChannel() { return null; }
+  @Override public void setSoTimeout(int timeout) { this.timeoutMs = timeout; }
+  @Override public int getSoTimeout() { return timeoutMs; }
+  @Override public boolean isClosed() { return !channel.isOpen(); }
+  @Override public boolean isConnected() { return channel.isConnected(); }
+  @Override public void shutdownOutput() throws IOException { channel.shutdownOutput(); }
+
+  @Override
+  public SocketAddress getRemoteSocketAddress() {
+    try {
+      return channel.getRemoteAddress();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Peers are unnamed, so connections are told apart by the listener they came in on. */
+  @Override
+  public String toString() { return "unix:" + listenPath; }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      channel.close();
+    } finally {
+      readSelector.close(); // wakes a blocked reader or writer
+      Selector ws = writeSelector;
+      if (ws != null) ws.close();
+    }
+  }
+
+  private final class In extends InputStream {
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      ByteBuffer dst = ByteBuffer.wrap(b, off, len);
+      readLock.lock();
+      try {
+        while (true) {
+          int n = channel.read(dst);
+          if (n != 0) return n;
+          int timeout = timeoutMs;
+          if (readSelector.select(timeout) == 0 && timeout > 0) throw new SocketTimeoutException("Read timed out");
+          readSelector.selectedKeys().clear();
+        }
+      } catch (ClosedSelectorException e) {
+        throw new SocketException("Socket closed"); // closed by another thread, as a TCP read would report it
+      } finally {
+        readLock.unlock();
+      }
+    }
+  }
+
+  private final class Out extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ByteBuffer src = ByteBuffer.wrap(b, off, len);
+      writeLock.lock();
+      try {
+        while (src.hasRemaining()) {
+          if (channel.write(src) > 0) continue;
+          if (writeSelector == null) {
+            writeSelector = Selector.open();
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+          }
+          writeSelector.select(); // the peer is not reading: wait for room in the socket buffer
+          writeSelector.selectedKeys().clear();
+        }
+      } catch (ClosedSelectorException e) {
+        throw new SocketException("Socket closed");
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package org.example.tinyhttp.sse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * One subscriber's event stream. The connection is owned by its {@link SseHub}: events are queued
+ * here (at most the hub's queue capacity) and written by the hub's selector thread, never by the
+ * caller. A client that falls that far behind is disconnected rather than buffered without bound.
+ */
+public final class EventSink {
+  private final SseHub hub;
+  final SocketChannel channel;
+  private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+  private ByteBuffer current; // partially written event, selector thread only
+  private boolean closing;    // end-of-stream queued; close once it is out
+  private volatile boolean closed;
+  private volatile long lastWriteMs; // last time bytes went out, for heartbeats
+  SelectionKey key;
+
+  EventSink(SseHub hub, SocketChannel channel) {
+    this.hub = hub;
+    this.channel = channel;
+    this.lastWriteMs = System.currentTimeMillis(); // the head was just sent
+  }
+
+  /** Sends an event to this client only. */
+  public void send(String event, String data) {
+    offer(SseHub.encode(null, event, data));
+  }
+
+  public void send(String data) {
+    send(null, data);
+  }
+
+  /** Ends the stream (terminating chunk) and closes the connection once queued events are out. */
+  public void close() {
+    synchronized (this) {
+      if (closing || closed) return;
+      closing = true;
+      queue.add(ByteBuffer.wrap(SseHub.END));
+    }
+    hub.ready(this);
+  }
+
+  public boolean isOpen() { return !closed; }
+
+  // Queues shared event bytes; false (and the client is dropped) when its queue is full
+  boolean offer(byte[] event) {
+    synchronized (this) {
+      if (closed || closing) return false;
+      if (queue.size() >= hub.queueCapacity()) {
+        hub.evict(this);
+        return false;
+      }
+      queue.add(ByteBuffer.wrap(event)); // own position over the shared bytes
+    }
+    hub.ready(this);
+    return true;
+  }
+
+  // Selector thread: writes until the socket would block; true when everything queued is out
+  boolean flush() throws IOException {
+    while (true) {
+      if (current == null) {
+        synchronized (this) {
+          current = queue.poll();
+          if (current == null) {
+            if (closing) hub.drop(this);
+            return true;
+          }
+        }
+      }
+      if (channel.write(current) > 0) lastWriteMs = System.currentTimeMillis();
+      if (current.hasRemaining()) return false;
+      current = null;
+    }
+  }
+
+  long lastWriteMs() { return lastWriteMs; }
+
+  void markClosed() {
+    closed = true;
+  }
+}
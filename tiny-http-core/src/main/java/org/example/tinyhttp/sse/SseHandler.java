@@ -0,0 +1,11 @@
+package org.example.tinyhttp.sse;
+
+import java.io.IOException;
+
+import org.example.tinyhttp.context.RequestContext;
+
+/** Called once a client is subscribed, e.g. to send it the current state before the broadcasts. */
+@FunctionalInterface
+public interface SseHandler {
+  void subscribed(RequestContext ctx, EventSink sink) throws IOException;
+}
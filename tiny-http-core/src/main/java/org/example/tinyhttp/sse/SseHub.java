@@ -0,0 +1,212 @@
+package org.example.tinyhttp.sse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events fan-out.
+ *
+ * <p>Subscribed connections are detached from the worker pool: an idle subscriber is just a key in
+ * this hub's selector, so any number of them cost no threads. {@link #publish} encodes an event once,
+ * chunk framing included, and every subscriber queues the same bytes; one selector thread writes them
+ * with non-blocking writes. A subscriber whose queue is full is evicted (its connection closed) so one
+ * slow reader cannot hold memory for everyone. A stream that has written nothing for a heartbeat
+ * interval gets a comment line so dead peers are noticed; busy streams get none.
+ */
+public final class SseHub implements AutoCloseable {
+  static final byte[] END = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] HEARTBEAT = chunk(":\n\n".getBytes(StandardCharsets.US_ASCII));
+
+  private final int queueCapacity;
+  private final long heartbeatMs;
+  private final Selector selector;
+  private final Thread thread;
+  private final Set<EventSink> subscribers = ConcurrentHashMap.newKeySet();
+  private final ConcurrentLinkedQueue<EventSink> pendingRegistration = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<EventSink> ready = new ConcurrentLinkedQueue<>();
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong evicted = new AtomicLong();
+  private volatile boolean open = true;
+
+  public SseHub(int queueCapacity, long heartbeatMs) throws IOException {
+    if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+    this.queueCapacity = queueCapacity;
+    this.heartbeatMs = heartbeatMs;
+    this.selector = Selector.open();
+    this.thread = new Thread(this::run, "sse-hub");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public SseHub() throws IOException {
+    this(64, 15_000);
+  }
+
+  int queueCapacity() { return queueCapacity; }
+
+  /**
+   * Takes over a connection whose event-stream head has already been sent. The channel is switched
+   * to non-blocking mode; the caller must not touch it afterwards.
+   */
+  public EventSink subscribe(SocketChannel channel) throws IOException {
+    if (!open) throw new IllegalStateException("Hub is closed");
+    channel.configureBlocking(false);
+    EventSink sink = new EventSink(this, channel);
+    subscribers.add(sink);
+    pendingRegistration.add(sink);
+    selector.wakeup();
+    return sink;
+  }
+
+  /** Sends an event to every subscriber; returns how many queued it. */
+  public int publish(String event, String data) {
+    return publish(null, event, data);
+  }
+
+  public int publish(String id, String event, String data) {
+    byte[] bytes = encode(id, event, data); // once, shared by every subscriber
+    published.incrementAndGet();
+    int n = 0;
+    for (EventSink s : subscribers) {
+      if (s.offer(bytes)) n++;
+    }
+    return n;
+  }
+
+  public int subscribers() { return subscribers.size(); }
+  public long published() { return published.get(); }
+  public long evicted() { return evicted.get(); }
+
+  void ready(EventSink sink) {
+    ready.add(sink);
+    selector.wakeup();
+  }
+
+  void evict(EventSink sink) {
+    evicted.incrementAndGet();
+    drop(sink);
+  }
+
+  void drop(EventSink sink) {
+    sink.markClosed();
+    subscribers.remove(sink);
+    try {
+      sink.channel.close(); // also cancels its key
+    } catch (IOException ignored) {}
+  }
+
+  private void run() {
+    ByteBuffer discard = ByteBuffer.allocate(512);
+    long lastSweep = System.currentTimeMillis();
+    long sweepMs = Math.max(1, heartbeatMs / 2); // a stream is idle at most 1.5 intervals before its beat
+    try {
+      while (open) {
+        selector.select(heartbeatMs > 0 ? sweepMs : 0);
+
+        for (EventSink s; (s = pendingRegistration.poll()) != null; ) {
+          try {
+            s.key = s.channel.register(selector, SelectionKey.OP_READ, s);
+            write(s); // events sent before registration
+          } catch (IOException e) {
+            drop(s);
+          }
+        }
+
+        for (SelectionKey k : selector.selectedKeys()) {
+          EventSink s = (EventSink) k.attachment();
+          try {
+            if (k.isValid() && k.isReadable()) {
+              // clients send nothing on an event stream; EOF means they went away
+              discard.clear();
+              if (s.channel.read(discard) < 0) { drop(s); continue; }
+            }
+            if (k.isValid() && k.isWritable()) write(s);
+          } catch (IOException e) {
+            drop(s);
+          }
+        }
+        selector.selectedKeys().clear();
+
+        for (EventSink s; (s = ready.poll()) != null; ) {
+          if (s.key == null) continue; // not registered yet; its queue is written right after registration
+          try {
+            write(s);
+          } catch (IOException e) {
+            drop(s);
+          }
+        }
+
+        long now = System.currentTimeMillis();
+        if (heartbeatMs > 0 && now - lastSweep >= sweepMs) {
+          lastSweep = now;
+          for (EventSink s : subscribers) {
+            if (now - s.lastWriteMs() >= heartbeatMs) s.offer(HEARTBEAT);
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("[tiny-http] sse hub stopped: " + e.getMessage());
+    } finally {
+      for (EventSink s : subscribers) {
+        try {
+          s.channel.write(ByteBuffer.wrap(END)); // best effort, never blocks
+        } catch (IOException ignored) {}
+        drop(s);
+      }
+      try { selector.close(); } catch (IOException ignored) {}
+    }
+  }
+
+  private void write(EventSink s) throws IOException {
+    if (!s.key.isValid()) return;
+    boolean drained = s.flush();
+    if (s.key.isValid()) {
+      s.key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+  }
+
+  @Override
+  public void close() {
+    open = false;
+    selector.wakeup();
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // One chunk of a chunked body carrying one event
+  static byte[] encode(String id, String event, String data) {
+    StringBuilder sb = new StringBuilder(32 + (data == null ? 0 : data.length()));
+    if (id != null) sb.append("id: ").append(field(id)).append('\n');
+    if (event != null) sb.append("event: ").append(field(event)).append('\n');
+    // each line of data gets its own field; the client joins them back with '\n'
+    for (String line : (data == null ? "" : data).split("\r\n|\r|\n", -1)) sb.append("data: ").append(line).append('\n');
+    sb.append('\n');
+    return chunk(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String field(String v) {
+    if (v.indexOf('\n') >= 0 || v.indexOf('\r') >= 0) throw new IllegalArgumentException("SSE id/event must be one line: " + v);
+    return v;
+  }
+
+  private static byte[] chunk(byte[] payload) {
+    byte[] size = (Integer.toHexString(payload.length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+    byte[] out = new byte[size.length + payload.length + 2];
+    System.arraycopy(size, 0, out, 0, size.length);
+    System.arraycopy(payload, 0, out, size.length, payload.length);
+    out[out.length - 2] = '\r';
+    out[out.length - 1] = '\n';
+    return out;
+  }
+}
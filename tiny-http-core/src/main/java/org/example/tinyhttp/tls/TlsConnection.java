@@ -0,0 +1,224 @@
+package org.example.tinyhttp.tls;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+
+/**
+ * One server-side TLS connection driven by an {@link SSLEngine} over plain blocking streams.
+ *
+ * <p>Ciphertext is read from the socket's stream (so {@code setSoTimeout} still applies; a timeout
+ * leaves any partial record buffered for the next read) and written to its output stream. Reads and
+ * writes take separate locks so one thread can block reading while others send, as HTTP/2 does; a
+ * read that needs to answer the peer (close_notify, key update) borrows the write lock.
+ */
+public final class TlsConnection {
+  private final SSLEngine engine;
+  private final InputStream rawIn;
+  private final OutputStream rawOut;
+  private final ReentrantLock readLock = new ReentrantLock();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private ByteBuffer netIn;  // ciphertext not yet unwrapped (read mode); guarded by readLock
+  private ByteBuffer appIn;  // plaintext not yet returned (read mode); guarded by readLock
+  private ByteBuffer netOut; // guarded by writeLock
+  private boolean inboundDone;
+  private final InputStream in = new In();
+  private final OutputStream out = new Out();
+
+  TlsConnection(SSLEngine engine, InputStream rawIn, OutputStream rawOut) {
+    this.engine = engine;
+    this.rawIn = rawIn;
+    this.rawOut = rawOut;
+    SSLSession s = engine.getSession();
+    this.netIn = ByteBuffer.allocate(s.getPacketBufferSize()).flip();
+    this.appIn = ByteBuffer.allocate(s.getApplicationBufferSize()).flip();
+    this.netOut = ByteBuffer.allocate(s.getPacketBufferSize());
+  }
+
+  /** Decrypted request bytes. */
+  public InputStream in() { return in; }
+
+  /** Response bytes; every write is encrypted and sent before it returns. */
+  public OutputStream out() { return out; }
+
+  public SSLSession session() { return engine.getSession(); }
+
+  /** The ALPN result, e.g. "h2" or "http/1.1"; empty when the client offered none. */
+  public String applicationProtocol() {
+    String p = engine.getApplicationProtocol();
+    return p == null ? "" : p;
+  }
+
+  void handshake() throws IOException {
+    engine.beginHandshake();
+    HandshakeStatus hs = engine.getHandshakeStatus();
+    while (hs != HandshakeStatus.FINISHED && hs != HandshakeStatus.NOT_HANDSHAKING) {
+      switch (hs) {
+        case NEED_UNWRAP, NEED_UNWRAP_AGAIN -> {
+          readLock.lock();
+          try {
+            if (unwrap() == SSLEngineResult.Status.CLOSED) throw new EOFException("Closed during handshake");
+          } finally {
+            readLock.unlock();
+          }
+        }
+        case NEED_WRAP -> wrap(ByteBuffer.allocate(0));
+        case NEED_TASK -> runTasks();
+        default -> throw new SSLException("Unexpected handshake status " + hs);
+      }
+      hs = engine.getHandshakeStatus();
+    }
+  }
+
+  /** Sends close_notify; the socket itself is closed by the caller. */
+  public void close() {
+    engine.closeOutbound();
+    try {
+      wrap(ByteBuffer.allocate(0));
+    } catch (IOException ignored) {}
+  }
+
+  // One unwrap into appIn, reading more ciphertext as needed. Caller holds readLock.
+  private SSLEngineResult.Status unwrap() throws IOException {
+    while (true) {
+      appIn.compact();
+      SSLEngineResult r;
+      try {
+        r = engine.unwrap(netIn, appIn);
+      } finally {
+        appIn.flip();
+      }
+      switch (r.getStatus()) {
+        case BUFFER_UNDERFLOW -> {
+          if (netIn.limit() == netIn.capacity() && netIn.position() == 0) {
+            netIn = grow(netIn, engine.getSession().getPacketBufferSize(), true);
+          }
+          if (!fill()) {
+            inboundDone = true;
+            return SSLEngineResult.Status.CLOSED; // peer went away without close_notify
+          }
+        }
+        case BUFFER_OVERFLOW -> appIn = grow(appIn, engine.getSession().getApplicationBufferSize(), true);
+        case CLOSED -> {
+          inboundDone = true;
+          if (r.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) wrap(ByteBuffer.allocate(0)); // answer close_notify
+          return SSLEngineResult.Status.CLOSED;
+        }
+        case OK -> {
+          HandshakeStatus hs = r.getHandshakeStatus();
+          if (hs == HandshakeStatus.NEED_TASK) runTasks();
+          if (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP && r.bytesProduced() == 0) {
+            wrap(ByteBuffer.allocate(0)); // post-handshake message such as a key update
+          }
+          return SSLEngineResult.Status.OK;
+        }
+      }
+    }
+  }
+
+  // Reads ciphertext from the socket; false on EOF
+  private boolean fill() throws IOException {
+    netIn.compact();
+    try {
+      int n = rawIn.read(netIn.array(), netIn.arrayOffset() + netIn.position(), netIn.remaining());
+      if (n < 0) return false;
+      netIn.position(netIn.position() + n);
+      return true;
+    } finally {
+      netIn.flip();
+    }
+  }
+
+  private void wrap(ByteBuffer src) throws IOException {
+    writeLock.lock();
+    try {
+      do {
+        netOut.clear();
+        SSLEngineResult r = engine.wrap(src, netOut);
+        switch (r.getStatus()) {
+          case BUFFER_OVERFLOW -> {
+            netOut = grow(netOut, engine.getSession().getPacketBufferSize(), false);
+            continue;
+          }
+          case CLOSED -> {
+            if (src.hasRemaining()) throw new SSLException("Connection closed");
+          }
+          default -> { }
+        }
+        if (r.getHandshakeStatus() == HandshakeStatus.NEED_TASK) runTasks();
+        if (r.bytesProduced() > 0) rawOut.write(netOut.array(), netOut.arrayOffset(), netOut.position());
+        if (r.bytesConsumed() == 0 && r.bytesProduced() == 0 && src.hasRemaining()) {
+          throw new SSLException("Renegotiation is not supported"); // the engine wants input we never read here
+        }
+      } while (src.hasRemaining() || engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP && !engine.isOutboundDone());
+      rawOut.flush();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void runTasks() {
+    for (Runnable t; (t = engine.getDelegatedTask()) != null; ) t.run();
+  }
+
+  private static ByteBuffer grow(ByteBuffer b, int atLeast, boolean readMode) {
+    ByteBuffer bigger = ByteBuffer.allocate(Math.max(atLeast, b.capacity() * 2));
+    if (readMode) {
+      bigger.put(b).flip();
+    } else {
+      b.flip();
+      bigger.put(b);
+    }
+    return bigger;
+  }
+
+  private final class In extends InputStream {
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      readLock.lock();
+      try {
+        while (!appIn.hasRemaining()) {
+          if (inboundDone || unwrap() == SSLEngineResult.Status.CLOSED) return -1;
+        }
+        int n = Math.min(len, appIn.remaining());
+        appIn.get(b, off, n);
+        return n;
+      } finally {
+        readLock.unlock();
+      }
+    }
+
+    @Override
+    public int available() {
+      return appIn.remaining(); // decrypted bytes only: pipelining checks must not block
+    }
+  }
+
+  private final class Out extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      wrap(ByteBuffer.wrap(b, off, len));
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package org.example.tinyhttp.tls;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+
+import org.example.tinyhttp.config.Config;
+
+/**
+ * Server TLS settings shared by every connection: the keystore's certificate, TLS 1.3/1.2 only, and
+ * ALPN offering h2 (when HTTP/2 is on) and http/1.1.
+ *
+ * <p>Reconnecting clients skip the full handshake: TLS 1.3 clients present a session ticket (the JDK
+ * issues stateless tickets), TLS 1.2 clients a session id looked up in the server session cache
+ * sized by TLS_SESSION_CACHE_SIZE. Handshake counts and latency are kept for a debug/metrics endpoint.
+ */
+public final class TlsContext {
+  private static final String[] PROTOCOLS = {"TLSv1.3", "TLSv1.2"};
+
+  private final SSLContext sslContext;
+  private final String[] applicationProtocols;
+
+  private long handshakes;
+  private long resumed;
+  private long failures;
+  private long h2;
+  private long totalHandshakeNanos;
+  private long maxHandshakeNanos;
+
+  public TlsContext(SSLContext sslContext, boolean http2, int sessionCacheSize, int sessionTimeoutSeconds) {
+    this.sslContext = sslContext;
+    this.applicationProtocols = http2 ? new String[]{"h2", "http/1.1"} : new String[]{"http/1.1"};
+    SSLSessionContext sessions = sslContext.getServerSessionContext();
+    sessions.setSessionCacheSize(sessionCacheSize);
+    sessions.setSessionTimeout(sessionTimeoutSeconds);
+  }
+
+  /** Context for TLS_KEYSTORE (PKCS12 or JKS), or null when no keystore is configured. */
+  public static TlsContext of(Config c) {
+    if (c.tlsKeystore.isEmpty()) return null;
+    try {
+      char[] password = c.tlsKeystorePassword.toCharArray();
+      KeyStore ks = KeyStore.getInstance(new File(c.tlsKeystore), password);
+      KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      kmf.init(ks, password);
+      SSLContext ctx = SSLContext.getInstance("TLS");
+      ctx.init(kmf.getKeyManagers(), null, null);
+      return new TlsContext(ctx, c.http2MaxConcurrentStreams > 0, c.tlsSessionCacheSize, c.tlsSessionTimeoutSeconds);
+    } catch (IOException | GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot load TLS keystore " + c.tlsKeystore + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Runs the server handshake on an accepted socket, under whatever read timeout it has. On failure
+   * the socket is left for the caller to close.
+   */
+  public TlsConnection accept(Socket socket) throws IOException {
+    SSLEngine engine = sslContext.createSSLEngine(
+      socket.getInetAddress().getHostAddress(), socket.getPort());
+    engine.setUseClientMode(false);
+    SSLParameters params = engine.getSSLParameters();
+    params.setProtocols(PROTOCOLS);
+    params.setApplicationProtocols(applicationProtocols);
+    engine.setSSLParameters(params);
+
+    TlsConnection conn = new TlsConnection(engine, socket.getInputStream(), socket.getOutputStream());
+    long startMs = System.currentTimeMillis();
+    long start = System.nanoTime();
+    try {
+      conn.handshake();
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) { failures++; }
+      throw e;
+    }
+    long took = System.nanoTime() - start;
+    // a resumed session keeps the creation time of the handshake that first established it
+    boolean wasResumed = conn.session().getCreationTime() < startMs;
+    boolean isH2 = "h2".equals(conn.applicationProtocol());
+    synchronized (this) {
+      handshakes++;
+      if (wasResumed) resumed++;
+      if (isH2) h2++;
+      totalHandshakeNanos += took;
+      maxHandshakeNanos = Math.max(maxHandshakeNanos, took);
+    }
+    return conn;
+  }
+
+  public synchronized long handshakes() { return handshakes; }
+  public synchronized long resumed() { return resumed; }
+  public synchronized long failures() { return failures; }
+
+  /** Counters for a debug/metrics endpoint. */
+  public synchronized Map<String, Object> stats() {
+    var m = new LinkedHashMap<String, Object>();
+    m.put("handshakes", handshakes);
+    m.put("resumed", resumed);
+    m.put("fullHandshakes", handshakes - resumed);
+    m.put("failures", failures);
+    m.put("alpnH2", h2);
+    m.put("avgHandshakeMs", handshakes == 0 ? 0.0 : totalHandshakeNanos / 1e6 / handshakes);
+    m.put("maxHandshakeMs", maxHandshakeNanos / 1e6);
+    m.put("sessionCacheSize", sslContext.getServerSessionContext().getSessionCacheSize());
+    return m;
+  }
+}
@@ -0,0 +1,392 @@
+package org.example.tinyhttp.websocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.example.tinyhttp.http.request.HttpHeaders;
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.server.ConnectionOutput;
+
+import static org.example.tinyhttp.websocket.WebSocketFrames.BINARY;
+import static org.example.tinyhttp.websocket.WebSocketFrames.CLOSE;
+import static org.example.tinyhttp.websocket.WebSocketFrames.CONTINUATION;
+import static org.example.tinyhttp.websocket.WebSocketFrames.INTERNAL_ERROR;
+import static org.example.tinyhttp.websocket.WebSocketFrames.INVALID_DATA;
+import static org.example.tinyhttp.websocket.WebSocketFrames.MESSAGE_TOO_BIG;
+import static org.example.tinyhttp.websocket.WebSocketFrames.NO_STATUS;
+import static org.example.tinyhttp.websocket.WebSocketFrames.NORMAL_CLOSURE;
+import static org.example.tinyhttp.websocket.WebSocketFrames.PING;
+import static org.example.tinyhttp.websocket.WebSocketFrames.PONG;
+import static org.example.tinyhttp.websocket.WebSocketFrames.PROTOCOL_ERROR;
+import static org.example.tinyhttp.websocket.WebSocketFrames.TEXT;
+import org.example.tinyhttp.websocket.WebSocketFrames.Frame;
+import org.example.tinyhttp.websocket.WebSocketFrames.ProtocolError;
+
+/**
+ * One upgraded connection.
+ *
+ * <p>After the 101 the connection leaves the worker pool and is read by its own virtual thread, so an
+ * idle socket costs no platform thread. Sends may come from any thread; they are serialized by a
+ * lock (not {@code synchronized}, which would pin the virtual thread while it blocks on the socket).
+ * Pings, pongs and the close handshake are handled here; the handler only sees whole messages.
+ *
+ * <p>permessage-deflate is negotiated without context takeover in either direction, so each
+ * message is compressed on its own and no sliding window outlives it.
+ */
+public final class WebSocket {
+  private static final byte[] DEFLATE_TAIL = {0, 0, (byte) 0xFF, (byte) 0xFF};
+  private static final int COMPRESS_MIN_BYTES = 128;
+  private static final int CLOSE_TIMEOUT_MS = 5000;
+  private static final AtomicLong IDS = new AtomicLong();
+
+  private final Socket socket;
+  private final InputStream in;
+  private final ConnectionOutput out;
+  private final WebSocketHandler handler;
+  private final WebSocketOptions options;
+  private final ReentrantLock sendLock = new ReentrantLock();
+  private final Deflater deflater; // null unless permessage-deflate was negotiated
+  private final Inflater inflater;
+  private volatile boolean closeSent;
+  private volatile boolean closed;
+
+  private WebSocket(Socket socket, InputStream in, WebSocketHandler handler, WebSocketOptions options,
+    boolean deflate) throws IOException {
+
+    this.socket = socket;
+    this.in = in;
+    this.out = new ConnectionOutput(socket.getOutputStream(), socket.getChannel(), 8192);
+    this.handler = handler;
+    this.options = options;
+    this.deflater = deflate ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+    this.inflater = deflate ? new Inflater(true) : null;
+  }
+
+  /**
+   * Validates the upgrade request and answers 101, or answers 400/426 and returns null. On success
+   * the connection belongs to the returned WebSocket: {@code httpOut} must be drained already and
+   * nothing else may read {@code in}.
+   */
+  public static WebSocket accept(HttpHeaders headers, Socket socket, InputStream in, OutputStream httpOut,
+    boolean keepAlive, WebSocketHandler handler, WebSocketOptions options) throws IOException {
+
+    String version = headers.first("sec-websocket-version");
+    String key = headers.first("sec-websocket-key");
+    if (!"websocket".equalsIgnoreCase(headers.first("upgrade", "").trim())
+        || !hasToken(headers.first("connection"), "upgrade")) {
+      HttpResponses.writeText(httpOut, 426, "Upgrade Required", "WebSocket upgrade required\n", keepAlive,
+        new String[][]{{"Upgrade", "websocket"}});
+      return null;
+    }
+    if (!"13".equals(version == null ? null : version.trim())) {
+      HttpResponses.writeText(httpOut, 426, "Upgrade Required", "Unsupported WebSocket version\n", keepAlive,
+        new String[][]{{"Sec-WebSocket-Version", "13"}});
+      return null;
+    }
+    if (key == null || !validKey(key.trim())) {
+      HttpResponses.writeText(httpOut, 400, "Bad Request", "Invalid Sec-WebSocket-Key\n", keepAlive);
+      return null;
+    }
+
+    boolean deflate = options.compression() && offersDeflate(headers.all("sec-websocket-extensions"));
+    StringBuilder head = new StringBuilder(160)
+      .append("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\nSec-WebSocket-Accept: ")
+      .append(WebSocketFrames.accept(key.trim())).append("\r\n");
+    if (deflate) {
+      head.append("Sec-WebSocket-Extensions: permessage-deflate; server_no_context_takeover; client_no_context_takeover\r\n");
+    }
+    head.append("\r\n");
+    httpOut.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+    if (httpOut instanceof ConnectionOutput co) co.flushNow();
+    else httpOut.flush();
+
+    var m = RequestMetrics.get();
+    if (m != null) { m.status = 101; m.contentLength = 0; }
+
+    WebSocket ws = new WebSocket(socket, in, handler, options, deflate);
+    Thread.ofVirtual().name("ws-" + IDS.incrementAndGet()).start(ws::run);
+    return ws;
+  }
+
+  public void sendText(String text) throws IOException {
+    send(TEXT, text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public void sendBinary(byte[] data) throws IOException {
+    send(BINARY, data);
+  }
+
+  public void ping(byte[] payload) throws IOException {
+    control(PING, payload);
+  }
+
+  /** Starts the close handshake; the connection closes when the peer answers (or after a timeout). */
+  public void close(int code, String reason) throws IOException {
+    byte[] r = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+    byte[] payload = new byte[2 + Math.min(r.length, 123)];
+    payload[0] = (byte) (code >>> 8);
+    payload[1] = (byte) code;
+    System.arraycopy(r, 0, payload, 2, payload.length - 2);
+    sendLock.lock();
+    try {
+      if (closeSent) return;
+      control(CLOSE, payload);
+      closeSent = true;
+    } finally {
+      sendLock.unlock();
+    }
+    socket.setSoTimeout(CLOSE_TIMEOUT_MS);
+  }
+
+  public boolean isOpen() { return !closed && !closeSent; }
+
+  private void send(int opcode, byte[] data) throws IOException {
+    sendLock.lock();
+    try {
+      if (closeSent || closed) throw new IOException("WebSocket is closed");
+      boolean compressed = deflater != null && data.length >= COMPRESS_MIN_BYTES;
+      if (compressed) data = deflate(data);
+      int frag = options.fragmentSize();
+      int off = 0;
+      do {
+        int n = Math.min(frag, data.length - off);
+        boolean fin = off + n == data.length;
+        WebSocketFrames.write(out, fin, compressed && off == 0, off == 0 ? opcode : CONTINUATION, data, off, n);
+        off += n;
+      } while (off < data.length);
+      out.flushNow();
+    } finally {
+      sendLock.unlock();
+    }
+  }
+
+  private void control(int opcode, byte[] payload) throws IOException {
+    if (payload.length > 125) throw new IllegalArgumentException("Control payload over 125 bytes");
+    sendLock.lock();
+    try {
+      if (closeSent || closed) return;
+      WebSocketFrames.write(out, true, false, opcode, payload, 0, payload.length);
+      out.flushNow();
+    } finally {
+      sendLock.unlock();
+    }
+  }
+
+  private void run() {
+    int closeCode = 1006; // abnormal: no close frame seen
+    String closeReason = "";
+    try {
+      socket.setSoTimeout(options.pingIntervalMs());
+      handler.onOpen(this);
+
+      ByteArrayOutputStream message = null; // fragments of the message in progress
+      int messageOpcode = 0;
+      boolean messageCompressed = false;
+      boolean awaitingPong = false;
+
+      while (true) {
+        Frame f;
+        try {
+          f = WebSocketFrames.read(in, options.maxMessageBytes());
+        } catch (SocketTimeoutException idle) { // only between frames; mid-frame it is a plain IOException
+          if (closeSent || awaitingPong) break; // peer stopped answering
+          awaitingPong = true;
+          control(PING, new byte[0]);
+          continue;
+        }
+        if (f == null) break;
+        awaitingPong = false; // any frame shows the peer is alive
+
+        if (f.isControl()) { // FIN, no RSV1 and at most 125 bytes: checked by the reader
+          if (f.opcode() == PING) {
+            control(PONG, f.payload());
+          } else if (f.opcode() == CLOSE) {
+            closeCode = closeCode(f.payload());
+            closeReason = f.payload().length > 2 ? utf8(f.payload(), 2) : "";
+            if (!closeSent) close(closeCode == NO_STATUS ? NORMAL_CLOSURE : closeCode, null); // echo it
+            break;
+          } else if (f.opcode() != PONG) {
+            throw new ProtocolError(PROTOCOL_ERROR, "Unknown control opcode " + f.opcode());
+          }
+          continue;
+        }
+
+        if (f.rsv1() && (inflater == null || f.opcode() == CONTINUATION)) {
+          throw new ProtocolError(PROTOCOL_ERROR, "RSV1 set without permessage-deflate");
+        }
+        if (f.opcode() == CONTINUATION) {
+          if (message == null) throw new ProtocolError(PROTOCOL_ERROR, "Continuation without a message");
+          if (message.size() + (long) f.payload().length > options.maxMessageBytes()) {
+            throw new ProtocolError(MESSAGE_TOO_BIG, "Message over the limit");
+          }
+          message.write(f.payload());
+          if (f.fin()) {
+            deliver(messageOpcode, messageCompressed, message.toByteArray());
+            message = null;
+          }
+        } else if (f.opcode() == TEXT || f.opcode() == BINARY) {
+          if (message != null) throw new ProtocolError(PROTOCOL_ERROR, "New message before the last one ended");
+          if (f.fin()) {
+            deliver(f.opcode(), f.rsv1(), f.payload());
+          } else {
+            message = new ByteArrayOutputStream(Math.max(256, f.payload().length * 2));
+            message.write(f.payload());
+            messageOpcode = f.opcode();
+            messageCompressed = f.rsv1();
+          }
+        } else {
+          throw new ProtocolError(PROTOCOL_ERROR, "Unknown opcode " + f.opcode());
+        }
+      }
+    } catch (ProtocolError e) {
+      closeCode = e.code;
+      closeReason = e.getMessage();
+      try { close(e.code, e.getMessage()); } catch (IOException ignored) {}
+    } catch (IOException e) {
+      // connection dropped
+    } catch (RuntimeException e) {
+      closeCode = INTERNAL_ERROR;
+      closeReason = "Internal error";
+      System.err.println("[tiny-http] websocket handler failed: " + e);
+      try { close(INTERNAL_ERROR, "Internal error"); } catch (IOException ignored) {}
+    } finally {
+      shutdown();
+      handler.onClose(this, closeCode, closeReason);
+    }
+  }
+
+  private void deliver(int opcode, boolean compressed, byte[] payload) throws IOException {
+    if (compressed) payload = inflate(payload);
+    if (opcode == TEXT) handler.onText(this, utf8(payload, 0));
+    else handler.onBinary(this, payload);
+  }
+
+  private void shutdown() {
+    sendLock.lock();
+    try {
+      closed = true;
+      if (deflater != null) deflater.end();
+    } finally {
+      sendLock.unlock();
+    }
+    if (inflater != null) inflater.end();
+    try { socket.close(); } catch (IOException ignored) {}
+  }
+
+  // No context takeover: every message is a fresh raw deflate stream, sync-flushed, tail stripped
+  private byte[] deflate(byte[] data) {
+    deflater.reset();
+    deflater.setInput(data);
+    ByteArrayOutputStream packed = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+    byte[] buf = new byte[4096];
+    int n;
+    do {
+      n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+      packed.write(buf, 0, n);
+    } while (n == buf.length);
+    byte[] b = packed.toByteArray();
+    int len = b.length;
+    if (len >= 4 && b[len - 4] == 0 && b[len - 3] == 0 && b[len - 2] == (byte) 0xFF && b[len - 1] == (byte) 0xFF) len -= 4;
+    return len == b.length ? b : Arrays.copyOf(b, len);
+  }
+
+  private byte[] inflate(byte[] data) throws IOException {
+    inflater.reset();
+    inflater.setInput(data);
+    ByteArrayOutputStream plain = new ByteArrayOutputStream(Math.max(256, data.length * 3));
+    byte[] buf = new byte[8192];
+    try {
+      boolean tailFed = false;
+      while (!inflater.finished()) {
+        int n = inflater.inflate(buf);
+        if (n > 0) {
+          plain.write(buf, 0, n);
+          if (plain.size() > options.maxMessageBytes()) {
+            throw new ProtocolError(MESSAGE_TOO_BIG, "Inflated message over the limit");
+          }
+        } else if (!inflater.needsInput() || tailFed) {
+          break;
+        } else {
+          inflater.setInput(DEFLATE_TAIL); // the sync-flush marker senders strip
+          tailFed = true;
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ProtocolError(INVALID_DATA, "Bad deflate data");
+    }
+    return plain.toByteArray();
+  }
+
+  private static String utf8(byte[] b, int off) throws ProtocolError {
+    try {
+      return StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT)
+        .decode(ByteBuffer.wrap(b, off, b.length - off)).toString();
+    } catch (CharacterCodingException e) {
+      throw new ProtocolError(INVALID_DATA, "Text is not valid UTF-8");
+    }
+  }
+
+  private static int closeCode(byte[] payload) throws ProtocolError {
+    if (payload.length == 0) return NO_STATUS;
+    if (payload.length == 1) throw new ProtocolError(PROTOCOL_ERROR, "One-byte close payload");
+    int code = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+    boolean valid = (code >= 1000 && code <= 1014 && code != 1004 && code != 1005 && code != 1006)
+      || (code >= 3000 && code <= 4999);
+    if (!valid) throw new ProtocolError(PROTOCOL_ERROR, "Invalid close code " + code);
+    return code;
+  }
+
+  private static boolean hasToken(String header, String token) {
+    if (header == null) return false;
+    for (String t : header.split(",")) {
+      if (t.trim().equalsIgnoreCase(token)) return true;
+    }
+    return false;
+  }
+
+  private static boolean validKey(String key) {
+    try {
+      return Base64.getDecoder().decode(key).length == 16;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  // A permessage-deflate offer we can honour: java.util.zip always uses a 15-bit window
+  static boolean offersDeflate(List<String> extensionHeaders) {
+    if (extensionHeaders == null) return false;
+    for (String header : extensionHeaders) {
+      for (String offer : header.split(",")) {
+        String[] params = offer.split(";");
+        if (!params[0].trim().equalsIgnoreCase("permessage-deflate")) continue;
+        boolean ok = true;
+        for (int i = 1; i < params.length; i++) {
+          String p = params[i].trim().toLowerCase(Locale.ROOT);
+          if (p.startsWith("server_max_window_bits") && !p.matches("server_max_window_bits\\s*=\\s*\"?15\"?")) ok = false;
+        }
+        if (ok) return true;
+      }
+    }
+    return false;
+  }
+}
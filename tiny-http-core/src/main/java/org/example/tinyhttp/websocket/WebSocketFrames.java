@@ -0,0 +1,167 @@
+package org.example.tinyhttp.websocket;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.net.SocketTimeoutException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * RFC 6455 frame codec. Masking XORs eight bytes at a time through a long view of the payload
+ * array; only the tail (under eight bytes) goes byte by byte.
+ */
+final class WebSocketFrames {
+  private WebSocketFrames() {}
+
+  static final int CONTINUATION = 0x0;
+  static final int TEXT = 0x1;
+  static final int BINARY = 0x2;
+  static final int CLOSE = 0x8;
+  static final int PING = 0x9;
+  static final int PONG = 0xA;
+
+  static final int NORMAL_CLOSURE = 1000;
+  static final int GOING_AWAY = 1001;
+  static final int PROTOCOL_ERROR = 1002;
+  static final int NO_STATUS = 1005;
+  static final int INVALID_DATA = 1007;
+  static final int MESSAGE_TOO_BIG = 1009;
+  static final int INTERNAL_ERROR = 1011;
+
+  private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  record Frame(boolean fin, boolean rsv1, int opcode, byte[] payload) {
+    boolean isControl() { return (opcode & 0x8) != 0; }
+  }
+
+  /** A peer violation; the connection is closed with {@link #code}. */
+  static final class ProtocolError extends IOException {
+    final int code;
+
+    ProtocolError(int code, String message) {
+      super(message);
+      this.code = code;
+    }
+  }
+
+  /**
+   * Reads one frame; null on a clean EOF before its first byte. Client frames must be masked. A read
+   * timeout is only reported as {@link SocketTimeoutException} while no byte of the frame was consumed,
+   * so the caller may treat it as idle; later it is a plain {@link IOException}.
+   */
+  static Frame read(InputStream in, long maxPayload) throws IOException {
+    int b0 = in.read();
+    if (b0 < 0) return null;
+    try {
+      return readRest(in, b0, maxPayload);
+    } catch (SocketTimeoutException e) {
+      throw new IOException("Timed out mid-frame", e);
+    }
+  }
+
+  private static Frame readRest(InputStream in, int b0, long maxPayload) throws IOException {
+    int b1 = readByte(in);
+    boolean fin = (b0 & 0x80) != 0, rsv1 = (b0 & 0x40) != 0;
+    int opcode = b0 & 0x0F;
+
+    if ((b0 & 0x30) != 0) throw new ProtocolError(PROTOCOL_ERROR, "RSV2/RSV3 set without an extension");
+    if ((b1 & 0x80) == 0) throw new ProtocolError(PROTOCOL_ERROR, "Client frame not masked");
+    long len = b1 & 0x7F;
+    // control frames are checked before their payload is read
+    if ((opcode & 0x8) != 0 && (!fin || rsv1 || len > 125)) {
+      throw new ProtocolError(PROTOCOL_ERROR, "Malformed control frame");
+    }
+    if (len == 126) {
+      len = (readByte(in) << 8) | readByte(in);
+    } else if (len == 127) {
+      len = 0;
+      for (int i = 0; i < 8; i++) len = (len << 8) | readByte(in);
+      if (len < 0) throw new ProtocolError(PROTOCOL_ERROR, "Frame length has the high bit set");
+    }
+    if (len > maxPayload) throw new ProtocolError(MESSAGE_TOO_BIG, "Frame of " + len + " bytes over the limit");
+
+    int key = (readByte(in) << 24) | (readByte(in) << 16) | (readByte(in) << 8) | readByte(in);
+    byte[] payload = in.readNBytes((int) len);
+    if (payload.length < len) throw new EOFException("Connection closed mid-frame");
+    mask(payload, 0, payload.length, key);
+    return new Frame(fin, rsv1, opcode, payload);
+  }
+
+  /** Writes one unmasked (server) frame: the header goes into the buffer, the payload follows uncopied. */
+  static void write(OutputStream out, boolean fin, boolean rsv1, int opcode, byte[] b, int off, int len)
+    throws IOException {
+
+    byte[] head = new byte[10];
+    int n = header(head, fin, rsv1, opcode, len, false);
+    out.write(head, 0, n);
+    out.write(b, off, len);
+  }
+
+  /** Writes one masked frame, as a client would. */
+  static void writeMasked(OutputStream out, boolean fin, boolean rsv1, int opcode, byte[] b, int off, int len, int key)
+    throws IOException {
+
+    byte[] head = new byte[14];
+    int n = header(head, fin, rsv1, opcode, len, true);
+    head[n++] = (byte) (key >>> 24);
+    head[n++] = (byte) (key >>> 16);
+    head[n++] = (byte) (key >>> 8);
+    head[n++] = (byte) key;
+    byte[] masked = new byte[len];
+    System.arraycopy(b, off, masked, 0, len);
+    mask(masked, 0, len, key);
+    out.write(head, 0, n);
+    out.write(masked);
+  }
+
+  private static int header(byte[] head, boolean fin, boolean rsv1, int opcode, int len, boolean masked) {
+    head[0] = (byte) ((fin ? 0x80 : 0) | (rsv1 ? 0x40 : 0) | opcode);
+    int maskBit = masked ? 0x80 : 0;
+    if (len < 126) {
+      head[1] = (byte) (maskBit | len);
+      return 2;
+    }
+    if (len <= 0xFFFF) {
+      head[1] = (byte) (maskBit | 126);
+      head[2] = (byte) (len >>> 8);
+      head[3] = (byte) len;
+      return 4;
+    }
+    head[1] = (byte) (maskBit | 127);
+    for (int i = 0; i < 8; i++) head[2 + i] = (byte) ((long) len >>> (56 - 8 * i));
+    return 10;
+  }
+
+  /** XORs {@code b[off..off+len)} with the 4-byte key (big-endian int), starting at key byte 0. */
+  static void mask(byte[] b, int off, int len, int key) {
+    long wide = ((key & 0xFFFFFFFFL) << 32) | (key & 0xFFFFFFFFL);
+    int i = off;
+    int end = off + len;
+    for (; i + 8 <= end; i += 8) LONGS.set(b, i, (long) LONGS.get(b, i) ^ wide);
+    for (; i < end; i++) b[i] ^= (byte) (key >>> (24 - 8 * ((i - off) & 3)));
+  }
+
+  /** Sec-WebSocket-Accept for a client key. */
+  static String accept(String key) {
+    try {
+      byte[] sha1 = MessageDigest.getInstance("SHA-1").digest((key + GUID).getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(sha1);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 unavailable", e); // mandated by the JDK spec
+    }
+  }
+
+  private static int readByte(InputStream in) throws IOException {
+    int b = in.read();
+    if (b < 0) throw new EOFException("Connection closed mid-frame");
+    return b;
+  }
+}
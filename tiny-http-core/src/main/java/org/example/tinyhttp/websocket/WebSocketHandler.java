@@ -0,0 +1,20 @@
+package org.example.tinyhttp.websocket;
+
+import java.io.IOException;
+
+/**
+ * Callbacks for one WebSocket connection, all made on that connection's reader thread. Messages
+ * arrive whole: fragments are joined and permessage-deflate is undone before they are delivered.
+ */
+public interface WebSocketHandler {
+  default void onOpen(WebSocket ws) throws IOException {}
+
+  void onText(WebSocket ws, String text) throws IOException;
+
+  default void onBinary(WebSocket ws, byte[] data) throws IOException {
+    ws.close(1003, "Binary messages not accepted");
+  }
+
+  /** The connection is gone; {@code code} is the peer's close code, or 1006 when it just dropped. */
+  default void onClose(WebSocket ws, int code, String reason) {}
+}
@@ -0,0 +1,50 @@
+package org.example.tinyhttp.websocket;
+
+/**
+ * Per-route WebSocket limits. {@code pingIntervalMs} is also the idle read timeout: a connection
+ * silent for one interval gets a ping, and is closed if the next interval passes without traffic.
+ */
+public final class WebSocketOptions {
+  private final long maxMessageBytes;
+  private final int pingIntervalMs;
+  private final int fragmentSize;
+  private final boolean compression;
+
+  private WebSocketOptions(long maxMessageBytes, int pingIntervalMs, int fragmentSize, boolean compression) {
+    if (maxMessageBytes < 1 || maxMessageBytes > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("maxMessageBytes out of range: " + maxMessageBytes);
+    }
+    if (pingIntervalMs < 1) throw new IllegalArgumentException("pingIntervalMs must be positive: " + pingIntervalMs);
+    if (fragmentSize < 1) throw new IllegalArgumentException("fragmentSize must be positive: " + fragmentSize);
+    this.maxMessageBytes = maxMessageBytes;
+    this.pingIntervalMs = pingIntervalMs;
+    this.fragmentSize = fragmentSize;
+    this.compression = compression;
+  }
+
+  /** 1 MiB messages, 30 s ping interval, 64 KiB outgoing fragments, permessage-deflate when offered. */
+  public static WebSocketOptions defaults() {
+    return new WebSocketOptions(1 << 20, 30_000, 64 * 1024, true);
+  }
+
+  public WebSocketOptions withMaxMessageBytes(long bytes) {
+    return new WebSocketOptions(bytes, pingIntervalMs, fragmentSize, compression);
+  }
+
+  public WebSocketOptions withPingIntervalMs(int ms) {
+    return new WebSocketOptions(maxMessageBytes, ms, fragmentSize, compression);
+  }
+
+  public WebSocketOptions withFragmentSize(int bytes) {
+    return new WebSocketOptions(maxMessageBytes, pingIntervalMs, bytes, compression);
+  }
+
+  public WebSocketOptions withCompression(boolean on) {
+    return new WebSocketOptions(maxMessageBytes, pingIntervalMs, fragmentSize, on);
+  }
+
+  public long maxMessageBytes() { return maxMessageBytes; }
+  public int pingIntervalMs() { return pingIntervalMs; }
+  public int fragmentSize() { return fragmentSize; }
+  public boolean compression() { return compression; }
+}
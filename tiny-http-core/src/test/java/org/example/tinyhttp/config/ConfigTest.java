@@ -0,0 +1,78 @@
+package org.example.tinyhttp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ConfigTest {
+
+  @AfterEach
+  void clearProperties() {
+    System.clearProperty("tiny.compressionCacheBytes");
+    System.clearProperty("tiny.staticCacheBytes");
+    System.clearProperty("tiny.socketSendBuffer");
+    System.clearProperty("tiny.socketReceiveBuffer");
+    System.clearProperty("tiny.socketLingerSeconds");
+    System.clearProperty("tiny.writeBufferSize");
+  }
+
+  //#region Byte budgets
+  @Test
+  void testLoad_byteBudgets() {
+    System.setProperty("tiny.compressionCacheBytes", "0");
+    System.setProperty("tiny.staticCacheBytes", "1048576");
+    Config c = Config.load(new String[0]);
+    assertEquals(0, c.compressionCacheBytes);
+    assertEquals(1 << 20, c.staticCacheBytes);
+  }
+
+  @Test
+  void testLoad_negativeBudgetFailsNamingTheSetting() {
+    System.setProperty("tiny.compressionCacheBytes", "-1");
+    var e = assertThrows(IllegalArgumentException.class, () -> Config.load(new String[0]));
+    assertTrue(e.getMessage().contains("COMPRESSION_CACHE_BYTES"), e.getMessage());
+  }
+
+  @Test
+  void testLoad_malformedBudgetFailsNamingTheSetting() {
+    System.setProperty("tiny.staticCacheBytes", "64MB");
+    var e = assertThrows(IllegalArgumentException.class, () -> Config.load(new String[0]));
+    assertTrue(e.getMessage().contains("STATIC_CACHE_BYTES"), e.getMessage());
+  }
+  //#endregion
+
+  //#region Socket options
+  @Test
+  void testLoad_socketOptions() {
+    System.setProperty("tiny.socketSendBuffer", "65536");
+    System.setProperty("tiny.socketReceiveBuffer", "131072");
+    System.setProperty("tiny.socketLingerSeconds", "0");
+    System.setProperty("tiny.writeBufferSize", "16384");
+    Config c = Config.load(new String[0]);
+    assertEquals(65536, c.socketSendBuffer);
+    assertEquals(131072, c.socketReceiveBuffer);
+    assertEquals(0, c.socketLingerSeconds);
+    assertEquals(16384, c.writeBufferSize);
+  }
+
+  @Test
+  void testLoad_badSocketOptionsFailNamingTheSetting() {
+    String[][] bad = {
+      {"tiny.socketSendBuffer", "-1", "SO_SNDBUF"},
+      {"tiny.socketReceiveBuffer", "3000000000", "SO_RCVBUF"},
+      {"tiny.socketLingerSeconds", "-2", "SO_LINGER_SECONDS"},
+      {"tiny.socketLingerSeconds", "70000", "SO_LINGER_SECONDS"},
+      {"tiny.writeBufferSize", "0", "WRITE_BUFFER_SIZE"},
+      {"tiny.writeBufferSize", "8k", "WRITE_BUFFER_SIZE"},
+    };
+    for (String[] b : bad) {
+      System.setProperty(b[0], b[1]);
+      var e = assertThrows(IllegalArgumentException.class, () -> Config.load(new String[0]), b[0] + "=" + b[1]);
+      assertTrue(e.getMessage().contains(b[2]), e.getMessage());
+      System.clearProperty(b[0]);
+    }
+  }
+  //#endregion
+}
@@ -0,0 +1,81 @@
+package org.example.tinyhttp.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.example.tinyhttp.http.response.PreparedResponse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StaticFileCacheTest {
+
+  @TempDir
+  Path dir;
+
+  private static StaticFileCache.Entry entry(Path file, int size) {
+    return new StaticFileCache.Entry(file, PreparedResponse.of(200, "OK", "text/plain", new byte[size], null));
+  }
+
+  @Test
+  void testHitsAndMisses() {
+    StaticFileCache cache = new StaticFileCache(1000, 100);
+    assertNull(cache.get("a"));
+    cache.put("a", entry(dir.resolve("a"), 10), cache.generation());
+    assertNotNull(cache.get("a"));
+
+    assertEquals(1, cache.hits());
+    assertEquals(1, cache.misses());
+    assertEquals(0.5, cache.hitRate());
+  }
+
+  @Test
+  void testBudget_evictsLeastRecentlyUsed() {
+    StaticFileCache cache = new StaticFileCache(250, 100);
+    cache.put("a", entry(dir.resolve("a"), 100), cache.generation());
+    cache.put("b", entry(dir.resolve("b"), 100), cache.generation());
+    cache.get("a");
+    cache.put("c", entry(dir.resolve("c"), 100), cache.generation());
+
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("a"));
+    assertEquals(200, cache.storedBytes());
+    assertEquals(1, cache.evictions());
+  }
+
+  @Test
+  void testInvalidate_dropsPathAndChildren_andRacingLoads() {
+    StaticFileCache cache = new StaticFileCache(1000, 100);
+    cache.put("x", entry(dir.resolve("css/a.css"), 10), cache.generation());
+    cache.put("y", entry(dir.resolve("b.css"), 10), cache.generation());
+    long loadedAt = cache.generation();
+
+    cache.invalidate(dir.resolve("css"));
+    cache.put("z", entry(dir.resolve("c.css"), 10), loadedAt); // loaded before the invalidation
+
+    assertNull(cache.get("x"));
+    assertNull(cache.get("z"));
+    assertNotNull(cache.get("y"));
+  }
+
+  @Test
+  void testWatch_invalidatesChangedFile() throws Exception {
+    Path root = dir.toRealPath();
+    Path file = Files.writeString(root.resolve("a.txt"), "one");
+    try (StaticFileCache cache = new StaticFileCache(1000, 100)) {
+      cache.watch(root);
+      cache.put("a", entry(file, 3), cache.generation());
+
+      Files.writeString(file, "two");
+      long deadline = System.currentTimeMillis() + 10_000;
+      while (cache.size() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(20);
+
+      assertEquals(0, cache.size());
+      assertTrue(cache.invalidations() >= 1);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package org.example.tinyhttp.files;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class StaticFileHandlerTest {
+
+  @TempDir
+  Path dir;
+
+  private Path root;
+  private StaticFileHandler handler;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    root = Files.createDirectories(dir.resolve("public"));
+    Files.writeString(root.resolve("index.html"), "<h1>hi</h1>");
+    Files.createDirectories(root.resolve("css"));
+    Files.writeString(root.resolve("css/site.css"), "body{}");
+    Files.writeString(dir.resolve("secret.txt"), "nope");
+    handler = new StaticFileHandler(root);
+  }
+
+  //#region resolve
+  @Test
+  void testResolve_fileAndIndex() throws IOException {
+    assertEquals(root.toRealPath().resolve("css/site.css"), handler.resolve("css/site.css"));
+    assertEquals(root.toRealPath().resolve("index.html"), handler.resolve(""));
+  }
+
+  @Test
+  void testResolve_traversalRejected() throws IOException {
+    assertNull(handler.resolve("../secret.txt"));
+    assertNull(handler.resolve("%2e%2e/secret.txt"));
+    assertNull(handler.resolve("css/..%2f..%2fsecret.txt"));
+    assertNull(handler.resolve("..\\secret.txt"));
+    assertNull(handler.resolve("a%00b"));
+    assertNull(handler.resolve("%zz"));
+  }
+
+  @Test
+  void testResolve_missingAndDirectoryWithoutIndex() throws IOException {
+    assertNull(handler.resolve("nope.css"));
+    assertNull(handler.resolve("css"));
+  }
+
+  @Test
+  void testResolve_symlinkOutsideRootRejected() throws IOException {
+    try {
+      Files.createSymbolicLink(root.resolve("leak.txt"), dir.resolve("secret.txt"));
+    } catch (UnsupportedOperationException | IOException e) {
+      return; // no symlinks on this filesystem
+    }
+    assertNull(handler.resolve("leak.txt"));
+  }
+  //#endregion
+
+  //#region mime
+  @Test
+  void testMimeTypes() {
+    assertEquals("text/css; charset=utf-8", MimeTypes.forFileName("a.CSS"));
+    assertEquals("image/png", MimeTypes.forFileName("logo.png"));
+    assertEquals(MimeTypes.DEFAULT, MimeTypes.forFileName("Makefile"));
+    assertEquals(MimeTypes.DEFAULT, MimeTypes.forFileName("archive."));
+  }
+  //#endregion
+}
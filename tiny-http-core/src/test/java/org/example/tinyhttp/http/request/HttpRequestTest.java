@@ -2,10 +2,12 @@ package org.example.tinyhttp.http.request;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.example.tinyhttp.http.HttpExceptions;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -540,6 +542,85 @@ public class HttpRequestTest {
   }
   //#endregion
 
+  //#region Deferred body and Expect: 100-continue tests
+  @Test
+  void testParseHead_leavesBodyUnread() throws IOException {
+    String request = """
+                     POST /upload HTTP/1.1\r
+                     Host: example.com\r
+                     Content-Length: 5\r
+                     \r
+                     hello""";
+    BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(request.getBytes()));
+
+    HttpRequest req = HttpRequest.parseHead(in);
+    assertTrue(req.bodyPending());
+    assertEquals(5, req.bodyLength());
+    assertEquals(5, in.available()); // still on the wire
+    assertEquals("hello", new String(req.getBody()));
+    assertFalse(req.bodyPending());
+  }
+
+  @Test
+  void testReadBody_sendsContinueFirst() throws IOException {
+    String request = """
+                     PUT /upload HTTP/1.1\r
+                     Host: example.com\r
+                     Expect: 100-continue\r
+                     Content-Length: 3\r
+                     \r
+                     abc""";
+    BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(request.getBytes()));
+    ByteArrayOutputStream interim = new ByteArrayOutputStream();
+
+    HttpRequest req = HttpRequest.parseHead(in);
+    req.continueTo(interim);
+    assertTrue(req.expectsContinue());
+    assertEquals(0, interim.size()); // nothing until the body is wanted
+    assertEquals("abc", new String(req.readBody()));
+    assertEquals("HTTP/1.1 100 Continue\r\n\r\n", interim.toString());
+  }
+
+  @Test
+  void testParseHead_noBodyNeedsNoContinue() throws IOException {
+    String request = """
+                     GET /hello HTTP/1.1\r
+                     Host: example.com\r
+                     Expect: 100-continue\r
+                     \r
+                     """;
+    HttpRequest req = HttpRequest.parseHead(new BufferedInputStream(new ByteArrayInputStream(request.getBytes())));
+    assertFalse(req.bodyPending());
+    assertFalse(req.expectsContinue());
+    assertEquals(0, req.getBody().length);
+  }
+
+  @Test
+  void testParseHead_oversizedContentLengthIsPayloadTooLarge() {
+    String request = """
+                     POST /upload HTTP/1.1\r
+                     Host: example.com\r
+                     Content-Length: 2000000\r
+                     \r
+                     """;
+    BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(request.getBytes()));
+    assertThrows(HttpExceptions.PayloadTooLarge.class, () -> HttpRequest.parseHead(in));
+  }
+
+  @Test
+  void testParseHead_unknownExpectation() {
+    String request = """
+                     POST /upload HTTP/1.1\r
+                     Host: example.com\r
+                     Expect: teapot\r
+                     Content-Length: 1\r
+                     \r
+                     x""";
+    BufferedInputStream in = new BufferedInputStream(new ByteArrayInputStream(request.getBytes()));
+    assertThrows(HttpExceptions.ExpectationFailed.class, () -> HttpRequest.parseHead(in));
+  }
+  //#endregion
+
   //#region Header parsing edge cases
   @Test
   void testParse_headerLineTooLarge() {
@@ -0,0 +1,162 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ByteRangesTest {
+
+  @AfterEach
+  void clearMetrics() {
+    RequestMetrics.clear();
+  }
+
+  private static RequestMetrics request(String range) {
+    var m = new RequestMetrics("r", "GET", "/", "test", System.nanoTime());
+    m.range = range;
+    RequestMetrics.set(m);
+    return m;
+  }
+
+  private static String text(String body) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeText(out, 200, "OK", body, true);
+    return out.toString(StandardCharsets.US_ASCII);
+  }
+
+  //#region Parsing
+  @Test
+  void testParse_forms() {
+    assertArrayEquals(new long[][]{{0, 9}}, ByteRanges.parse("bytes=0-9", 100));
+    assertArrayEquals(new long[][]{{90, 99}}, ByteRanges.parse("bytes=90-", 100));
+    assertArrayEquals(new long[][]{{80, 99}}, ByteRanges.parse("bytes=-20", 100));
+    assertArrayEquals(new long[][]{{0, 99}}, ByteRanges.parse("bytes=-500", 100));
+    assertArrayEquals(new long[][]{{50, 99}}, ByteRanges.parse("bytes=50-1000", 100));
+  }
+
+  @Test
+  void testParse_coalescesOverlapsAndSorts() {
+    assertArrayEquals(new long[][]{{0, 20}, {50, 59}}, ByteRanges.parse("bytes=50-59, 10-20, 0-9, 5-15", 100));
+  }
+
+  @Test
+  void testParse_malformedIsIgnored_outOfRangeIsUnsatisfiable() {
+    assertNull(ByteRanges.parse("items=0-1", 100));
+    assertNull(ByteRanges.parse("bytes=5-1", 100));
+    assertNull(ByteRanges.parse("bytes=a-b", 100));
+    assertEquals(0, ByteRanges.parse("bytes=100-200", 100).length);
+    assertEquals(0, ByteRanges.parse("bytes=-0", 100).length);
+  }
+
+  @Test
+  void testParse_onlyPlainDigits() {
+    assertNull(ByteRanges.parse("bytes=+0-+5", 100));
+    assertNull(ByteRanges.parse("bytes=0-+5", 100));
+    assertNull(ByteRanges.parse("bytes=-+5", 100));
+    assertNull(ByteRanges.parse("bytes=0 -5", 100));
+    assertNull(ByteRanges.parse("bytes=0-99999999999999999999", 100)); // past a long
+    assertArrayEquals(new long[]{0, 5}, ByteRanges.parse("bytes=0-5", 100)[0]);
+  }
+
+  @Test
+  void testSignedRange_servesWholeBody() throws IOException {
+    request("bytes=+0-+1");
+    String r = text("abc");
+    assertTrue(r.startsWith("HTTP/1.1 200 OK\r\n"), r);
+    assertTrue(r.endsWith("\r\n\r\nabc"));
+  }
+
+  @Test
+  void testParse_tooManyRangesIgnored() {
+    StringBuilder sb = new StringBuilder("bytes=0-0");
+    for (int i = 1; i <= ByteRanges.MAX_RANGES; i++) sb.append(',').append(i * 2).append('-').append(i * 2);
+    assertNull(ByteRanges.parse(sb.toString(), 1000));
+  }
+
+  @Test
+  void testIfRange_strongEtagOrExactDate() {
+    String date = "Sun, 06 Nov 1994 08:49:37 GMT";
+    assertTrue(ByteRanges.ifRangeMatches("\"v1\"", "\"v1\"", null));
+    assertFalse(ByteRanges.ifRangeMatches("W/\"v1\"", "W/\"v1\"", null));
+    assertTrue(ByteRanges.ifRangeMatches(date, null, date));
+    assertFalse(ByteRanges.ifRangeMatches("Sun, 06 Nov 1994 08:49:38 GMT", null, date));
+  }
+  //#endregion
+
+  //#region Responses
+  @Test
+  void testSingleRange_is206WithContentRange() throws IOException {
+    request("bytes=2-4");
+    String r = text("abcdefgh");
+    assertTrue(r.startsWith("HTTP/1.1 206 Partial Content\r\n"), r);
+    assertTrue(r.contains("Content-Length: 3\r\n"));
+    assertTrue(r.contains("Content-Range: bytes 2-4/8\r\n"));
+    assertTrue(r.endsWith("\r\n\r\ncde"));
+    assertEquals(206, RequestMetrics.get().status);
+  }
+
+  @Test
+  void testMultiRange_isMultipartByteranges() throws IOException {
+    request("bytes=0-1,6-7");
+    String r = text("abcdefgh");
+    int at = r.indexOf("boundary=") + 9;
+    String boundary = r.substring(at, r.indexOf("\r\n", at));
+    String body = r.substring(r.indexOf("\r\n\r\n") + 4);
+
+    assertTrue(r.startsWith("HTTP/1.1 206 Partial Content\r\n"), r);
+    assertTrue(r.contains("Content-Type: multipart/byteranges; boundary=" + boundary + "\r\n"));
+    assertTrue(r.contains("Content-Length: " + body.length() + "\r\n"));
+    assertTrue(body.contains("Content-Range: bytes 0-1/8\r\n\r\nab\r\n--" + boundary));
+    assertTrue(body.contains("Content-Range: bytes 6-7/8\r\n\r\ngh\r\n--" + boundary + "--\r\n"));
+  }
+
+  @Test
+  void testUnsatisfiable_is416() throws IOException {
+    request("bytes=50-");
+    String r = text("abc");
+    assertTrue(r.startsWith("HTTP/1.1 416 Range Not Satisfiable\r\n"), r);
+    assertTrue(r.contains("Content-Range: bytes */3\r\n"));
+    assertTrue(r.contains("Content-Length: 0\r\n"));
+  }
+
+  @Test
+  void testIfRangeMismatch_sendsWholeBody() throws IOException {
+    request("bytes=0-0").ifRange = "\"stale\"";
+    assertTrue(text("abc").startsWith("HTTP/1.1 200 OK\r\n"));
+  }
+
+  @Test
+  void testRangeIgnored_forHeadAndErrors() throws IOException {
+    request("bytes=0-0").method = "HEAD";
+    assertTrue(text("abc").startsWith("HTTP/1.1 200 OK\r\n"));
+
+    request("bytes=0-0");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeText(out, 404, "Not Found", "abc", true);
+    assertTrue(out.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 404"));
+  }
+
+  @Test
+  void testSized_sourceGetsOnlyTheRange() throws IOException {
+    request("bytes=10-19");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long[] asked = new long[2];
+    HttpResponses.writeSized(out, "application/octet-stream", 1000, true, null, (o, start, count) -> {
+      asked[0] = start;
+      asked[1] = count;
+      o.write(new byte[(int) count]);
+    });
+    assertArrayEquals(new long[]{10, 10}, asked);
+    assertTrue(out.toString(StandardCharsets.US_ASCII).contains("Content-Range: bytes 10-19/1000\r\n"));
+  }
+  //#endregion
+}
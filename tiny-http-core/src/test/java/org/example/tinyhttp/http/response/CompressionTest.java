@@ -0,0 +1,240 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class CompressionTest {
+
+  private final Compression compression = new Compression(6, 100, 2);
+
+  @AfterEach
+  void clearMetrics() {
+    RequestMetrics.clear();
+  }
+
+  private void negotiated(String encoding) {
+    var m = new RequestMetrics("r", "GET", "/", "test", System.nanoTime());
+    m.compression = compression;
+    m.contentEncoding = encoding;
+    RequestMetrics.set(m);
+  }
+
+  private static byte[] json(int rows) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < rows; i++) sb.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"user\"}");
+    return sb.append(']').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bodyOf(byte[] response) {
+    String s = new String(response, StandardCharsets.ISO_8859_1);
+    int at = s.indexOf("\r\n\r\n") + 4;
+    byte[] body = new byte[response.length - at];
+    System.arraycopy(response, at, body, 0, body.length);
+    return body;
+  }
+
+  // Minimal chunked decoder for the tests
+  private static byte[] dechunk(byte[] body) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int i = 0;
+    while (true) {
+      int lineEnd = i;
+      while (body[lineEnd] != '\r') lineEnd++;
+      int size = Integer.parseInt(new String(body, i, lineEnd - i, StandardCharsets.US_ASCII), 16);
+      if (size == 0) return out.toByteArray();
+      out.write(body, lineEnd + 2, size);
+      i = lineEnd + 2 + size + 2;
+    }
+  }
+
+  //#region Negotiation
+  @Test
+  void testNegotiate() {
+    assertEquals("gzip", Compression.negotiate("gzip, deflate, br"));
+    assertEquals("deflate", Compression.negotiate("deflate"));
+    assertEquals("deflate", Compression.negotiate("gzip;q=0.5, deflate"));
+    assertEquals("deflate", Compression.negotiate("gzip;q=0, *"));
+    assertEquals("gzip", Compression.negotiate("*"));
+    assertNull(Compression.negotiate("br"));
+    assertNull(Compression.negotiate("gzip;q=0"));
+    assertNull(Compression.negotiate(null));
+  }
+
+  @Test
+  void testCompressibleTypes() {
+    assertTrue(Compression.compressible("application/json; charset=utf-8"));
+    assertTrue(Compression.compressible("text/html"));
+    assertTrue(Compression.compressible("application/problem+json"));
+    assertFalse(Compression.compressible("image/png"));
+    assertFalse(Compression.compressible(null));
+  }
+
+  @Test
+  void testLevelMustBeValid() {
+    assertThrows(IllegalArgumentException.class, () -> new Compression(0, 0, 1));
+  }
+  //#endregion
+
+  //#region Encoding
+  @Test
+  void testGzip_roundTrip() throws IOException {
+    byte[] body = json(200);
+    byte[] packed = compression.compress("gzip", body, 0, body.length);
+    assertTrue(packed.length < body.length / 4);
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(packed)).readAllBytes());
+
+    // second use comes from the pool and must start clean
+    byte[] again = compression.compress("gzip", body, 0, body.length);
+    assertArrayEquals(packed, again);
+  }
+
+  @Test
+  void testDeflate_roundTrip() throws IOException {
+    byte[] body = json(200);
+    byte[] packed = compression.compress("deflate", body, 0, body.length);
+    assertArrayEquals(body, new InflaterInputStream(new ByteArrayInputStream(packed)).readAllBytes());
+  }
+  //#endregion
+
+  //#region Responses
+  @Test
+  void testFixedLength_compressedAboveThreshold() throws IOException {
+    negotiated("gzip");
+    byte[] body = json(200);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeRaw(out, 200, "OK", "application/json", body, true, null);
+
+    String head = out.toString(StandardCharsets.ISO_8859_1);
+    head = head.substring(0, head.indexOf("\r\n\r\n"));
+    assertTrue(head.contains("Content-Encoding: gzip\r\nVary: Accept-Encoding"), head);
+    byte[] sent = bodyOf(out.toByteArray());
+    assertTrue(head.contains("Content-Length: " + sent.length));
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(sent)).readAllBytes());
+  }
+
+  @Test
+  void testFixedLength_belowThresholdOrWrongType_sentAsIs() throws IOException {
+    negotiated("gzip");
+    ByteArrayOutputStream small = new ByteArrayOutputStream();
+    HttpResponses.writeText(small, 200, "OK", "tiny", true);
+    String s = small.toString(StandardCharsets.US_ASCII);
+    assertFalse(s.contains("Content-Encoding"));
+    assertTrue(s.contains("Vary: Accept-Encoding"), "representation still depends on Accept-Encoding");
+
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    HttpResponses.writeRaw(png, 200, "OK", "image/png", new byte[4096], true, null);
+    String p = png.toString(StandardCharsets.ISO_8859_1);
+    assertFalse(p.contains("Content-Encoding"));
+    assertFalse(p.contains("Vary"));
+  }
+
+  @Test
+  void testStreaming_chunkedBodyCompressedOnTheFly() throws IOException {
+    negotiated("gzip");
+    byte[] body = json(2000);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ResponseStream s = new ResponseStream(out, 200, "OK", "application/json", true, null, 1024)) {
+      for (int i = 0; i < body.length; i += 700) s.write(body, i, Math.min(700, body.length - i));
+    }
+
+    String head = out.toString(StandardCharsets.ISO_8859_1);
+    assertTrue(head.contains("Transfer-Encoding: chunked\r\nContent-Encoding: gzip\r\n"));
+    byte[] gz = dechunk(bodyOf(out.toByteArray()));
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(gz)).readAllBytes());
+  }
+
+  @Test
+  void testStreaming_identityWhenNotNegotiated() throws IOException {
+    negotiated(null);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ResponseStream s = new ResponseStream(out, 200, "OK", "application/json", true, null, 16)) {
+      s.write(json(20));
+    }
+    assertArrayEquals(json(20), dechunk(bodyOf(out.toByteArray())));
+  }
+  //#endregion
+
+  //#region Cache
+  @Test
+  void testCompressCached_compressesOncePerContent() throws IOException {
+    Compression cached = new Compression(6, 100, 2, 1 << 20);
+    byte[] body = json(200);
+    byte[] digest = Compression.digest(body);
+
+    byte[] first = cached.compressCached("gzip", digest, body);
+    byte[] second = cached.compressCached("gzip", digest, body.clone());
+    assertTrue(first == second, "second lookup must be served from the cache");
+    assertEquals(1, cached.cache().hits());
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(second)).readAllBytes());
+
+    assertNull(cached.compressCached("gzip", Compression.digest(new byte[10]), new byte[10]), "below threshold");
+  }
+
+  @Test
+  void testCache_evictsLeastRecentlyUsedOverBudget() {
+    CompressedCache cache = new CompressedCache(100);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.get("a");                 // a is now most recent
+    cache.put("c", new byte[40]);   // over budget: b goes
+
+    assertEquals(2, cache.size());
+    assertEquals(80, cache.storedBytes());
+    assertNull(cache.get("b"));
+    assertTrue(cache.get("a") != null && cache.get("c") != null);
+
+    cache.put("huge", new byte[101]); // never fits, never stored
+    assertNull(cache.get("huge"));
+  }
+
+  @Test
+  void testPreparedResponse_servedFromCompressedCache() throws IOException {
+    var m = new RequestMetrics("r", "GET", "/", "test", System.nanoTime());
+    m.compression = new Compression(6, 100, 2, 1 << 20);
+    m.contentEncoding = "gzip";
+    RequestMetrics.set(m);
+
+    byte[] body = json(200);
+    PreparedResponse r = PreparedResponse.of(200, "OK", "application/json", body, null);
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    r.writeTo(first, true);
+    r.writeTo(second, true);
+
+    assertEquals(1, m.compression.cache().hits());
+    byte[] sent = bodyOf(second.toByteArray());
+    assertTrue(second.toString(StandardCharsets.ISO_8859_1).contains("Content-Length: " + sent.length + "\r\n"));
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(sent)).readAllBytes());
+  }
+
+  @Test
+  void testCompressCached_keyedByTheCallersDigest() throws IOException {
+    Compression c = new Compression(6, 100, 2, 1 << 20);
+    byte[] body = json(200);
+    byte[] digest = Compression.digest(body);
+    c.compressCached("gzip", digest, body);
+    // same digest: the cached variant comes back, the (changed) body is neither hashed nor recompressed
+    byte[] again = c.compressCached("gzip", digest, () -> { throw new AssertionError("body loaded on a hit"); });
+
+    assertArrayEquals(body, new GZIPInputStream(new ByteArrayInputStream(again)).readAllBytes());
+    var stats = c.cacheStats();
+    assertEquals(1L, stats.get("hits"));
+    assertEquals(1L, stats.get("misses"));
+    assertEquals(0.5, stats.get("hitRate"));
+  }
+  //#endregion
+}
@@ -0,0 +1,42 @@
+package org.example.tinyhttp.http.response;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class DateHeaderTest {
+
+  @Test
+  void testValue_isCurrentRfc1123() {
+    Instant parsed = ZonedDateTime.parse(DateHeader.value(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+    assertTrue(Duration.between(parsed, Instant.now()).abs().getSeconds() <= 2);
+  }
+
+  @Test
+  void testLine_isPreEncodedHeader() {
+    String line = new String(DateHeader.line(), StandardCharsets.US_ASCII);
+    assertTrue(line.startsWith("Date: "));
+    assertTrue(line.endsWith("\r\n"));
+  }
+
+  @Test
+  void testLine_reusedWithinSameSecond() {
+    // Retry in case the first pair straddles a second boundary
+    for (int i = 0; i < 3; i++) {
+      byte[] a = DateHeader.line();
+      byte[] b = DateHeader.line();
+      if (a == b) {
+        assertSame(a, b);
+        return;
+      }
+    }
+    assertEquals("same array", "fresh array every call");
+  }
+}
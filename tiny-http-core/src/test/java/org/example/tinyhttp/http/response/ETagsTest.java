@@ -0,0 +1,151 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.example.tinyhttp.routing.ConditionalHandler;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ETagsTest {
+
+  @AfterEach
+  void clearMetrics() {
+    RequestMetrics.clear();
+  }
+
+  private static RequestMetrics request(String method) {
+    var m = new RequestMetrics("r", method, "/", "test", System.nanoTime());
+    RequestMetrics.set(m);
+    return m;
+  }
+
+  private static String etagOf(String response) {
+    int at = response.indexOf("ETag: ") + 6;
+    return response.substring(at, response.indexOf("\r\n", at));
+  }
+
+  //#region Validators
+  @Test
+  void testWeak_stableAndContentSensitive() {
+    byte[] a = "hello".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(ETags.weak(a, 0, a.length), ETags.weak(a.clone(), 0, a.length));
+    assertTrue(ETags.weak(a, 0, a.length).startsWith("W/\"5-"));
+    assertFalse(ETags.weak(a, 0, a.length).equals(ETags.weak(a, 0, 4)));
+  }
+
+  @Test
+  void testMatches_weakComparisonAndLists() {
+    assertTrue(ETags.matches("\"v1\"", "W/\"v1\""));
+    assertTrue(ETags.matches("W/\"x\", \"v1\"", "\"v1\""));
+    assertTrue(ETags.matches("*", "\"anything\""));
+    assertFalse(ETags.matches("\"v2\"", "\"v1\""));
+    assertFalse(ETags.matches(null, "\"v1\""));
+  }
+
+  @Test
+  void testStrong_rejectsQuotes() {
+    assertEquals("\"42\"", ETags.strong("42"));
+    assertThrows(IllegalArgumentException.class, () -> ETags.strong("a\"b"));
+  }
+  //#endregion
+
+  //#region Conditional responses
+  @Test
+  void testIfNoneMatch_answers304WithoutBody() throws IOException {
+    request("GET");
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    HttpResponses.writeText(first, 200, "OK", "payload", true);
+    String etag = etagOf(first.toString(StandardCharsets.US_ASCII));
+
+    request("GET").ifNoneMatch = etag;
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    HttpResponses.writeText(second, 200, "OK", "payload", true);
+
+    String r = second.toString(StandardCharsets.US_ASCII);
+    assertTrue(r.startsWith("HTTP/1.1 304 Not Modified\r\n"), r);
+    assertTrue(r.contains("ETag: " + etag + "\r\n"));
+    assertFalse(r.contains("Content-Length"));
+    assertTrue(r.endsWith("\r\n\r\n"));
+    assertEquals(304, RequestMetrics.get().status);
+  }
+
+  @Test
+  void testNoValidation_forPostOrErrors() throws IOException {
+    request("POST").ifNoneMatch = "*";
+    ByteArrayOutputStream post = new ByteArrayOutputStream();
+    HttpResponses.writeText(post, 200, "OK", "x", true);
+    assertTrue(post.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 200"));
+    assertFalse(post.toString(StandardCharsets.US_ASCII).contains("ETag"));
+
+    request("GET").ifNoneMatch = "*";
+    ByteArrayOutputStream missing = new ByteArrayOutputStream();
+    HttpResponses.writeText(missing, 404, "Not Found", "x", true);
+    assertTrue(missing.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 404"));
+  }
+
+  @Test
+  void testIfModifiedSince_usesHandlerLastModified() throws IOException {
+    String[][] lastModified = {{"Last-Modified", "Tue, 15 Nov 1994 12:45:26 GMT"}};
+
+    request("GET").ifModifiedSince = "Wed, 16 Nov 1994 00:00:00 GMT";
+    ByteArrayOutputStream current = new ByteArrayOutputStream();
+    HttpResponses.writeRaw(current, 200, "OK", "text/plain", new byte[3], true, lastModified);
+    assertTrue(current.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 304"));
+
+    request("GET").ifModifiedSince = "Mon, 14 Nov 1994 00:00:00 GMT";
+    ByteArrayOutputStream stale = new ByteArrayOutputStream();
+    HttpResponses.writeRaw(stale, 200, "OK", "text/plain", new byte[3], true, lastModified);
+    assertTrue(stale.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 200"));
+  }
+
+  @Test
+  void testHandlerSuppliedEtag_isUsedAndNotDuplicated() throws IOException {
+    request("GET");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeText(out, 200, "OK", "x", true, new String[][]{{"ETag", "\"v7\""}});
+    String r = out.toString(StandardCharsets.US_ASCII);
+    assertEquals(1, r.split("ETag: ", -1).length - 1);
+    assertTrue(r.contains("ETag: \"v7\"\r\n"));
+  }
+
+  @Test
+  void testChunkedStream_validatedWithDeclaredEtag() throws IOException {
+    request("GET").ifNoneMatch = "\"v1\"";
+    RequestMetrics.get().etag = "\"v1\"";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ResponseStream s = new ResponseStream(out, 200, "OK", "text/plain", true, null, 4)) {
+      s.write(new byte[100]);
+    }
+    String r = out.toString(StandardCharsets.US_ASCII);
+    assertTrue(r.startsWith("HTTP/1.1 304"));
+    assertTrue(r.endsWith("\r\n\r\n"), "body after a 304 must be dropped");
+  }
+
+  @Test
+  void testConditionalHandler_skipsHandlerWhenCurrent() throws IOException {
+    int[] runs = {0};
+    var handler = new ConditionalHandler(ctx -> "42", (ctx, out, ka) -> {
+      runs[0]++;
+      HttpResponses.writeText(out, 200, "OK", "rendered", ka);
+    });
+
+    request("GET");
+    ByteArrayOutputStream fresh = new ByteArrayOutputStream();
+    handler.handle(null, fresh, true);
+    assertTrue(fresh.toString(StandardCharsets.US_ASCII).contains("ETag: \"42\"\r\n"));
+
+    request("GET").ifNoneMatch = "\"42\"";
+    ByteArrayOutputStream cached = new ByteArrayOutputStream();
+    handler.handle(null, cached, true);
+    assertTrue(cached.toString(StandardCharsets.US_ASCII).startsWith("HTTP/1.1 304"));
+    assertEquals(1, runs[0]);
+  }
+  //#endregion
+}
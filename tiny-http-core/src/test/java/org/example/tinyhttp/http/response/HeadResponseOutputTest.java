@@ -0,0 +1,46 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+public class HeadResponseOutputTest {
+
+  @Test
+  void testWriteText_headersPassBodyDropped() throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    HeadResponseOutput head = new HeadResponseOutput(sink);
+
+    HttpResponses.writeText(head, 200, "OK", "Hello World\n", true);
+
+    String sent = sink.toString(StandardCharsets.US_ASCII);
+    assertEquals(true, sent.contains("Content-Length: 12\r\n"));
+    assertEquals(true, sent.endsWith("\r\n\r\n"));
+    assertEquals(12, head.discardedBytes());
+  }
+
+  @Test
+  void testTerminatorSplitAcrossWrites() throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    HeadResponseOutput head = new HeadResponseOutput(sink);
+
+    byte[] all = "HTTP/1.1 200 OK\r\nA: b\r\n\r\nBODY".getBytes(StandardCharsets.US_ASCII);
+    for (byte b : all) head.write(new byte[]{b}, 0, 1);
+
+    assertEquals("HTTP/1.1 200 OK\r\nA: b\r\n\r\n", sink.toString(StandardCharsets.US_ASCII));
+    assertEquals(4, head.discardedBytes());
+  }
+
+  @Test
+  void testLoneLineFeedsDoNotEndHeaders() throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    HeadResponseOutput head = new HeadResponseOutput(sink);
+
+    head.write("X: a\n\nstill-header\r\n\r\nbody".getBytes(StandardCharsets.US_ASCII));
+
+    assertEquals("X: a\n\nstill-header\r\n\r\n", sink.toString(StandardCharsets.US_ASCII));
+  }
+}
@@ -0,0 +1,158 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.example.tinyhttp.http.HttpExceptions;
+import org.example.tinyhttp.http.request.RequestMetrics;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class HttpResponsesTest {
+
+  @AfterEach
+  void clearMetrics() {
+    RequestMetrics.clear();
+  }
+
+  private static String headWithoutDate(String response) {
+    String head = response.substring(0, response.indexOf("\r\n\r\n") + 4);
+    return head.replaceAll("Date: [^\r]*\r\n", "");
+  }
+
+  //#region Header layout
+  @Test
+  void testWriteText_headerLayout() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeText(out, 200, "OK", "hi\n", true, new String[][]{{"X-Extra", "1"}});
+
+    String response = out.toString(StandardCharsets.US_ASCII);
+    assertEquals("HTTP/1.1 200 OK\r\n"
+        + "Server: tiny-http/0.1\r\n"
+        + "Content-Type: text/plain; charset=utf-8\r\n"
+        + "Content-Length: 3\r\n"
+        + "X-Extra: 1\r\n"
+        + "Connection: keep-alive\r\n"
+        + "Keep-Alive: timeout=5, max=100\r\n"
+        + "\r\n", headWithoutDate(response));
+    assertTrue(response.endsWith("\r\n\r\nhi\n"));
+  }
+
+  @Test
+  void testWriteRaw_customStatusAndContentType() throws IOException {
+    RequestMetrics.set(new RequestMetrics("rid-1", "GET", "/", "test", System.nanoTime()));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeRaw(out, 430, "", "image/png", new byte[1234], false, null);
+
+    String head = headWithoutDate(out.toString(StandardCharsets.US_ASCII));
+    assertTrue(head.startsWith("HTTP/1.1 430 \r\n"));
+    assertTrue(head.contains("Content-Type: image/png\r\nContent-Length: 1234\r\nX-REQUEST-ID: rid-1\r\n"));
+    assertTrue(head.endsWith("Connection: close\r\n\r\n"));
+  }
+
+  @Test
+  void testWriteJson_bodyAndLength() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    HttpResponses.writeJson(out, 404, "Not Found", Map.of("a", 1), false, null);
+
+    String response = out.toString(StandardCharsets.UTF_8);
+    assertTrue(response.startsWith("HTTP/1.1 404 Not Found\r\n"));
+    assertTrue(response.contains("Content-Type: application/json; charset=utf-8\r\nContent-Length: 7\r\n"));
+    assertTrue(response.endsWith("\r\n\r\n{\"a\":1}"));
+  }
+
+  @Test
+  void testWriteJson_largeListIsChunked() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    var rows = IntStream.range(0, 5000).mapToObj(i -> Map.of("id", i)).toList();
+    HttpResponses.writeJson(out, 200, "OK", rows, true, null);
+
+    String response = out.toString(StandardCharsets.US_ASCII);
+    String head = response.substring(0, response.indexOf("\r\n\r\n") + 4);
+    assertTrue(head.contains("Transfer-Encoding: chunked\r\n"), head);
+    assertTrue(!head.contains("Content-Length"));
+    assertTrue(response.endsWith("}]\r\n0\r\n\r\n"));
+  }
+
+  // Serializes fine until Jackson reaches the getter
+  public static final class Broken {
+    public String getValue() { throw new IllegalStateException("no value"); }
+  }
+
+  @Test
+  void testWriteJson_failureBeforeCommitSendsNothing() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    assertThrows(IOException.class, () -> HttpResponses.writeJson(out, 200, "OK", List.of(new Broken()), true, null));
+    assertEquals(0, out.size());
+  }
+
+  @Test
+  void testWriteJson_failureAfterCommitAbortsWithoutTerminatingChunk() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    List<Object> rows = new ArrayList<>(IntStream.range(0, 5000).mapToObj(i -> Map.of("id", i)).toList());
+    rows.add(new Broken());
+    assertThrows(HttpExceptions.ResponseAborted.class, () -> HttpResponses.writeJson(out, 200, "OK", rows, true, null));
+
+    String response = out.toString(StandardCharsets.US_ASCII);
+    assertTrue(response.contains("Transfer-Encoding: chunked\r\n"));
+    assertTrue(!response.endsWith("0\r\n\r\n"), "a truncated body must not look complete");
+  }
+
+  @Test
+  void testKeepAlive_fromServerConfigWithRemainingCount() throws IOException {
+    var m = new RequestMetrics("r", "POST", "/", "test", System.nanoTime());
+    m.keepAliveHeader = new KeepAliveHeader(30_000, 50);
+    m.requestsLeft = 7;
+    RequestMetrics.set(m);
+
+    ByteArrayOutputStream text = new ByteArrayOutputStream();
+    HttpResponses.writeText(text, 200, "OK", "x", true);
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    HttpResponses.writeJson(json, 200, "OK", Map.of("a", 1), true, null);
+
+    String line = "Connection: keep-alive\r\nKeep-Alive: timeout=30, max=7\r\n";
+    assertTrue(text.toString(StandardCharsets.US_ASCII).contains(line));
+    assertTrue(json.toString(StandardCharsets.US_ASCII).contains(line), "JSON responses advertise it too");
+  }
+  //#endregion
+
+  //#region Encoder
+  @Test
+  void testEncoder_numbers() {
+    ResponseHeaderEncoder e = ResponseHeaderEncoder.get();
+    e.number(0).number(-7).number(1234567890123L).number(Long.MIN_VALUE);
+
+    String s = new String(e.array(), 0, e.length(), StandardCharsets.US_ASCII);
+    assertEquals("0-71234567890123" + Long.MIN_VALUE, s);
+  }
+
+  @Test
+  void testEncoder_nonAsciiBecomesQuestionMark() {
+    ResponseHeaderEncoder e = ResponseHeaderEncoder.get().header("X-Name", "café");
+    assertEquals("X-Name: caf?\r\n", new String(e.array(), 0, e.length(), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void testEncoder_growsPastInitialBuffer() {
+    String big = "v".repeat(2000);
+    ResponseHeaderEncoder e = ResponseHeaderEncoder.get().header("X-Big", big);
+    assertEquals(2000 + "X-Big: \r\n".length(), e.length());
+  }
+
+  @Test
+  void testEncoder_preparedResponseDoesNotClobberHeadInProgress() {
+    ResponseHeaderEncoder e = ResponseHeaderEncoder.get().header("X-First", "1");
+    PreparedResponse.of(200, "OK", "text/plain", new byte[0], new String[][]{{"X-Other", "2"}});
+    e.header("X-Second", "3");
+    assertEquals("X-First: 1\r\nX-Second: 3\r\n", new String(e.array(), 0, e.length(), StandardCharsets.US_ASCII));
+  }
+  //#endregion
+}
@@ -0,0 +1,71 @@
+package org.example.tinyhttp.http.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class ResponseStreamTest {
+
+  private static String bodyOf(ByteArrayOutputStream out) {
+    String all = out.toString(StandardCharsets.US_ASCII);
+    return all.substring(all.indexOf("\r\n\r\n") + 4);
+  }
+
+  @Test
+  void testFitsInBuffer_fallsBackToContentLength() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ResponseStream s = new ResponseStream(out, 200, "OK", "text/plain", true, null, 64)) {
+      s.write("hello".getBytes(StandardCharsets.US_ASCII));
+      s.trailer("X-Checksum", "abc");
+      assertFalse(s.isChunked());
+    }
+
+    String all = out.toString(StandardCharsets.US_ASCII);
+    assertTrue(all.contains("Content-Length: 5\r\n"));
+    assertTrue(all.contains("X-Checksum: abc\r\n"), "trailers become headers when not chunked");
+    assertFalse(all.contains("Transfer-Encoding"));
+    assertEquals("hello", bodyOf(out));
+  }
+
+  @Test
+  void testOverflow_emitsChunksAndTrailers() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ResponseStream s = new ResponseStream(out, 200, "OK", "text/plain", true, null, 4)) {
+      s.write("abcdef".getBytes(StandardCharsets.US_ASCII)); // bigger than the buffer: own chunk
+      s.write('g');
+      s.trailer("X-Count", "7");
+    }
+
+    String all = out.toString(StandardCharsets.US_ASCII);
+    assertTrue(all.contains("Transfer-Encoding: chunked\r\n"));
+    assertFalse(all.contains("Content-Length"));
+    assertEquals("6\r\nabcdef\r\n1\r\ng\r\n0\r\nX-Count: 7\r\n\r\n", bodyOf(out));
+  }
+
+  @Test
+  void testFlush_commitsToChunked() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResponseStream s = new ResponseStream(out, 200, "OK", "text/plain", true, null, 8192);
+    s.write(new byte[300]);
+    s.flush();
+    assertTrue(s.isChunked());
+    s.close();
+
+    assertTrue(bodyOf(out).startsWith("12c\r\n"));
+    assertTrue(bodyOf(out).endsWith("\r\n0\r\n\r\n"));
+  }
+
+  @Test
+  void testWriteAfterClose_fails() throws IOException {
+    ResponseStream s = new ResponseStream(new ByteArrayOutputStream(), 204, "No Content", "text/plain", false, null, 16);
+    s.close();
+    s.close(); // idempotent
+    assertThrows(IOException.class, () -> s.write(1));
+  }
+}
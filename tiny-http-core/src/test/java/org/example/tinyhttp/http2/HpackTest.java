@@ -0,0 +1,121 @@
+package org.example.tinyhttp.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class HpackTest {
+
+  private static List<String> decode(HpackDecoder d, String hex) throws Exception {
+    List<String> out = new ArrayList<>();
+    d.decode(HexFormat.of().parseHex(hex), (n, v) -> out.add(n + ": " + v));
+    return out;
+  }
+
+  //#region RFC 7541 Appendix C
+  @Test
+  void testIntegerPrefix_1337in5Bits() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Hpack.writeInt(out, 5, 0, 1337);
+    assertEquals("1f9a0a", HexFormat.of().formatHex(out.toByteArray()));
+  }
+
+  @Test
+  void testDecode_huffmanRequestsShareDynamicTable() throws Exception {
+    HpackDecoder d = new HpackDecoder(4096);
+    assertEquals(List.of(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com"),
+      decode(d, "828684418cf1e3c2e5f23a6ba0ab90f4ff"));
+    assertEquals(57, d.tableSize());
+
+    assertEquals(List.of(":method: GET", ":scheme: http", ":path: /", ":authority: www.example.com",
+        "cache-control: no-cache"),
+      decode(d, "828684be5886a8eb10649cbf"));
+    assertEquals(110, d.tableSize());
+  }
+
+  @Test
+  void testDecode_rejectsBadIndexAndOversizedTableUpdate() {
+    assertThrows(Http2Frames.Http2Error.class, () -> decode(new HpackDecoder(4096), "be"));
+    assertThrows(Http2Frames.Http2Error.class, () -> decode(new HpackDecoder(4096), "3fe21f")); // 4096+ bytes
+  }
+  //#endregion
+
+  //#region Huffman
+  @Test
+  void testHuffman_roundTripsEveryOctet() throws Exception {
+    byte[] all = new byte[256];
+    for (int i = 0; i < 256; i++) all[i] = (byte) i;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Huffman.encode(all, out);
+    assertEquals(Huffman.encodedLength(all), out.size());
+    assertArrayEquals(all, Huffman.decode(out.toByteArray(), 0, out.size()));
+  }
+
+  @Test
+  void testHuffman_knownEncoding() throws Exception {
+    byte[] raw = "www.example.com".getBytes(StandardCharsets.US_ASCII);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Huffman.encode(raw, out);
+    assertEquals("f1e3c2e5f23a6ba0ab90f4ff", HexFormat.of().formatHex(out.toByteArray()));
+  }
+
+  @Test
+  void testHuffman_rejectsLongPadding() {
+    // 'a' (00011) followed by a whole byte of ones: padding longer than 7 bits
+    byte[] bad = {(byte) 0x1F, (byte) 0xFF};
+    assertThrows(Http2Frames.Http2Error.class, () -> Huffman.decode(bad, 0, bad.length));
+  }
+  //#endregion
+
+  //#region Encoder
+  @Test
+  void testEncoder_indexesRepeatedFieldsAndRoundTrips() throws Exception {
+    HpackEncoder enc = new HpackEncoder();
+    HpackDecoder dec = new HpackDecoder(4096);
+
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    enc.beginBlock(first);
+    enc.encode(":status", "200", first);
+    enc.encode("content-type", "application/json", first);
+    enc.encode("content-length", "42", first);
+    enc.encode("set-cookie", "id=1", first);
+
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    enc.beginBlock(second);
+    enc.encode(":status", "200", second);
+    enc.encode("content-type", "application/json", second);
+
+    List<String> got = new ArrayList<>();
+    dec.decode(first.toByteArray(), (n, v) -> got.add(n + ": " + v));
+    dec.decode(second.toByteArray(), (n, v) -> got.add(n + ": " + v));
+    assertEquals(List.of(":status: 200", "content-type: application/json", "content-length: 42", "set-cookie: id=1",
+      ":status: 200", "content-type: application/json"), got);
+    assertEquals(2, second.size()); // both fields indexed
+  }
+
+  @Test
+  void testEncoder_announcesSmallerTable() throws Exception {
+    HpackEncoder enc = new HpackEncoder();
+    enc.setMaxTableSize(0);
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    enc.beginBlock(block);
+    enc.encode("x-custom", "value", block);
+    assertEquals(0x20, block.toByteArray()[0] & 0xFF); // size update to 0 first
+
+    HpackDecoder dec = new HpackDecoder(4096);
+    List<String> got = new ArrayList<>();
+    dec.decode(block.toByteArray(), (n, v) -> got.add(n + ": " + v));
+    assertEquals(List.of("x-custom: value"), got);
+    assertEquals(0, dec.tableSize());
+    assertTrue(block.size() > 2);
+  }
+  //#endregion
+}
@@ -0,0 +1,241 @@
+package org.example.tinyhttp.http2;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.example.tinyhttp.http2.Http2Frames.*;
+
+public class Http2ConnectionTest {
+  private ServerSocketChannel server;
+  private Thread serverThread;
+  private Socket client;
+  private InputStream in;
+  private OutputStream out;
+  private final HpackEncoder requestEncoder = new HpackEncoder();
+  private final HpackDecoder responseDecoder = new HpackDecoder(4096);
+  private final CountDownLatch slowRelease = new CountDownLatch(1);
+
+  // Routes: /slow blocks until released, /big sends 200 KB, /echo returns the body, anything else "ok"
+  private void serve(org.example.tinyhttp.http.request.HttpRequest req, OutputStream o) throws IOException {
+    switch (req.getTarget()) {
+      case "/slow" -> {
+        try {
+          slowRelease.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        HttpResponses.writeText(o, 200, "OK", "slow", true);
+      }
+      case "/big" -> HttpResponses.writeRaw(o, 200, "OK", "application/octet-stream", new byte[200_000], true, null);
+      case "/echo" -> HttpResponses.writeRaw(o, 200, "OK", "text/plain", req.getBody(), true, null);
+      default -> HttpResponses.writeText(o, 200, "OK", "ok " + req.getMethod(), true);
+    }
+  }
+
+  @BeforeEach
+  void start() throws IOException {
+    server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+    serverThread = new Thread(() -> {
+      try (Socket s = server.accept().socket()) {
+        BufferedInputStream bin = new BufferedInputStream(s.getInputStream());
+        if (Http2Connection.readPreface(bin)) new Http2Connection(s, bin, this::serve, 10, 2000).serve();
+      } catch (IOException ignored) {}
+    });
+    serverThread.start();
+    client = new Socket("localhost", ((InetSocketAddress) server.getLocalAddress()).getPort());
+    client.setSoTimeout(5000);
+    in = client.getInputStream();
+    out = client.getOutputStream();
+    out.write(PREFACE);
+    write(out, SETTINGS, 0, 0, new byte[0]);
+  }
+
+  @AfterEach
+  void stop() throws Exception {
+    slowRelease.countDown();
+    client.close();
+    server.close();
+    serverThread.join(5000);
+  }
+
+  private void request(int stream, String method, String path, byte[] body) throws IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    requestEncoder.beginBlock(block);
+    requestEncoder.encode(":method", method, block);
+    requestEncoder.encode(":scheme", "http", block);
+    requestEncoder.encode(":path", path, block);
+    requestEncoder.encode(":authority", "localhost", block);
+    write(out, HEADERS, FLAG_END_HEADERS | (body == null ? FLAG_END_STREAM : 0), stream, block.toByteArray());
+    if (body != null) write(out, DATA, FLAG_END_STREAM, stream, body);
+  }
+
+  /** Reads frames until every listed stream has ended; returns status and body per stream. */
+  private Map<Integer, String[]> responses(int... ids) throws IOException {
+    Map<Integer, String[]> got = new HashMap<>();
+    Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+    int open = ids.length;
+    while (open > 0) {
+      Frame f = read(in, 1 << 20);
+      assertTrue(f != null, "connection closed early");
+      boolean end = (f.flags() & FLAG_END_STREAM) != 0;
+      if (f.type() == HEADERS) {
+        String[] r = {null, ""};
+        responseDecoder.decode(f.payload(), (n, v) -> { if (n.equals(":status")) r[0] = v; });
+        got.put(f.streamId(), r);
+        bodies.put(f.streamId(), new ByteArrayOutputStream());
+      } else if (f.type() == DATA) {
+        bodies.get(f.streamId()).write(f.payload());
+        if (f.payload().length > 0) write(out, WINDOW_UPDATE, 0, 0, int32(f.payload().length));
+        if (f.payload().length > 0) write(out, WINDOW_UPDATE, 0, f.streamId(), int32(f.payload().length));
+      } else if (f.type() == RST_STREAM) {
+        got.put(f.streamId(), new String[]{"RST " + int32(f.payload(), 0), ""});
+        end = true;
+      } else {
+        continue; // SETTINGS, WINDOW_UPDATE, ...
+      }
+      if (end) {
+        open--;
+        got.get(f.streamId())[1] = bodies.containsKey(f.streamId())
+          ? bodies.get(f.streamId()).toString(StandardCharsets.ISO_8859_1) : "";
+      }
+    }
+    return got;
+  }
+
+  //#region Multiplexing
+  @Test
+  void testStreamsCompleteOutOfOrder() throws IOException {
+    request(1, "GET", "/slow", null);
+    request(3, "GET", "/fast", null);
+    Map<Integer, String[]> first = responses(3);
+    assertEquals("200", first.get(3)[0]);
+    assertEquals("ok GET", first.get(3)[1]); // not held up by stream 1
+
+    slowRelease.countDown();
+    assertEquals("slow", responses(1).get(1)[1]);
+  }
+
+  @Test
+  void testRequestBodyAndHead() throws IOException {
+    request(1, "POST", "/echo", "hello h2".getBytes(StandardCharsets.UTF_8));
+    request(3, "HEAD", "/fast", null);
+    Map<Integer, String[]> r = responses(1, 3);
+    assertEquals("hello h2", r.get(1)[1]);
+    assertEquals("200", r.get(3)[0]);
+    assertEquals("", r.get(3)[1]);
+  }
+  //#endregion
+
+  //#region Flow control
+  @Test
+  void testLargeBodyWaitsForWindowUpdates() throws IOException {
+    request(1, "GET", "/big", null); // 200 KB against the default 65535-byte windows
+    assertEquals(200_000, responses(1).get(1)[1].length());
+  }
+  //#endregion
+
+  //#region Errors
+  @Test
+  void testMalformedRequestIsResetAndConnectionSurvives() throws IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    requestEncoder.beginBlock(block);
+    requestEncoder.encode(":method", "GET", block); // no :path or :scheme
+    write(out, HEADERS, FLAG_END_HEADERS | FLAG_END_STREAM, 1, block.toByteArray());
+    request(3, "GET", "/after", null);
+
+    Map<Integer, String[]> r = responses(1, 3);
+    assertEquals("RST " + PROTOCOL_ERROR, r.get(1)[0]);
+    assertEquals("200", r.get(3)[0]);
+  }
+
+  @Test
+  void testIndexedReferencesToALargeEntry_areAnswered431() throws IOException {
+    ByteArrayOutputStream block = new ByteArrayOutputStream();
+    requestEncoder.beginBlock(block);
+    requestEncoder.encode(":method", "GET", block);
+    requestEncoder.encode(":scheme", "http", block);
+    requestEncoder.encode(":path", "/", block);
+    // one 4000-byte literal added to the table, then 60000 one-byte references to it (~240 MB decoded)
+    block.write(0x40);
+    block.write(5);
+    block.writeBytes("x-big".getBytes(StandardCharsets.US_ASCII));
+    block.write(0x7F);
+    block.write((4000 - 127) % 128 | 0x80);
+    block.write((4000 - 127) / 128);
+    block.writeBytes("v".repeat(4000).getBytes(StandardCharsets.US_ASCII));
+    for (int i = 0; i < 60_000; i++) block.write(0x80 | (Hpack.STATIC_LENGTH + 1));
+
+    byte[] b = block.toByteArray();
+    for (int off = 0; off < b.length; off += DEFAULT_MAX_FRAME_SIZE) {
+      int len = Math.min(DEFAULT_MAX_FRAME_SIZE, b.length - off);
+      boolean last = off + len == b.length;
+      write(out, off == 0 ? HEADERS : CONTINUATION, (last ? FLAG_END_HEADERS : 0) | (off == 0 ? FLAG_END_STREAM : 0), 1,
+        Arrays.copyOfRange(b, off, off + len));
+    }
+    assertEquals("431", responses(1).get(1)[0]);
+  }
+
+  @Test
+  void testFieldsPastTheListLimit_areNotStored() {
+    Http2Stream s = new Http2Stream(1, 65_535, 65_535);
+    String big = "v".repeat(4000);
+    for (int i = 0; i < 1000; i++) {
+      s.field("x-big", big);
+      s.field("cookie", big);
+    }
+    assertTrue(s.headerListBytes > Http2Connection.MAX_HEADER_LIST_BYTES);
+    assertTrue(s.headers.all("x-big").size() <= Http2Connection.MAX_HEADER_LIST_BYTES / 4000);
+    s.endOfFields();
+    assertTrue(!s.headers.has("cookie"));
+  }
+
+  @Test
+  void testPingIsAcknowledged() throws IOException {
+    byte[] payload = "12345678".getBytes(StandardCharsets.US_ASCII);
+    write(out, PING, 0, 0, payload);
+    for (int i = 0; i < 10; i++) {
+      Frame f = read(in, 1 << 20);
+      if (f.type() == PING) {
+        assertEquals(FLAG_ACK, f.flags());
+        assertEquals("12345678", new String(f.payload(), StandardCharsets.US_ASCII));
+        return;
+      }
+    }
+    throw new AssertionError("no PING ack");
+  }
+
+  @Test
+  void testEvenStreamIdIsConnectionError() throws IOException {
+    request(2, "GET", "/", null);
+    List<Integer> types = new java.util.ArrayList<>();
+    for (Frame f; (f = read(in, 1 << 20)) != null; ) {
+      types.add(f.type());
+      if (f.type() == GOAWAY) {
+        assertEquals(PROTOCOL_ERROR, int32(f.payload(), 4));
+        return;
+      }
+    }
+    throw new AssertionError("no GOAWAY, got " + types);
+  }
+  //#endregion
+}
@@ -1,10 +1,19 @@
 package org.example.tinyhttp.integration;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 import org.example.tinyhttp.config.Config;
 import org.example.tinyhttp.http.request.Accepts;
@@ -14,6 +23,7 @@ import org.example.tinyhttp.parsing.Json;
 import org.example.tinyhttp.routing.Router;
 import org.example.tinyhttp.server.HttpServerInstance;
 import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -25,6 +35,9 @@ public class HttpServerIntegrationTest {
     private static HttpServerInstance server;
     private static int serverPort;
     private static String baseUrl;
+    private static java.nio.file.Path staticRoot;
+    private static org.example.tinyhttp.files.StaticFileCache staticCache;
+    private static org.example.tinyhttp.sse.SseHub events;
     
     @BeforeAll
     @SuppressWarnings("unused")
@@ -36,6 +49,13 @@ public class HttpServerIntegrationTest {
         
         baseUrl = "http://localhost:" + serverPort;
         
+        staticRoot = java.nio.file.Files.createTempDirectory("tinyhttp-static");
+        java.nio.file.Files.writeString(staticRoot.resolve("app.css"), "body{}".repeat(2000));
+        java.nio.file.Files.write(staticRoot.resolve("big.bin"), new byte[100_000]);
+        java.nio.file.Files.writeString(staticRoot.resolve("note.txt"), "v1");
+        staticCache = new org.example.tinyhttp.files.StaticFileCache(1 << 20, 4096);
+        events = new org.example.tinyhttp.sse.SseHub(16, 0);
+
         // Create test router
         Router testRouter = createTestRouter();
         
@@ -60,9 +80,15 @@ public class HttpServerIntegrationTest {
         if (server != null) {
             server.stop();
         }
+        if (events != null) {
+            events.close();
+        }
+        if (staticCache != null) {
+            try { staticCache.close(); } catch (IOException ignored) {}
+        }
     }
     
-    private static Router createTestRouter() {
+    private static Router createTestRouter() throws IOException {
       return new Router()
         .get("/hello", (ctx, out, keepAlive) -> {
           String name = ctx.query("name");
@@ -123,11 +149,30 @@ public class HttpServerIntegrationTest {
           );
           HttpResponses.writeJson(out, 200, "OK", body, keepAlive, null);
       })
+      .get("/stream/:n{int}", (ctx, out, ka) -> {
+          // deliberately not closed: the server finishes the stream
+          var body = ctx.stream(200, "OK", "text/plain; charset=utf-8");
+          for (int i = 0; i < ctx.pathInt("n"); i++) body.write('x');
+      })
+      .get("/broken-json", (ctx, out, ka) -> {
+          // fails only after the first chunks are on the wire
+          List<Object> rows = new ArrayList<>(Collections.nCopies(5000, Map.of("id", 1)));
+          rows.add(Map.of("bad", new Object()));
+          HttpResponses.writeJson(out, 200, "OK", rows, ka, null);
+      })
+      .get("/broken-io", (ctx, out, ka) -> {
+          throw new UncheckedIOException(new IOException("backend unavailable"));
+      })
+      .staticFiles("/assets", staticRoot)
+      .staticFiles("/cached", staticRoot, staticCache)
+      .sse("/events", events, (ctx, sink) -> sink.send("hello", "welcome"))
+      .websocket("/ws", (ws, text) -> ws.sendText("echo: " + text))
       .get("/debug/config", (ctx, out, ka) -> {
           var c = ctx.config();
           var body = java.util.Map.of(
             "logFormat", c.logFormat,
-            "maxRequestsPerConn", c.maxRequestsPerConn
+            "maxRequestsPerConn", c.maxRequestsPerConn,
+            "socket", org.example.tinyhttp.server.SocketTuning.of(c).effective()
           );
           HttpResponses.writeJson(out, 200, "OK", body, ka, null);
       });
@@ -493,5 +538,472 @@ public class HttpServerIntegrationTest {
     assertTrue(responseBody.contains("\"maxRequestsPerConn\""));
     assertTrue(responseBody.contains("\"plain\"")); // Should match test config
     assertTrue(responseBody.contains("100")); // Should match test config
+    assertTrue(responseBody.contains("\"tcpNoDelay\":true"), responseBody);
+    assertTrue(responseBody.contains("\"writeBufferSize\":8192"), responseBody);
+  }
+
+  @Test
+  void testMalformedQuery_onlyFailsWhenRead() throws IOException {
+    // /users/:id never reads the query, so the bad escape is never decoded
+    String ignored = rawRequest("GET /users/1?x=%zz HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(ignored.startsWith("HTTP/1.1 200"), ignored);
+
+    String read = rawRequest("GET /hello?name=%zz HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(read.startsWith("HTTP/1.1 400"), read);
+  }
+
+  @Test
+  void testJsonFailureAfterCommit_closesWithoutAnErrorResponse() throws IOException {
+    String response = rawRequest("GET /broken-json HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(response.startsWith("HTTP/1.1 200"), response.substring(0, Math.min(40, response.length())));
+    assertTrue(response.contains("Transfer-Encoding: chunked"));
+    assertTrue(!response.contains("HTTP/1.1 500"), "no second response after a truncated body");
+    assertTrue(!response.endsWith("0\r\n\r\n"));
+  }
+
+  @Test
+  void testHandlerIoFailure_isNotBlamedOnTheClient() throws IOException {
+    String response = rawRequest("GET /broken-io HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(response.startsWith("HTTP/1.1 500"), response);
+  }
+
+  @Test
+  void testHead_matchesGetHeadersWithoutBody() throws IOException {
+    String get = rawRequest("GET /hello?name=Head HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\nConnection: close\r\n\r\n");
+    String head = rawRequest("HEAD /hello?name=Head HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\nConnection: close\r\n\r\n");
+
+    String getHeaders = get.substring(0, get.indexOf("\r\n\r\n") + 4);
+    assertTrue(head.endsWith("\r\n\r\n"), "HEAD must not carry a body");
+    assertTrue(head.contains("Content-Type: application/json"));
+    String length = "Content-Length: " + (get.length() - getHeaders.length()) + "\r\n";
+    assertTrue(getHeaders.contains(length));
+    assertTrue(head.contains(length), head);
+  }
+
+  @Test
+  void testPipelinedRequests_allAnsweredInOrder() throws IOException {
+    String one = "GET /hello?name=A HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    String two = "GET /hello?name=B HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    String last = "GET /hello?name=C HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+    String responses = rawRequest(one + two + last);
+
+    int a = responses.indexOf("Hello A"), b = responses.indexOf("Hello B"), c = responses.indexOf("Hello C");
+    assertTrue(a > 0 && b > a && c > b, responses);
+    assertEquals(3, responses.split("HTTP/1.1 200 OK", -1).length - 1);
+  }
+
+  @Test
+  void testStream_smallBodyGetsContentLength() throws IOException {
+    String response = rawRequest("GET /stream/10 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(response.contains("Content-Length: 10\r\n"), response);
+    assertTrue(response.endsWith("\r\n\r\nxxxxxxxxxx"));
+  }
+
+  @Test
+  void testStream_largeBodyIsChunked() throws IOException {
+    URL url = URI.create(baseUrl + "/stream/20000").toURL();
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+      assertEquals(20000, connection.getInputStream().readAllBytes().length);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  void testStream_gzipWhenAccepted() throws IOException {
+    URL url = URI.create(baseUrl + "/stream/20000").toURL();
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    connection.setRequestProperty("Accept-Encoding", "gzip");
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+      byte[] body = new java.util.zip.GZIPInputStream(connection.getInputStream()).readAllBytes();
+      assertEquals("x".repeat(20000), new String(body, StandardCharsets.US_ASCII));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  void testConditionalGet_notModified() throws IOException {
+    String first = rawRequest("GET /hello?name=Tag HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    int at = first.indexOf("ETag: ") + 6;
+    String etag = first.substring(at, first.indexOf("\r\n", at));
+
+    String second = rawRequest("GET /hello?name=Tag HTTP/1.1\r\nHost: localhost\r\nIf-None-Match: " + etag
+      + "\r\nConnection: close\r\n\r\n");
+    assertTrue(second.startsWith("HTTP/1.1 304 Not Modified\r\n"), second);
+    assertTrue(second.endsWith("\r\n\r\n"));
+  }
+
+  @Test
+  void testKeepAliveMax_countsDownPerConnection() throws IOException {
+    String req = "GET /hello HTTP/1.1\r\nHost: localhost\r\nAccept: application/json\r\n\r\n";
+    String responses = rawRequest(req + req + "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+    assertTrue(responses.contains("Keep-Alive: timeout=5, max=99\r\n"), responses);
+    assertTrue(responses.contains("Keep-Alive: timeout=5, max=98\r\n"));
+    assertTrue(responses.contains("Connection: close\r\n"));
+  }
+
+  @Test
+  void testStaticFile_largeFileSentWhole() throws IOException {
+    URL url = URI.create(baseUrl + "/assets/big.bin").toURL();
+    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertEquals("application/octet-stream", connection.getHeaderField("Content-Type"));
+      assertEquals("100000", connection.getHeaderField("Content-Length"));
+      assertTrue(connection.getHeaderField("Last-Modified").endsWith(" GMT"));
+      assertEquals(100_000, connection.getInputStream().readAllBytes().length);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @Test
+  void testStaticFile_gzipAndConditional() throws IOException {
+    String first = rawRequest("GET /assets/app.css HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\n"
+      + "Connection: close\r\n\r\n");
+    assertTrue(first.contains("Content-Type: text/css; charset=utf-8\r\n"), first);
+    assertTrue(first.contains("Content-Encoding: gzip\r\n"));
+    int at = first.indexOf("ETag: ") + 6;
+    String etag = first.substring(at, first.indexOf("\r\n", at));
+
+    String second = rawRequest("GET /assets/app.css HTTP/1.1\r\nHost: localhost\r\nIf-None-Match: " + etag
+      + "\r\nConnection: close\r\n\r\n");
+    assertTrue(second.startsWith("HTTP/1.1 304 Not Modified\r\n"), second);
+  }
+
+  @Test
+  void testStaticFile_compressedVariantReusedAcrossRequests() throws IOException {
+    String req = "GET /assets/app.css HTTP/1.1\r\nHost: localhost\r\nAccept-Encoding: gzip\r\nConnection: close\r\n\r\n";
+    String first = new String(rawRequestBytes(req), StandardCharsets.ISO_8859_1);
+    long hits = (long) server.getCompression().cacheStats().get("hits");
+    String second = new String(rawRequestBytes(req), StandardCharsets.ISO_8859_1);
+
+    assertEquals(hits + 1, (long) server.getCompression().cacheStats().get("hits"));
+    assertTrue(second.contains("Content-Encoding: gzip\r\n"), second);
+    assertEquals(first.substring(first.indexOf("\r\n\r\n")), second.substring(second.indexOf("\r\n\r\n")));
+    byte[] gz = second.substring(second.indexOf("\r\n\r\n") + 4).getBytes(StandardCharsets.ISO_8859_1);
+    assertEquals("body{}".repeat(2000),
+      new String(new GZIPInputStream(new ByteArrayInputStream(gz)).readAllBytes(), StandardCharsets.UTF_8));
+
+    // identity clients still get the file, with Vary so caches keep the two apart
+    String plain = rawRequest("GET /assets/app.css HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(plain.contains("Vary: Accept-Encoding\r\n"), plain);
+    assertTrue(plain.endsWith("\r\n\r\n" + "body{}".repeat(2000)));
+  }
+
+  @Test
+  void testStaticFile_traversalIsNotFound() throws IOException {
+    String response = rawRequest("GET /assets/%2e%2e/%2e%2e/etc/passwd HTTP/1.1\r\nHost: localhost\r\n"
+      + "Connection: close\r\n\r\n");
+    assertTrue(response.startsWith("HTTP/1.1 404") || response.startsWith("HTTP/1.1 400"), response);
+  }
+
+  @Test
+  void testCachedStatic_servedFromMemoryAndRefreshedOnChange() throws Exception {
+    String req = "GET /cached/note.txt HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n";
+    assertTrue(rawRequest(req).endsWith("\r\n\r\nv1"));
+    long hits = staticCache.hits();
+    assertTrue(rawRequest(req).endsWith("\r\n\r\nv1"));
+    assertEquals(hits + 1, staticCache.hits());
+
+    java.nio.file.Files.writeString(staticRoot.resolve("note.txt"), "v2");
+    String latest = "";
+    for (int i = 0; i < 200 && !latest.endsWith("v2"); i++) {
+      Thread.sleep(25);
+      latest = rawRequest(req);
+    }
+    assertTrue(latest.endsWith("\r\n\r\nv2"), latest);
+  }
+
+  @Test
+  void testCachedStatic_largeFileIsMapped() throws IOException {
+    String response = rawRequest("GET /cached/big.bin HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(response.contains("Content-Length: 100000\r\n"), response);
+    assertEquals(100_000, response.length() - response.indexOf("\r\n\r\n") - 4);
+  }
+
+  @Test
+  void testStaticFile_rangeFromDiskAndMapping() throws IOException {
+    java.nio.file.Files.write(staticRoot.resolve("seek.bin"), "0123456789".repeat(10_000).getBytes(StandardCharsets.US_ASCII));
+    for (String prefix : new String[]{"/assets", "/cached"}) {
+      String r = rawRequest("GET " + prefix + "/seek.bin HTTP/1.1\r\nHost: localhost\r\nRange: bytes=50005-50009\r\n"
+        + "Connection: close\r\n\r\n");
+      assertTrue(r.startsWith("HTTP/1.1 206 Partial Content\r\n"), r);
+      assertTrue(r.contains("Content-Range: bytes 50005-50009/100000\r\n"));
+      assertTrue(r.contains("Accept-Ranges: bytes\r\n"));
+      assertTrue(r.endsWith("\r\n\r\n56789"), r);
+    }
+  }
+
+  @Test
+  void testEvents_subscribersDoNotHoldWorkers() throws Exception {
+    // more open streams than worker threads: a normal request must still be served
+    int streams = Config.forTesting(0).workerThreads + 2;
+    Socket[] clients = new Socket[streams];
+    try {
+      for (int i = 0; i < streams; i++) {
+        clients[i] = new Socket("localhost", serverPort);
+        clients[i].setSoTimeout(5000);
+        clients[i].getOutputStream().write("GET /events HTTP/1.1\r\nHost: localhost\r\n\r\n"
+          .getBytes(StandardCharsets.US_ASCII));
+        String head = readUntil(clients[i].getInputStream(), "data: welcome\n\n\r\n");
+        assertTrue(head.startsWith("HTTP/1.1 200 OK\r\n"), head);
+        assertTrue(head.contains("Content-Type: text/event-stream\r\n"));
+        assertTrue(head.contains("Transfer-Encoding: chunked\r\n"));
+      }
+
+      assertTrue(rawRequest("GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+        .endsWith("Hello World\n"));
+
+      assertEquals(streams, events.publish("tick", "1"));
+      for (Socket c : clients) assertTrue(readUntil(c.getInputStream(), "\n\n\r\n").contains("event: tick\ndata: 1\n"));
+    } finally {
+      for (Socket c : clients) if (c != null) c.close();
+    }
+  }
+
+  @Test
+  void testEventsHead_answersHeadWithoutSubscribing() throws Exception {
+    int before = events.subscribers();
+    try (Socket s = new Socket("localhost", serverPort)) {
+      s.setSoTimeout(5000);
+      s.getOutputStream().write(("HEAD /events HTTP/1.1\r\nHost: localhost\r\n\r\n"
+        + "GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+      String r = new String(s.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      assertTrue(r.startsWith("HTTP/1.1 200 OK\r\n"), r);
+      assertTrue(r.contains("Content-Type: text/event-stream\r\n"), r);
+      // no event data, and the connection carried on with the next request
+      assertTrue(!r.contains("data: welcome"), r);
+      assertTrue(r.endsWith("Hello World\n"), r);
+    }
+    assertEquals(before, events.subscribers());
+  }
+
+  @Test
+  void testH2c_upgradeThenMultiplexedStreams() throws Exception {
+    var client = java.net.http.HttpClient.newBuilder().version(java.net.http.HttpClient.Version.HTTP_2).build();
+    // first request upgrades the connection (Upgrade: h2c); the rest share it as concurrent streams
+    var first = client.send(java.net.http.HttpRequest.newBuilder(URI.create(baseUrl + "/hello?name=h2")).build(),
+      java.net.http.HttpResponse.BodyHandlers.ofString());
+    assertEquals(java.net.http.HttpClient.Version.HTTP_2, first.version());
+    assertEquals(200, first.statusCode());
+    assertEquals("Hello h2\n", first.body());
+
+    var pending = new java.util.ArrayList<java.util.concurrent.CompletableFuture<java.net.http.HttpResponse<String>>>();
+    for (int i = 0; i < 20; i++) {
+      pending.add(client.sendAsync(java.net.http.HttpRequest.newBuilder(URI.create(baseUrl + "/users/" + i)).build(),
+        java.net.http.HttpResponse.BodyHandlers.ofString()));
+    }
+    for (int i = 0; i < 20; i++) {
+      var r = pending.get(i).get(10, java.util.concurrent.TimeUnit.SECONDS);
+      assertEquals(java.net.http.HttpClient.Version.HTTP_2, r.version());
+      assertEquals("user " + i + "\n", r.body());
+    }
+
+    var post = client.send(java.net.http.HttpRequest.newBuilder(URI.create(baseUrl + "/echo"))
+        .header("Content-Type", "text/plain")
+        .POST(java.net.http.HttpRequest.BodyPublishers.ofString("x".repeat(100_000))).build(),
+      java.net.http.HttpResponse.BodyHandlers.ofString());
+    assertEquals(java.net.http.HttpClient.Version.HTTP_2, post.version());
+    assertEquals(100_000, post.body().length());
+
+    var missing = client.send(java.net.http.HttpRequest.newBuilder(URI.create(baseUrl + "/nope")).build(),
+      java.net.http.HttpResponse.BodyHandlers.ofString());
+    assertEquals(404, missing.statusCode());
+  }
+
+  @Test
+  void testExpectContinue_onlyWhenTheHandlerReadsTheBody() throws IOException {
+    String head = "POST %s HTTP/1.1\r\nHost: localhost\r\nContent-Type: text/plain\r\n"
+      + "Expect: 100-continue\r\nContent-Length: 5\r\n\r\n";
+    try (Socket s = new Socket("localhost", serverPort)) {
+      s.setSoTimeout(5000);
+      s.getOutputStream().write(head.formatted("/echo").getBytes(StandardCharsets.US_ASCII));
+      assertEquals("HTTP/1.1 100 Continue\r\n\r\n", readUntil(s.getInputStream(), "\r\n\r\n"));
+      s.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII));
+      String response = readUntil(s.getInputStream(), "hello");
+      assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+    }
+
+    // no route: answered at once, the body is never invited and the connection closes
+    String missing = rawRequest(head.formatted("/nope"));
+    assertTrue(missing.startsWith("HTTP/1.1 404 "), missing);
+    assertTrue(!missing.contains("100 Continue"), missing);
+  }
+
+  @Test
+  void testOversizedOrUnexpectedUploads_rejectedBeforeTheBody() throws IOException {
+    String tooLarge = rawRequest("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 50000000\r\n\r\n");
+    assertTrue(tooLarge.startsWith("HTTP/1.1 413 "), tooLarge);
+
+    String expectation = rawRequest("POST /echo HTTP/1.1\r\nHost: localhost\r\nExpect: something-else\r\n"
+      + "Content-Length: 5\r\n\r\n");
+    assertTrue(expectation.startsWith("HTTP/1.1 417 "), expectation);
+  }
+
+  @Test
+  void testLargeUnreadUploads_stillGetTheirResponse() throws Exception {
+    // the client sends its whole body before reading, as simple clients do
+    String tooLarge = uploadThenRead("POST /echo HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3000000\r\n\r\n", 3_000_000);
+    assertTrue(tooLarge.startsWith("HTTP/1.1 413 "), tooLarge);
+    assertTrue(tooLarge.contains("Connection: close\r\n"), tooLarge);
+
+    String missing = uploadThenRead("POST /nope HTTP/1.1\r\nHost: localhost\r\nContent-Length: 800000\r\n\r\n", 800_000);
+    assertTrue(missing.startsWith("HTTP/1.1 404 "), missing);
+    assertTrue(missing.contains("Connection: close\r\n"), missing);
+
+    String ignored = uploadThenRead("GET /hello HTTP/1.1\r\nHost: localhost\r\nContent-Length: 800000\r\n\r\n", 800_000);
+    assertTrue(ignored.startsWith("HTTP/1.1 200 OK\r\n"), ignored);
+    assertTrue(ignored.endsWith("Hello World\n"), ignored);
+  }
+
+  private static String uploadThenRead(String head, int bodyBytes) throws Exception {
+    try (Socket s = new Socket("localhost", serverPort)) {
+      s.setSoTimeout(5000);
+      Thread writer = new Thread(() -> {
+        try {
+          s.getOutputStream().write(head.getBytes(StandardCharsets.US_ASCII));
+          byte[] piece = new byte[64 * 1024];
+          for (int sent = 0; sent < bodyBytes; sent += piece.length) {
+            s.getOutputStream().write(piece, 0, Math.min(piece.length, bodyBytes - sent));
+          }
+        } catch (IOException ignored) {} // the assertion is on what comes back
+      });
+      writer.start();
+      writer.join(10_000);
+      return new String(s.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static final String WS_UPGRADE = "GET /ws HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n"
+    + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n";
+
+  private static Socket openWebSocket(String extraHeaders) throws IOException {
+    Socket s = new Socket("localhost", serverPort);
+    s.setSoTimeout(5000);
+    s.getOutputStream().write((WS_UPGRADE + extraHeaders + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    String head = readUntil(s.getInputStream(), "\r\n\r\n");
+    assertTrue(head.startsWith("HTTP/1.1 101 Switching Protocols\r\n"), head);
+    assertTrue(head.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n"));
+    return s;
+  }
+
+  // Client frame (masked); server frames come back unmasked with a short header
+  private static void wsSend(Socket s, boolean fin, boolean rsv1, int opcode, byte[] payload) throws IOException {
+    java.io.ByteArrayOutputStream frame = new java.io.ByteArrayOutputStream();
+    int key = 0x5a5a1234;
+    frame.write((fin ? 0x80 : 0) | (rsv1 ? 0x40 : 0) | opcode);
+    frame.write(0x80 | payload.length); // tests stay under 126 bytes
+    frame.write(new byte[]{0x5a, 0x5a, 0x12, 0x34});
+    for (int i = 0; i < payload.length; i++) frame.write(payload[i] ^ (key >>> (24 - 8 * (i & 3))));
+    s.getOutputStream().write(frame.toByteArray());
+  }
+
+  private static byte[] wsRead(Socket s, int[] opcode) throws IOException {
+    var in = s.getInputStream();
+    int b0 = in.read();
+    int len = in.read() & 0x7F;
+    if (len == 126) len = (in.read() << 8) | in.read();
+    opcode[0] = b0 & 0x0F;
+    return in.readNBytes(len);
+  }
+
+  @Test
+  void testWebSocket_echoFragmentsPingAndClose() throws IOException {
+    try (Socket s = openWebSocket("")) {
+      int[] op = new int[1];
+      wsSend(s, true, false, 0x1, "hi".getBytes(StandardCharsets.UTF_8));
+      assertEquals("echo: hi", new String(wsRead(s, op), StandardCharsets.UTF_8));
+      assertEquals(0x1, op[0]);
+
+      // fragmented message with a ping in between
+      wsSend(s, false, false, 0x1, "frag".getBytes(StandardCharsets.UTF_8));
+      wsSend(s, true, false, 0x9, "p".getBytes(StandardCharsets.UTF_8));
+      wsSend(s, true, false, 0x0, "mented".getBytes(StandardCharsets.UTF_8));
+      assertEquals("p", new String(wsRead(s, op), StandardCharsets.UTF_8));
+      assertEquals(0xA, op[0]);
+      assertEquals("echo: fragmented", new String(wsRead(s, op), StandardCharsets.UTF_8));
+
+      wsSend(s, true, false, 0x8, new byte[]{0x03, (byte) 0xE8});
+      byte[] close = wsRead(s, op);
+      assertEquals(0x8, op[0]);
+      assertArrayEquals(new byte[]{0x03, (byte) 0xE8}, close);
+      assertEquals(-1, s.getInputStream().read());
+    }
+  }
+
+  @Test
+  void testWebSocket_permessageDeflate() throws Exception {
+    try (Socket s = new Socket("localhost", serverPort)) {
+      s.setSoTimeout(5000);
+      s.getOutputStream().write((WS_UPGRADE + "Sec-WebSocket-Extensions: permessage-deflate\r\n\r\n")
+        .getBytes(StandardCharsets.US_ASCII));
+      String head = readUntil(s.getInputStream(), "\r\n\r\n");
+      assertTrue(head.contains("Sec-WebSocket-Extensions: permessage-deflate"), head);
+
+      String text = "compress me ".repeat(20);
+      java.util.zip.Deflater d = new java.util.zip.Deflater(6, true);
+      d.setInput(text.getBytes(StandardCharsets.UTF_8));
+      byte[] buf = new byte[1024];
+      int n = d.deflate(buf, 0, buf.length, java.util.zip.Deflater.SYNC_FLUSH);
+      d.end();
+      wsSend(s, true, true, 0x1, java.util.Arrays.copyOf(buf, n - 4));
+
+      var in = s.getInputStream();
+      int b0 = in.read();
+      assertEquals(0xC1, b0); // FIN + RSV1 + text: the echo came back compressed too
+      byte[] packed = in.readNBytes(in.read() & 0x7F);
+      java.util.zip.Inflater inf = new java.util.zip.Inflater(true);
+      packed = java.util.Arrays.copyOf(packed, packed.length + 4);
+      packed[packed.length - 2] = (byte) 0xFF;
+      packed[packed.length - 1] = (byte) 0xFF;
+      inf.setInput(packed);
+      byte[] plain = new byte[4096];
+      int got = inf.inflate(plain);
+      inf.end();
+      assertEquals("echo: " + text, new String(plain, 0, got, StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void testWebSocket_badHandshakeStaysHttp() throws IOException {
+    String response = rawRequest("GET /ws HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+    assertTrue(response.startsWith("HTTP/1.1 426 Upgrade Required\r\n"), response);
+    try (Socket s = new Socket("localhost", serverPort)) {
+      s.setSoTimeout(5000);
+      s.getOutputStream().write((WS_UPGRADE.replace("Version: 13", "Version: 8") + "\r\n")
+        .getBytes(StandardCharsets.US_ASCII));
+      response = readUntil(s.getInputStream(), "\r\n\r\n");
+      assertTrue(response.startsWith("HTTP/1.1 426 Upgrade Required\r\n"), response);
+      assertTrue(response.contains("Sec-WebSocket-Version: 13\r\n"), response);
+    }
+  }
+
+  private static String readUntil(java.io.InputStream in, String marker) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int b;
+    while (sb.indexOf(marker) < 0 && (b = in.read()) >= 0) sb.append((char) b);
+    return sb.toString();
+  }
+
+  // Sends bytes as-is (HttpURLConnection rejects malformed targets) and reads until the server closes
+  private static String rawRequest(String request) throws IOException {
+    return new String(rawRequestBytes(request), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] rawRequestBytes(String request) throws IOException {
+    try (Socket socket = new Socket("localhost", serverPort)) {
+      socket.setSoTimeout(5000);
+      socket.getOutputStream().write(request.getBytes(StandardCharsets.US_ASCII));
+      socket.getOutputStream().flush();
+      return socket.getInputStream().readAllBytes();
+    }
   }
-}
\ No newline at end of file
+}
@@ -5,6 +5,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 public class JsonTest {
@@ -67,4 +70,17 @@ public class JsonTest {
         
         assertEquals("Hello World", data.get("message"));
     }
+
+    @Test
+    void testWriterFor_cachedPerClassAndLeavesStreamOpen() throws IOException {
+        assertTrue(Json.writerFor(Map.of("a", 1)) == Json.writerFor(Map.of("b", 2)));
+
+        var closed = new boolean[1];
+        var out = new ByteArrayOutputStream() {
+            @Override public void close() { closed[0] = true; }
+        };
+        Json.writerFor(List.of(1, 2)).writeValue(out, List.of(1, 2));
+        assertEquals("[1,2]", out.toString());
+        assertTrue(!closed[0], "response body must stay open for the caller to finish");
+    }
 }
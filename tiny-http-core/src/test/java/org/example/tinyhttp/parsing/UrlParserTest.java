@@ -1,10 +1,12 @@
 package org.example.tinyhttp.parsing;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.Test;
@@ -101,6 +103,63 @@ public class UrlParserTest {
   }
   //#endregion
 
+  //#region tokenizeTarget
+  @Test
+  void testTokenizeTarget_cleanPathIsNotCopied() throws IOException {
+    String target = "/users/42/profile";
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget(target, t);
+
+    assertSame(target, t.normalizedPath());
+    assertEquals(3, t.count());
+    assertEquals("42", t.segment(1));
+    assertEquals("", t.rawQuery());
+  }
+
+  @Test
+  void testTokenizeTarget_splitsQueryAndNormalizes() throws IOException {
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget("/api//v1/./users/?tab=a?b", t);
+
+    assertEquals("/api/v1/users", t.normalizedPath());
+    assertEquals("tab=a?b", t.rawQuery());
+    assertEquals(3, t.count());
+    assertEquals("v1/users", t.join(1));
+  }
+
+  @Test
+  void testTokenizeTarget_matchesNormalizePath() throws IOException {
+    PathTokens t = new PathTokens();
+    for (String p : new String[]{"/", "/users/42", "/users//42///profile", "/users/./42", "/a/b/", "/.", "/..."}) {
+      UrlParser.tokenizeTarget(p, t);
+      assertEquals(UrlParser.normalizePath(p), t.normalizedPath(), p);
+    }
+  }
+
+  @Test
+  void testTokenizeTarget_rejectsTraversalBeforeQuery() {
+    PathTokens t = new PathTokens();
+    IOException ex = assertThrows(IOException.class, () -> UrlParser.tokenizeTarget("/a/../b?x=1", t));
+    assertTrue(ex.getMessage().contains("Path traversal not allowed"));
+  }
+
+  @Test
+  void testTokenizeTarget_dotsInQueryAreNotPathSegments() throws IOException {
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget("/files?path=../etc", t);
+    assertEquals("/files", t.normalizedPath());
+    assertEquals("path=../etc", t.rawQuery());
+  }
+
+  @Test
+  void testTokenizeTarget_wildcard() throws IOException {
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget("*", t);
+    assertEquals("*", t.normalizedPath());
+    assertEquals(1, t.count());
+  }
+  //#endregion
+
   //#region pctDecode
   @Test
   void testPctDecode_simpleString() throws IOException {
@@ -251,7 +310,51 @@ public class UrlParserTest {
   }
   //#endregion
 
+  //#region parseQueryFlat
+  @Test
+  void testParseQueryFlat_pairsInOrder() throws IOException {
+    String[] kv = UrlParser.parseQueryFlat("a=1&b&a=%32", 1000);
+    assertEquals(6, kv.length);
+    assertEquals("a", kv[0]);
+    assertEquals("1", kv[1]);
+    assertEquals("b", kv[2]);
+    assertEquals("", kv[3]);
+    assertEquals("2", kv[5]);
+  }
+
+  @Test
+  void testParseQueryFlat_noPercentReturnsOriginalString() throws IOException {
+    String raw = "verbose";
+    assertSame(raw, UrlParser.parseQueryFlat(raw, 1000)[0]);
+  }
+
+  @Test
+  void testParseQueryFlat_configurableLimit() {
+    IOException ex = assertThrows(IOException.class, () -> UrlParser.parseQueryFlat("a=1&b=2&c=3", 2));
+    assertTrue(ex.getMessage().contains("too many request params"));
+  }
+  //#endregion
+
   //#region Url class tests
+  @Test
+  void testUrl_lazyQuery() {
+    Url url = new Url("/s?q=tiny%20http&tag=a&tag=b", "/s", "q=tiny%20http&tag=a&tag=b", 1000);
+
+    assertEquals("tiny http", url.q1("q"));
+    assertEquals(List.of("a", "b"), url.qAll("tag"));
+    assertEquals(List.of("a", "b"), url.query().get("tag"));
+    assertEquals(null, url.q1("missing"));
+  }
+
+  @Test
+  void testUrl_lazyQueryErrorSurfacesOnAccess() {
+    Url url = new Url("/s?q=%zz", "/s", "q=%zz", 1000);
+
+    assertEquals("/s", url.path()); // untouched query does not fail the request
+    UncheckedIOException ex = assertThrows(UncheckedIOException.class, () -> url.q1("q"));
+    assertTrue(ex.getCause().getMessage().contains("Bad precent-escape"));
+  }
+
   @Test
   void testUrl_constructorAndGetters() {
     Map<String, List<String>> query = Map.of("tab", List.of("activity"), "sort", List.of("name"));
@@ -0,0 +1,82 @@
+package org.example.tinyhttp.routing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.example.tinyhttp.http.response.PreparedResponse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class CachedHandlerTest {
+
+  private final AtomicInteger renders = new AtomicInteger();
+
+  private ResponseRenderer counting() {
+    return ctx -> PreparedResponse.json(200, "OK", Map.of("n", renders.incrementAndGet()));
+  }
+
+  private static String serve(CachedHandler h) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    h.handle(null, out, true);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testForever_rendersOnce() throws IOException {
+    CachedHandler h = new CachedHandler(CachePolicy.forever(), counting());
+    String first = serve(h);
+    String second = serve(h);
+
+    assertEquals(1, renders.get());
+    assertTrue(first.contains("Content-Type: application/json; charset=utf-8\r\nContent-Length: 7\r\n"), first);
+    assertTrue(second.endsWith("\r\n\r\n{\"n\":1}"));
+  }
+
+  @Test
+  void testVersioned_rerendersWhenCounterMoves() throws IOException {
+    AtomicLong version = new AtomicLong();
+    CachedHandler h = new CachedHandler(CachePolicy.versioned(version::get), counting());
+    serve(h);
+    serve(h);
+    version.incrementAndGet();
+    assertTrue(serve(h).endsWith("{\"n\":2}"));
+    assertEquals(2, renders.get());
+  }
+
+  @Test
+  void testTtl_expires() throws Exception {
+    CachedHandler h = new CachedHandler(CachePolicy.ttl(Duration.ofMillis(200)), counting());
+    serve(h);
+    serve(h);
+    Thread.sleep(300);
+    serve(h);
+    assertEquals(2, renders.get());
+  }
+
+  @Test
+  void testInvalidate() throws IOException {
+    CachedHandler h = new CachedHandler(CachePolicy.forever(), counting());
+    serve(h);
+    h.invalidate();
+    serve(h);
+    assertEquals(2, renders.get());
+  }
+
+  @Test
+  void testTtl_mustBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> CachePolicy.ttl(Duration.ZERO));
+  }
+
+  @Test
+  void testRouterRegistration() {
+    Router router = new Router().getCached("/cfg", CachePolicy.forever(), counting());
+    assertTrue(router.find("GET", "/cfg").get().handler instanceof CachedHandler);
+  }
+}
@@ -0,0 +1,119 @@
+package org.example.tinyhttp.routing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.example.tinyhttp.context.RequestContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class RouteGroupTest {
+
+  private static Middleware recording(List<String> calls, String name) {
+    return (ctx, out, keepAlive, next) -> {
+      calls.add(name + ">");
+      next.handle(ctx, out, keepAlive);
+      calls.add("<" + name);
+    };
+  }
+
+  //#region Prefix mounting
+  @Test
+  void testGroup_mountsRoutesUnderPrefix() {
+    Router router = new Router()
+        .group("/api/v1", api -> api
+            .get("/users/:id", (ctx, out, keepAlive) -> {})
+            .post("users", (ctx, out, keepAlive) -> {}));
+
+    Optional<Router.Match> match = router.find("GET", "/api/v1/users/7");
+    assertTrue(match.isPresent());
+    assertEquals("7", match.get().pathVars.get("id"));
+    assertTrue(router.find("POST", "/api/v1/users").isPresent());
+    assertFalse(router.find("GET", "/users/7").isPresent());
+  }
+
+  @Test
+  void testGroup_nestedPrefixes() {
+    Router router = new Router();
+    router.group("/api/").group("/admin/").get("/stats", (ctx, out, keepAlive) -> {});
+
+    assertTrue(router.find("GET", "/api/admin/stats").isPresent());
+  }
+  //#endregion
+
+  //#region Middleware chains
+  @Test
+  void testMiddleware_runsInRegistrationOrderAroundHandler() throws IOException {
+    List<String> calls = new ArrayList<>();
+    Router router = new Router()
+        .use(recording(calls, "root"))
+        .group("/api", api -> api
+            .use(recording(calls, "auth"))
+            .use(recording(calls, "metrics"))
+            .get("/ping", (ctx, out, keepAlive) -> calls.add("handler")));
+
+    router.find("GET", "/api/ping").get().handler.handle(null, null, true);
+
+    assertEquals(List.of("root>", "auth>", "metrics>", "handler", "<metrics", "<auth", "<root"), calls);
+  }
+
+  @Test
+  void testMiddleware_canShortCircuit() throws IOException {
+    List<String> calls = new ArrayList<>();
+    Router router = new Router()
+        .group("/admin", admin -> admin
+            .use((ctx, out, keepAlive, next) -> calls.add("denied"))
+            .get("/secret", (ctx, out, keepAlive) -> calls.add("handler")));
+
+    router.find("GET", "/admin/secret").get().handler.handle(null, null, true);
+
+    assertEquals(List.of("denied"), calls);
+  }
+
+  @Test
+  void testMiddleware_onlyAppliesToRoutesRegisteredAfterIt() throws IOException {
+    List<String> calls = new ArrayList<>();
+    RouteHandler plain = (ctx, out, keepAlive) -> calls.add("plain");
+    Router router = new Router()
+        .get("/before", plain)
+        .use(recording(calls, "mw"))
+        .get("/after", (ctx, out, keepAlive) -> calls.add("after"));
+
+    assertSame(plain, router.find("GET", "/before").get().handler);
+    router.find("GET", "/after").get().handler.handle(null, null, true);
+    assertEquals(List.of("mw>", "after", "<mw"), calls);
+  }
+
+  @Test
+  void testMiddleware_siblingGroupsDoNotShareChains() throws IOException {
+    List<String> calls = new ArrayList<>();
+    Router router = new Router()
+        .group("/a", a -> a.use(recording(calls, "a")).get("/x", (ctx, out, keepAlive) -> calls.add("ax")))
+        .group("/b", b -> b.get("/x", (ctx, out, keepAlive) -> calls.add("bx")));
+
+    router.find("GET", "/b/x").get().handler.handle(null, null, true);
+
+    assertEquals(List.of("bx"), calls);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void testMiddleware_keepsHandlerMetaData() {
+    ResponseMetaData meta = new ResponseMetaData("application/json", 42);
+    RouteHandler handler = new RouteHandler() {
+      @Override public void handle(RequestContext ctx, OutputStream out, boolean keepAlive) {}
+      @Override public ResponseMetaData getMetaData(RequestContext ctx) { return meta; }
+    };
+    Router router = new Router().use(recording(new ArrayList<>(), "mw")).get("/meta", handler);
+
+    assertSame(meta, router.find("GET", "/meta").get().handler.getMetaData(null));
+  }
+  //#endregion
+}
@@ -1,12 +1,17 @@
 package org.example.tinyhttp.routing;
 
+import java.io.IOException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.example.tinyhttp.parsing.PathTokens;
+import org.example.tinyhttp.parsing.UrlParser;
 import org.junit.jupiter.api.Test;
 
 public class RouterTest {
@@ -523,4 +528,129 @@ public class RouterTest {
       assertTrue(match.isPresent());
       assertNotNull(match.get().handler);
   }
-}
\ No newline at end of file
+
+  //#region Catch-all and constrained params
+  @Test
+  void testFind_catchAllCapturesRemainingSegments() {
+    Router router = new Router();
+    router.get("/static/*path", (ctx, out, keepAlive) -> {});
+
+    Optional<Router.Match> match = router.find("GET", "/static/css/site/main.css");
+
+    assertTrue(match.isPresent());
+    assertEquals("css/site/main.css", match.get().pathVars.get("path"));
+  }
+
+  @Test
+  void testFind_catchAllMatchesZeroSegments() {
+    Router router = new Router();
+    router.get("/static/*path", (ctx, out, keepAlive) -> {});
+
+    Optional<Router.Match> match = router.find("GET", "/static");
+
+    assertTrue(match.isPresent());
+    assertEquals("", match.get().pathVars.get("path"));
+    assertFalse(router.find("GET", "/other/file").isPresent());
+  }
+
+  @Test
+  void testRoute_catchAllMustBeLast() {
+    Router router = new Router();
+    assertThrows(IllegalArgumentException.class, () ->
+        router.get("/static/*path/more", (ctx, out, keepAlive) -> {}));
+  }
+
+  @Test
+  void testFind_intConstraint() {
+    Router router = new Router();
+    router.get("/users/:id{int}", (ctx, out, keepAlive) -> {});
+
+    Optional<Router.Match> match = router.find("GET", "/users/-42");
+
+    assertTrue(match.isPresent());
+    assertEquals(-42, match.get().pathValues.get("id"));
+    assertEquals("-42", match.get().pathVars.get("id"));
+    assertFalse(router.find("GET", "/users/abc").isPresent());
+    assertFalse(router.find("GET", "/users/99999999999").isPresent()); // overflows int
+  }
+
+  @Test
+  void testFind_longAndUuidConstraints() {
+    Router router = new Router();
+    router.get("/orders/:id{long}", (ctx, out, keepAlive) -> {});
+    router.get("/sessions/:sid{uuid}", (ctx, out, keepAlive) -> {});
+
+    assertEquals(9_000_000_000L, router.find("GET", "/orders/9000000000").get().pathValues.get("id"));
+    assertEquals(Long.MIN_VALUE, router.find("GET", "/orders/-9223372036854775808").get().pathValues.get("id"));
+    assertEquals(Long.MAX_VALUE, router.find("GET", "/orders/9223372036854775807").get().pathValues.get("id"));
+    assertFalse(router.find("GET", "/orders/9223372036854775808").isPresent());
+    assertFalse(router.find("GET", "/orders/-9223372036854775809").isPresent());
+
+    UUID sid = UUID.randomUUID();
+    Optional<Router.Match> match = router.find("GET", "/sessions/" + sid);
+    assertTrue(match.isPresent());
+    assertEquals(sid, match.get().pathValues.get("sid"));
+    assertFalse(router.find("GET", "/sessions/not-a-uuid").isPresent());
+  }
+
+  @Test
+  void testFind_regexConstraint() {
+    Router router = new Router();
+    router.get("/posts/:slug{[a-z0-9-]+}", (ctx, out, keepAlive) -> {});
+
+    assertTrue(router.find("GET", "/posts/hello-world-2").isPresent());
+    assertFalse(router.find("GET", "/posts/Hello_World").isPresent());
+  }
+
+  @Test
+  void testFind_constraintFallsThroughToNextRoute() {
+    Router router = new Router();
+    RouteHandler byId = (ctx, out, keepAlive) -> {};
+    RouteHandler byName = (ctx, out, keepAlive) -> {};
+    router.get("/users/:id{int}", byId);
+    router.get("/users/:name", byName);
+
+    assertEquals(byId, router.find("GET", "/users/7").get().handler);
+    assertEquals(byName, router.find("GET", "/users/alice").get().handler);
+  }
+
+  @Test
+  void testAllowedForPath_respectsConstraints() {
+    Router router = new Router();
+    router.get("/users/:id{int}", (ctx, out, keepAlive) -> {});
+
+    assertTrue(router.allowedForPath("/users/1").contains("GET"));
+    assertFalse(router.allowedForPath("/users/x").contains("GET"));
+  }
+  //#endregion
+
+  //#region Matching on tokenized targets
+  @Test
+  void testFind_tokenizedTargetWithQueryAndDoubleSlashes() throws IOException {
+    Router router = new Router();
+    router.get("/users/:id{int}/files/*rest", (ctx, out, keepAlive) -> {});
+
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget("/users//42/files/./a/b.txt?x=1", t);
+    Optional<Router.Match> match = router.find("GET", t);
+
+    assertTrue(match.isPresent());
+    assertEquals(42, match.get().pathValues.get("id"));
+    assertEquals("a/b.txt", match.get().pathVars.get("rest"));
+  }
+
+  @Test
+  void testFind_tokensReusedAcrossRequests() throws IOException {
+    Router router = new Router();
+    router.get("/users/:id", (ctx, out, keepAlive) -> {});
+
+    PathTokens t = new PathTokens();
+    UrlParser.tokenizeTarget("/users/1", t);
+    Router.Match first = router.find("GET", t).get();
+    UrlParser.tokenizeTarget("/users/2/extra", t);
+
+    assertFalse(router.find("GET", t).isPresent());
+    assertEquals("1", first.pathVars.get("id"));
+  }
+  //#endregion
+}
@@ -0,0 +1,188 @@
+package org.example.tinyhttp.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.tinyhttp.http.response.HttpResponses;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ConnectionOutputTest {
+
+  // Counts write calls the way the kernel would see them
+  static final class CountingStream extends OutputStream {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int writes;
+
+    @Override public void write(int b) { writes++; bytes.write(b); }
+    @Override public void write(byte[] b, int off, int len) { writes++; bytes.write(b, off, len); }
+  }
+
+  static class CountingChannel implements GatheringByteChannel {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    int writes;
+
+    @Override public long write(ByteBuffer[] srcs, int offset, int length) {
+      writes++;
+      long n = 0;
+      for (int i = offset; i < offset + length; i++) n += write0(srcs[i]);
+      return n;
+    }
+    @Override public long write(ByteBuffer[] srcs) { return write(srcs, 0, srcs.length); }
+    @Override public int write(ByteBuffer src) { writes++; return write0(src); }
+    @Override public boolean isOpen() { return true; }
+    @Override public void close() {}
+
+    private int write0(ByteBuffer src) {
+      int n = src.remaining();
+      byte[] b = new byte[n];
+      src.get(b);
+      bytes.write(b, 0, n);
+      return n;
+    }
+  }
+
+  @Test
+  void testSmallResponse_isOneWrite() throws IOException {
+    CountingStream raw = new CountingStream();
+    ConnectionOutput out = new ConnectionOutput(raw);
+
+    HttpResponses.writeText(out, 200, "OK", "hello\n", true);
+
+    assertEquals(1, raw.writes);
+    assertEquals(1, out.writeCount());
+    assertEquals(true, raw.bytes.toString().endsWith("\r\n\r\nhello\n"));
+  }
+
+  @Test
+  void testLargeBody_gatheredWithHeadOnChannel() throws IOException {
+    CountingChannel ch = new CountingChannel();
+    ConnectionOutput out = new ConnectionOutput(null, ch, 256);
+
+    byte[] body = new byte[10_000];
+    HttpResponses.writeRaw(out, 200, "OK", "application/octet-stream", body, true, null);
+
+    assertEquals(1, ch.writes);
+    String all = ch.bytes.toString();
+    assertEquals(body.length, all.length() - all.indexOf("\r\n\r\n") - 4);
+  }
+
+  @Test
+  void testFlush_deferredWhilePipelinedInputPending() throws IOException {
+    CountingStream raw = new CountingStream();
+    ConnectionOutput out = new ConnectionOutput(raw);
+    AtomicBoolean pending = new AtomicBoolean(true);
+    out.deferFlushWhile(pending::get);
+
+    HttpResponses.writeText(out, 200, "OK", "a", true);
+    HttpResponses.writeText(out, 200, "OK", "b", true);
+    assertEquals(0, raw.writes);
+
+    pending.set(false);
+    HttpResponses.writeText(out, 200, "OK", "c", true);
+    assertEquals(1, raw.writes); // three responses, one write
+  }
+
+  @Test
+  void testFlushBefore_sendsBufferedBytesBeforeReading() throws IOException {
+    CountingStream raw = new CountingStream();
+    ConnectionOutput out = new ConnectionOutput(raw);
+    out.deferFlushWhile(() -> true);
+
+    out.write(new byte[]{1, 2, 3});
+    out.flush();
+    assertEquals(3, out.buffered());
+
+    out.flushBefore(new ByteArrayInputStream(new byte[]{9})).read();
+    assertEquals(0, out.buffered());
+    assertEquals(1, raw.writes);
+  }
+
+  @Test
+  void testByteBuffer_largeGoesOutWithHeadInOneWrite() throws IOException {
+    CountingChannel ch = new CountingChannel();
+    ConnectionOutput out = new ConnectionOutput(null, ch, 64);
+    out.write("HEAD\r\n".getBytes());
+    out.write(ByteBuffer.wrap(new byte[1000]));
+
+    assertEquals(1, ch.writes);
+    assertEquals(1006, ch.bytes.size());
+  }
+
+  @Test
+  void testByteBuffer_streamFallbackCopiesThroughBuffer() throws IOException {
+    CountingStream raw = new CountingStream();
+    ConnectionOutput out = new ConnectionOutput(raw, null, 64);
+    out.write(ByteBuffer.wrap(new byte[200]));
+    out.flushNow();
+
+    assertEquals(200, raw.bytes.size());
+  }
+
+  @Test
+  void testTransferFrom_stalledTargetFallsBackToBufferedCopy(@TempDir Path dir) throws IOException {
+    byte[] content = new byte[20_000];
+    for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+    Path file = Files.write(dir.resolve("f.bin"), content);
+    // the first write takes nothing, as a full non-blocking socket would
+    CountingChannel ch = new CountingChannel() {
+      boolean stalled;
+      @Override public int write(ByteBuffer src) {
+        if (!stalled) {
+          stalled = true;
+          writes++;
+          return 0;
+        }
+        return super.write(src);
+      }
+    };
+    ConnectionOutput out = new ConnectionOutput(null, ch, 8192);
+    try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+      out.transferFrom(fc, 0, content.length);
+    }
+
+    assertArrayEquals(content, ch.bytes.toByteArray());
+    assertEquals(3, out.writeCount()); // 8192 + 8192 + 3616; the empty write is not counted
+    assertEquals(4, ch.writes);
+  }
+
+  @Test
+  void testSendFile_plainStreamCopiesTheRange(@TempDir Path dir) throws IOException {
+    byte[] content = new byte[20_000];
+    for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+    Path file = Files.write(dir.resolve("f.bin"), content);
+    CountingStream raw = new CountingStream(); // not a ConnectionOutput, as for an h2 stream
+    try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+      ConnectionOutput.sendFile(fc, 100, 15_000, raw);
+    }
+    assertArrayEquals(Arrays.copyOfRange(content, 100, 15_100), raw.bytes.toByteArray());
+  }
+
+  @Test
+  void testSendFile_fileTruncatedAfterStatFails(@TempDir Path dir) throws IOException {
+    Path file = Files.write(dir.resolve("f.bin"), new byte[20_000]);
+    try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      fc.truncate(5_000); // shrank between the stat and the send
+      OutputStream[] targets = {new CountingStream(), new ConnectionOutput(null, new CountingChannel(), 64)};
+      for (OutputStream target : targets) {
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+          () -> assertThrows(IOException.class, () -> ConnectionOutput.sendFile(fc, 0, 20_000, target)));
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.example.tinyhttp.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class SocketTuningTest {
+
+  @Test
+  void testApply_setsOptionsOnAcceptedSocket() throws IOException {
+    SocketTuning tuning = new SocketTuning(true, 64 * 1024, 128 * 1024, true, 2, 16 * 1024);
+    try (ServerSocketChannel listener = ServerSocketChannel.open()) {
+      tuning.applyToListener(listener);
+      listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+      try (SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+           SocketChannel accepted = listener.accept()) {
+        tuning.apply(accepted);
+        assertTrue(accepted.getOption(StandardSocketOptions.TCP_NODELAY));
+        assertTrue(accepted.getOption(StandardSocketOptions.SO_KEEPALIVE));
+        assertEquals(2, accepted.getOption(StandardSocketOptions.SO_LINGER));
+        // the OS may round or double what was asked for, never grant less here
+        assertTrue(accepted.getOption(StandardSocketOptions.SO_SNDBUF) >= 64 * 1024);
+        assertTrue(accepted.getOption(StandardSocketOptions.SO_RCVBUF) >= 128 * 1024);
+      }
+    }
+  }
+
+  @Test
+  void testEffective_reportsWhatTheOsGrants() {
+    var m = new SocketTuning(false, 0, 0, false, -1, 4096).effective();
+    assertFalse(m.containsKey("error"), m.toString());
+    assertEquals(false, m.get("tcpNoDelay"));
+    assertEquals(-1, m.get("soLinger"));
+    assertTrue((int) m.get("soSndBuf") > 0); // OS default
+    assertEquals(4096, m.get("writeBufferSize"));
+  }
+}
@@ -0,0 +1,162 @@
+package org.example.tinyhttp.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.example.tinyhttp.config.Config;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.routing.Router;
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class UnixSocketListenerTest {
+  private static Path dir;
+  private static Path socketPath;
+  private static HttpServerInstance server;
+
+  @BeforeAll
+  static void start() throws IOException {
+    dir = Files.createTempDirectory("tinyhttp-uds");
+    socketPath = dir.resolve("http.sock");
+    Router router = new Router()
+      .get("/hello", (ctx, out, keepAlive) -> HttpResponses.writeText(out, 200, "OK", "hello unix\n", keepAlive))
+      .post("/echo", (ctx, out, keepAlive) ->
+        HttpResponses.writeRaw(out, 200, "OK", "text/plain", ctx.request().getBody(), keepAlive, null));
+    // UNIX socket only: no TCP port is bound
+    server = new HttpServerInstance(Config.forTesting(0).withUnixSocket(socketPath.toString(), false), router);
+    server.start();
+  }
+
+  @AfterAll
+  static void stop() throws IOException {
+    if (server != null) server.stop();
+    assertFalse(Files.exists(socketPath)); // the socket file goes with the listener
+    Files.deleteIfExists(dir);
+  }
+
+  @Test
+  void testKeepAliveAndPipelining_overUnixSocket() throws IOException {
+    try (SocketChannel ch = connect()) {
+      InputStream in = Channels.newInputStream(ch);
+      send(ch, "GET /hello HTTP/1.1\r\nHost: local\r\n\r\n");
+      assertTrue(readUntil(in, "hello unix\n").startsWith("HTTP/1.1 200 OK\r\n"));
+
+      // two pipelined requests on the same connection
+      send(ch, "GET /hello HTTP/1.1\r\nHost: local\r\n\r\nGET /hello HTTP/1.1\r\nHost: local\r\n\r\n");
+      String both = readUntil(in, "hello unix\n") + readUntil(in, "hello unix\n");
+      assertEquals(2, both.split("HTTP/1.1 200 OK", -1).length - 1);
+    }
+  }
+
+  @Test
+  void testLargeBody_roundTrips() throws IOException {
+    try (SocketChannel ch = connect()) {
+      InputStream in = Channels.newInputStream(ch);
+      String body = "z".repeat(500_000);
+      send(ch, "POST /echo HTTP/1.1\r\nHost: local\r\nContent-Length: " + body.length()
+        + "\r\nConnection: close\r\n\r\n" + body);
+      String response = new String(in.readAllBytes(), StandardCharsets.ISO_8859_1);
+      assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response.substring(0, 40));
+      assertTrue(response.endsWith("\r\n\r\n" + body));
+    }
+  }
+
+  @Test
+  void testIdleConnection_closedAfterHeaderTimeout() throws IOException {
+    try (SocketChannel ch = connect()) {
+      long start = System.nanoTime();
+      // nothing sent: the server's timed read gives up and closes the connection
+      assertEquals(-1, ch.read(ByteBuffer.allocate(1)));
+      long waitedMs = (System.nanoTime() - start) / 1_000_000;
+      assertTrue(waitedMs >= 2_000, "closed after " + waitedMs + "ms");
+    }
+  }
+
+  //#region Socket file
+  @Test
+  void testStaleSocketFile_isReplaced() throws IOException {
+    Path stale = dir.resolve("stale.sock");
+    try (ServerSocketChannel old = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      old.bind(UnixDomainSocketAddress.of(stale)); // closing leaves the file behind, like a crashed run
+    }
+    assertTrue(Files.exists(stale));
+    HttpServerInstance other = unixOnly(stale);
+    other.start();
+    try (SocketChannel ch = SocketChannel.open(UnixDomainSocketAddress.of(stale))) {
+      send(ch, "GET /nope HTTP/1.1\r\nHost: local\r\nConnection: close\r\n\r\n");
+      assertTrue(readUntil(Channels.newInputStream(ch), "\r\n").startsWith("HTTP/1.1 404"));
+    } finally {
+      other.stop();
+    }
+    assertFalse(Files.exists(stale));
+  }
+
+  @Test
+  void testLiveSocketOrOtherFile_failsStartupAndIsKept() throws IOException {
+    var e = assertThrows(IllegalStateException.class, () -> unixOnly(socketPath).start());
+    assertTrue(e.getMessage().contains("in use"), e.getMessage());
+    try (SocketChannel ch = connect()) { // the running server still owns its socket
+      send(ch, "GET /hello HTTP/1.1\r\nHost: local\r\nConnection: close\r\n\r\n");
+      assertTrue(readUntil(Channels.newInputStream(ch), "hello unix\n").endsWith("hello unix\n"));
+    }
+
+    Path file = Files.writeString(dir.resolve("not-a-socket"), "keep me");
+    try {
+      e = assertThrows(IllegalStateException.class, () -> unixOnly(file).start());
+      assertTrue(e.getMessage().contains("not a socket"), e.getMessage());
+      assertEquals("keep me", Files.readString(file));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void testStop_leavesAFileThatReplacedOurSocket() throws IOException {
+    Path path = dir.resolve("replaced.sock");
+    HttpServerInstance other = unixOnly(path);
+    other.start();
+    Files.delete(path);
+    Files.writeString(path, "someone else's");
+    other.stop();
+    try {
+      assertEquals("someone else's", Files.readString(path));
+    } finally {
+      Files.delete(path);
+    }
+  }
+  //#endregion
+
+  private static HttpServerInstance unixOnly(Path path) {
+    return new HttpServerInstance(Config.forTesting(0).withUnixSocket(path.toString(), false), new Router());
+  }
+
+  private static SocketChannel connect() throws IOException {
+    return SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+  }
+
+  private static void send(SocketChannel ch, String s) throws IOException {
+    ByteBuffer b = ByteBuffer.wrap(s.getBytes(StandardCharsets.ISO_8859_1));
+    while (b.hasRemaining()) ch.write(b);
+  }
+
+  private static String readUntil(InputStream in, String marker) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int b;
+    while (sb.indexOf(marker) < 0 && (b = in.read()) >= 0) sb.append((char) b);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,139 @@
+package org.example.tinyhttp.sse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SseHubTest {
+
+  private ServerSocketChannel listener;
+  private SseHub hub;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    listener = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    if (hub != null) hub.close();
+    listener.close();
+  }
+
+  // Client socket plus the server side handed to the hub
+  private Socket connect(EventSink[] sink) throws IOException {
+    Socket client = new Socket("localhost", listener.socket().getLocalPort());
+    client.setSoTimeout(5000);
+    SocketChannel accepted = listener.accept();
+    sink[0] = hub.subscribe(accepted);
+    return client;
+  }
+
+  private static String read(InputStream in, String until) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    while (!sb.toString().contains(until)) {
+      int b = in.read();
+      if (b < 0) break;
+      sb.append((char) b);
+    }
+    return sb.toString();
+  }
+
+  private static void await(java.util.function.BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+  }
+
+  //#region Encoding
+  @Test
+  void testEncode_isOneChunkWithMultilineData() {
+    String chunk = new String(SseHub.encode("7", "tick", "a\nb"), StandardCharsets.UTF_8);
+    assertEquals("23\r\nid: 7\nevent: tick\ndata: a\ndata: b\n\n\r\n", chunk);
+  }
+
+  @Test
+  void testEncode_rejectsMultilineEventName() {
+    assertThrows(IllegalArgumentException.class, () -> SseHub.encode(null, "a\nb", "x"));
+  }
+  //#endregion
+
+  //#region Fan-out
+  @Test
+  void testPublish_reachesEverySubscriber() throws Exception {
+    hub = new SseHub(8, 0);
+    EventSink[] a = new EventSink[1], b = new EventSink[1];
+    try (Socket ca = connect(a); Socket cb = connect(b)) {
+      assertEquals(2, hub.publish("news", "hello"));
+      assertTrue(read(ca.getInputStream(), "\n\n\r\n").contains("event: news\ndata: hello\n"));
+      assertTrue(read(cb.getInputStream(), "\n\n\r\n").contains("event: news\ndata: hello\n"));
+    }
+  }
+
+  @Test
+  void testSinkSend_onlyThatClient_andCloseEndsStream() throws Exception {
+    hub = new SseHub(8, 0);
+    EventSink[] a = new EventSink[1];
+    try (Socket ca = connect(a)) {
+      a[0].send("just you");
+      a[0].close();
+      String all = new String(ca.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      assertTrue(all.contains("data: just you\n"));
+      assertTrue(all.endsWith("0\r\n\r\n"), all);
+      await(() -> hub.subscribers() == 0);
+      assertEquals(0, hub.subscribers());
+    }
+  }
+
+  @Test
+  void testSlowConsumer_isEvicted() throws Exception {
+    hub = new SseHub(4, 0);
+    EventSink[] a = new EventSink[1];
+    try (Socket ca = connect(a)) {
+      String big = "x".repeat(64 * 1024);
+      for (int i = 0; i < 400 && a[0].isOpen(); i++) hub.publish(null, big); // the client never reads
+
+      assertFalse(a[0].isOpen());
+      assertEquals(1, hub.evicted());
+      assertEquals(0, hub.subscribers());
+    }
+  }
+
+  @Test
+  void testHeartbeat_onlyForIdleStreams() throws Exception {
+    hub = new SseHub(64, 200);
+    EventSink[] busy = new EventSink[1], idle = new EventSink[1];
+    try (Socket cb = connect(busy); Socket ci = connect(idle)) {
+      for (int i = 0; i < 12; i++) { // a write every 50ms keeps this one under the interval
+        busy[0].send("e" + i);
+        Thread.sleep(50);
+      }
+      busy[0].close();
+      String busyStream = new String(cb.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      assertTrue(busyStream.contains("data: e11\n"), busyStream);
+      assertFalse(busyStream.contains("3\r\n:\n\n\r\n"), busyStream);
+      assertEquals("3\r\n:\n\n\r\n", read(ci.getInputStream(), "\n\n\r\n"));
+    }
+  }
+
+  @Test
+  void testDisconnectedClient_isRemoved() throws Exception {
+    hub = new SseHub(8, 0);
+    EventSink[] a = new EventSink[1];
+    connect(a).close();
+    await(() -> hub.subscribers() == 0);
+    assertEquals(0, hub.subscribers());
+  }
+  //#endregion
+}
@@ -0,0 +1,161 @@
+package org.example.tinyhttp.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import org.example.tinyhttp.config.Config;
+import org.example.tinyhttp.http.response.HttpResponses;
+import org.example.tinyhttp.routing.Router;
+import org.example.tinyhttp.server.HttpServerInstance;
+import org.junit.jupiter.api.AfterAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TlsServerTest {
+  private static final String PASSWORD = "changeit";
+  private static Path keystore;
+  private static HttpServerInstance server;
+  private static int port;
+  private static SSLContext clientContext;
+
+  @BeforeAll
+  static void start() throws Exception {
+    // self-signed certificate for localhost, made with the JDK's own keytool
+    keystore = Files.createTempDirectory("tinyhttp-tls").resolve("server.p12");
+    String keytool = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+    Process p = new ProcessBuilder(keytool, "-genkeypair", "-alias", "server", "-keyalg", "EC", "-groupname", "secp256r1",
+        "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1", "-validity", "2",
+        "-storetype", "PKCS12", "-keystore", keystore.toString(), "-storepass", PASSWORD)
+      .redirectErrorStream(true).start();
+    String output = new String(p.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    assertTrue(p.waitFor(60, TimeUnit.SECONDS) && p.exitValue() == 0, output);
+
+    KeyStore trusted = KeyStore.getInstance(keystore.toFile(), PASSWORD.toCharArray());
+    TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    tmf.init(trusted);
+    clientContext = SSLContext.getInstance("TLS");
+    clientContext.init(null, tmf.getTrustManagers(), null);
+
+    try (ServerSocket s = new ServerSocket(0)) {
+      port = s.getLocalPort();
+    }
+    Router router = new Router()
+      .get("/hello", (ctx, out, keepAlive) -> HttpResponses.writeText(out, 200, "OK", "hello tls\n", keepAlive))
+      .post("/echo", (ctx, out, keepAlive) ->
+        HttpResponses.writeRaw(out, 200, "OK", "text/plain", ctx.request().getBody(), keepAlive, null));
+    server = new HttpServerInstance(Config.forTesting(port).withTls(keystore.toString(), PASSWORD), router);
+    server.start();
+  }
+
+  @AfterAll
+  static void stop() throws IOException {
+    if (server != null) server.stop();
+    if (keystore != null) Files.deleteIfExists(keystore);
+  }
+
+  //#region ALPN
+  @Test
+  void alpnSelectsH2ForHttp2Clients() throws Exception {
+    HttpClient client = HttpClient.newBuilder().sslContext(clientContext).version(HttpClient.Version.HTTP_2).build();
+    var r = client.send(HttpRequest.newBuilder(URI.create("https://localhost:" + port + "/hello")).build(),
+      HttpResponse.BodyHandlers.ofString());
+    assertEquals(HttpClient.Version.HTTP_2, r.version());
+    assertEquals(200, r.statusCode());
+    assertEquals("hello tls\n", r.body());
+
+    var post = client.send(HttpRequest.newBuilder(URI.create("https://localhost:" + port + "/echo"))
+        .POST(HttpRequest.BodyPublishers.ofString("y".repeat(200_000))).build(),
+      HttpResponse.BodyHandlers.ofString());
+    assertEquals(200_000, post.body().length());
+  }
+
+  @Test
+  void http11OverTlsKeepsTheConnection() throws Exception {
+    try (SSLSocket s = connect("http/1.1")) {
+      assertEquals("http/1.1", s.getApplicationProtocol());
+      for (int i = 0; i < 3; i++) {
+        s.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        String response = readResponse(s.getInputStream(), "hello tls\n");
+        assertTrue(response.startsWith("HTTP/1.1 200 OK\r\n"), response);
+      }
+    }
+  }
+
+  @Test
+  void protocolErrorsAreAnsweredInsideTheSession() throws Exception {
+    try (SSLSocket s = connect("http/1.1")) {
+      s.getOutputStream().write("BROKEN\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      String response = readResponse(s.getInputStream(), null);
+      assertTrue(response.startsWith("HTTP/1.1 400 "), response);
+    }
+  }
+  //#endregion
+
+  //#region Handshakes
+  @Test
+  void reconnectingClientResumesItsSession() throws Exception {
+    long resumedBefore = server.getTls().resumed();
+    for (int i = 0; i < 3; i++) {
+      try (SSLSocket s = connect("http/1.1")) {
+        s.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+          .getBytes(StandardCharsets.US_ASCII));
+        readResponse(s.getInputStream(), null);
+      }
+    }
+    assertTrue(server.getTls().resumed() - resumedBefore >= 2, server.getTls().stats().toString());
+    assertTrue((double) server.getTls().stats().get("maxHandshakeMs") > 0);
+  }
+
+  @Test
+  void plaintextClientFailsTheHandshake() throws Exception {
+    long failuresBefore = server.getTls().failures();
+    try (Socket s = new Socket("localhost", port)) {
+      s.setSoTimeout(5000);
+      s.getOutputStream().write("GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+      byte[] reply = s.getInputStream().readAllBytes();
+      assertTrue(!new String(reply, StandardCharsets.ISO_8859_1).contains("hello tls"));
+    } catch (IOException reset) {
+      // the server may reset rather than close
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    while (server.getTls().failures() == failuresBefore && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertEquals(failuresBefore + 1, server.getTls().failures());
+  }
+  //#endregion
+
+  private static SSLSocket connect(String protocol) throws IOException {
+    SSLSocket s = (SSLSocket) clientContext.getSocketFactory().createSocket("localhost", port);
+    s.setSoTimeout(5000);
+    SSLParameters params = s.getSSLParameters();
+    params.setApplicationProtocols(new String[]{protocol});
+    s.setSSLParameters(params);
+    s.startHandshake();
+    return s;
+  }
+
+  // Reads one response; with a body marker, up to it, otherwise to the end of the connection
+  private static String readResponse(InputStream in, String until) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    int b;
+    while ((until == null || sb.indexOf(until) < 0) && (b = in.read()) >= 0) sb.append((char) b);
+    return sb.toString();
+  }
+}
@@ -0,0 +1,140 @@
+package org.example.tinyhttp.websocket;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class WebSocketFramesTest {
+
+  private static byte[] naiveMask(byte[] b, int key) {
+    byte[] out = b.clone();
+    for (int i = 0; i < out.length; i++) out[i] ^= (byte) (key >>> (24 - 8 * (i & 3)));
+    return out;
+  }
+
+  //#region Masking
+  @Test
+  void testMask_matchesBytewiseForAllTailLengths() {
+    Random rnd = new Random(42);
+    for (int len = 0; len < 40; len++) {
+      byte[] b = new byte[len];
+      rnd.nextBytes(b);
+      int key = rnd.nextInt();
+      byte[] bulk = b.clone();
+      WebSocketFrames.mask(bulk, 0, len, key);
+      assertArrayEquals(naiveMask(b, key), bulk, "len " + len);
+    }
+  }
+
+  @Test
+  void testMask_isItsOwnInverse() {
+    byte[] b = "hello websocket frames".getBytes();
+    byte[] copy = b.clone();
+    WebSocketFrames.mask(copy, 0, copy.length, 0x37fa213d);
+    WebSocketFrames.mask(copy, 0, copy.length, 0x37fa213d);
+    assertArrayEquals(b, copy);
+  }
+  //#endregion
+
+  //#region Codec
+  @Test
+  void testRoundTrip_allLengthEncodings() throws IOException {
+    for (int len : new int[]{0, 125, 126, 65535, 65536, 200_000}) {
+      byte[] payload = new byte[len];
+      new Random(len).nextBytes(payload);
+      ByteArrayOutputStream wire = new ByteArrayOutputStream();
+      WebSocketFrames.writeMasked(wire, true, false, WebSocketFrames.BINARY, payload, 0, len, 0x11223344);
+
+      WebSocketFrames.Frame f = WebSocketFrames.read(new ByteArrayInputStream(wire.toByteArray()), 1 << 20);
+      assertTrue(f.fin());
+      assertEquals(WebSocketFrames.BINARY, f.opcode());
+      assertArrayEquals(payload, f.payload(), "len " + len);
+    }
+  }
+
+  @Test
+  void testServerFrame_isUnmaskedWithShortHeader() throws IOException {
+    ByteArrayOutputStream wire = new ByteArrayOutputStream();
+    WebSocketFrames.write(wire, true, false, WebSocketFrames.TEXT, "Hi".getBytes(), 0, 2);
+    assertArrayEquals(new byte[]{(byte) 0x81, 0x02, 'H', 'i'}, wire.toByteArray());
+  }
+
+  @Test
+  void testRead_rejectsUnmaskedOversizedAndEmpty() throws IOException {
+    ByteArrayOutputStream unmasked = new ByteArrayOutputStream();
+    WebSocketFrames.write(unmasked, true, false, WebSocketFrames.TEXT, "x".getBytes(), 0, 1);
+    var e = assertThrows(WebSocketFrames.ProtocolError.class,
+      () -> WebSocketFrames.read(new ByteArrayInputStream(unmasked.toByteArray()), 100));
+    assertEquals(WebSocketFrames.PROTOCOL_ERROR, e.code);
+
+    ByteArrayOutputStream big = new ByteArrayOutputStream();
+    WebSocketFrames.writeMasked(big, true, false, WebSocketFrames.TEXT, new byte[200], 0, 200, 1);
+    e = assertThrows(WebSocketFrames.ProtocolError.class,
+      () -> WebSocketFrames.read(new ByteArrayInputStream(big.toByteArray()), 100));
+    assertEquals(WebSocketFrames.MESSAGE_TOO_BIG, e.code);
+
+    assertNull(WebSocketFrames.read(new ByteArrayInputStream(new byte[0]), 100));
+  }
+
+  @Test
+  void testRead_rejectsControlFrameBeforeItsPayload() {
+    // ping announcing 126 bytes and unfragmented close without FIN; neither payload is ever sent
+    for (byte[] head : new byte[][]{{(byte) 0x89, (byte) (0x80 | 126)}, {0x08, (byte) 0x80}}) {
+      var e = assertThrows(WebSocketFrames.ProtocolError.class,
+        () -> WebSocketFrames.read(new ByteArrayInputStream(head), 1 << 20));
+      assertEquals(WebSocketFrames.PROTOCOL_ERROR, e.code);
+    }
+  }
+
+  @Test
+  void testRead_timeoutIsIdleOnlyBetweenFrames() {
+    assertThrows(SocketTimeoutException.class, () -> WebSocketFrames.read(new TimingOut(new byte[0]), 100));
+
+    // header started, then the peer stalls: not idle, the connection is broken
+    var e = assertThrows(IOException.class,
+      () -> WebSocketFrames.read(new TimingOut(new byte[]{(byte) 0x81, (byte) 0x85}), 100));
+    assertFalse(e instanceof SocketTimeoutException, e.toString());
+  }
+
+  // Serves the given bytes, then times out like a socket with SO_TIMEOUT
+  private static final class TimingOut extends InputStream {
+    private final byte[] bytes;
+    private int pos;
+
+    TimingOut(byte[] bytes) { this.bytes = bytes; }
+
+    @Override
+    public int read() throws IOException {
+      if (pos == bytes.length) throw new SocketTimeoutException("Read timed out");
+      return bytes[pos++] & 0xFF;
+    }
+  }
+  //#endregion
+
+  //#region Handshake
+  @Test
+  void testAccept_rfcExample() {
+    assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketFrames.accept("dGhlIHNhbXBsZSBub25jZQ=="));
+  }
+
+  @Test
+  void testOffersDeflate() {
+    assertTrue(WebSocket.offersDeflate(List.of("permessage-deflate; client_max_window_bits")));
+    assertTrue(WebSocket.offersDeflate(List.of("x-foo, permessage-deflate")));
+    assertFalse(WebSocket.offersDeflate(List.of("permessage-deflate; server_max_window_bits=10")));
+    assertFalse(WebSocket.offersDeflate(null));
+  }
+  //#endregion
+}